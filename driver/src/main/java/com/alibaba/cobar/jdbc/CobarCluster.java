@@ -0,0 +1,252 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端缓存的集群视图，由SHOW COBAR_CLUSTER取得。视图超过30秒后，下一次取得节点时提交给后台线程刷新，
+ * 刷新完成前继续使用旧视图；没有调用时不会刷新。
+ * 每个host:port只对应一个{@link CobarNode}对象，种子主机和集群列表中的同一节点共用延迟和失败记录。
+ * 
+ * <pre>
+ * 选择节点时：
+ *   1.跳过最近连接失败还在退避期内的节点，全部在退避期内时不跳过；
+ *   2.实时权重 = 配置权重 / (连接延迟ms + 1)，还没有延迟样本的节点按最小延迟计算；
+ *   3.按实时权重随机选择。
+ * 无法取得集群列表时使用URL中列出的全部主机。
+ * </pre>
+ */
+public class CobarCluster {
+    private static final long REFRESH_PERIOD = 30 * 1000L;
+    private static final int SOCKET_TIMEOUT = 10 * 1000;
+    private static final String URL_MYSQL_PREFIX = "jdbc:mysql://";
+    private static final Random RANDOM = new Random();
+    private static final Executor REFRESHER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "CobarClusterRefresher");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final List<CobarNode> seeds;
+    private final ConcurrentMap<String, CobarNode> known;
+    private final String user;
+    private final String password;
+    private final String database;
+    private final String paramString;
+    private final AtomicBoolean refreshing;
+    private final AtomicInteger seedIndex;
+    private volatile List<CobarNode> nodes;
+    private volatile long lastRefresh;
+
+    public CobarCluster(List<CobarNode> seeds, String user, String password, String database, String paramString) {
+        this.known = new ConcurrentHashMap<String, CobarNode>();
+        List<CobarNode> list = new ArrayList<CobarNode>(seeds.size());
+        for (CobarNode seed : seeds) {
+            list.add(resolve(seed));
+        }
+        this.seeds = Collections.unmodifiableList(list);
+        this.user = user;
+        this.password = password;
+        this.database = database;
+        this.paramString = paramString;
+        this.refreshing = new AtomicBoolean(false);
+        this.seedIndex = new AtomicInteger(0);
+    }
+
+    /**
+     * 当前可选择的节点
+     */
+    public List<CobarNode> getNodes() {
+        List<CobarNode> list = nodes;
+        if (list == null) {
+            synchronized (this) {
+                if (nodes == null) {
+                    refresh();
+                }
+                list = nodes;
+            }
+        } else if (System.currentTimeMillis() - lastRefresh > REFRESH_PERIOD && refreshing.compareAndSet(false, true)) {
+            // 过期的视图继续使用，由后台线程刷新。
+            REFRESHER.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
+        }
+        return list;
+    }
+
+    /**
+     * 测试时指定集群视图，视图在刷新周期内不会刷新
+     */
+    void setNodes(List<CobarNode> nodes) {
+        List<CobarNode> list = new ArrayList<CobarNode>(nodes.size());
+        for (CobarNode n : nodes) {
+            list.add(resolve(n));
+        }
+        this.nodes = Collections.unmodifiableList(list);
+        this.lastRefresh = System.currentTimeMillis();
+    }
+
+    public CobarNode select() {
+        return select(getNodes(), System.currentTimeMillis());
+    }
+
+    /**
+     * 生成连接到指定节点的MySQL格式的URL
+     */
+    public String getUrl(CobarNode node) {
+        StringBuilder url = new StringBuilder();
+        url.append(URL_MYSQL_PREFIX).append(node.getHost()).append(':').append(node.getPort());
+        if (database != null) {
+            url.append('/').append(database);
+        }
+        if (paramString != null) {
+            url.append('?').append(paramString);
+        }
+        return url.toString();
+    }
+
+    static CobarNode select(List<CobarNode> list, long now) {
+        List<CobarNode> available = new ArrayList<CobarNode>(list.size());
+        for (CobarNode node : list) {
+            if (node.isAvailable(now)) {
+                available.add(node);
+            }
+        }
+        if (available.isEmpty()) {
+            available = list;
+        }
+
+        long minLatency = 0L;
+        for (CobarNode node : available) {
+            long latency = node.getLatency();
+            if (latency > 0 && (minLatency == 0 || latency < minLatency)) {
+                minLatency = latency;
+            }
+        }
+        double[] weights = new double[available.size()];
+        double total = 0;
+        for (int i = 0; i < weights.length; ++i) {
+            CobarNode node = available.get(i);
+            long latency = node.getLatency();
+            if (latency == 0) {
+                latency = minLatency;
+            }
+            weights[i] = node.getWeight() / (latency / 1000000.0 + 1);
+            total += weights[i];
+        }
+
+        // 总权重小于等于零时随机选择
+        if (total <= 0) {
+            return available.get(RANDOM.nextInt(available.size()));
+        }
+        double rnd = RANDOM.nextDouble() * total;
+        for (int i = 0; i < weights.length; ++i) {
+            if ((rnd -= weights[i]) < 0) {
+                return available.get(i);
+            }
+        }
+        return available.get(weights.length - 1);
+    }
+
+    /**
+     * 从种子主机中轮流选择一个取得集群列表，保留已知节点的延迟和失败记录。
+     */
+    private void refresh() {
+        long now = System.currentTimeMillis();
+        List<CobarNode> order = new ArrayList<CobarNode>(seeds.size());
+        List<CobarNode> backoff = new ArrayList<CobarNode>();
+        int start = seedIndex.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < seeds.size(); ++i) {
+            CobarNode seed = seeds.get((start + i) % seeds.size());
+            if (seed.isAvailable(now)) {
+                order.add(seed);
+            } else {
+                backoff.add(seed);
+            }
+        }
+        order.addAll(backoff);
+
+        List<CobarNode> list = null;
+        for (CobarNode seed : order) {
+            list = query(seed);
+            if (list != null) {
+                break;
+            }
+        }
+
+        List<CobarNode> result = new ArrayList<CobarNode>();
+        if (list != null) {
+            for (CobarNode n : list) {
+                if (n.getWeight() > 0) {
+                    result.add(resolve(n));
+                }
+            }
+        }
+        if (!result.isEmpty()) {
+            nodes = Collections.unmodifiableList(result);
+        } else if (nodes == null || list != null) {
+            nodes = seeds;
+        }
+        lastRefresh = System.currentTimeMillis();
+    }
+
+    /**
+     * 取得host:port对应的唯一节点对象，已知节点按n更新权重。
+     */
+    private CobarNode resolve(CobarNode n) {
+        CobarNode node = known.putIfAbsent(n.getKey(), n);
+        if (node == null) {
+            return n;
+        }
+        node.setWeight(n.getWeight());
+        return node;
+    }
+
+    private List<CobarNode> query(CobarNode seed) {
+        UrlConnection c = new UrlConnection(seed.getHost(), seed.getPort(), user, password, database);
+        try {
+            c.connect(SOCKET_TIMEOUT);
+            return c.getServerList();
+        } catch (Throwable e) {
+            seed.fail(System.currentTimeMillis());
+            return null;
+        } finally {
+            c.close();
+        }
+    }
+
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.jdbc;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * 带连接池的数据源，为集群中每个节点维护一个连接池，省去每次取得连接时的TCP连接和认证。
+ * 
+ * <pre>
+ * 使用方法：
+ *   CobarDataSource ds = new CobarDataSource();
+ *   ds.setUrl("jdbc:cobar://host1:port,host2:port/dbname");
+ *   ds.setUser("xxx");
+ *   ds.setPassword("xxx");
+ *   ds.setMaxActive(32);
+ *   Connection c = ds.getConnection();
+ *   ...
+ *   c.close(); // 放回连接池
+ *   ...
+ *   ds.close();
+ * 
+ * 各节点连接池的容量 = maxActive * 节点权重 / 总权重，至少为1。
+ * 集群视图中的权重变化后，容量增加立即生效，减少时每个维护周期最多减少当前容量的1/4，
+ * 避免同时关闭大量连接。从集群中移除的节点按同样的方式逐步关闭。
+ * 取得连接时按{@link CobarCluster}的实时权重选择节点，该节点没有可用连接或者连接失败时使用其他节点。
+ * 连接归还时回滚未提交的事务并恢复自动提交，其他会话状态不会重置。
+ * </pre>
+ */
+public class CobarDataSource implements DataSource {
+
+    private String url;
+    private String user;
+    private String password;
+    private int maxActive = 32;
+    private long maxWait = 10 * 1000L;
+    private long maxIdleTime = 30 * 60 * 1000L;
+    private long validationInterval = 30 * 1000L;
+    private long maintainPeriod = 5 * 1000L;
+    private int loginTimeout;
+    private PrintWriter logWriter;
+
+    private Driver driver;
+    private Properties info;
+    private CobarCluster cluster;
+    private volatile Map<String, NodePool> pools;
+    private ScheduledExecutorService maintainer;
+    private volatile boolean inited;
+    private volatile boolean closed;
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    /**
+     * 全部节点连接池的总容量
+     */
+    public void setMaxActive(int maxActive) {
+        this.maxActive = maxActive;
+    }
+
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    /**
+     * 没有可用连接时等待的最长时间(ms)
+     */
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public long getValidationInterval() {
+        return validationInterval;
+    }
+
+    /**
+     * 空闲超过该时间(ms)的连接在借出前用COM_PING验证
+     */
+    public void setValidationInterval(long validationInterval) {
+        this.validationInterval = validationInterval;
+    }
+
+    public long getMaintainPeriod() {
+        return maintainPeriod;
+    }
+
+    public void setMaintainPeriod(long maintainPeriod) {
+        this.maintainPeriod = maintainPeriod;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        init();
+        CobarNode node = cluster.select();
+        NodePool pool = pools.get(node.getKey());
+        if (pool == null) {
+            // 集群视图刚刚刷新，维护线程还没有为新节点建立连接池。
+            rebalance();
+            pool = pools.get(node.getKey());
+        }
+        List<NodePool> candidates = new ArrayList<NodePool>();
+        if (pool != null) {
+            candidates.add(pool);
+        }
+        for (NodePool p : pools.values()) {
+            if (p != pool) {
+                candidates.add(p);
+            }
+        }
+
+        // 建立连接时的网络错误已由连接池记录节点失败，继续使用其他节点；只在没有出错的节点上等待。
+        NodePool waitPool = null;
+        SQLException error = null;
+        for (NodePool p : candidates) {
+            if (p != pool && !p.getNode().isAvailable(System.currentTimeMillis())) {
+                continue;
+            }
+            try {
+                Connection c = p.borrow(0);
+                if (c != null) {
+                    return c;
+                }
+                if (waitPool == null) {
+                    waitPool = p;
+                }
+            } catch (SQLException e) {
+                if (!Driver.isNetworkError(e)) {
+                    throw e;
+                }
+                error = e;
+            }
+        }
+        if (waitPool != null) {
+            Connection c = waitPool.borrow(maxWait);
+            if (c != null) {
+                return c;
+            }
+        }
+        if (error != null) {
+            throw new SQLException("can not connect to " + url, error.getSQLState(), error);
+        }
+        throw new SQLException("timeout waiting for a connection to " + url);
+    }
+
+    /**
+     * 使用其他用户时不经过连接池
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        init();
+        Properties p = new Properties();
+        p.setProperty("user", username);
+        if (password != null) {
+            p.setProperty("password", password);
+        }
+        return driver.connect(url, p);
+    }
+
+    /**
+     * 关闭全部空闲连接，借出的连接在归还时关闭。
+     */
+    public void close() {
+        Map<String, NodePool> map;
+        synchronized (this) {
+            closed = true;
+            if (maintainer != null) {
+                maintainer.shutdownNow();
+            }
+            map = pools;
+        }
+        if (map != null) {
+            for (NodePool pool : map.values()) {
+                pool.close();
+            }
+        }
+    }
+
+    private void init() throws SQLException {
+        if (closed) {
+            throw new SQLException("data source is closed");
+        }
+        if (inited) {
+            return;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new SQLException("data source is closed");
+            }
+            if (!inited) {
+                init0();
+            }
+        }
+        rebalance();
+    }
+
+    /**
+     * 只在第一次取得连接时调用，之后走{@link #init()}中的volatile快速路径。
+     */
+    private void init0() throws SQLException {
+        if (url == null) {
+            throw new SQLException("property 'url' is null!");
+        }
+        if (driver == null) {
+            driver = new Driver();
+        }
+        info = new Properties();
+        if (user != null) {
+            info.setProperty("user", user);
+        }
+        if (password != null) {
+            info.setProperty("password", password);
+        }
+        cluster = UrlProvider.getCluster(url, info);
+        if (cluster == null) {
+            throw new SQLException("not a cobar url: " + url);
+        }
+        pools = new HashMap<String, NodePool>();
+        maintainer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "CobarDataSourceMaintainer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        maintainer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    rebalance();
+                } catch (Throwable e) {
+                    //ignore log
+                }
+            }
+        }, maintainPeriod, maintainPeriod, TimeUnit.MILLISECONDS);
+        inited = true;
+    }
+
+    /**
+     * @return 节点的连接池，没有时返回null
+     */
+    NodePool getPool(CobarNode node) {
+        Map<String, NodePool> map = pools;
+        return map == null ? null : map.get(node.getKey());
+    }
+
+    /**
+     * 测试时替换建立物理连接的驱动，在第一次取得连接之前调用
+     */
+    synchronized void setDriver(Driver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * 按集群视图中的权重调整各节点连接池的容量。
+     * 刷新集群视图和关闭连接都可能阻塞，在数据源的锁之外进行，锁内只替换连接池映射。
+     */
+    void rebalance() {
+        if (closed) {
+            return;
+        }
+        List<CobarNode> nodes = cluster.getNodes();
+        int total = 0;
+        for (CobarNode node : nodes) {
+            total += Math.max(node.getWeight(), 0);
+        }
+        Map<String, Integer> targets = new HashMap<String, Integer>();
+        for (CobarNode node : nodes) {
+            int target = 1;
+            if (total > 0) {
+                target = Math.max((int) ((long) maxActive * Math.max(node.getWeight(), 0) / total), 1);
+            }
+            targets.put(node.getKey(), target);
+        }
+
+        Map<String, NodePool> map;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            map = new HashMap<String, NodePool>(pools);
+            for (CobarNode node : nodes) {
+                if (!map.containsKey(node.getKey())) {
+                    map.put(node.getKey(), new NodePool(node, cluster.getUrl(node), info, driver, validationInterval));
+                }
+            }
+            pools = map;
+        }
+
+        List<NodePool> removed = new ArrayList<NodePool>();
+        for (NodePool pool : map.values()) {
+            Integer target = targets.get(pool.getNode().getKey());
+            int capacity = pool.getCapacity();
+            int next = target == null ? 0 : target;
+            if (next < capacity) {
+                next = Math.max(next, capacity - Math.max(capacity / 4, 1));
+            }
+            pool.setCapacity(next, maxIdleTime);
+            if (next == 0 && pool.isEmpty()) {
+                removed.add(pool);
+            }
+        }
+        if (removed.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            map = new HashMap<String, NodePool>(pools);
+            for (Iterator<NodePool> it = removed.iterator(); it.hasNext();) {
+                NodePool pool = it.next();
+                if (map.get(pool.getNode().getKey()) == pool) {
+                    map.remove(pool.getNode().getKey());
+                } else {
+                    it.remove();
+                }
+            }
+            pools = map;
+        }
+        for (NodePool pool : removed) {
+            pool.close();
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("Not supported yet.");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+}
@@ -16,15 +16,26 @@
 package com.alibaba.cobar.jdbc;
 
 /**
+ * 集群中的一个节点，除配置的权重外还记录客户端观察到的连接延迟和失败情况。
+ *
  * @author xianmao.hexm 2012-4-27
  */
 public class CobarNode {
+    private static final long BACKOFF_BASE = 1000L;
+    private static final long BACKOFF_MAX = 60 * 1000L;
 
-    private String host;
-    private int weight;
+    private final String host;
+    private final int port;
+    private volatile int weight;
 
-    public CobarNode(String host, int weight) {
+    // 建立连接耗时的指数加权平均值(ns)，0表示还没有样本。
+    private long latency;
+    private int failures;
+    private long failUntil;
+
+    public CobarNode(String host, int port, int weight) {
         this.host = host;
+        this.port = port;
         this.weight = weight;
     }
 
@@ -32,8 +43,48 @@ public class CobarNode {
         return host;
     }
 
+    public int getPort() {
+        return port;
+    }
+
     public int getWeight() {
         return weight;
     }
 
+    void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    public synchronized long getLatency() {
+        return latency;
+    }
+
+    /**
+     * 不在失败后的退避期内
+     */
+    public synchronized boolean isAvailable(long now) {
+        return now >= failUntil;
+    }
+
+    /**
+     * 记录一次成功的连接，新样本占1/4的权重。
+     */
+    public synchronized void success(long nanos) {
+        latency = latency == 0 ? nanos : latency + (nanos - latency) / 4;
+        failures = 0;
+        failUntil = 0;
+    }
+
+    /**
+     * 记录一次失败的连接，连续失败时退避时间成倍增加。
+     */
+    public synchronized void fail(long now) {
+        failures++;
+        failUntil = now + Math.min(BACKOFF_BASE << Math.min(failures - 1, 16), BACKOFF_MAX);
+    }
+
+    String getKey() {
+        return host + ':' + port;
+    }
+
 }
@@ -31,6 +31,8 @@ import java.util.logging.Logger;
  * 使用方法：
  *   Class.forName("com.alibaba.cobar.jdbc.Driver");
  *   String url = "jdbc:cobar://host:port/dbname?user=xxx&password=xxx";
+ *   或者列出多个主机，取得集群列表时轮流使用：
+ *   String url = "jdbc:cobar://host1:port,host2:port/dbname?user=xxx&password=xxx";
  *   ...
  * </pre>
  *
@@ -39,6 +41,7 @@ import java.util.logging.Logger;
 public class Driver extends NonRegisteringDriver implements java.sql.Driver {
 
     public static final String VERSION = "1.0.0";
+    private static final int MAX_CONNECT_TRIES = 3;
 
     /**
      * Register ourselves with the DriverManager
@@ -62,7 +65,38 @@ public class Driver extends NonRegisteringDriver implements java.sql.Driver {
 
     @Override
     public Connection connect(String url, Properties info) throws SQLException {
-        return super.connect(UrlProvider.getUrl(url, info), info);
+        CobarCluster cluster = UrlProvider.getCluster(url, info);
+        if (cluster == null) {
+            return super.connect(url, info);
+        }
+
+        // 网络错误时记录节点失败，并换一个节点重试。
+        int tries = Math.min(MAX_CONNECT_TRIES, cluster.getNodes().size());
+        for (int i = 1;; ++i) {
+            CobarNode node = cluster.select();
+            long start = System.nanoTime();
+            try {
+                Connection c = super.connect(cluster.getUrl(node), info);
+                node.success(System.nanoTime() - start);
+                return c;
+            } catch (SQLException e) {
+                if (!isNetworkError(e)) {
+                    throw e;
+                }
+                node.fail(System.currentTimeMillis());
+                if (i >= tries) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * SQLState为08开头的连接错误
+     */
+    static boolean isNetworkError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
     }
 
     @Override
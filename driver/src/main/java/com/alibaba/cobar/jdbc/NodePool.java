@@ -0,0 +1,295 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 一个Cobar节点的连接池。空闲连接后进先出，借出时空闲超过验证间隔的连接先发送COM_PING验证。
+ * 容量由{@link CobarDataSource}按节点权重调整，超出容量的连接在归还时关闭。
+ */
+final class NodePool {
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    private final CobarNode node;
+    private final String url;
+    private final Properties info;
+    private final Driver driver;
+    private final long validationInterval;
+    private final LinkedList<IdleConnection> idle;
+    private int active;
+    private int capacity;
+    private boolean closed;
+
+    NodePool(CobarNode node, String url, Properties info, Driver driver, long validationInterval) {
+        this.node = node;
+        this.url = url;
+        this.info = info;
+        this.driver = driver;
+        this.validationInterval = validationInterval;
+        this.idle = new LinkedList<IdleConnection>();
+    }
+
+    CobarNode getNode() {
+        return node;
+    }
+
+    synchronized int getCapacity() {
+        return capacity;
+    }
+
+    synchronized boolean isEmpty() {
+        return active == 0 && idle.isEmpty();
+    }
+
+    /**
+     * 调整容量，并关闭超出容量和空闲超过maxIdleTime的空闲连接。
+     */
+    void setCapacity(int capacity, long maxIdleTime) {
+        List<Connection> discards = new LinkedList<Connection>();
+        synchronized (this) {
+            this.capacity = capacity;
+            long now = System.currentTimeMillis();
+            while (!idle.isEmpty() && (active + idle.size() > capacity || idle.getLast().time < now - maxIdleTime)) {
+                discards.add(idle.removeLast().connection);
+            }
+            notifyAll();
+        }
+        for (Connection c : discards) {
+            closeQuietly(c);
+        }
+    }
+
+    /**
+     * @param wait 没有可用连接时等待的时间(ms)，小于等于零时不等待。
+     * @return null if no connection is available or the pool is closed
+     */
+    Connection borrow(long wait) throws SQLException {
+        long deadline = System.currentTimeMillis() + wait;
+        for (;;) {
+            IdleConnection ic = null;
+            synchronized (this) {
+                for (;;) {
+                    if (closed) {
+                        return null;
+                    }
+                    if (!idle.isEmpty()) {
+                        ic = idle.removeFirst();
+                        break;
+                    }
+                    if (active < capacity) {
+                        break;
+                    }
+                    long remain = deadline - System.currentTimeMillis();
+                    if (remain <= 0) {
+                        return null;
+                    }
+                    try {
+                        wait(remain);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("interrupted while waiting for a connection");
+                    }
+                }
+                active++;
+            }
+
+            if (ic == null) {
+                try {
+                    return wrap(open());
+                } catch (SQLException e) {
+                    release(null);
+                    throw e;
+                } catch (RuntimeException e) {
+                    release(null);
+                    throw e;
+                }
+            }
+            if (System.currentTimeMillis() - ic.time < validationInterval || isValid(ic.connection)) {
+                return wrap(ic.connection);
+            }
+            closeQuietly(ic.connection);
+            release(null);
+        }
+    }
+
+    /**
+     * 关闭全部空闲连接，借出的连接在归还时关闭。
+     */
+    void close() {
+        List<IdleConnection> discards;
+        synchronized (this) {
+            closed = true;
+            discards = new LinkedList<IdleConnection>(idle);
+            idle.clear();
+            notifyAll();
+        }
+        for (IdleConnection ic : discards) {
+            closeQuietly(ic.connection);
+        }
+    }
+
+    private Connection open() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection c = driver.connect(url, info);
+            if (c == null) {
+                throw new SQLException("can not connect to " + url);
+            }
+            node.success(System.nanoTime() - start);
+            return c;
+        } catch (SQLException e) {
+            if (Driver.isNetworkError(e)) {
+                node.fail(System.currentTimeMillis());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 归还借出的连接
+     * 
+     * @param c 物理连接，为null时表示该连接已经关闭。
+     */
+    private void release(Connection c) {
+        boolean discard = false;
+        synchronized (this) {
+            active--;
+            if (c != null) {
+                if (closed || active + idle.size() >= capacity) {
+                    discard = true;
+                } else {
+                    idle.addFirst(new IdleConnection(c, System.currentTimeMillis()));
+                }
+            }
+            notifyAll();
+        }
+        if (discard) {
+            closeQuietly(c);
+        }
+    }
+
+    private Connection wrap(Connection c) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                new PooledConnection(c));
+    }
+
+    private static boolean isValid(Connection c) {
+        try {
+            // MySQL驱动的isValid发送COM_PING
+            return c.isValid(VALIDATION_TIMEOUT);
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection c) {
+        try {
+            c.close();
+        } catch (Throwable e) {
+            //ignore log
+        }
+    }
+
+    private static final class IdleConnection {
+        private final Connection connection;
+        private final long time;
+
+        private IdleConnection(Connection connection, long time) {
+            this.connection = connection;
+            this.time = time;
+        }
+    }
+
+    /**
+     * 借出的连接，close时回滚未提交的事务并放回连接池，遇到网络错误的连接不再放回。
+     */
+    private final class PooledConnection implements InvocationHandler {
+        private final Connection connection;
+        private boolean closed;
+        private boolean broken;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                close();
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return closed || connection.isClosed();
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("toString".equals(name)) {
+                return "pooled " + connection;
+            }
+            if (closed) {
+                throw new SQLException("connection is closed");
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                Throwable t = e.getTargetException();
+                if (t instanceof SQLException && Driver.isNetworkError((SQLException) t)) {
+                    broken = true;
+                }
+                throw t;
+            }
+        }
+
+        private synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (!broken) {
+                try {
+                    if (!connection.getAutoCommit()) {
+                        connection.rollback();
+                        connection.setAutoCommit(true);
+                    }
+                    connection.clearWarnings();
+                } catch (SQLException e) {
+                    broken = true;
+                }
+            }
+            if (broken) {
+                closeQuietly(connection);
+                release(null);
+            } else {
+                release(connection);
+            }
+        }
+    }
+
+}
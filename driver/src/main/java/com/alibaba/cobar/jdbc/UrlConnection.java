@@ -88,6 +88,7 @@ public class UrlConnection {
         socket.setKeepAlive(true);
         socket.setReceiveBufferSize(RECV_BUFFER_SIZE);
         socket.setSendBufferSize(SEND_BUFFER_SIZE);
+        socket.setSoTimeout(timeout);
         socket.connect(new InetSocketAddress(host, port), timeout);
         in = new BufferedInputStream(socket.getInputStream(), INPUT_STREAM_BUFFER);
         out = new BufferedOutputStream(socket.getOutputStream(), OUTPUT_STREAM_BUFFER);
@@ -206,7 +207,7 @@ public class UrlConnection {
                 row.read(bin);
                 String host = new String(row.fieldValues.get(0));
                 int weight = Integer.parseInt(new String(row.fieldValues.get(1)));
-                list.add(new CobarNode(host, weight));
+                list.add(new CobarNode(host, port, weight));
             }
         }
     }
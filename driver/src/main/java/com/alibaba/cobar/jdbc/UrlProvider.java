@@ -16,10 +16,12 @@
 package com.alibaba.cobar.jdbc;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
-import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author xianmao.hexm 2012-4-27
@@ -28,31 +30,52 @@ public class UrlProvider {
     private static final String URL_COBAR_PREFIX = "jdbc:cobar://";
     private static final String URL_MYSQL_PREFIX = "jdbc:mysql://";
     private static final int PREFIX_LENGTH = URL_COBAR_PREFIX.length();
-    private static final int SOCKET_CONNECT_TIMEOUT = 10 * 1000;
+    private static final int DEFAULT_PORT = 8066;
     private static final String[] EMPTY_STRING_ARRAY = new String[0];
-    private static final Random RANDOM = new Random();
+    private static final ConcurrentMap<String, CobarCluster> CLUSTERS = new ConcurrentHashMap<String, CobarCluster>();
 
     /**
      * 只处理非空并且以jdbc:cobar://开头的url
      */
     public static final String getUrl(String url, Properties info) throws SQLException {
-        if (url != null && url.regionMatches(true, 0, URL_COBAR_PREFIX, 0, PREFIX_LENGTH)) {
-            UrlConnection c = null;
+        CobarCluster cluster = getCluster(url, info);
+        if (cluster == null) {
+            return url;
+        }
+        return cluster.getUrl(cluster.select());
+    }
+
+    /**
+     * 取得url对应的集群视图，相同的url和连接参数共用一个。
+     *
+     * @return null if url is not started with jdbc:cobar://
+     */
+    public static final CobarCluster getCluster(String url, Properties info) throws SQLException {
+        if (url == null || !url.regionMatches(true, 0, URL_COBAR_PREFIX, 0, PREFIX_LENGTH)) {
+            return null;
+        }
+        String key = new StringBuilder(url).append('\n')
+                                           .append(info.getProperty("user"))
+                                           .append('\n')
+                                           .append(info.getProperty("password"))
+                                           .append('\n')
+                                           .append(info.getProperty("DBNAME"))
+                                           .toString();
+        CobarCluster cluster = CLUSTERS.get(key);
+        if (cluster == null) {
+            ConnectInfo ci = null;
             try {
-                ConnectInfo ci = parseUrl(url, info);
-                c = new UrlConnection(ci.host, ci.port, ci.user, ci.password, ci.database);
-                c.connect(SOCKET_CONNECT_TIMEOUT);
-                return selectUrl(c.getServerList(), url, ci);
+                ci = parseUrl(url, info);
             } catch (Throwable e) {
                 throw new SQLException(e);
-            } finally {
-                if (c != null) {
-                    c.close();
-                }
             }
-        } else {
-            return url;
+            cluster = new CobarCluster(ci.seeds, ci.user, ci.password, ci.database, ci.paramString);
+            CobarCluster old = CLUSTERS.putIfAbsent(key, cluster);
+            if (old != null) {
+                cluster = old;
+            }
         }
+        return cluster;
     }
 
     /**
@@ -114,65 +137,26 @@ public class UrlProvider {
         } else {
             hostStuff = url;
         }
-        // 如果有多个主机只取第一个
-        int index3 = hostStuff.indexOf(',');
-        if (index3 != -1) {
-            hostStuff = hostStuff.substring(0, index3);
-        }
-        int index4 = hostStuff.indexOf(':');
-        if (index4 != -1) {
-            ci.host = hostStuff.substring(0, index4).trim();
-            if (index4 + 1 < hostStuff.length()) {
-                ci.port = Integer.parseInt(hostStuff.substring(index4 + 1).trim());
-            }
-        } else {
-            ci.host = hostStuff.trim();
-            ci.port = 8066;
-        }
-
-        return ci;
-    }
-
-    /**
-     * 结合权重和随机策略
-     */
-    private static String selectUrl(List<CobarNode> list, String originUrl, ConnectInfo info) {
-        int total = 0;
-        for (CobarNode node : list) {
-            total += node.getWeight();
-        }
-        // 如果总权重小于等于零则使用原来的url
-        if (total <= 0) {
-            return originUrl;
-        }
-        int rnd = 1 + RANDOM.nextInt(total);
-        String host = null;
-        for (CobarNode node : list) {
-            if ((rnd -= node.getWeight()) <= 0) {
-                host = node.getHost();
-                break;
+        // 多个主机都作为种子节点
+        List<CobarNode> seeds = new ArrayList<CobarNode>();
+        for (String host : split(hostStuff, ',')) {
+            int index3 = host.indexOf(':');
+            if (index3 != -1) {
+                int port = DEFAULT_PORT;
+                if (index3 + 1 < host.length()) {
+                    port = Integer.parseInt(host.substring(index3 + 1).trim());
+                }
+                seeds.add(new CobarNode(host.substring(0, index3).trim(), port, 1));
+            } else {
+                seeds.add(new CobarNode(host.trim(), DEFAULT_PORT, 1));
             }
         }
-        if (host == null) {
-            int i = RANDOM.nextInt(list.size());
-            host = list.get(i).getHost();
-        }
-
-        // 无法取得新的host，则返回原来的url。
-        if (host == null) {
-            return originUrl;
+        if (seeds.isEmpty()) {
+            throw new IllegalArgumentException("no host in url");
         }
+        ci.seeds = seeds;
 
-        // 生成新的URL
-        StringBuilder url = new StringBuilder();
-        url.append(URL_MYSQL_PREFIX).append(host).append(':').append(info.port);
-        if (info.database != null) {
-            url.append('/').append(info.database);
-        }
-        if (info.paramString != null) {
-            url.append('?').append(info.paramString);
-        }
-        return url.toString();
+        return ci;
     }
 
     private static String[] split(String src, char separatorChar) {
@@ -206,8 +190,7 @@ public class UrlProvider {
     }
 
     private static class ConnectInfo {
-        private String host;
-        private int port;
+        private List<CobarNode> seeds;
         private String user;
         private String password;
         private String database;
@@ -0,0 +1,99 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.jdbc;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class CobarClusterTest extends TestCase {
+    private static final int ROUNDS = 20000;
+
+    public void testSelectWeight() {
+        CobarNode n1 = new CobarNode("10.0.0.1", 8066, 3);
+        CobarNode n2 = new CobarNode("10.0.0.2", 8066, 1);
+        CobarNode n3 = new CobarNode("10.0.0.3", 8066, 0);
+        List<CobarNode> list = Arrays.asList(n1, n2, n3);
+        int[] counts = count(list, 0L);
+        Assert.assertEquals(0.75, (double) counts[0] / ROUNDS, 0.03);
+        Assert.assertEquals(0, counts[2]);
+
+        // 实时权重 = 配置权重 / (延迟ms + 1)：3 / (5 + 1) : 1 / (1 + 1)
+        n1.success(5000000L);
+        n2.success(1000000L);
+        counts = count(list, 0L);
+        Assert.assertEquals(0.5, (double) counts[0] / ROUNDS, 0.03);
+
+        // 没有延迟样本的节点按最小延迟计算
+        CobarNode n4 = new CobarNode("10.0.0.4", 8066, 1);
+        counts = count(Arrays.asList(n2, n4), 0L);
+        Assert.assertEquals(0.5, (double) counts[0] / ROUNDS, 0.03);
+    }
+
+    public void testSelectBackoff() {
+        CobarNode n1 = new CobarNode("10.0.0.1", 8066, 1);
+        CobarNode n2 = new CobarNode("10.0.0.2", 8066, 1);
+        List<CobarNode> list = Arrays.asList(n1, n2);
+        long now = 100000L;
+        n1.fail(now);
+        Assert.assertEquals(0, count(list, now)[0]);
+        Assert.assertEquals(0, count(list, now + 999L)[0]);
+        Assert.assertTrue(count(list, now + 1000L)[0] > 0);
+
+        // 连续失败时退避时间成倍增加
+        n1.fail(now);
+        Assert.assertEquals(0, count(list, now + 1999L)[0]);
+        Assert.assertTrue(count(list, now + 2000L)[0] > 0);
+        n1.success(1000000L);
+        Assert.assertTrue(count(list, now)[0] > 0);
+    }
+
+    public void testSelectAllBackoff() {
+        CobarNode n1 = new CobarNode("10.0.0.1", 8066, 3);
+        CobarNode n2 = new CobarNode("10.0.0.2", 8066, 1);
+        long now = 100000L;
+        n1.fail(now);
+        n2.fail(now);
+        int[] counts = count(Arrays.asList(n1, n2), now);
+        Assert.assertEquals(0.75, (double) counts[0] / ROUNDS, 0.03);
+    }
+
+    public void testNodeIdentity() {
+        CobarNode seed = new CobarNode("10.0.0.1", 8066, 1);
+        CobarCluster cluster = new CobarCluster(Arrays.asList(seed, new CobarNode("10.0.0.2", 8066, 1)), "test",
+                null, "test", null);
+
+        // 集群列表中与种子主机相同的节点使用同一个对象，权重按集群列表更新
+        cluster.setNodes(Arrays.asList(new CobarNode("10.0.0.1", 8066, 5), new CobarNode("10.0.0.3", 8066, 2)));
+        List<CobarNode> nodes = cluster.getNodes();
+        Assert.assertSame(seed, nodes.get(0));
+        Assert.assertEquals(5, seed.getWeight());
+        CobarNode n3 = nodes.get(1);
+        cluster.setNodes(Arrays.asList(new CobarNode("10.0.0.3", 8066, 2)));
+        Assert.assertSame(n3, cluster.getNodes().get(0));
+    }
+
+    private static int[] count(List<CobarNode> list, long now) {
+        int[] counts = new int[list.size()];
+        for (int i = 0; i < ROUNDS; i++) {
+            counts[list.indexOf(CobarCluster.select(list, now))]++;
+        }
+        return counts;
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Properties;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class CobarDataSourceTest extends TestCase {
+    private static final String URL = "jdbc:cobar://10.0.0.1:8066,10.0.0.2:8066/test";
+    private static final String HOST1 = "10.0.0.1";
+    private static final String HOST2 = "10.0.0.2";
+
+    private MockDriver driver;
+    private CobarDataSource ds;
+    private CobarCluster cluster;
+    private CobarNode n1;
+    private CobarNode n2;
+
+    @Override
+    protected void setUp() throws Exception {
+        driver = new MockDriver();
+        ds = new CobarDataSource();
+        ds.setUrl(URL);
+        ds.setUser(getName());
+        ds.setMaxActive(8);
+        ds.setMaxWait(0);
+        ds.setMaintainPeriod(3600 * 1000L);
+        ds.setDriver(driver);
+
+        // 与数据源共用的集群视图(每个测试的用户不同)，直接指定节点，不从种子主机取得。
+        Properties info = new Properties();
+        info.setProperty("user", getName());
+        cluster = UrlProvider.getCluster(URL, info);
+        cluster.setNodes(Arrays.asList(new CobarNode(HOST1, 8066, 1), new CobarNode(HOST2, 8066, 1)));
+        n1 = cluster.getNodes().get(0);
+        n2 = cluster.getNodes().get(1);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ds.close();
+    }
+
+    public void testRebalance() throws Exception {
+        ds.getConnection().close();
+        NodePool p1 = ds.getPool(n1);
+        NodePool p2 = ds.getPool(n2);
+        Assert.assertEquals(4, p1.getCapacity());
+        Assert.assertEquals(4, p2.getCapacity());
+        Connection[] cs = new Connection[4];
+        for (int i = 0; i < cs.length; i++) {
+            cs[i] = p2.borrow(0);
+        }
+        for (Connection c : cs) {
+            c.close();
+        }
+        Assert.assertEquals(0, driver.closed(HOST2));
+
+        // 容量增加立即生效，减少时每次最多减少1/4并关闭多余的空闲连接
+        n1.setWeight(3);
+        ds.rebalance();
+        Assert.assertEquals(6, p1.getCapacity());
+        Assert.assertEquals(3, p2.getCapacity());
+        Assert.assertEquals(1, driver.closed(HOST2));
+        ds.rebalance();
+        Assert.assertEquals(2, p2.getCapacity());
+        Assert.assertEquals(2, driver.closed(HOST2));
+        ds.rebalance();
+        Assert.assertEquals(2, p2.getCapacity());
+
+        // 移除的节点逐步关闭，借出的连接归还后才移除连接池
+        Connection busy = p2.borrow(0);
+        cluster.setNodes(Arrays.asList(n1));
+        ds.rebalance();
+        Assert.assertEquals(8, p1.getCapacity());
+        Assert.assertEquals(1, p2.getCapacity());
+        ds.rebalance();
+        Assert.assertEquals(0, p2.getCapacity());
+        Assert.assertSame(p2, ds.getPool(n2));
+        Assert.assertEquals(3, driver.closed(HOST2));
+        busy.close();
+        Assert.assertEquals(4, driver.closed(HOST2));
+        ds.rebalance();
+        Assert.assertNull(ds.getPool(n2));
+        Assert.assertSame(p1, ds.getPool(n1));
+    }
+
+    public void testFailover() throws Exception {
+        // n2的延迟很高，几乎总是先选择n1
+        n1.success(1000000L);
+        n2.success(3600 * 1000000000L);
+        driver.down.add(HOST1);
+        Connection c = ds.getConnection();
+        Assert.assertTrue(c.toString().contains(HOST2));
+        Assert.assertFalse(n1.isAvailable(System.currentTimeMillis()));
+        Assert.assertTrue(ds.getPool(n1).isEmpty());
+
+        // 全部节点连接失败时返回网络错误
+        driver.down.add(HOST2);
+        try {
+            ds.getConnection();
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertEquals("08S01", e.getSQLState());
+        }
+        c.close();
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 测试用的驱动，不连接网络，建立的连接只记录调用。
+ */
+class MockDriver extends Driver {
+    final Set<String> down = Collections.synchronizedSet(new HashSet<String>());
+    final List<MockConnection> connections = Collections.synchronizedList(new ArrayList<MockConnection>());
+
+    MockDriver() throws SQLException {
+    }
+
+    /**
+     * 连接到down中的主机时返回网络错误
+     */
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        synchronized (down) {
+            for (String host : down) {
+                if (url.contains("//" + host + ':')) {
+                    throw new SQLException("Communications link failure: " + url, "08S01");
+                }
+            }
+        }
+        MockConnection c = new MockConnection(url);
+        connections.add(c);
+        return c.proxy;
+    }
+
+    /**
+     * @return 连接到指定主机并且已经关闭的物理连接数
+     */
+    int closed(String host) {
+        int n = 0;
+        synchronized (connections) {
+            for (MockConnection c : connections) {
+                if (c.closed && c.url.contains("//" + host + ':')) {
+                    ++n;
+                }
+            }
+        }
+        return n;
+    }
+
+    static class MockConnection implements InvocationHandler {
+        final String url;
+        final Connection proxy;
+        volatile boolean autoCommit = true;
+        volatile boolean closed;
+        volatile int rollbacks;
+        volatile SQLException error;
+
+        MockConnection(String url) {
+            this.url = url;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, this);
+        }
+
+        /**
+         * 除close和isClosed外的调用抛出error
+         */
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                closed = true;
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return closed;
+            }
+            if ("toString".equals(name)) {
+                return url;
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if (error != null) {
+                throw error;
+            }
+            if ("getAutoCommit".equals(name)) {
+                return autoCommit;
+            }
+            if ("setAutoCommit".equals(name)) {
+                autoCommit = (Boolean) args[0];
+                return null;
+            }
+            if ("rollback".equals(name)) {
+                ++rollbacks;
+                return null;
+            }
+            if ("isValid".equals(name)) {
+                return !closed;
+            }
+            return null;
+        }
+    }
+
+}
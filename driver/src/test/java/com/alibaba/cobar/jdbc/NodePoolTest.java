@@ -0,0 +1,96 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.jdbc.MockDriver.MockConnection;
+
+public class NodePoolTest extends TestCase {
+    private MockDriver driver;
+    private NodePool pool;
+
+    @Override
+    protected void setUp() throws Exception {
+        driver = new MockDriver();
+        pool = new NodePool(new CobarNode("10.0.0.1", 8066, 1), "jdbc:mysql://10.0.0.1:8066/test", new Properties(),
+                driver, 60 * 1000L);
+        pool.setCapacity(2, 60 * 1000L);
+    }
+
+    public void testRollback() throws Exception {
+        Connection c = pool.borrow(0);
+        c.setAutoCommit(false);
+        c.close();
+        Assert.assertTrue(c.isClosed());
+        MockConnection mc = driver.connections.get(0);
+        Assert.assertEquals(1, mc.rollbacks);
+        Assert.assertTrue(mc.autoCommit);
+        Assert.assertFalse(mc.closed);
+
+        // 归还的连接被重用，自动提交的连接归还时不回滚
+        c = pool.borrow(0);
+        Assert.assertEquals(1, driver.connections.size());
+        c.close();
+        Assert.assertEquals(1, mc.rollbacks);
+    }
+
+    public void testDiscardBroken() throws Exception {
+        Connection c = pool.borrow(0);
+        MockConnection mc = driver.connections.get(0);
+        mc.error = new SQLException("Communications link failure", "08S01");
+        try {
+            c.createStatement();
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertEquals("08S01", e.getSQLState());
+        }
+        c.close();
+        Assert.assertTrue(mc.closed);
+
+        // 归还时回滚失败的连接也不再放回
+        c = pool.borrow(0);
+        Assert.assertEquals(2, driver.connections.size());
+        mc = driver.connections.get(1);
+        c.setAutoCommit(false);
+        mc.error = new SQLException("Lock wait timeout exceeded", "HY000");
+        c.close();
+        Assert.assertTrue(mc.closed);
+        Assert.assertTrue(pool.isEmpty());
+    }
+
+    public void testDiscardOverCapacity() throws Exception {
+        Connection c1 = pool.borrow(0);
+        Connection c2 = pool.borrow(0);
+        Assert.assertNull(pool.borrow(0));
+        pool.setCapacity(1, 60 * 1000L);
+        c1.close();
+        c2.close();
+        Assert.assertTrue(driver.connections.get(0).closed);
+        Assert.assertFalse(driver.connections.get(1).closed);
+        Assert.assertFalse(pool.isEmpty());
+
+        pool.close();
+        Assert.assertTrue(driver.connections.get(1).closed);
+        Assert.assertNull(pool.borrow(0));
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cobar.manager.dao;
+
+import java.util.List;
+
+/**
+ * Performance history. A sample is a long array whose first element is the
+ * timestamp; all samples of a key have the same length.
+ */
+public interface PerfHistoryDAO {
+
+    public void append(String key, long[] sample);
+
+    /**
+     * @param step if positive, keep only the last sample of every
+     *            <code>step</code> ms
+     * @return samples with timestamps in [from, to], oldest first
+     */
+    public List<long[]> query(String key, long from, long to, long step);
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cobar.manager.dao.tsdb;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes samples of a fixed number of long fields. Each field is written as
+ * the zigzag varint of its delta-of-delta against the previous two samples, so
+ * timestamps taken at a fixed period and counters growing at a steady rate
+ * cost one byte per field. Encoder and decoder keep the same state and must
+ * see the samples of a segment in the same order.
+ */
+public final class DeltaOfDeltaCodec {
+
+    private final long[] values;
+    private final long[] deltas;
+
+    public DeltaOfDeltaCodec(int fieldCount) {
+        this.values = new long[fieldCount];
+        this.deltas = new long[fieldCount];
+    }
+
+    public int getFieldCount() {
+        return values.length;
+    }
+
+    /**
+     * @return upper bound of the bytes written by one {@link #encode}
+     */
+    public int maxEncodedSize() {
+        return values.length * 10;
+    }
+
+    public void encode(long[] sample, ByteBuffer out) {
+        for (int i = 0; i < values.length; ++i) {
+            long delta = sample[i] - values[i];
+            writeVarLong(out, zigzag(delta - deltas[i]));
+            deltas[i] = delta;
+            values[i] = sample[i];
+        }
+    }
+
+    public long[] decode(ByteBuffer in) {
+        long[] sample = new long[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            long delta = deltas[i] + unzigzag(readVarLong(in));
+            values[i] += delta;
+            deltas[i] = delta;
+            sample[i] = values[i];
+        }
+        return sample;
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void writeVarLong(ByteBuffer out, long v) {
+        while ((v & ~0x7fL) != 0) {
+            out.put((byte) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new IllegalStateException("malformed varint");
+    }
+
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cobar.manager.dao.tsdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import com.alibaba.cobar.manager.dao.PerfHistoryDAO;
+
+/**
+ * Append-only file store of performance history, one directory per key and
+ * one {@link Segment} file per <code>segmentSpan</code>. Files older than
+ * <code>downsampleAfter</code> are rewritten keeping one sample per
+ * <code>downsampleStep</code>, files older than <code>retention</code> are
+ * deleted.
+ */
+public class PerfHistoryDAOImple implements PerfHistoryDAO, InitializingBean, DisposableBean {
+    private static final Logger logger = Logger.getLogger(PerfHistoryDAOImple.class);
+    private static final Pattern KEY_PATTERN = Pattern.compile("[A-Za-z0-9_\\-]+");
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private String path;
+    private long segmentSpan = 6 * 3600 * 1000L;
+    private int segmentSize = 1024 * 1024;
+    private long retention = 30 * 24 * 3600 * 1000L;
+    private long downsampleAfter = 24 * 3600 * 1000L;
+    private long downsampleStep = 60 * 1000L;
+    private long maintainInterval = 3600 * 1000L;
+
+    private File root;
+    private final Map<String, Series> series = new ConcurrentHashMap<String, Series>();
+    private ScheduledExecutorService maintainer;
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public void setSegmentSpan(long segmentSpan) {
+        this.segmentSpan = segmentSpan;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public void setRetention(long retention) {
+        this.retention = retention;
+    }
+
+    public void setDownsampleAfter(long downsampleAfter) {
+        this.downsampleAfter = downsampleAfter;
+    }
+
+    public void setDownsampleStep(long downsampleStep) {
+        this.downsampleStep = downsampleStep;
+    }
+
+    public void setMaintainInterval(long maintainInterval) {
+        this.maintainInterval = maintainInterval;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (path == null) {
+            throw new IllegalArgumentException("property 'path' is null!");
+        }
+        root = new File(path);
+        if (!root.isDirectory() && !root.mkdirs()) {
+            throw new IllegalArgumentException("can not create perf history path: " + path);
+        }
+        recover();
+        maintainer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "PerfHistoryMaintainer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        maintainer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    maintain(System.currentTimeMillis());
+                } catch (Throwable e) {
+                    logger.error("perf history maintain error", e);
+                }
+            }
+        }, maintainInterval, maintainInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (maintainer != null) {
+            maintainer.shutdownNow();
+        }
+        for (Series s : series.values()) {
+            s.close();
+        }
+    }
+
+    @Override
+    public void append(String key, long[] sample) {
+        try {
+            getSeries(key).append(sample);
+        } catch (IOException e) {
+            logger.error("perf history append error for " + key, e);
+        }
+    }
+
+    @Override
+    public List<long[]> query(String key, long from, long to, long step) {
+        List<long[]> list = new ArrayList<long[]>();
+        try {
+            getSeries(key).read(from, to, list);
+        } catch (IOException e) {
+            logger.error("perf history query error for " + key, e);
+        }
+        return step > 0 ? downsample(list, step) : list;
+    }
+
+    /**
+     * applies retention and downsampling to the files of every key
+     */
+    void maintain(long now) throws IOException {
+        File[] dirs = root.listFiles();
+        if (dirs == null) {
+            return;
+        }
+        for (File dir : dirs) {
+            if (dir.isDirectory() && KEY_PATTERN.matcher(dir.getName()).matches()) {
+                getSeries(dir.getName()).maintain(now);
+            }
+        }
+    }
+
+    /**
+     * finishes or discards the downsampled files left by an interrupted
+     * {@link Series#maintain(long)}
+     */
+    private void recover() {
+        File[] dirs = root.listFiles();
+        if (dirs == null) {
+            return;
+        }
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File tmp : files) {
+                String name = tmp.getName();
+                if (!name.endsWith(Segment.SUFFIX + TMP_SUFFIX)) {
+                    continue;
+                }
+                // the temporary file is complete once the original is gone,
+                // otherwise the original is still valid
+                File f = new File(dir, name.substring(0, name.length() - TMP_SUFFIX.length()));
+                boolean done = f.exists() ? tmp.delete() : tmp.renameTo(f);
+                if (!done) {
+                    logger.warn("can not recover perf history file: " + tmp);
+                }
+            }
+        }
+    }
+
+    private Series getSeries(String key) {
+        Series s = series.get(key);
+        if (s == null) {
+            if (!KEY_PATTERN.matcher(key).matches()) {
+                throw new IllegalArgumentException("invalid perf history key: " + key);
+            }
+            synchronized (series) {
+                s = series.get(key);
+                if (s == null) {
+                    s = new Series(new File(root, key));
+                    series.put(key, s);
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * keeps the last sample of every bucket, which is exact for counters
+     */
+    private static List<long[]> downsample(List<long[]> list, long step) {
+        List<long[]> result = new ArrayList<long[]>();
+        long bucket = Long.MIN_VALUE;
+        for (long[] sample : list) {
+            long b = sample[0] / step;
+            if (b == bucket) {
+                result.set(result.size() - 1, sample);
+            } else {
+                result.add(sample);
+                bucket = b;
+            }
+        }
+        return result;
+    }
+
+    private static File[] listSegments(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        List<File> list = new ArrayList<File>(files.length);
+        for (File f : files) {
+            if (Segment.startOf(f) >= 0) {
+                list.add(f);
+            }
+        }
+        File[] segments = list.toArray(new File[list.size()]);
+        Arrays.sort(segments, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                long s1 = Segment.startOf(o1);
+                long s2 = Segment.startOf(o2);
+                return s1 < s2 ? -1 : (s1 == s2 ? 0 : 1);
+            }
+        });
+        return segments;
+    }
+
+    private final class Series {
+        private final File dir;
+        private Segment active;
+        private boolean opened;
+
+        private Series(File dir) {
+            this.dir = dir;
+        }
+
+        synchronized void append(long[] sample) throws IOException {
+            long ts = sample[0];
+            if (!opened) {
+                opened = true;
+                dir.mkdirs();
+                File[] files = listSegments(dir);
+                if (files.length > 0) {
+                    File last = files[files.length - 1];
+                    if (Segment.startOf(last) + segmentSpan > ts) {
+                        active = Segment.open(last, segmentSize);
+                    }
+                }
+            }
+            if (active != null && (active.getStart() + segmentSpan <= ts || active.getFieldCount() != sample.length)) {
+                active.close();
+                active = null;
+            }
+            if (active != null && active.append(sample)) {
+                return;
+            }
+            if (active != null) {
+                active.close();
+            }
+            active = Segment.create(dir, ts, sample.length, segmentSize);
+            if (!active.append(sample)) {
+                throw new IOException("perf history segment size too small: " + segmentSize);
+            }
+        }
+
+        synchronized void read(long from, long to, List<long[]> out) throws IOException {
+            File[] files = listSegments(dir);
+            for (int i = 0; i < files.length; ++i) {
+                long start = Segment.startOf(files[i]);
+                if (start > to) {
+                    break;
+                }
+                // a file holds samples up to the start of the next one
+                if (i + 1 < files.length && Segment.startOf(files[i + 1]) <= from) {
+                    continue;
+                }
+                Segment.read(files[i], from, to, out);
+            }
+        }
+
+        synchronized void maintain(long now) throws IOException {
+            File activeFile = active == null ? null : active.getFile();
+            for (File f : listSegments(dir)) {
+                if (f.equals(activeFile)) {
+                    continue;
+                }
+                Segment.Header h = Segment.readHeader(f);
+                if (h == null) {
+                    continue;
+                }
+                if (h.getLastTimestamp() < now - retention) {
+                    if (!f.delete()) {
+                        logger.warn("can not delete perf history file: " + f);
+                    }
+                } else if (h.getStep() == 0 && h.getLastTimestamp() < now - downsampleAfter && downsampleStep > 0) {
+                    List<long[]> samples = new ArrayList<long[]>(h.getCount());
+                    Segment.read(f, Long.MIN_VALUE, Long.MAX_VALUE, samples);
+                    File tmp = new File(dir, f.getName() + TMP_SUFFIX);
+                    Segment.write(tmp, h.getFieldCount(), downsampleStep, downsample(samples, downsampleStep));
+                    // renameTo does not replace an existing file on some
+                    // platforms, a temporary file left behind is handled by
+                    // recover() at the next startup
+                    if (!tmp.renameTo(f) && !(f.delete() && tmp.renameTo(f))) {
+                        logger.warn("can not replace perf history file: " + f);
+                    }
+                }
+            }
+        }
+
+        synchronized void close() {
+            if (active != null) {
+                active.close();
+                active = null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cobar.manager.dao.tsdb;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * One file of a series, covering samples from the start time in its name up to
+ * the start of the next file. The file is a fixed header followed by the
+ * {@link DeltaOfDeltaCodec} encoded samples:
+ *
+ * <pre>
+ * int magic, int fieldCount, int step, int count, int end, int reserved, long lastTimestamp
+ * </pre>
+ *
+ * <code>step</code> is 0 for raw samples and the bucket width in ms for a
+ * downsampled file. The segment being appended to is memory-mapped at a fixed
+ * size; <code>end</code> is updated after each sample and before the other
+ * header fields, and readers decode whole samples up to <code>end</code>
+ * only, so a crash between the header writes loses at most the last sample.
+ */
+public final class Segment {
+    public static final String SUFFIX = ".seg";
+    private static final int MAGIC = 0x43545344;
+    private static final int HEADER_SIZE = 32;
+    private static final int COUNT_OFFSET = 12;
+    private static final int END_OFFSET = 16;
+    private static final int LAST_OFFSET = 24;
+
+    private final File file;
+    private final long start;
+    private MappedByteBuffer buffer;
+    private final DeltaOfDeltaCodec encoder;
+    private int count;
+    private long lastTimestamp;
+
+    private Segment(File file, long start, MappedByteBuffer buffer, DeltaOfDeltaCodec encoder) {
+        this.file = file;
+        this.start = start;
+        this.buffer = buffer;
+        this.encoder = encoder;
+    }
+
+    public static Segment create(File dir, long start, int fieldCount, int size) throws IOException {
+        File file = new File(dir, start + SUFFIX);
+        MappedByteBuffer buffer = map(file, size);
+        buffer.putInt(MAGIC).putInt(fieldCount).putInt(0).putInt(0).putInt(HEADER_SIZE).putInt(0).putLong(0L);
+        return new Segment(file, start, buffer, new DeltaOfDeltaCodec(fieldCount));
+    }
+
+    /**
+     * reopens a raw segment to continue appending after a restart
+     *
+     * @return null if the file is downsampled or broken
+     */
+    public static Segment open(File file, int size) throws IOException {
+        Header h = readHeader(file);
+        if (h == null || h.step != 0 || h.end > size) {
+            return null;
+        }
+        MappedByteBuffer buffer = map(file, size);
+        Segment seg = new Segment(file, startOf(file), buffer, new DeltaOfDeltaCodec(h.fieldCount));
+        ByteBuffer data = buffer.duplicate();
+        data.position(HEADER_SIZE);
+        data.limit(h.end);
+        // rebuild the encoder state, the header fields are repaired from what
+        // was actually decoded
+        while (data.hasRemaining()) {
+            long[] sample = decode(seg.encoder, data);
+            if (sample == null) {
+                break;
+            }
+            seg.lastTimestamp = sample[0];
+            ++seg.count;
+        }
+        buffer.position(data.position());
+        buffer.putLong(LAST_OFFSET, seg.lastTimestamp);
+        buffer.putInt(COUNT_OFFSET, seg.count);
+        buffer.putInt(END_OFFSET, data.position());
+        return seg;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public int getFieldCount() {
+        return encoder.getFieldCount();
+    }
+
+    /**
+     * @return false if the segment is full
+     */
+    public boolean append(long[] sample) {
+        if (buffer.remaining() < encoder.maxEncodedSize()) {
+            return false;
+        }
+        encoder.encode(sample, buffer);
+        buffer.putInt(END_OFFSET, buffer.position());
+        lastTimestamp = sample[0];
+        buffer.putLong(LAST_OFFSET, lastTimestamp);
+        buffer.putInt(COUNT_OFFSET, ++count);
+        return true;
+    }
+
+    public void close() {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+    }
+
+    /**
+     * reads the samples of a file with timestamps in [from, to] in one pass
+     */
+    public static void read(File file, long from, long to, List<long[]> out) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+            Header h = Header.parse(header);
+            if (h == null || h.end > channel.size()) {
+                return;
+            }
+            ByteBuffer data = ByteBuffer.allocate(h.end - HEADER_SIZE);
+            readFully(channel, data, HEADER_SIZE);
+            data.flip();
+            DeltaOfDeltaCodec decoder = new DeltaOfDeltaCodec(h.fieldCount);
+            while (data.hasRemaining()) {
+                long[] sample = decode(decoder, data);
+                if (sample == null || sample[0] > to) {
+                    break;
+                }
+                if (sample[0] >= from) {
+                    out.add(sample);
+                }
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * writes a complete file at once, used to replace raw files by downsampled
+     * ones
+     */
+    public static void write(File file, int fieldCount, long step, List<long[]> samples) throws IOException {
+        DeltaOfDeltaCodec encoder = new DeltaOfDeltaCodec(fieldCount);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + samples.size() * encoder.maxEncodedSize());
+        buffer.position(HEADER_SIZE);
+        for (long[] sample : samples) {
+            encoder.encode(sample, buffer);
+        }
+        int end = buffer.position();
+        long last = samples.isEmpty() ? 0L : samples.get(samples.size() - 1)[0];
+        buffer.putInt(0, MAGIC).putInt(4, fieldCount).putInt(8, (int) step).putInt(COUNT_OFFSET, samples.size());
+        buffer.putInt(END_OFFSET, end).putInt(20, 0).putLong(LAST_OFFSET, last);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(buffer.array(), 0, end);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return null if the file is not a segment
+     */
+    public static Header readHeader(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (!readFully(raf.getChannel(), header, 0)) {
+                return null;
+            }
+            header.flip();
+            return Header.parse(header);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return -1 if the file is not named as a segment
+     */
+    public static long startOf(File file) {
+        String name = file.getName();
+        if (!name.endsWith(SUFFIX)) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * @return null if the data ends inside a sample
+     */
+    private static long[] decode(DeltaOfDeltaCodec decoder, ByteBuffer data) {
+        try {
+            return decoder.decode(data);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < size) {
+                raf.setLength(size);
+            }
+            // the mapping stays valid after the channel is closed
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                return false;
+            }
+            position += n;
+        }
+        return true;
+    }
+
+    public static final class Header {
+        private int fieldCount;
+        private int step;
+        private int count;
+        private int end;
+        private long lastTimestamp;
+
+        private static Header parse(ByteBuffer buffer) {
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+                    || buffer.getInt(END_OFFSET) < HEADER_SIZE) {
+                return null;
+            }
+            Header h = new Header();
+            h.fieldCount = buffer.getInt(4);
+            h.step = buffer.getInt(8);
+            h.count = buffer.getInt(COUNT_OFFSET);
+            h.end = buffer.getInt(END_OFFSET);
+            h.lastTimestamp = buffer.getLong(LAST_OFFSET);
+            return h;
+        }
+
+        public int getFieldCount() {
+            return fieldCount;
+        }
+
+        public int getStep() {
+            return step;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getLastTimestamp() {
+            return lastTimestamp;
+        }
+    }
+
+}
@@ -21,20 +21,43 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.log4j.Logger;
 import org.xmlpull.mxp1_serializer.MXSerializer;
 import org.xmlpull.v1.XmlPullParser;
 
 /**
+ * Readers see an immutable snapshot of the file without locking. A writer
+ * builds the next snapshot, publishes it with {@link #publish} and waits in
+ * {@link #await} until a background thread has written it to the file.
+ * Snapshots published while a write is running are written together by the
+ * next one. Each write goes to a temporary file that is then renamed over the
+ * original, so the file on disk is always complete.
+ * 
+ * A failed write brings readers back to the last written snapshot, which only
+ * works if no one changes the objects of a snapshot: subclasses store copies
+ * of the objects they are given and return copies to their callers.
+ * 
  * @author haiqing.zhuhq 2011-6-14
  */
-public abstract class AbstractDAOImple {
+public abstract class AbstractDAOImple<S> {
     private static final Logger logger = Logger.getLogger(AbstractDAOImple.class);
+    private static final ExecutorService flusher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "XmlDAOFlusher");
+            t.setDaemon(true);
+            return t;
+        }
+    });
     protected String xmlPath;
     protected XmlPullParser xpp;
     protected MXSerializer xsl;
@@ -42,10 +65,152 @@ public abstract class AbstractDAOImple {
     protected static final long[] EMPTY_LONG_ARRAY = new long[0];
     protected static final int[] EMPTY_INT_ARRAY = new int[0];
 
+    private final Object commitLock = new Object();
+    private volatile S snapshot;
+    private S persistedSnapshot;
+    private long requested;
+    private long persisted;
+    private long failedThrough;
+    private boolean flushing;
+
     public void setXmlFileLoader(XMLFileLoader xmlFileLoader) {
         this.xmlFileLoader = xmlFileLoader;
     }
 
+    /**
+     * writes the whole snapshot as the content of the xml file
+     */
+    protected abstract boolean write(OutputStream os, S s);
+
+    protected S snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * sets the snapshot read from the file
+     */
+    protected void init(S s) {
+        synchronized (commitLock) {
+            snapshot = s;
+            persistedSnapshot = s;
+        }
+    }
+
+    /**
+     * Makes <code>next</code> visible to readers and schedules the write.
+     * Callers serialize the read-modify-publish sequence themselves.
+     * 
+     * @return version to wait for, or -1 if <code>base</code> has been
+     *         discarded by a failed write
+     */
+    protected long publish(S base, S next) {
+        synchronized (commitLock) {
+            if (snapshot != base) {
+                return -1L;
+            }
+            snapshot = next;
+            if (!flushing) {
+                flushing = true;
+                flusher.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                });
+            }
+            return ++requested;
+        }
+    }
+
+    /**
+     * @return false if the write failed, every change not yet written is then
+     *         discarded
+     */
+    protected boolean await(long version) {
+        if (version < 0) {
+            return false;
+        }
+        boolean interrupted = false;
+        try {
+            synchronized (commitLock) {
+                while (persisted < version) {
+                    try {
+                        commitLock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                return failedThrough < version;
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void flush() {
+        for (;;) {
+            S s;
+            long version;
+            synchronized (commitLock) {
+                s = snapshot;
+                version = requested;
+            }
+            boolean ok = writeFile(s);
+            synchronized (commitLock) {
+                if (ok) {
+                    persistedSnapshot = s;
+                } else {
+                    snapshot = persistedSnapshot;
+                    version = requested;
+                    failedThrough = version;
+                }
+                persisted = version;
+                commitLock.notifyAll();
+                if (requested == version) {
+                    flushing = false;
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean writeFile(S s) {
+        if (!backup(xmlPath)) {
+            logger.error("xml backup fail for: " + xmlPath);
+        }
+        File target = new File(xmlPath);
+        File tmp = new File(xmlPath + ".tmp");
+        FileOutputStream os = null;
+        try {
+            os = new FileOutputStream(tmp);
+            if (!write(os, s)) {
+                return false;
+            }
+            os.flush();
+            os.getFD().sync();
+            os.close();
+            os = null;
+            // renameTo does not replace an existing file on some platforms
+            if (tmp.renameTo(target) || (target.delete() && tmp.renameTo(target))) {
+                return true;
+            }
+            logger.error("fail to rename " + tmp + " to " + target);
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+        } finally {
+            if (null != os) {
+                try {
+                    os.close();
+                } catch (IOException e) {
+                    logger.error(e.getMessage(), e);
+                }
+            }
+        }
+        return false;
+    }
+
     //flag means if it is going to write END_TAG
     protected boolean writePrefix(boolean flag) {
         int count = xsl.getDepth();
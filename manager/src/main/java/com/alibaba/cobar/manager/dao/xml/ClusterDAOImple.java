@@ -27,14 +27,14 @@ import static com.alibaba.cobar.manager.util.ConstantDefine.STATUS;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
@@ -50,11 +50,10 @@ import com.alibaba.cobar.manager.dataobject.xml.ClusterDO;
 /**
  * @author haiqing.zhuhq 2011-6-14
  */
-public class ClusterDAOImple extends AbstractDAOImple implements ClusterDAO, InitializingBean {
+public class ClusterDAOImple extends AbstractDAOImple<ClusterDAOImple.Clusters> implements ClusterDAO,
+        InitializingBean {
     private static final Logger logger = Logger.getLogger(ClusterDAOImple.class);
-    private Map<Long, ClusterDO> map;
-    private static long maxId;
-    private static final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock lock = new ReentrantLock();
     private static final Map<String, Integer> typeMap = new HashMap<String, Integer>();
 
     static {
@@ -69,17 +68,16 @@ public class ClusterDAOImple extends AbstractDAOImple implements ClusterDAO, Ini
     }
 
     public ClusterDAOImple() {
-        map = new HashMap<Long, ClusterDO>();
         xpp = new MXParser();
         xsl = new MXSerializer();
-        maxId = Long.MIN_VALUE;
+        init(new Clusters(Collections.<ClusterDO> emptyList()));
     }
 
     private boolean read() {
         FileInputStream is = null;
+        List<ClusterDO> list = new ArrayList<ClusterDO>();
         lock.lock();
         try {
-            map.clear();
             is = new FileInputStream(xmlPath);
             xpp.setInput(is, "UTF-8");
             while (!(xpp.getEventType() == XmlPullParser.END_TAG && "clusters".equals(xpp.getName()))) {
@@ -88,12 +86,12 @@ public class ClusterDAOImple extends AbstractDAOImple implements ClusterDAO, Ini
                     if (null == cluster) {
                         throw new XmlPullParserException("Cluster read error");
                     }
-                    maxId = (maxId < cluster.getId()) ? cluster.getId() : maxId;
-                    map.put(cluster.getId(), cluster);
+                    list.add(cluster);
                 }
                 xpp.next();
             }
             is.close();
+            init(new Clusters(list));
             return true;
         } catch (FileNotFoundException e) {
             logger.error(e.getMessage(), e);
@@ -102,7 +100,6 @@ public class ClusterDAOImple extends AbstractDAOImple implements ClusterDAO, Ini
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
         } finally {
-            maxId = maxId < 0 ? 0 : maxId;
             lock.unlock();
         }
         if (null != is) {
@@ -115,44 +112,25 @@ public class ClusterDAOImple extends AbstractDAOImple implements ClusterDAO, Ini
         return false;
     }
 
-    @SuppressWarnings("rawtypes")
-    private boolean write() {
-        FileOutputStream os = null;
-        lock.lock();
+    @Override
+    protected boolean write(OutputStream os, Clusters clusters) {
         try {
-            if (!backup(xmlPath)) {
-                logger.error("cluster backup fail!");
-            }
-            os = new FileOutputStream(xmlPath);
             xsl.setOutput(os, "UTF-8");
             xsl.startDocument("UTF-8", null);
             xsl.text("\n");
             xsl.startTag(null, "clusters");
             xsl.text("\n");
-            Iterator it = map.entrySet().iterator();
-            while (it.hasNext()) {
-                @SuppressWarnings("unchecked")
-                Map.Entry<Long, ClusterDO> entry = (Entry<Long, ClusterDO>) it.next();
-                ClusterDO cluster = entry.getValue();
+            for (ClusterDO cluster : clusters.byId.values()) {
                 if (!write(cluster)) {
                     throw new IOException("cluster write error!");
                 }
             }
             xsl.endTag(null, "clusters");
             xsl.endDocument();
-            os.close();
+            xsl.flush();
             return true;
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
-        } finally {
-            lock.unlock();
-        }
-        if (null != os) {
-            try {
-                os.close();
-            } catch (IOException e) {
-                logger.error(e.getMessage(), e);
-            }
         }
         return false;
     }
@@ -246,84 +224,120 @@ public class ClusterDAOImple extends AbstractDAOImple implements ClusterDAO, Ini
 
     @Override
     public ClusterDO getClusterById(long id) {
-        return map.get(id);
+        return copy(snapshot().byId.get(id));
     }
 
     @Override
     public boolean modifyCluster(ClusterDO cluster) {
+        long version;
         lock.lock();
         try {
-            if (!checkName(cluster.getName(), cluster.getId())) {
-                return false;
-            }
-            map.put(cluster.getId(), cluster);
-            if (!write()) {
-                logger.error("Fail to modify cluster!");
-                recovery(xmlPath);
-                read();
+            Clusters base = snapshot();
+            if (!base.checkName(cluster.getName(), cluster.getId())) {
                 return false;
             }
+            version = publish(base, base.put(cluster));
         } finally {
             lock.unlock();
         }
+        if (!await(version)) {
+            logger.error("Fail to modify cluster!");
+            return false;
+        }
         return true;
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
     public boolean checkName(String name) {
-        Iterator it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, ClusterDO> entry = (Entry<Long, ClusterDO>) it.next();
-            ClusterDO cluster = entry.getValue();
-            if (name.equals(cluster.getName())) {
-                return false;
-            }
-        }
-        return true;
+        return snapshot().checkName(name, Long.MIN_VALUE);
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
     public boolean checkName(String name, long id) {
-        Iterator it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, ClusterDO> entry = (Entry<Long, ClusterDO>) it.next();
-            ClusterDO cluster = entry.getValue();
-            if (cluster.getId() == id) {
-                continue;
-            }
-            if (name.equals(cluster.getName())) {
-                return false;
-            }
-        }
-        return true;
+        return snapshot().checkName(name, id);
     }
 
     @Override
     public boolean addCluster(ClusterDO cluster) {
+        long version;
         lock.lock();
         try {
-            if (!checkName(cluster.getName())) {
-                return false;
-            }
-            cluster.setId(++maxId);
-            map.put(cluster.getId(), cluster);
-            if (!write()) {
-                logger.error("Fail to add cluster!");
-                recovery(xmlPath);
-                read();
+            Clusters base = snapshot();
+            if (!base.checkName(cluster.getName(), Long.MIN_VALUE)) {
                 return false;
             }
+            cluster.setId(base.maxId + 1);
+            version = publish(base, base.put(cluster));
         } finally {
             lock.unlock();
         }
+        if (!await(version)) {
+            logger.error("Fail to add cluster!");
+            return false;
+        }
         return true;
     }
 
     @Override
     public List<ClusterDO> listAllCluster() {
-        return new ArrayList<ClusterDO>(map.values());
+        List<ClusterDO> list = new ArrayList<ClusterDO>();
+        for (ClusterDO cluster : snapshot().byId.values()) {
+            list.add(copy(cluster));
+        }
+        return list;
+    }
+
+    /**
+     * clusters in a snapshot are never handed out, so that changing a
+     * returned cluster changes no snapshot
+     */
+    private static ClusterDO copy(ClusterDO cluster) {
+        if (cluster == null) {
+            return null;
+        }
+        ClusterDO copy = new ClusterDO();
+        copy.setId(cluster.getId());
+        copy.setName(cluster.getName());
+        copy.setDeployContact(cluster.getDeployContact());
+        copy.setMaintContact(cluster.getMaintContact());
+        copy.setDeployDesc(cluster.getDeployDesc());
+        copy.setOnlineTime(cluster.getOnlineTime());
+        copy.setSortId(cluster.getSortId());
+        return copy;
+    }
+
+    /**
+     * immutable cluster list indexed by id and by name
+     */
+    static final class Clusters {
+        private final Map<Long, ClusterDO> byId;
+        private final Map<String, ClusterDO> byName;
+        private final long maxId;
+
+        private Clusters(Collection<ClusterDO> clusters) {
+            this.byId = new HashMap<Long, ClusterDO>();
+            this.byName = new HashMap<String, ClusterDO>();
+            long max = 0;
+            for (ClusterDO cluster : clusters) {
+                byId.put(cluster.getId(), cluster);
+                max = Math.max(max, cluster.getId());
+            }
+            for (ClusterDO cluster : byId.values()) {
+                byName.put(cluster.getName(), cluster);
+            }
+            this.maxId = max;
+        }
+
+        private Clusters put(ClusterDO cluster) {
+            Map<Long, ClusterDO> map = new HashMap<Long, ClusterDO>(byId);
+            map.put(cluster.getId(), copy(cluster));
+            return new Clusters(map.values());
+        }
+
+        private boolean checkName(String name, long id) {
+            ClusterDO cluster = byName.get(name);
+            return cluster == null || cluster.getId() == id;
+        }
     }
 
 }
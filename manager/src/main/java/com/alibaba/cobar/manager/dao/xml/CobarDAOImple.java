@@ -32,15 +32,15 @@ import static com.alibaba.cobar.manager.util.ConstantDefine.USER;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
@@ -57,11 +57,9 @@ import com.alibaba.cobar.manager.util.EncryptUtil;
 /**
  * @author haiqing.zhuhq 2011-6-15
  */
-public class CobarDAOImple extends AbstractDAOImple implements CobarDAO, InitializingBean {
+public class CobarDAOImple extends AbstractDAOImple<CobarDAOImple.Cobars> implements CobarDAO, InitializingBean {
     private static final Logger logger = Logger.getLogger(CobarDAOImple.class);
-    private Map<Long, CobarDO> map;
-    private static long maxId;
-    private static final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock lock = new ReentrantLock();
     private static final Map<String, Integer> typeMap = new HashMap<String, Integer>();
 
     static {
@@ -78,17 +76,16 @@ public class CobarDAOImple extends AbstractDAOImple implements CobarDAO, Initial
     }
 
     public CobarDAOImple() {
-        map = new HashMap<Long, CobarDO>();
         xpp = new MXParser();
         xsl = new MXSerializer();
-        maxId = Long.MIN_VALUE;
+        init(new Cobars(Collections.<CobarDO> emptyList()));
     }
 
     private boolean read() {
         FileInputStream is = null;
+        List<CobarDO> list = new ArrayList<CobarDO>();
         lock.lock();
         try {
-            map.clear();
             is = new FileInputStream(xmlPath);
             xpp.setInput(is, "UTF-8");
             while (!(xpp.getEventType() == XmlPullParser.END_TAG && "cobars".equals(xpp.getName()))) {
@@ -97,12 +94,12 @@ public class CobarDAOImple extends AbstractDAOImple implements CobarDAO, Initial
                     if (null == cobar) {
                         throw new XmlPullParserException("Cobar read error");
                     }
-                    maxId = (maxId < cobar.getId()) ? cobar.getId() : maxId;
-                    map.put(cobar.getId(), cobar);
+                    list.add(cobar);
                 }
                 xpp.next();
             }
             is.close();
+            init(new Cobars(list));
             return true;
         } catch (FileNotFoundException e) {
             logger.error(e.getMessage(), e);
@@ -111,7 +108,6 @@ public class CobarDAOImple extends AbstractDAOImple implements CobarDAO, Initial
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
         } finally {
-            maxId = maxId < 0 ? 0 : maxId;
             lock.unlock();
         }
         if (null != is) {
@@ -124,43 +120,25 @@ public class CobarDAOImple extends AbstractDAOImple implements CobarDAO, Initial
         return false;
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
-    private boolean write() {
-        FileOutputStream os = null;
-        lock.lock();
+    @Override
+    protected boolean write(OutputStream os, Cobars cobars) {
         try {
-            if (!backup(xmlPath)) {
-                logger.error("cobar backup fail!");
-            }
-            os = new FileOutputStream(xmlPath);
             xsl.setOutput(os, "UTF-8");
             xsl.startDocument("UTF-8", null);
             xsl.text("\n");
             xsl.startTag(null, "cobars");
             xsl.text("\n");
-            Iterator it = map.entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry<Long, CobarDO> entry = (Entry<Long, CobarDO>) it.next();
-                CobarDO cobar = entry.getValue();
+            for (CobarDO cobar : cobars.byId.values()) {
                 if (!write(cobar)) {
                     throw new IOException("Cobar write error!");
                 }
             }
             xsl.endTag(null, "cobars");
             xsl.endDocument();
-            os.close();
+            xsl.flush();
             return true;
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
-        } finally {
-            lock.unlock();
-        }
-        if (null != os) {
-            try {
-                os.close();
-            } catch (IOException e) {
-                logger.error(e.getMessage(), e);
-            }
         }
         return false;
     }
@@ -256,7 +234,7 @@ public class CobarDAOImple extends AbstractDAOImple implements CobarDAO, Initial
 
     @Override
     public CobarDO getCobarById(long id) {
-        return map.get(id);
+        return copy(snapshot().byId.get(id));
     }
 
     //    @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -293,78 +271,51 @@ public class CobarDAOImple extends AbstractDAOImple implements CobarDAO, Initial
         }
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
     public boolean checkName(String name, long clusterId) {
-        Iterator it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, CobarDO> entry = (Entry<Long, CobarDO>) it.next();
-            CobarDO cobar = entry.getValue();
-            if (clusterId == cobar.getClusterId() && cobar.getName().equals(name)) {
-                return false;
-            }
-        }
-        return true;
+        return snapshot().checkName(name, clusterId, Long.MIN_VALUE);
     }
 
     @Override
     public boolean addCobar(CobarDO cobar) {
+        long version;
         lock.lock();
         try {
-            if (!checkName(cobar.getName(), cobar.getClusterId())) {
-                return false;
-            }
-            cobar.setId(++maxId);
-            map.put(cobar.getId(), cobar);
-            if (!write()) {
-                logger.error("Fail to add cobar!");
-                recovery(xmlPath);
-                read();
+            Cobars base = snapshot();
+            if (!base.checkName(cobar.getName(), cobar.getClusterId(), Long.MIN_VALUE)) {
                 return false;
             }
+            cobar.setId(base.maxId + 1);
+            version = publish(base, base.put(cobar));
         } finally {
             lock.unlock();
         }
+        if (!await(version)) {
+            logger.error("Fail to add cobar!");
+            return false;
+        }
         return true;
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
     public List<CobarDO> getCobarList(long clusterId) {
-        List<CobarDO> list = new ArrayList<CobarDO>();
-        Iterator it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, CobarDO> entry = (Entry<Long, CobarDO>) it.next();
-            CobarDO cobar = entry.getValue();
-            if (clusterId == cobar.getClusterId()) {
-                list.add(cobar);
-            }
-        }
-        return list;
+        return copy(snapshot().byCluster.get(clusterId));
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
     public List<CobarDO> getCobarList(long clusterId, String status) {
-        List<CobarDO> list = new ArrayList<CobarDO>();
-        Iterator it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, CobarDO> entry = (Entry<Long, CobarDO>) it.next();
-            CobarDO cobar = entry.getValue();
-            if (clusterId == cobar.getClusterId() && status.equals(cobar.getStatus())) {
-                list.add(cobar);
-            }
-        }
-        return list;
+        Map<String, List<CobarDO>> byStatus = snapshot().byClusterStatus.get(clusterId);
+        return copy(byStatus == null ? null : byStatus.get(status));
     }
 
     @Override
     public List<CobarDO> listCobarById(long[] cobarIds) {
+        Map<Long, CobarDO> map = snapshot().byId;
         List<CobarDO> list = new LinkedList<CobarDO>();
         for (int i = 0; i < cobarIds.length; i++) {
             CobarDO cobar = map.get(cobarIds[i]);
             if (cobar != null) {
-                list.add(cobar);
+                list.add(copy(cobar));
             }
         }
         return list;
@@ -372,44 +323,123 @@ public class CobarDAOImple extends AbstractDAOImple implements CobarDAO, Initial
 
     @Override
     public boolean modifyCobar(CobarDO cobar) {
+        long version;
         lock.lock();
         try {
-            if (!checkName(cobar.getName(), cobar.getClusterId(), cobar.getId())) {
-                return false;
-            }
-            map.put(cobar.getId(), cobar);
-            if (!write()) {
-                logger.error("Fail to modify cobar!");
-                recovery(xmlPath);
-                read();
+            Cobars base = snapshot();
+            if (!base.checkName(cobar.getName(), cobar.getClusterId(), cobar.getId())) {
                 return false;
             }
+            version = publish(base, base.put(cobar));
         } finally {
             lock.unlock();
         }
+        if (!await(version)) {
+            logger.error("Fail to modify cobar!");
+            return false;
+        }
         return true;
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
     public boolean checkName(String name, long clusterId, long cobarId) {
-        Iterator it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, CobarDO> entry = (Entry<Long, CobarDO>) it.next();
-            CobarDO cobar = entry.getValue();
-            if (cobar.getId() == cobarId) {
-                continue;
-            }
-            if (clusterId == cobar.getClusterId() && cobar.getName().equals(name)) {
-                return false;
-            }
-        }
-        return true;
+        return snapshot().checkName(name, clusterId, cobarId);
     }
 
     @Override
     public List<CobarDO> listAllCobar() {
-        return new ArrayList<CobarDO>(map.values());
+        return copy(snapshot().byId.values());
+    }
+
+    /**
+     * cobars in a snapshot are never handed out, so that changing a returned
+     * cobar changes no snapshot
+     */
+    private static CobarDO copy(CobarDO cobar) {
+        if (cobar == null) {
+            return null;
+        }
+        CobarDO copy = new CobarDO();
+        copy.setId(cobar.getId());
+        copy.setName(cobar.getName());
+        copy.setClusterId(cobar.getClusterId());
+        copy.setHost(cobar.getHost());
+        copy.setPort(cobar.getPort());
+        copy.setServerPort(cobar.getServerPort());
+        copy.setUser(cobar.getUser());
+        copy.setPassword(cobar.getPassword());
+        copy.setStatus(cobar.getStatus());
+        copy.setTime_diff(cobar.getTime_diff());
+        return copy;
+    }
+
+    private static List<CobarDO> copy(Collection<CobarDO> cobars) {
+        List<CobarDO> list = new ArrayList<CobarDO>();
+        if (cobars != null) {
+            for (CobarDO cobar : cobars) {
+                list.add(copy(cobar));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * immutable cobar list indexed by id, by cluster and by cluster and status
+     */
+    static final class Cobars {
+        private final Map<Long, CobarDO> byId;
+        private final Map<Long, List<CobarDO>> byCluster;
+        private final Map<Long, Map<String, List<CobarDO>>> byClusterStatus;
+        private final long maxId;
+
+        private Cobars(Collection<CobarDO> cobars) {
+            this.byId = new HashMap<Long, CobarDO>();
+            this.byCluster = new HashMap<Long, List<CobarDO>>();
+            this.byClusterStatus = new HashMap<Long, Map<String, List<CobarDO>>>();
+            long max = 0;
+            for (CobarDO cobar : cobars) {
+                byId.put(cobar.getId(), cobar);
+                max = Math.max(max, cobar.getId());
+            }
+            for (CobarDO cobar : byId.values()) {
+                List<CobarDO> list = byCluster.get(cobar.getClusterId());
+                if (list == null) {
+                    list = new ArrayList<CobarDO>();
+                    byCluster.put(cobar.getClusterId(), list);
+                }
+                list.add(cobar);
+                Map<String, List<CobarDO>> byStatus = byClusterStatus.get(cobar.getClusterId());
+                if (byStatus == null) {
+                    byStatus = new HashMap<String, List<CobarDO>>();
+                    byClusterStatus.put(cobar.getClusterId(), byStatus);
+                }
+                list = byStatus.get(cobar.getStatus());
+                if (list == null) {
+                    list = new ArrayList<CobarDO>();
+                    byStatus.put(cobar.getStatus(), list);
+                }
+                list.add(cobar);
+            }
+            this.maxId = max;
+        }
+
+        private Cobars put(CobarDO cobar) {
+            Map<Long, CobarDO> map = new HashMap<Long, CobarDO>(byId);
+            map.put(cobar.getId(), copy(cobar));
+            return new Cobars(map.values());
+        }
+
+        private boolean checkName(String name, long clusterId, long cobarId) {
+            List<CobarDO> list = byCluster.get(clusterId);
+            if (list != null) {
+                for (CobarDO cobar : list) {
+                    if (cobar.getId() != cobarId && cobar.getName().equals(name)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
     }
 
 }
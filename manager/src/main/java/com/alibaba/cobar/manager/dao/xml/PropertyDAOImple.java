@@ -18,9 +18,11 @@ package com.alibaba.cobar.manager.dao.xml;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
@@ -36,30 +38,36 @@ import com.alibaba.cobar.manager.dataobject.xml.PropertyDO;
 /**
  * @author haiqing.zhuhq 2011-6-17
  */
-public class PropertyDAOImple extends AbstractDAOImple implements PropertyDAO, InitializingBean {
+public class PropertyDAOImple extends AbstractDAOImple<PropertyDO> implements PropertyDAO, InitializingBean {
     private static final Logger logger = Logger.getLogger(PropertyDAOImple.class);
-    private static final ReentrantLock lock = new ReentrantLock();
-    private PropertyDO property;
+    private final ReentrantLock lock = new ReentrantLock();
 
     public PropertyDAOImple() {
         this.xpp = new MXParser();
         this.xsl = new MXSerializer();
-        this.property = new PropertyDO();
+        init(new PropertyDO());
     }
 
+    /**
+     * @return a copy of the current snapshot
+     */
     public PropertyDO getProperty() {
+        PropertyDO property = new PropertyDO();
+        property.setStopTimes(new ArrayList<Integer>(snapshot().getStopTimes()));
         return property;
     }
 
     public void setProperty(PropertyDO property) {
-        this.property = property;
+        PropertyDO copy = new PropertyDO();
+        copy.setStopTimes(new ArrayList<Integer>(property.getStopTimes()));
+        init(copy);
     }
 
     private boolean read() {
         FileInputStream is = null;
+        PropertyDO property = new PropertyDO();
         lock.lock();
         try {
-            property.getStopTimes().clear();
             is = new FileInputStream(xmlPath);
             xpp.setInput(is, "UTF-8");
             while (!(xpp.getEventType() == XmlPullParser.END_TAG && "pro".equals(xpp.getName()))) {
@@ -76,6 +84,7 @@ public class PropertyDAOImple extends AbstractDAOImple implements PropertyDAO, I
                 xpp.next();
             }
             is.close();
+            init(property);
             return true;
         } catch (FileNotFoundException e) {
             logger.error(e.getMessage(), e);
@@ -96,14 +105,9 @@ public class PropertyDAOImple extends AbstractDAOImple implements PropertyDAO, I
         return false;
     }
 
-    private boolean write() {
-        FileOutputStream os = null;
-        lock.lock();
+    @Override
+    protected boolean write(OutputStream os, PropertyDO property) {
         try {
-            if (!backup(xmlPath)) {
-                logger.error("property backup fail!");
-            }
-            os = new FileOutputStream(xmlPath);
             xsl.setOutput(os, "UTF-8");
             xsl.startDocument("UTF-8", null);
             xsl.text("\n");
@@ -113,21 +117,10 @@ public class PropertyDAOImple extends AbstractDAOImple implements PropertyDAO, I
             writeProperty("stop_times", st);
             xsl.endTag(null, "pro");
             xsl.endDocument();
-            os.close();
+            xsl.flush();
             return true;
-        } catch (FileNotFoundException e) {
-            logger.error(e.getMessage(), e);
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
-        } finally {
-            lock.unlock();
-        }
-        if (null != os) {
-            try {
-                os.close();
-            } catch (IOException e) {
-                logger.error(e.getMessage(), e);
-            }
         }
         return false;
     }
@@ -153,36 +146,49 @@ public class PropertyDAOImple extends AbstractDAOImple implements PropertyDAO, I
 
     @Override
     public boolean addTime(int time) {
+        long version;
         lock.lock();
         try {
-            if (property.getStopTimes().contains(time)) {
-                return false;
-            }
-            property.getStopTimes().add(time);
-            Collections.sort(property.getStopTimes());
-            if (!write()) {
-                logger.error("Fail to add property!");
-                recovery(xmlPath);
-                read();
+            PropertyDO base = snapshot();
+            if (base.getStopTimes().contains(time)) {
                 return false;
             }
+            List<Integer> times = new ArrayList<Integer>(base.getStopTimes());
+            times.add(time);
+            Collections.sort(times);
+            PropertyDO next = new PropertyDO();
+            next.setStopTimes(times);
+            version = publish(base, next);
         } finally {
             lock.unlock();
         }
+        if (!await(version)) {
+            logger.error("Fail to add property!");
+            return false;
+        }
         return true;
     }
 
     @Override
     public boolean deleteTime(int time) {
-        if (!property.getStopTimes().contains(time)) {
-            logger.warn("Time (" + time + ") to delete does not exist!");
-            return false;
+        long version;
+        lock.lock();
+        try {
+            PropertyDO base = snapshot();
+            if (!base.getStopTimes().contains(time)) {
+                logger.warn("Time (" + time + ") to delete does not exist!");
+                return false;
+            }
+            List<Integer> times = new ArrayList<Integer>(base.getStopTimes());
+            times.remove((Integer) time);
+            PropertyDO next = new PropertyDO();
+            next.setStopTimes(times);
+            version = publish(base, next);
+        } finally {
+            lock.unlock();
         }
-        property.getStopTimes().remove((Integer) time);
-        if (!write()) {
+        if (!await(version)) {
             logger.error("Fail to delete property!");
-            recovery(xmlPath);
-            read();
             return false;
         }
         return true;
@@ -29,14 +29,14 @@ import static com.alibaba.cobar.manager.util.ConstantDefine.USER_ROLE;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
@@ -53,13 +53,11 @@ import com.alibaba.cobar.manager.util.EncryptUtil;
 /**
  * @author haiqing.zhuhq 2011-6-17
  */
-public class UserDAOImple extends AbstractDAOImple implements UserDAO, InitializingBean {
+public class UserDAOImple extends AbstractDAOImple<UserDAOImple.Users> implements UserDAO, InitializingBean {
 
     private static final Logger logger = Logger.getLogger(UserDAOImple.class);
 
-    private Map<Long, UserDO> map;
-    private static long maxId;
-    private static final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock lock = new ReentrantLock();
     private static final Map<String, Integer> typeMap = new HashMap<String, Integer>();
 
     static {
@@ -71,19 +69,17 @@ public class UserDAOImple extends AbstractDAOImple implements UserDAO, Initializ
         typeMap.put("status", STATUS);
     }
 
-    @SuppressWarnings("static-access")
     public UserDAOImple() {
-        this.map = new HashMap<Long, UserDO>();
         this.xpp = new MXParser();
         this.xsl = new MXSerializer();
-        this.maxId = Long.MIN_VALUE;
+        init(new Users(Collections.<UserDO> emptyList()));
     }
 
     private boolean read() {
         FileInputStream is = null;
+        List<UserDO> list = new ArrayList<UserDO>();
         lock.lock();
         try {
-            map.clear();
             is = new FileInputStream(xmlPath);
             xpp.setInput(is, "UTF-8");
             while (!(xpp.getEventType() == XmlPullParser.END_TAG && "users".equals(xpp.getName()))) {
@@ -92,12 +88,12 @@ public class UserDAOImple extends AbstractDAOImple implements UserDAO, Initializ
                     if (null == user) {
                         throw new XmlPullParserException("User read error");
                     }
-                    maxId = (maxId < user.getId()) ? user.getId() : maxId;
-                    map.put(user.getId(), user);
+                    list.add(user);
                 }
                 xpp.next();
             }
             is.close();
+            init(new Users(list));
             return true;
         } catch (FileNotFoundException e) {
             logger.error(e.getMessage(), e);
@@ -106,7 +102,6 @@ public class UserDAOImple extends AbstractDAOImple implements UserDAO, Initializ
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
         } finally {
-            maxId = maxId < 0 ? 0 : maxId;
             lock.unlock();
         }
         if (null != is) {
@@ -119,43 +114,25 @@ public class UserDAOImple extends AbstractDAOImple implements UserDAO, Initializ
         return false;
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
-    private boolean write() {
-        FileOutputStream os = null;
-        lock.lock();
+    @Override
+    protected boolean write(OutputStream os, Users users) {
         try {
-            if (!backup(xmlPath)) {
-                logger.error("user backup fail!");
-            }
-            os = new FileOutputStream(xmlPath);
             xsl.setOutput(os, "UTF-8");
             xsl.startDocument("UTF-8", null);
             xsl.text("\n");
             xsl.startTag(null, "users");
             xsl.text("\n");
-            Iterator it = map.entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry<Long, UserDO> entry = (Entry<Long, UserDO>) it.next();
-                UserDO user = entry.getValue();
+            for (UserDO user : users.byId.values()) {
                 if (!write(user)) {
                     throw new IOException("User write error!");
                 }
             }
             xsl.endTag(null, "users");
             xsl.endDocument();
-            os.close();
+            xsl.flush();
             return true;
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
-        } finally {
-            lock.unlock();
-        }
-        if (null != os) {
-            try {
-                os.close();
-            } catch (IOException e) {
-                logger.error(e.getMessage(), e);
-            }
         }
         return false;
     }
@@ -233,36 +210,25 @@ public class UserDAOImple extends AbstractDAOImple implements UserDAO, Initializ
         return false;
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
     public boolean checkName(String username) {
-        Iterator it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, UserDO> entry = (Entry<Long, UserDO>) it.next();
-            UserDO user = entry.getValue();
-            if (username.equals(user.getUsername())) {
-                return false;
-            }
-        }
-        return true;
+        return snapshot().checkName(username, Long.MIN_VALUE);
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
     public UserDO validateUser(String username, String password) {
-        Iterator it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, UserDO> entry = (Entry<Long, UserDO>) it.next();
-            UserDO user = entry.getValue();
-            if (username.equals(user.getUsername()) && EncryptUtil.encrypt(password).equals(user.getPassword())) {
-                //encrypt check success
-                return user;
-            } else if (username.equals(user.getUsername()) && password.equals(user.getPassword())) {
-                //no encrypt check success,then change pwd to encrypted
-                user.setPassword(EncryptUtil.encrypt(password));
-                modifyUser(user);
-                return user;
-            }
+        UserDO user = copy(snapshot().byName.get(username));
+        if (user == null) {
+            return null;
+        }
+        if (EncryptUtil.encrypt(password).equals(user.getPassword())) {
+            //encrypt check success
+            return user;
+        } else if (password.equals(user.getPassword())) {
+            //no encrypt check success,then change pwd to encrypted
+            user.setPassword(EncryptUtil.encrypt(password));
+            modifyUser(user);
+            return user;
         }
         return null;
     }
@@ -288,77 +254,114 @@ public class UserDAOImple extends AbstractDAOImple implements UserDAO, Initializ
 
     @Override
     public List<UserDO> getUserList() {
-        List<UserDO> list = new ArrayList<UserDO>(map.values());
-        //        Iterator it = map.entrySet().iterator();
-        //        while (it.hasNext()) {
-        //            Map.Entry<Long, UserDO> entry = (Entry<Long, UserDO>) it.next();
-        //            UserDO user = entry.getValue();
-        //            list.add(user);
-        //        }
+        List<UserDO> list = new ArrayList<UserDO>();
+        for (UserDO user : snapshot().byId.values()) {
+            list.add(copy(user));
+        }
         return list;
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
     public boolean checkName(String username, long userId) {
-        Iterator it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, UserDO> entry = (Entry<Long, UserDO>) it.next();
-            UserDO user = entry.getValue();
-            if (userId == user.getId()) {
-                continue;
-            }
-            if (username.equals(user.getUsername())) {
-                return false;
-            }
-        }
-        return true;
+        return snapshot().checkName(username, userId);
     }
 
     @Override
     public boolean addUser(UserDO user) {
+        long version;
         lock.lock();
         try {
-            if (!checkName(user.getUsername())) {
+            Users base = snapshot();
+            if (!base.checkName(user.getUsername(), Long.MIN_VALUE)) {
                 return false;
             }
-            user.setId(++maxId);
-            map.put(user.getId(), user);
-            if (!write()) {
-                logger.error("Fail to add user!");
-                recovery(xmlPath);
-                read();
-                return false;
-            }
-            return true;
+            user.setId(base.maxId + 1);
+            version = publish(base, base.put(user));
         } finally {
             lock.unlock();
         }
+        if (!await(version)) {
+            logger.error("Fail to add user!");
+            return false;
+        }
+        return true;
     }
 
     @Override
     public boolean modifyUser(UserDO user) {
+        long version;
         lock.lock();
         try {
-            if (!checkName(user.getUsername(), user.getId())) {
-                return false;
-            }
-            map.put(user.getId(), user);
-            if (!write()) {
-                logger.error("Fail to modify user!");
-                recovery(xmlPath);
-                read();
+            Users base = snapshot();
+            if (!base.checkName(user.getUsername(), user.getId())) {
                 return false;
             }
-            return true;
+            version = publish(base, base.put(user));
         } finally {
             lock.unlock();
         }
+        if (!await(version)) {
+            logger.error("Fail to modify user!");
+            return false;
+        }
+        return true;
     }
 
     @Override
     public UserDO getUserById(long id) {
-        return map.get(id);
+        return copy(snapshot().byId.get(id));
+    }
+
+    /**
+     * users in a snapshot are never handed out, so that changing a returned
+     * user changes no snapshot
+     */
+    private static UserDO copy(UserDO user) {
+        if (user == null) {
+            return null;
+        }
+        UserDO copy = new UserDO();
+        copy.setId(user.getId());
+        copy.setRealname(user.getRealname());
+        copy.setUsername(user.getUsername());
+        copy.setPassword(user.getPassword());
+        copy.setUser_role(user.getUser_role());
+        copy.setStatus(user.getStatus());
+        return copy;
+    }
+
+    /**
+     * immutable user list indexed by id and by user name
+     */
+    static final class Users {
+        private final Map<Long, UserDO> byId;
+        private final Map<String, UserDO> byName;
+        private final long maxId;
+
+        private Users(Collection<UserDO> users) {
+            this.byId = new HashMap<Long, UserDO>();
+            this.byName = new HashMap<String, UserDO>();
+            long max = 0;
+            for (UserDO user : users) {
+                byId.put(user.getId(), user);
+                max = Math.max(max, user.getId());
+            }
+            for (UserDO user : byId.values()) {
+                byName.put(user.getUsername(), user);
+            }
+            this.maxId = max;
+        }
+
+        private Users put(UserDO user) {
+            Map<Long, UserDO> map = new HashMap<Long, UserDO>(byId);
+            map.put(user.getId(), copy(user));
+            return new Users(map.values());
+        }
+
+        private boolean checkName(String username, long userId) {
+            UserDO user = byName.get(username);
+            return user == null || user.getId() == userId;
+        }
     }
 
 }
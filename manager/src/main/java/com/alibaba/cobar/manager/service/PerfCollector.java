@@ -0,0 +1,400 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cobar.manager.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import com.alibaba.cobar.manager.dao.CobarAdapterDAO;
+import com.alibaba.cobar.manager.dao.PerfHistoryDAO;
+import com.alibaba.cobar.manager.dataobject.cobarnode.CommandStatus;
+import com.alibaba.cobar.manager.dataobject.cobarnode.ProcessorStatus;
+import com.alibaba.cobar.manager.dataobject.cobarnode.ServerStatus;
+import com.alibaba.cobar.manager.dataobject.xml.CobarDO;
+import com.alibaba.cobar.manager.util.ConstantDefine;
+import com.alibaba.cobar.manager.util.FormatUtil;
+import com.alibaba.cobar.manager.util.MathUtil;
+import com.alibaba.cobar.manager.util.TimeSeries;
+
+/**
+ * Samples every active cobar node in parallel at a fixed period and keeps the
+ * results in per-node and per-cluster {@link TimeSeries}. Rates and cluster
+ * sums are computed once per sample, so dashboard requests only read memory.
+ * If a {@link PerfHistoryDAO} is set, every sample is also appended to it.
+ */
+public class PerfCollector implements InitializingBean, DisposableBean {
+    private static final Logger logger = Logger.getLogger(PerfCollector.class);
+
+    /** sample layout: counters, gauges, then per-second rates */
+    public static final int TIMESTAMP = 0;
+    public static final int NET_IN = 1;
+    public static final int NET_OUT = 2;
+    public static final int REQUEST = 3;
+    public static final int CONNECTION = 4;
+    public static final int USED_MEMORY = 5;
+    public static final int TOTAL_MEMORY = 6;
+    public static final int SCHEMA = 7;
+    public static final int NET_IN_RATE = 8;
+    public static final int NET_OUT_RATE = 9;
+    public static final int REQUEST_RATE = 10;
+    public static final int FIELD_COUNT = 11;
+
+    private XmlAccesser xmlAccesser;
+    private CobarAccesser cobarAccesser;
+    private PerfHistoryDAO perfHistoryDAO;
+    private long samplePeriod = 5000L;
+    private int sampleCapacity = 720;
+    private int collectorThreads = 8;
+
+    private final Map<Long, NodePerf> nodes = new ConcurrentHashMap<Long, NodePerf>();
+    private final Map<Long, TimeSeries> clusters = new ConcurrentHashMap<Long, TimeSeries>();
+    private ScheduledExecutorService scheduler;
+    private ExecutorService collector;
+
+    public void setXmlAccesser(XmlAccesser xmlAccesser) {
+        this.xmlAccesser = xmlAccesser;
+    }
+
+    public void setCobarAccesser(CobarAccesser cobarAccesser) {
+        this.cobarAccesser = cobarAccesser;
+    }
+
+    public void setPerfHistoryDAO(PerfHistoryDAO perfHistoryDAO) {
+        this.perfHistoryDAO = perfHistoryDAO;
+    }
+
+    public void setSamplePeriod(long samplePeriod) {
+        this.samplePeriod = samplePeriod;
+    }
+
+    public void setSampleCapacity(int sampleCapacity) {
+        this.sampleCapacity = sampleCapacity;
+    }
+
+    public void setCollectorThreads(int collectorThreads) {
+        this.collectorThreads = collectorThreads;
+    }
+
+    public long getSamplePeriod() {
+        return samplePeriod;
+    }
+
+    /**
+     * for test: samples without the scheduler thread
+     */
+    void setCollector(ExecutorService collector) {
+        this.collector = collector;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (xmlAccesser == null) {
+            throw new IllegalArgumentException("property 'xmlAccesser' is null!");
+        }
+        if (cobarAccesser == null) {
+            throw new IllegalArgumentException("property 'cobarAccesser' is null!");
+        }
+        if (samplePeriod <= 0 || sampleCapacity <= 0 || collectorThreads <= 0) {
+            throw new IllegalArgumentException("samplePeriod, sampleCapacity and collectorThreads must be positive");
+        }
+        collector = Executors.newFixedThreadPool(collectorThreads, new DaemonThreadFactory("PerfCollector-"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("PerfScheduler-"));
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    collect();
+                } catch (Throwable e) {
+                    logger.error("perf collect error", e);
+                }
+            }
+        }, 0L, samplePeriod, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (collector != null) {
+            collector.shutdownNow();
+        }
+    }
+
+    public static String nodeKey(long cobarId) {
+        return "cobar-" + cobarId;
+    }
+
+    public static String clusterKey(long clusterId) {
+        return "cluster-" + clusterId;
+    }
+
+    /**
+     * @return null if the node has never been sampled
+     */
+    public NodePerf getNode(long cobarId) {
+        return nodes.get(cobarId);
+    }
+
+    /**
+     * @return null if no node of the cluster has been sampled
+     */
+    public TimeSeries getCluster(long clusterId) {
+        return clusters.get(clusterId);
+    }
+
+    /**
+     * one sampling round, run by the scheduler thread only
+     */
+    void collect() {
+        List<CobarDO> cobars = xmlAccesser.getCobarDAO().listAllCobar();
+        Map<CobarDO, Future<NodeSample>> futures = new HashMap<CobarDO, Future<NodeSample>>();
+        Set<Long> alive = new HashSet<Long>();
+        for (final CobarDO cobar : cobars) {
+            alive.add(cobar.getId());
+            if (!ConstantDefine.ACTIVE.equals(cobar.getStatus())) {
+                continue;
+            }
+            final boolean refresh = !isActive(nodes.get(cobar.getId()));
+            futures.put(cobar, collector.submit(new Callable<NodeSample>() {
+                @Override
+                public NodeSample call() {
+                    return sample(cobar, refresh);
+                }
+            }));
+        }
+        nodes.keySet().retainAll(alive);
+
+        // wait for this round at most one period, slow nodes are reported as error
+        long deadline = System.currentTimeMillis() + samplePeriod;
+        Map<Long, List<long[]>> clusterSamples = new HashMap<Long, List<long[]>>();
+        for (Map.Entry<CobarDO, Future<NodeSample>> en : futures.entrySet()) {
+            CobarDO cobar = en.getKey();
+            NodeSample s = null;
+            try {
+                s = en.getValue().get(Math.max(deadline - System.currentTimeMillis(), 1L), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                en.getValue().cancel(true);
+                logger.error("perf collect timeout or error for cobar " + cobar.getName(), e);
+            }
+            NodePerf perf = nodes.get(cobar.getId());
+            if (perf == null) {
+                perf = new NodePerf(sampleCapacity);
+                nodes.put(cobar.getId(), perf);
+            }
+            // a cluster whose nodes are all unreachable still gets a zero sample
+            List<long[]> list = clusterSamples.get(cobar.getClusterId());
+            if (list == null) {
+                list = new ArrayList<long[]>();
+                clusterSamples.put(cobar.getClusterId(), list);
+            }
+            if (s == null) {
+                perf.status = ConstantDefine.ERROR;
+                continue;
+            }
+            long[] sample = s.values;
+            long[] last = perf.series.getLast();
+            if (last != null) {
+                rate(sample, last, NET_IN, NET_IN_RATE);
+                rate(sample, last, NET_OUT, NET_OUT_RATE);
+                rate(sample, last, REQUEST, REQUEST_RATE);
+            }
+            perf.series.add(sample);
+            perf.serverStatus = s.serverStatus;
+            if (s.version != null) {
+                perf.version = s.version;
+                perf.startTime = s.startTime;
+            }
+            perf.status = ConstantDefine.ACTIVE;
+            list.add(sample);
+            if (perfHistoryDAO != null) {
+                perfHistoryDAO.append(nodeKey(cobar.getId()), sample);
+            }
+        }
+
+        // cluster sums, the rate of a cluster is the sum of its node rates
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, List<long[]>> en : clusterSamples.entrySet()) {
+            long[] sum = new long[FIELD_COUNT];
+            sum[TIMESTAMP] = now;
+            for (long[] sample : en.getValue()) {
+                for (int i = TIMESTAMP + 1; i < FIELD_COUNT; ++i) {
+                    sum[i] = i == SCHEMA ? Math.max(sum[i], sample[i]) : sum[i] + sample[i];
+                }
+            }
+            TimeSeries series = clusters.get(en.getKey());
+            if (series == null) {
+                series = new TimeSeries(sampleCapacity);
+                clusters.put(en.getKey(), series);
+            }
+            series.add(sum);
+            if (perfHistoryDAO != null) {
+                perfHistoryDAO.append(clusterKey(en.getKey()), sum);
+            }
+        }
+        clusters.keySet().retainAll(clusterSamples.keySet());
+    }
+
+    private NodeSample sample(CobarDO cobar, boolean refresh) {
+        CobarAdapterDAO accesser = cobarAccesser.getAccesser(cobar);
+        if (!accesser.checkConnection()) {
+            StringBuilder sb = new StringBuilder("perf collect: cobar connect error for Name:");
+            sb.append(cobar.getName()).append(" Host:").append(cobar.getHost());
+            logger.error(sb.toString());
+            return null;
+        }
+        List<ProcessorStatus> processors = accesser.listProccessorStatus();
+        List<CommandStatus> commands = accesser.listCommandStatus();
+        ServerStatus ss = accesser.getServerStatus();
+        long[] v = new long[FIELD_COUNT];
+        for (ProcessorStatus p : processors) {
+            v[NET_IN] += p.getNetIn();
+            v[NET_OUT] += p.getNetOut();
+            v[CONNECTION] += p.getConnections();
+            v[TIMESTAMP] = p.getSampleTimeStamp();
+        }
+        for (CommandStatus c : commands) {
+            v[REQUEST] += c.getQuery();
+        }
+        if (v[TIMESTAMP] == 0) {
+            v[TIMESTAMP] = System.currentTimeMillis();
+        }
+        v[USED_MEMORY] = ss.getUsedMemory();
+        v[TOTAL_MEMORY] = ss.getTotalMemory();
+        v[SCHEMA] = accesser.listDataBases().size();
+
+        NodeSample s = new NodeSample(v, ss);
+        // version and startup time only change when the node restarts, which
+        // is seen as a connection error first
+        if (refresh) {
+            s.version = FormatUtil.formatVersion(accesser.getVersion());
+            s.startTime = accesser.getStartUpTime().getFormatTime();
+        }
+        return s;
+    }
+
+    private static void rate(long[] sample, long[] last, int field, int rateField) {
+        // counters go back after a node restart
+        if (sample[field] >= last[field]) {
+            sample[rateField] = Math.round(MathUtil.getDerivate(sample[field],
+                                                               last[field],
+                                                               sample[TIMESTAMP],
+                                                               last[TIMESTAMP],
+                                                               1000.0));
+        }
+    }
+
+    private static boolean isActive(NodePerf perf) {
+        return perf != null && ConstantDefine.ACTIVE.equals(perf.status) && perf.version != null;
+    }
+
+    private static final class NodeSample {
+        private final long[] values;
+        private final ServerStatus serverStatus;
+        private String version;
+        private String startTime;
+
+        private NodeSample(long[] values, ServerStatus serverStatus) {
+            this.values = values;
+            this.serverStatus = serverStatus;
+        }
+    }
+
+    /**
+     * latest state of a cobar node
+     */
+    public static final class NodePerf {
+        private final TimeSeries series;
+        private volatile String status;
+        private volatile ServerStatus serverStatus;
+        private volatile String version;
+        private volatile String startTime;
+
+        private NodePerf(int capacity) {
+            this.series = new TimeSeries(capacity);
+        }
+
+        public TimeSeries getSeries() {
+            return series;
+        }
+
+        /**
+         * @return null if the node has never been sampled successfully
+         */
+        public long[] getLast() {
+            return series.getLast();
+        }
+
+        /**
+         * @return {@link ConstantDefine#ACTIVE} or {@link ConstantDefine#ERROR}
+         *         of the latest sampling round
+         */
+        public String getStatus() {
+            return status;
+        }
+
+        public boolean isActive() {
+            return ConstantDefine.ACTIVE.equals(status);
+        }
+
+        public ServerStatus getServerStatus() {
+            return serverStatus;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public String getStartTime() {
+            return startTime;
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefix + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+}
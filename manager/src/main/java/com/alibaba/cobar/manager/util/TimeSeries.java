@@ -0,0 +1,81 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cobar.manager.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size ring buffer of samples. Each sample is a long array whose first
+ * element is the sample timestamp; samples are treated as immutable once added,
+ * the oldest one is overwritten when the buffer is full.
+ */
+public final class TimeSeries {
+
+    private final long[][] samples;
+    private int next;
+    private int size;
+
+    public TimeSeries(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.samples = new long[capacity][];
+    }
+
+    public synchronized void add(long[] sample) {
+        samples[next] = sample;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            ++size;
+        }
+    }
+
+    /**
+     * @return null if empty
+     */
+    public synchronized long[] getLast() {
+        if (size == 0) {
+            return null;
+        }
+        return samples[(next + samples.length - 1) % samples.length];
+    }
+
+    /**
+     * @return samples whose timestamp is greater than <code>since</code>, oldest
+     *         first
+     */
+    public synchronized List<long[]> list(long since) {
+        List<long[]> list = new ArrayList<long[]>(size);
+        for (int i = size; i > 0; --i) {
+            long[] sample = samples[(next + samples.length - i) % samples.length];
+            if (sample[0] > since) {
+                list.add(sample);
+            }
+        }
+        return list;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return samples.length;
+    }
+
+}
@@ -37,102 +37,74 @@ import org.apache.log4j.Logger;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.web.HttpRequestHandler;
 
-import com.alibaba.cobar.manager.dao.CobarAdapterDAO;
-import com.alibaba.cobar.manager.dataobject.cobarnode.CommandStatus;
-import com.alibaba.cobar.manager.dataobject.cobarnode.ProcessorStatus;
-import com.alibaba.cobar.manager.dataobject.cobarnode.ServerStatus;
 import com.alibaba.cobar.manager.dataobject.xml.CobarDO;
-import com.alibaba.cobar.manager.service.CobarAccesser;
+import com.alibaba.cobar.manager.service.PerfCollector;
 import com.alibaba.cobar.manager.service.XmlAccesser;
 import com.alibaba.cobar.manager.util.ConstantDefine;
 import com.alibaba.cobar.manager.util.FormatUtil;
-import com.alibaba.cobar.manager.util.MathUtil;
 import com.alibaba.cobar.manager.util.Pair;
+import com.alibaba.cobar.manager.util.TimeSeries;
 
 /**
+ * Reads the samples kept by {@link PerfCollector}, no cobar node is queried
+ * while serving a request.
+ * 
  * @author wenfeng.cenwf 2011-3-8
  * @author haiqing.zhuhq 2011-7-14
  */
 public class ClusterInstantPerfValueAjax implements HttpRequestHandler, InitializingBean {
     private XmlAccesser xmlAccesser;
-    private CobarAccesser cobarAccesser;
+    private PerfCollector perfCollector;
     private static final Logger logger = Logger.getLogger(ClusterInstantPerfValueAjax.class);
 
-    public void setCobarAccesser(CobarAccesser cobarAccesser) {
-        this.cobarAccesser = cobarAccesser;
-    }
-
     public void setXmlAccesser(XmlAccesser xmlAccesser) {
         this.xmlAccesser = xmlAccesser;
     }
 
+    public void setPerfCollector(PerfCollector perfCollector) {
+        this.perfCollector = perfCollector;
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
         if (null == xmlAccesser) {
             throw new IllegalArgumentException("property 'xmlAccesser' is null!");
         }
-        if (null == cobarAccesser) {
-            throw new IllegalArgumentException("property 'cobarAccesser' is null!");
+        if (null == perfCollector) {
+            throw new IllegalArgumentException("property 'perfCollector' is null!");
         }
     }
 
-    private long groupByPList(List<ProcessorStatus> list, int type) {
-        long result = 0;
-        switch (type) {
-        case NET_IN:
-            for (ProcessorStatus p : list) {
-                result += p.getNetIn();
-            }
-            break;
-        case NET_OUT:
-            for (ProcessorStatus p : list) {
-                result += p.getNetOut();
-            }
-            break;
-        case CONNECTION:
-            for (ProcessorStatus p : list) {
-                result += p.getConnections();
-            }
-            break;
-        case REQUEST_COUNT:
-            for (ProcessorStatus p : list) {
-                result += p.getRequestCount();
-            }
-            break;
-        default:
-            throw new IllegalArgumentException("invalid parameter");
+    /**
+     * @return latest sample of an active node, null if the node is not
+     *         reachable in the latest round
+     */
+    private long[] getLast(CobarDO node) {
+        PerfCollector.NodePerf perf = perfCollector.getNode(node.getId());
+        if (perf == null || !perf.isActive()) {
+            return null;
         }
-        return result;
+        return perf.getLast();
     }
 
-    private long groupByCList(List<CommandStatus> list, int type) {
-        long result = 0;
-        switch (type) {
-        case REQUEST_COUNT:
-            for (CommandStatus p : list) {
-                result += p.getQuery();
-            }
-            break;
-        default:
-            throw new IllegalArgumentException("invalid parameter");
-        }
-        return result;
+    private static void setDeriv(AjaxResult re, long[] sample) {
+        re.setNetIn_deriv(FormatUtil.formatNetwork(sample[PerfCollector.NET_IN_RATE]));
+        re.setNetOut_deriv(FormatUtil.formatNetwork(sample[PerfCollector.NET_OUT_RATE]));
+        re.setRequest_deriv(FormatUtil.formatNumber(sample[PerfCollector.REQUEST_RATE]));
     }
 
     private List<Pair<Long, Integer>> listCobarMemoryUsage(AjaxParams params) {
         List<Pair<Long, Integer>> result = new ArrayList<Pair<Long, Integer>>();
         List<CobarDO> nodes = xmlAccesser.getCobarDAO().getCobarList(params.getClusterId(), ConstantDefine.ACTIVE);
         for (CobarDO node : nodes) {
-            CobarAdapterDAO perfAccesser = cobarAccesser.getAccesser(node.getId());
-            if (!perfAccesser.checkConnection()) {
-                StringBuilder sb = new StringBuilder("listCobarMemoryUsage: cobar connect error for Name:");
-                sb.append(node.getName()).append(" Host:").append(node.getHost());
-                logger.error(sb.toString());
+            long[] last = getLast(node);
+            if (last == null) {
                 continue;
             }
-            ServerStatus ss = perfAccesser.getServerStatus();
             int memoryUsage = 0;
-            if (ss.getTotalMemory() != 0) memoryUsage = Math.round(ss.getUsedMemory() * 100 / ss.getTotalMemory());
+            if (last[PerfCollector.TOTAL_MEMORY] != 0) {
+                memoryUsage = Math.round(last[PerfCollector.USED_MEMORY] * 100 / last[PerfCollector.TOTAL_MEMORY]);
+            }
             result.add(new Pair<Long, Integer>(node.getId(), memoryUsage));
         }
         return result;
@@ -141,132 +113,55 @@ public class ClusterInstantPerfValueAjax implements HttpRequestHandler, Initiali
     @SuppressWarnings("unchecked")
     private List<Map<String, Object>> getClusterThroughput(AjaxParams params) {
         List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
-
-        JSONArray array = params.getArray();
-        JSONObject json = null;
-        Map<Long, JSONObject> cobarRequest = new HashMap<Long, JSONObject>();
-
-        for (int i = 0; i < array.size(); i++) {
-            JSONObject js = array.getJSONObject(i);
-            if ("cluster".equals(js.getString("flag"))) {
-                json = js;
-            } else if ("cobar".equals(js.getString("flag"))) {
-                cobarRequest.put(js.getLong("id"), js);
-            }
-        }
-
         PropertyUtilsBean util = new PropertyUtilsBean();
 
         long clusterId = params.getClusterId();
         List<CobarDO> nodes = xmlAccesser.getCobarDAO().getCobarList(clusterId, ConstantDefine.ACTIVE);
-        AjaxResult cluster = new AjaxResult();
-        cluster.setId(clusterId);
-        cluster.setFlag("cluster");
-
-        long timestamp = 0;
         for (CobarDO node : nodes) {
-            CobarAdapterDAO perfAccesser = cobarAccesser.getAccesser(node.getId());
-            if (!perfAccesser.checkConnection()) {
-                StringBuilder sb = new StringBuilder("getClusterThroughput: cobar connect error for Name:");
-                sb.append(node.getName()).append(" Host:").append(node.getHost());
-                logger.error(sb.toString());
+            long[] last = getLast(node);
+            if (last == null) {
                 continue;
             }
-
             AjaxResult re = new AjaxResult();
-            List<ProcessorStatus> list = perfAccesser.listProccessorStatus();
-            List<CommandStatus> cmdList = perfAccesser.listCommandStatus();
-
-            long cobarNetIn = groupByPList(list, NET_IN);
-            long cobarNetOut = groupByPList(list, NET_OUT);
-            long cobarRequestCount = groupByCList(cmdList, REQUEST_COUNT);
-
-            cluster.addRequest(cobarRequestCount);
-            cluster.addNetIn(cobarNetIn);
-            cluster.addNetOut(cobarNetOut);
-
             re.setId(node.getId());
             re.setFlag("cobar");
-            re.setNetIn(cobarNetIn);
-            re.setNetOut(cobarNetOut);
-            re.setConnection(groupByPList(list, CONNECTION));
-            re.setRequest(cobarRequestCount);
-
-            timestamp = list.get(list.size() - 1).getSampleTimeStamp();
-            re.setTimestamp(timestamp);
-
-            JSONObject jsonTmp = cobarRequest.get(node.getId());
-            if (jsonTmp != null) {
-                re.setNetIn_deriv(FormatUtil.formatNetwork(Math.round(MathUtil.getDerivate(cobarNetIn,
-                                                                                           jsonTmp.getLong("netIn"),
-                                                                                           timestamp,
-                                                                                           jsonTmp.getLong("timestamp"),
-                                                                                           1000.0))));
-                re.setNetOut_deriv(FormatUtil.formatNetwork(Math.round(MathUtil.getDerivate(cobarNetOut,
-                                                                                            jsonTmp.getLong("netOut"),
-                                                                                            timestamp,
-                                                                                            jsonTmp.getLong("timestamp"),
-                                                                                            1000.0))));
-                re.setRequest_deriv(FormatUtil.formatNumber(Math.round(MathUtil.getDerivate(cobarRequestCount,
-                                                                                            jsonTmp.getLong("reCount"),
-                                                                                            timestamp,
-                                                                                            jsonTmp.getLong("timestamp"),
-                                                                                            1000.0))));
-            }
-
-            Map<String, Object> map = null;
+            re.setNetIn(last[PerfCollector.NET_IN]);
+            re.setNetOut(last[PerfCollector.NET_OUT]);
+            re.setConnection(last[PerfCollector.CONNECTION]);
+            re.setRequest(last[PerfCollector.REQUEST]);
+            re.setTimestamp(last[PerfCollector.TIMESTAMP]);
+            setDeriv(re, last);
             try {
-                map = util.describe(re);
+                result.add(util.describe(re));
             } catch (Exception e) {
                 logger.error(e);
                 throw new RuntimeException(e);
             }
-            if (null != map) {
-                result.add(map);
-            }
         }
-        cluster.setTimestamp(timestamp);
-        if (null != json && json.getLong("netIn") != -1) {
-            long o_tiemstamp = json.getLong("timestamp");
-            cluster.setNetIn_deriv(FormatUtil.formatNetwork(Math.round(MathUtil.getDerivate(cluster.getNetIn(),
-                                                                                            json.getLong("netIn"),
-                                                                                            timestamp,
-                                                                                            o_tiemstamp,
-                                                                                            1000.0))));
-            cluster.setNetOut_deriv(FormatUtil.formatNetwork(Math.round(MathUtil.getDerivate(cluster.getNetOut(),
-                                                                                             json.getLong("netOut"),
-                                                                                             timestamp,
-                                                                                             o_tiemstamp,
-                                                                                             1000.0))));
-            cluster.setRequest_deriv(FormatUtil.formatNumber(Math.round(MathUtil.getDerivate(cluster.getRequest(),
-                                                                                             json.getLong("reCount"),
-                                                                                             timestamp,
-                                                                                             o_tiemstamp,
-                                                                                             1000.0))));
+
+        AjaxResult cluster = new AjaxResult();
+        cluster.setId(clusterId);
+        cluster.setFlag("cluster");
+        TimeSeries series = perfCollector.getCluster(clusterId);
+        long[] sum = series == null ? null : series.getLast();
+        if (sum != null) {
+            cluster.setNetIn(sum[PerfCollector.NET_IN]);
+            cluster.setNetOut(sum[PerfCollector.NET_OUT]);
+            cluster.setRequest(sum[PerfCollector.REQUEST]);
+            cluster.setTimestamp(sum[PerfCollector.TIMESTAMP]);
+            setDeriv(cluster, sum);
         }
-        Map<String, Object> m = null;
         try {
-            m = util.describe(cluster);
+            result.add(util.describe(cluster));
         } catch (Exception e) {
             logger.error(e);
             throw new RuntimeException(e);
         }
-        if (null != m) {
-            result.add(m);
-        }
-
         return result;
     }
 
     private AjaxResult getClusterInfo(AjaxParams params) {
-        JSONArray array = params.getArray();
         long clusterId = params.getClusterId();
-
-        JSONObject json = null;
-        if (array.size() > 0) {
-            json = array.getJSONObject(0);
-        }
-
         AjaxResult rs = new AjaxResult();
         rs.setId(clusterId);
 
@@ -276,46 +171,24 @@ public class ClusterInstantPerfValueAjax implements HttpRequestHandler, Initiali
             if (ConstantDefine.IN_ACTIVE.equals(cobar.getStatus())) {
                 continue;
             }
-            CobarAdapterDAO perfAccesser = cobarAccesser.getAccesser(cobar.getId());
-            if (!perfAccesser.checkConnection()) {
+            if (getLast(cobar) == null) {
                 rs.addError(1);
-                StringBuilder sb = new StringBuilder("getClusterInfo : cobar connect error for [ Name:");
-                sb.append(cobar.getName()).append(" Host:").append(cobar.getHost()).append(" ]");
-                logger.error(sb.toString());
-                continue;
+            } else {
+                rs.addActive(1);
             }
-            rs.addActive(1);
-            rs.setSchema(perfAccesser.listDataBases().size());
-            List<ProcessorStatus> list = perfAccesser.listProccessorStatus();
-            rs.addNetIn(groupByPList(list, NET_IN));
-            rs.addNetOut(groupByPList(list, NET_OUT));
-
-            rs.addConnection(groupByPList(list, CONNECTION));
-            rs.setTimestamp(list.get(list.size() - 1).getSampleTimeStamp());
-
-            List<CommandStatus> commandList = perfAccesser.listCommandStatus();
-            rs.addRequest(groupByCList(commandList, REQUEST_COUNT));
         }
 
-        if (json != null && json.getLong("netIn") != -1) {
-            long o_tiemstamp = json.getLong("timestamp");
-            rs.setNetIn_deriv(FormatUtil.formatNetwork(Math.round(MathUtil.getDerivate(rs.getNetIn(),
-                                                                                       json.getLong("netIn"),
-                                                                                       rs.getTimestamp(),
-                                                                                       o_tiemstamp,
-                                                                                       1000.0))));
-            rs.setNetOut_deriv(FormatUtil.formatNetwork(Math.round(MathUtil.getDerivate(rs.getNetOut(),
-                                                                                        json.getLong("netOut"),
-                                                                                        rs.getTimestamp(),
-                                                                                        o_tiemstamp,
-                                                                                        1000.0))));
-            rs.setRequest_deriv(FormatUtil.formatNumber(Math.round(MathUtil.getDerivate(rs.getRequest(),
-                                                                                        json.getLong("reCount"),
-                                                                                        rs.getTimestamp(),
-                                                                                        o_tiemstamp,
-                                                                                        1000.0))));
+        TimeSeries series = perfCollector.getCluster(clusterId);
+        long[] sum = series == null ? null : series.getLast();
+        if (sum != null) {
+            rs.setSchema((int) sum[PerfCollector.SCHEMA]);
+            rs.setNetIn(sum[PerfCollector.NET_IN]);
+            rs.setNetOut(sum[PerfCollector.NET_OUT]);
+            rs.setConnection(sum[PerfCollector.CONNECTION]);
+            rs.setRequest(sum[PerfCollector.REQUEST]);
+            rs.setTimestamp(sum[PerfCollector.TIMESTAMP]);
+            setDeriv(rs, sum);
         }
-
         return rs;
     }
 
@@ -327,16 +200,12 @@ public class ClusterInstantPerfValueAjax implements HttpRequestHandler, Initiali
                 result.add(new Pair<Long, String>(node.getId(), ConstantDefine.IN_ACTIVE));
                 continue;
             }
-
-            CobarAdapterDAO perfAccesser = cobarAccesser.getAccesser(node.getId());
-            if (!perfAccesser.checkConnection()) {
-                StringBuilder sb = new StringBuilder("getStatus: cobar connect error for Name:");
-                sb.append(node.getName()).append(" Host:").append(node.getHost());
-                logger.error(sb.toString());
-                result.add(new Pair<Long, String>(node.getId(), ConstantDefine.ERROR));
-            } else {
-                result.add(new Pair<Long, String>(node.getId(), ConstantDefine.ACTIVE));
+            PerfCollector.NodePerf perf = perfCollector.getNode(node.getId());
+            if (perf == null || perf.getStatus() == null) {
+                // not sampled yet
+                continue;
             }
+            result.add(new Pair<Long, String>(node.getId(), perf.getStatus()));
         }
         return result;
     }
@@ -399,9 +268,4 @@ public class ClusterInstantPerfValueAjax implements HttpRequestHandler, Initiali
         valueTypeMap.put("status", TYPE_STATUS);
     }
 
-    private static final int NET_IN = 1;
-    private static final int NET_OUT = 2;
-    private static final int CONNECTION = 3;
-    private static final int REQUEST_COUNT = 4;
-
 }
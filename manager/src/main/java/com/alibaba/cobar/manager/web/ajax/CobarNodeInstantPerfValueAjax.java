@@ -52,6 +52,7 @@ import com.alibaba.cobar.manager.dataobject.cobarnode.ProcessorStatus;
 import com.alibaba.cobar.manager.dataobject.cobarnode.ServerStatus;
 import com.alibaba.cobar.manager.dataobject.cobarnode.ThreadPoolStatus;
 import com.alibaba.cobar.manager.service.CobarAccesser;
+import com.alibaba.cobar.manager.service.PerfCollector;
 import com.alibaba.cobar.manager.service.XmlAccesser;
 import com.alibaba.cobar.manager.util.FormatUtil;
 import com.alibaba.cobar.manager.util.ListSortUtil;
@@ -67,6 +68,7 @@ public class CobarNodeInstantPerfValueAjax implements HttpRequestHandler, Initia
 
     private XmlAccesser xmlAccesser;
     private CobarAccesser cobarAccesser;
+    private PerfCollector perfCollector;
 
     private static final int NET_IN = 1;
     private static final int NET_OUT = 2;
@@ -81,6 +83,10 @@ public class CobarNodeInstantPerfValueAjax implements HttpRequestHandler, Initia
         this.xmlAccesser = xmlAccesser;
     }
 
+    public void setPerfCollector(PerfCollector perfCollector) {
+        this.perfCollector = perfCollector;
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
         if (null == xmlAccesser) {
@@ -89,6 +95,9 @@ public class CobarNodeInstantPerfValueAjax implements HttpRequestHandler, Initia
         if (null == cobarAccesser) {
             throw new IllegalArgumentException("property 'cobarAccesser' is null!");
         }
+        if (null == perfCollector) {
+            throw new IllegalArgumentException("property 'perfCollector' is null!");
+        }
     }
 
     private long groupBy(List<ProcessorStatus> list, int type) {
@@ -356,6 +365,57 @@ public class CobarNodeInstantPerfValueAjax implements HttpRequestHandler, Initia
     }
 
     private Map<String, Object> getServerStatus(AjaxParams params) {
+        PerfCollector.NodePerf perf = perfCollector.getNode(params.getCobarNodeId());
+        if (perf == null) {
+            // not sampled yet or not active, query the node directly
+            return queryServerStatus(params);
+        }
+        long[] last = perf.getLast();
+        ServerStatus ss = perf.getServerStatus();
+        Map<String, Object> map = new HashMap<String, Object>();
+        if (!perf.isActive() || last == null || ss == null) {
+            map.put("uptime", 0);
+            map.put("usedMemory", 0);
+            map.put("maxMemory", 0);
+            map.put("totalMemory", 0);
+            map.put("connectionCount", 0);
+            map.put("status", "ERROR");
+            map.put("version", "UNKNOWN");
+            map.put("starttime", 0);
+
+            map.put("netInC", 0);
+            map.put("netOutC", 0);
+            map.put("requestCountC", 0);
+            map.put("sampleTimeStamp", System.currentTimeMillis());
+            map.put("netIn_deriv", 0);
+            map.put("netOut_deriv", 0);
+            map.put("reCount_deriv", 0);
+            return map;
+        }
+        map.put("uptime", ss.getUptime());
+        map.put("usedMemory", FormatUtil.formatStore(ss.getUsedMemory()));
+        map.put("maxMemory", FormatUtil.formatStore(ss.getMaxMemory()));
+        map.put("totalMemory", FormatUtil.formatStore(ss.getTotalMemory()));
+
+        map.put("netInC", last[PerfCollector.NET_IN]);
+        map.put("netOutC", last[PerfCollector.NET_OUT]);
+        map.put("requestCountC", last[PerfCollector.REQUEST]);
+        map.put("sampleTimeStamp", last[PerfCollector.TIMESTAMP]);
+
+        map.put("netIn_deriv", FormatUtil.formatNetwork(last[PerfCollector.NET_IN_RATE]));
+        map.put("netOut_deriv", FormatUtil.formatNetwork(last[PerfCollector.NET_OUT_RATE]));
+        map.put("reCount_deriv", FormatUtil.formatNumber(last[PerfCollector.REQUEST_RATE]));
+
+        map.put("version", perf.getVersion());
+        map.put("starttime", perf.getStartTime());
+
+        map.put("connectionCount", last[PerfCollector.CONNECTION]);
+        map.put("status", ss.getStatus());
+
+        return map;
+    }
+
+    private Map<String, Object> queryServerStatus(AjaxParams params) {
         JSONArray array = params.getArray();
 
         JSONObject jobject = array.getJSONObject(0);
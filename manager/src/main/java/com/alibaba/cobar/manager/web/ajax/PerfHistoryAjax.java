@@ -0,0 +1,123 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cobar.manager.web.ajax;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.sf.json.JSONArray;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.web.HttpRequestHandler;
+
+import com.alibaba.cobar.manager.dao.PerfHistoryDAO;
+import com.alibaba.cobar.manager.service.PerfCollector;
+
+/**
+ * Chart data of a node or a cluster read from {@link PerfHistoryDAO}. Request
+ * parameters: <code>cobarId</code> or <code>clusterId</code>, and optional
+ * <code>from</code>, <code>to</code> (ms, default the last hour) and
+ * <code>points</code> (default 360).
+ */
+public class PerfHistoryAjax implements HttpRequestHandler, InitializingBean {
+    private static final long DEFAULT_RANGE = 3600 * 1000L;
+    private static final int DEFAULT_POINTS = 360;
+    private static final String[] FIELDS = { "timestamp", "netIn", "netOut", "request", "connection", "usedMemory",
+            "totalMemory", "schema", "netIn_deriv", "netOut_deriv", "request_deriv" };
+
+    private PerfHistoryDAO perfHistoryDAO;
+
+    public void setPerfHistoryDAO(PerfHistoryDAO perfHistoryDAO) {
+        this.perfHistoryDAO = perfHistoryDAO;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (null == perfHistoryDAO) {
+            throw new IllegalArgumentException("property 'perfHistoryDAO' is null!");
+        }
+    }
+
+    @Override
+    public void handleRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+            IOException {
+        Params params = new Params(request);
+        String key;
+        if (params.cobarId >= 0) {
+            key = PerfCollector.nodeKey(params.cobarId);
+        } else if (params.clusterId >= 0) {
+            key = PerfCollector.clusterKey(params.clusterId);
+        } else {
+            throw new IllegalArgumentException("parameter 'cobarId' or 'clusterId' is required");
+        }
+        long step = Math.max((params.to - params.from) / params.points, 0L);
+        List<long[]> samples = perfHistoryDAO.query(key, params.from, params.to, step);
+
+        List<Map<String, Object>> list = new ArrayList<Map<String, Object>>(samples.size());
+        for (long[] sample : samples) {
+            Map<String, Object> map = new HashMap<String, Object>();
+            for (int i = 0; i < FIELDS.length && i < sample.length; ++i) {
+                map.put(FIELDS[i], sample[i]);
+            }
+            list.add(map);
+        }
+        String jsonRst = JSONArray.fromObject(list).toString();
+        response.setHeader("Content-Type", "text/json; charset=utf-8");
+        OutputStream out = response.getOutputStream();
+        out.write(jsonRst.getBytes("utf-8"));
+        out.flush();
+    }
+
+    private static final class Params extends AbstractAjaxParams {
+        private final long cobarId;
+        private final long clusterId;
+        private final long from;
+        private final long to;
+        private final int points;
+
+        private Params(HttpServletRequest request) {
+            super(request);
+            this.cobarId = getLong(request, "cobarId", false);
+            this.clusterId = getLong(request, "clusterId", false);
+            Long to = getLongObj(request, "to", false);
+            this.to = to == null ? System.currentTimeMillis() : to;
+            Long from = getLongObj(request, "from", false);
+            this.from = from == null ? this.to - DEFAULT_RANGE : from;
+            Integer points = getInt(request, "points", false);
+            this.points = points == null || points <= 0 ? DEFAULT_POINTS : points;
+        }
+
+        @Override
+        protected void appendToStringBuilder(ToStringBuilder builder) {
+            builder.append("cobarId", cobarId)
+                   .append("clusterId", clusterId)
+                   .append("from", from)
+                   .append("to", to)
+                   .append("points", points);
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cobar.manager.dao.tsdb;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class PerfHistoryDAOImpleTest extends TestCase {
+    private static final long T0 = 1000000800000L;
+    private static final long HOUR = 3600 * 1000L;
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("perf", "");
+        dir.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(dir);
+    }
+
+    public void testAppendAndReopen() throws Exception {
+        PerfHistoryDAOImple dao = newDAO();
+        long counter = 0;
+        for (int i = 0; i < 2000; ++i) {
+            counter += 100 + i % 3;
+            dao.append("cobar-1", new long[] { T0 + i * 5000L, counter, -i });
+        }
+        List<long[]> all = dao.query("cobar-1", 0, Long.MAX_VALUE, 0);
+        Assert.assertEquals(2000, all.size());
+        for (int i = 0; i < all.size(); ++i) {
+            Assert.assertEquals(T0 + i * 5000L, all.get(i)[0]);
+            Assert.assertEquals(-i, all.get(i)[2]);
+        }
+        Assert.assertEquals(counter, all.get(1999)[1]);
+        Assert.assertEquals(21, dao.query("cobar-1", T0 + 100000, T0 + 200000, 0).size());
+        Assert.assertEquals(167, dao.query("cobar-1", 0, Long.MAX_VALUE, 60000).size());
+        dao.destroy();
+
+        // after a restart appending continues in the last file
+        dao = newDAO();
+        dao.append("cobar-1", new long[] { T0 + 2000 * 5000L, counter + 1, -2000 });
+        all = dao.query("cobar-1", 0, Long.MAX_VALUE, 0);
+        Assert.assertEquals(2001, all.size());
+        Assert.assertEquals(counter + 1, all.get(2000)[1]);
+        Assert.assertEquals(3, new File(dir, "cobar-1").list().length);
+        dao.destroy();
+    }
+
+    public void testDownsampleAndRetention() throws Exception {
+        PerfHistoryDAOImple dao = newDAO();
+        for (int i = 0; i < 2000; ++i) {
+            dao.append("cluster-1", new long[] { T0 + i * 5000L, i });
+        }
+        dao.maintain(T0 + 26 * HOUR);
+        List<long[]> all = dao.query("cluster-1", 0, Long.MAX_VALUE, 0);
+        // the first two files keep one sample per minute, the last one is still active
+        Assert.assertEquals(120 + 2000 - 1440, all.size());
+        Assert.assertEquals(11, all.get(0)[1]);
+        Assert.assertEquals(1999, all.get(all.size() - 1)[1]);
+
+        dao.maintain(T0 + 24 * 31 * HOUR);
+        Assert.assertEquals(2000 - 1440, dao.query("cluster-1", 0, Long.MAX_VALUE, 0).size());
+        dao.destroy();
+    }
+
+    public void testCrashBetweenHeaderWrites() throws Exception {
+        PerfHistoryDAOImple dao = newDAO();
+        for (int i = 0; i < 10; ++i) {
+            dao.append("cobar-1", new long[] { T0 + i * 5000L, i });
+        }
+        dao.destroy();
+
+        // count claims a sample whose data is not covered by end
+        File f = new File(new File(dir, "cobar-1"), T0 + Segment.SUFFIX);
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            raf.seek(12);
+            raf.writeInt(11);
+        } finally {
+            raf.close();
+        }
+        dao = newDAO();
+        Assert.assertEquals(10, dao.query("cobar-1", 0, Long.MAX_VALUE, 0).size());
+        dao.append("cobar-1", new long[] { T0 + 10 * 5000L, 10 });
+        List<long[]> all = dao.query("cobar-1", 0, Long.MAX_VALUE, 0);
+        Assert.assertEquals(11, all.size());
+        Assert.assertEquals(10, all.get(10)[1]);
+        dao.destroy();
+    }
+
+    public void testRecoverTemporaryFiles() throws Exception {
+        PerfHistoryDAOImple dao = newDAO();
+        for (int i = 0; i < 2000; ++i) {
+            dao.append("cluster-1", new long[] { T0 + i * 5000L, i });
+        }
+        dao.destroy();
+
+        // interrupted before the rename: the original is kept
+        File series = new File(dir, "cluster-1");
+        File first = new File(series, T0 + Segment.SUFFIX);
+        File tmp = new File(series, first.getName() + ".tmp");
+        new FileOutputStream(tmp).close();
+        // interrupted after the original is deleted: the complete temporary file is used
+        File second = new File(series, (T0 + 720 * 5000L) + Segment.SUFFIX);
+        List<long[]> samples = new ArrayList<long[]>();
+        Segment.read(second, Long.MIN_VALUE, Long.MAX_VALUE, samples);
+        Segment.write(new File(series, second.getName() + ".tmp"), 2, 60000L, samples.subList(0, 1));
+        Assert.assertTrue(second.delete());
+
+        dao = newDAO();
+        Assert.assertFalse(tmp.exists());
+        Assert.assertEquals(3, series.list().length);
+        Assert.assertEquals(2000 - 720 + 1, dao.query("cluster-1", 0, Long.MAX_VALUE, 0).size());
+        dao.destroy();
+    }
+
+    private PerfHistoryDAOImple newDAO() throws Exception {
+        PerfHistoryDAOImple dao = new PerfHistoryDAOImple();
+        dao.setPath(dir.getPath());
+        dao.setSegmentSpan(HOUR);
+        dao.setSegmentSize(8192);
+        dao.afterPropertiesSet();
+        return dao;
+    }
+
+    private static void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File c : files) {
+                delete(c);
+            }
+        }
+        f.delete();
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.alibaba.cobar.manager.dao.xml;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class AbstractDAOImpleTest extends TestCase {
+    private File dir;
+    private MockDAO dao;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("xmldao", "");
+        dir.delete();
+        dir.mkdirs();
+        dao = new MockDAO();
+        dao.xmlPath = new File(dir, "mock.xml").getPath();
+        dao.init(0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    public void testPublishAwait() throws Exception {
+        long version = dao.publish(dao.snapshot(), 1);
+        // readers see the published snapshot before it is written
+        Assert.assertEquals(Integer.valueOf(1), dao.snapshot());
+        Assert.assertTrue(dao.await(version));
+        Assert.assertEquals("1", read());
+        Assert.assertTrue(dao.await(dao.publish(dao.snapshot(), 2)));
+        Assert.assertEquals("2", read());
+        Assert.assertFalse(new File(dao.xmlPath + ".tmp").exists());
+    }
+
+    public void testGroupCommit() throws Exception {
+        dao.block();
+        long v1 = dao.publish(dao.snapshot(), 1);
+        dao.writing.await();
+        // published while the first write is running, written together by the next one
+        long v2 = dao.publish(dao.snapshot(), 2);
+        long v3 = dao.publish(dao.snapshot(), 3);
+        Assert.assertTrue(v1 < v2 && v2 < v3);
+        dao.block.countDown();
+        Assert.assertTrue(dao.await(v2));
+        Assert.assertTrue(dao.await(v3));
+        Assert.assertTrue(dao.await(v1));
+        Assert.assertEquals(2, dao.writes.get());
+        Assert.assertEquals("3", read());
+    }
+
+    public void testWriteFail() throws Exception {
+        Assert.assertTrue(dao.await(dao.publish(dao.snapshot(), 1)));
+        Integer persisted = dao.snapshot();
+
+        // every change not yet written is discarded with the failed write
+        dao.fail = true;
+        dao.block();
+        Integer discarded = 2;
+        long v2 = dao.publish(dao.snapshot(), discarded);
+        dao.writing.await();
+        long v3 = dao.publish(dao.snapshot(), 3);
+        dao.block.countDown();
+        Assert.assertFalse(dao.await(v3));
+        Assert.assertFalse(dao.await(v2));
+        Assert.assertSame(persisted, dao.snapshot());
+        Assert.assertEquals("1", read());
+
+        // a writer still holding a discarded snapshot must start again
+        dao.fail = false;
+        Assert.assertEquals(-1L, dao.publish(discarded, 4));
+        Assert.assertFalse(dao.await(-1L));
+        Assert.assertSame(persisted, dao.snapshot());
+        Assert.assertTrue(dao.await(dao.publish(dao.snapshot(), 4)));
+        Assert.assertEquals("4", read());
+    }
+
+    public void testConcurrentWriters() throws Exception {
+        final int threads = 8;
+        final int count = 50;
+        final AtomicInteger failed = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> list = new ArrayList<Thread>();
+        for (int i = 0; i < threads; ++i) {
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < count; ++j) {
+                        long version;
+                        synchronized (dao) {
+                            Integer base = dao.snapshot();
+                            version = dao.publish(base, base + 1);
+                        }
+                        if (!dao.await(version)) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            t.start();
+            list.add(t);
+        }
+        start.countDown();
+        for (Thread t : list) {
+            t.join();
+        }
+        Assert.assertEquals(0, failed.get());
+        Assert.assertEquals(Integer.valueOf(threads * count), dao.snapshot());
+        Assert.assertEquals(String.valueOf(threads * count), read());
+        Assert.assertTrue(dao.writes.get() <= threads * count);
+    }
+
+    private String read() throws IOException {
+        FileInputStream in = new FileInputStream(dao.xmlPath);
+        try {
+            byte[] b = new byte[64];
+            int n = in.read(b);
+            return new String(b, 0, n, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * writes the snapshot as a number
+     */
+    private static class MockDAO extends AbstractDAOImple<Integer> {
+        private final AtomicInteger writes = new AtomicInteger();
+        private volatile CountDownLatch writing = new CountDownLatch(1);
+        private volatile CountDownLatch block;
+        private volatile boolean fail;
+
+        /**
+         * the next write waits until <code>block</code> is counted down
+         */
+        private void block() {
+            writing = new CountDownLatch(1);
+            block = new CountDownLatch(1);
+        }
+
+        @Override
+        protected boolean write(OutputStream os, Integer s) {
+            writes.incrementAndGet();
+            writing.countDown();
+            CountDownLatch latch = block;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+            if (fail) {
+                return false;
+            }
+            try {
+                os.write(String.valueOf(s).getBytes("UTF-8"));
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+}
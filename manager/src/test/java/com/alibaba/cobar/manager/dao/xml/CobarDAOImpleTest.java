@@ -0,0 +1,99 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.alibaba.cobar.manager.dao.xml;
+
+import java.io.File;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.manager.dataobject.xml.CobarDO;
+import com.alibaba.cobar.manager.util.ConstantDefine;
+
+public class CobarDAOImpleTest extends TestCase {
+    private File dir;
+    private CobarDAOImple dao;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("xmldao", "");
+        dir.delete();
+        dir.mkdirs();
+        dao = new CobarDAOImple();
+        dao.xmlPath = new File(dir, "cobar.xml").getPath();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    public void testCopy() throws Exception {
+        CobarDO cobar = newCobar("cobar1");
+        Assert.assertTrue(dao.addCobar(cobar));
+        Assert.assertEquals(1, cobar.getId());
+
+        // neither the added nor a returned object is part of the snapshot
+        cobar.setName("changed");
+        CobarDO got = dao.getCobarById(1);
+        Assert.assertEquals("cobar1", got.getName());
+        got.setStatus(ConstantDefine.IN_ACTIVE);
+        Assert.assertEquals(ConstantDefine.ACTIVE, dao.getCobarById(1).getStatus());
+        Assert.assertEquals(ConstantDefine.ACTIVE, dao.listAllCobar().get(0).getStatus());
+        Assert.assertEquals(1, dao.getCobarList(1, ConstantDefine.ACTIVE).size());
+    }
+
+    public void testRevert() throws Exception {
+        Assert.assertTrue(dao.addCobar(newCobar("cobar1")));
+
+        // a change whose write fails is not seen afterwards, even when made on a returned object
+        String path = dao.xmlPath;
+        dao.xmlPath = new File(dir, "missing" + File.separator + "cobar.xml").getPath();
+        CobarDO cobar = dao.getCobarById(1);
+        cobar.setName("cobar2");
+        cobar.setStatus(ConstantDefine.IN_ACTIVE);
+        Assert.assertFalse(dao.modifyCobar(cobar));
+        Assert.assertFalse(dao.addCobar(newCobar("cobar3")));
+        Assert.assertEquals("cobar1", dao.getCobarById(1).getName());
+        Assert.assertEquals(ConstantDefine.ACTIVE, dao.getCobarById(1).getStatus());
+        Assert.assertEquals(1, dao.listAllCobar().size());
+        Assert.assertTrue(dao.getCobarList(1, ConstantDefine.IN_ACTIVE).isEmpty());
+
+        dao.xmlPath = path;
+        Assert.assertTrue(dao.modifyCobar(cobar));
+        Assert.assertEquals("cobar2", dao.getCobarById(1).getName());
+        Assert.assertEquals(1, dao.getCobarList(1, ConstantDefine.IN_ACTIVE).size());
+    }
+
+    private static CobarDO newCobar(String name) {
+        CobarDO cobar = new CobarDO();
+        cobar.setName(name);
+        cobar.setClusterId(1);
+        cobar.setHost("10.0.0.1");
+        cobar.setPort(9066);
+        cobar.setUser("test");
+        cobar.setPassword("test");
+        cobar.setStatus(ConstantDefine.ACTIVE);
+        cobar.setTime_diff("0");
+        return cobar;
+    }
+
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cobar.manager.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.manager.dao.CobarAdapterDAO;
+import com.alibaba.cobar.manager.dao.xml.CobarDAOImple;
+import com.alibaba.cobar.manager.dataobject.cobarnode.CommandStatus;
+import com.alibaba.cobar.manager.dataobject.cobarnode.ConnectionStatus;
+import com.alibaba.cobar.manager.dataobject.cobarnode.DataNodesStatus;
+import com.alibaba.cobar.manager.dataobject.cobarnode.DataSources;
+import com.alibaba.cobar.manager.dataobject.cobarnode.ProcessorStatus;
+import com.alibaba.cobar.manager.dataobject.cobarnode.ServerStatus;
+import com.alibaba.cobar.manager.dataobject.cobarnode.ThreadPoolStatus;
+import com.alibaba.cobar.manager.dataobject.cobarnode.TimeStamp;
+import com.alibaba.cobar.manager.dataobject.xml.CobarDO;
+import com.alibaba.cobar.manager.service.PerfCollector.NodePerf;
+import com.alibaba.cobar.manager.util.ConstantDefine;
+import com.alibaba.cobar.manager.util.Pair;
+
+public class PerfCollectorTest extends TestCase {
+    private final List<CobarDO> cobars = new ArrayList<CobarDO>();
+    private final Map<String, MockCobarAdapter> adapters = new HashMap<String, MockCobarAdapter>();
+    private ExecutorService executor;
+    private PerfCollector collector;
+
+    @Override
+    protected void setUp() throws Exception {
+        XmlAccesser xmlAccesser = new XmlAccesser();
+        xmlAccesser.setCobarDAO(new CobarDAOImple() {
+            @Override
+            public List<CobarDO> listAllCobar() {
+                return new ArrayList<CobarDO>(cobars);
+            }
+        });
+        CobarAccesser cobarAccesser = new CobarAccesser() {
+            @Override
+            public CobarAdapterDAO getAccesser(CobarDO cobar) {
+                return adapters.get(cobar.getHost());
+            }
+        };
+        executor = Executors.newCachedThreadPool();
+        collector = new PerfCollector();
+        collector.setXmlAccesser(xmlAccesser);
+        collector.setCobarAccesser(cobarAccesser);
+        collector.setSamplePeriod(500L);
+        collector.setSampleCapacity(4);
+        collector.setCollector(executor);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    public void testRate() {
+        MockCobarAdapter a = addCobar(1, 1, "10.0.0.1");
+        a.sample(1000L, 0, 0, 0);
+        collector.collect();
+        NodePerf perf = collector.getNode(1);
+        long[] last = perf.getLast();
+        Assert.assertEquals(ConstantDefine.ACTIVE, perf.getStatus());
+        Assert.assertEquals("1.0", perf.getVersion());
+        Assert.assertEquals(0, last[PerfCollector.NET_IN_RATE]);
+
+        // rates are per second between two consecutive samples
+        a.sample(6000L, 5000, 10000, 500);
+        collector.collect();
+        last = perf.getLast();
+        Assert.assertEquals(6000L, last[PerfCollector.TIMESTAMP]);
+        Assert.assertEquals(5000, last[PerfCollector.NET_IN]);
+        Assert.assertEquals(1000, last[PerfCollector.NET_IN_RATE]);
+        Assert.assertEquals(2000, last[PerfCollector.NET_OUT_RATE]);
+        Assert.assertEquals(100, last[PerfCollector.REQUEST_RATE]);
+        Assert.assertEquals(2, last[PerfCollector.SCHEMA]);
+        Assert.assertEquals(2, perf.getSeries().size());
+    }
+
+    public void testRestart() {
+        MockCobarAdapter a = addCobar(1, 1, "10.0.0.1");
+        a.sample(1000L, 5000, 5000, 500);
+        collector.collect();
+        NodePerf perf = collector.getNode(1);
+
+        // version is only read again after the node has been unreachable
+        a.version = "cobar-2.0";
+        a.down = true;
+        collector.collect();
+        Assert.assertEquals(ConstantDefine.ERROR, perf.getStatus());
+        Assert.assertEquals("1.0", perf.getVersion());
+        Assert.assertEquals(1000L, perf.getLast()[PerfCollector.TIMESTAMP]);
+
+        // counters of the restarted node start again from zero, no negative rate
+        a.down = false;
+        a.sample(6000L, 100, 6000, 10);
+        collector.collect();
+        long[] last = perf.getLast();
+        Assert.assertEquals(ConstantDefine.ACTIVE, perf.getStatus());
+        Assert.assertEquals("2.0", perf.getVersion());
+        Assert.assertEquals(0, last[PerfCollector.NET_IN_RATE]);
+        Assert.assertEquals(200, last[PerfCollector.NET_OUT_RATE]);
+        Assert.assertEquals(0, last[PerfCollector.REQUEST_RATE]);
+    }
+
+    public void testClusterSum() {
+        MockCobarAdapter a = addCobar(1, 1, "10.0.0.1");
+        MockCobarAdapter b = addCobar(2, 1, "10.0.0.2");
+        MockCobarAdapter c = addCobar(3, 2, "10.0.0.3");
+        a.sample(1000L, 0, 0, 0);
+        b.sample(1000L, 0, 0, 0);
+        c.sample(1000L, 0, 0, 0);
+        collector.collect();
+        a.sample(2000L, 100, 200, 10);
+        b.sample(3000L, 400, 600, 40);
+        b.databases = Arrays.asList("db1", "db2", "db3");
+        c.sample(2000L, 1, 1, 1);
+        collector.collect();
+
+        long[] sum = collector.getCluster(1).getLast();
+        Assert.assertEquals(500, sum[PerfCollector.NET_IN]);
+        Assert.assertEquals(800, sum[PerfCollector.NET_OUT]);
+        Assert.assertEquals(50, sum[PerfCollector.REQUEST]);
+        Assert.assertEquals(2, sum[PerfCollector.CONNECTION]);
+        Assert.assertEquals(200, sum[PerfCollector.USED_MEMORY]);
+        // schemas are shared by the nodes of a cluster
+        Assert.assertEquals(3, sum[PerfCollector.SCHEMA]);
+        // the cluster rate is the sum of the node rates
+        Assert.assertEquals(100 + 200, sum[PerfCollector.NET_IN_RATE]);
+        Assert.assertEquals(10 + 20, sum[PerfCollector.REQUEST_RATE]);
+        Assert.assertEquals(1, collector.getCluster(2).getLast()[PerfCollector.NET_IN]);
+        Assert.assertEquals(2, collector.getCluster(1).size());
+    }
+
+    public void testTimeout() throws Exception {
+        MockCobarAdapter a = addCobar(1, 1, "10.0.0.1");
+        MockCobarAdapter b = addCobar(2, 1, "10.0.0.2");
+        a.sample(1000L, 100, 100, 10);
+        b.sample(1000L, 200, 200, 20);
+        collector.collect();
+
+        // a node slower than one period is reported as error and left out of the cluster sum
+        b.block = new CountDownLatch(1);
+        a.sample(2000L, 300, 300, 30);
+        long start = System.currentTimeMillis();
+        collector.collect();
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000L);
+        Assert.assertEquals(ConstantDefine.ACTIVE, collector.getNode(1).getStatus());
+        Assert.assertEquals(ConstantDefine.ERROR, collector.getNode(2).getStatus());
+        Assert.assertFalse(collector.getNode(2).isActive());
+        Assert.assertEquals(1000L, collector.getNode(2).getLast()[PerfCollector.TIMESTAMP]);
+        Assert.assertEquals(300, collector.getCluster(1).getLast()[PerfCollector.NET_IN]);
+        b.block.countDown();
+
+        // a cluster whose nodes are all unreachable still gets a zero sample
+        a.down = true;
+        b.down = true;
+        collector.collect();
+        Assert.assertEquals(3, collector.getCluster(1).size());
+        Assert.assertEquals(0, collector.getCluster(1).getLast()[PerfCollector.NET_IN]);
+    }
+
+    public void testEvict() {
+        MockCobarAdapter a = addCobar(1, 1, "10.0.0.1");
+        MockCobarAdapter b = addCobar(2, 2, "10.0.0.2");
+        a.sample(1000L, 0, 0, 0);
+        b.sample(1000L, 0, 0, 0);
+        collector.collect();
+        Assert.assertNotNull(collector.getNode(2));
+        Assert.assertNotNull(collector.getCluster(2));
+
+        // an inactive node keeps its history but is no longer sampled
+        cobars.get(0).setStatus(ConstantDefine.IN_ACTIVE);
+        collector.collect();
+        Assert.assertNotNull(collector.getNode(1));
+        Assert.assertEquals(1, collector.getNode(1).getSeries().size());
+        Assert.assertNull(collector.getCluster(1));
+
+        // removed nodes and clusters are dropped
+        cobars.remove(1);
+        collector.collect();
+        Assert.assertNull(collector.getNode(2));
+        Assert.assertNull(collector.getCluster(2));
+        Assert.assertNotNull(collector.getNode(1));
+    }
+
+    private MockCobarAdapter addCobar(long id, long clusterId, String host) {
+        CobarDO cobar = new CobarDO();
+        cobar.setId(id);
+        cobar.setClusterId(clusterId);
+        cobar.setName("cobar" + id);
+        cobar.setHost(host);
+        cobar.setStatus(ConstantDefine.ACTIVE);
+        cobars.add(cobar);
+        MockCobarAdapter adapter = new MockCobarAdapter();
+        adapters.put(host, adapter);
+        return adapter;
+    }
+
+    /**
+     * a cobar node with one processor
+     */
+    private static class MockCobarAdapter implements CobarAdapterDAO {
+        private volatile boolean down;
+        private volatile CountDownLatch block;
+        private volatile String version = "cobar-1.0";
+        private volatile List<String> databases = Arrays.asList("db1", "db2");
+        private volatile ProcessorStatus processor;
+        private volatile CommandStatus command;
+
+        private void sample(long timestamp, long netIn, long netOut, long query) {
+            ProcessorStatus p = new ProcessorStatus();
+            p.setSampleTimeStamp(timestamp);
+            p.setNetIn(netIn);
+            p.setNetOut(netOut);
+            p.setConnections(1);
+            CommandStatus c = new CommandStatus();
+            c.setSampleTimeStamp(timestamp);
+            c.setQuery(query);
+            processor = p;
+            command = c;
+        }
+
+        @Override
+        public boolean checkConnection() {
+            CountDownLatch latch = block;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+            return !down;
+        }
+
+        @Override
+        public List<ProcessorStatus> listProccessorStatus() {
+            return Arrays.asList(processor);
+        }
+
+        @Override
+        public List<CommandStatus> listCommandStatus() {
+            return Arrays.asList(command);
+        }
+
+        @Override
+        public ServerStatus getServerStatus() {
+            ServerStatus ss = new ServerStatus();
+            ss.setUsedMemory(100);
+            ss.setTotalMemory(1000);
+            ss.setStatus(ServerStatus.STATUS_ON);
+            return ss;
+        }
+
+        @Override
+        public List<String> listDataBases() {
+            return databases;
+        }
+
+        @Override
+        public String getVersion() {
+            return version;
+        }
+
+        @Override
+        public TimeStamp getStartUpTime() {
+            return new TimeStamp();
+        }
+
+        @Override
+        public boolean setCobarStatus(boolean status) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TimeStamp getCurrentTime() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ThreadPoolStatus> listThreadPoolStatus() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<DataNodesStatus> listDataNodes() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<DataSources> listDataSources() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ConnectionStatus> listConnectionStatus() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Pair<Long, Long> getCurrentTimeMillis() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int switchDataNode(String datanodes, int index) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int stopHeartbeat(String datanodes, int hour_time) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int killConnection(long id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean reloadConfig() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean rollbackConfig() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.alibaba.cobar.manager.util;
+
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class TimeSeriesTest extends TestCase {
+
+    public void testRing() {
+        TimeSeries series = new TimeSeries(3);
+        Assert.assertNull(series.getLast());
+        Assert.assertTrue(series.list(0).isEmpty());
+        series.add(new long[] { 1, 10 });
+        series.add(new long[] { 2, 20 });
+        Assert.assertEquals(2, series.size());
+        Assert.assertEquals(20, series.getLast()[1]);
+
+        // the oldest sample is overwritten when full
+        series.add(new long[] { 3, 30 });
+        series.add(new long[] { 4, 40 });
+        series.add(new long[] { 5, 50 });
+        Assert.assertEquals(3, series.size());
+        Assert.assertEquals(3, series.capacity());
+        Assert.assertEquals(50, series.getLast()[1]);
+        List<long[]> list = series.list(0);
+        Assert.assertEquals(3, list.size());
+        for (int i = 0; i < list.size(); ++i) {
+            Assert.assertEquals(i + 3, list.get(i)[0]);
+        }
+    }
+
+    public void testSince() {
+        TimeSeries series = new TimeSeries(4);
+        for (int i = 1; i <= 6; ++i) {
+            series.add(new long[] { i * 1000L });
+        }
+        List<long[]> list = series.list(4000L);
+        Assert.assertEquals(2, list.size());
+        Assert.assertEquals(5000L, list.get(0)[0]);
+        Assert.assertEquals(6000L, list.get(1)[0]);
+        Assert.assertTrue(series.list(6000L).isEmpty());
+        Assert.assertEquals(4, series.list(Long.MIN_VALUE).size());
+    }
+
+    public void testCapacity() {
+        try {
+            new TimeSeries(0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
@@ -159,7 +159,11 @@ public class XMLSchemaLoader implements SchemaLoader {
             if (schemaElement.hasAttribute("keepSqlSchema")) {
                 keepSqlSchema = Boolean.parseBoolean(schemaElement.getAttribute("keepSqlSchema").trim());
             }
-            schemas.put(name, new SchemaConfig(name, dataNode, group, keepSqlSchema, tables));
+            SchemaConfig schema = new SchemaConfig(name, dataNode, group, keepSqlSchema, tables);
+            if (schemaElement.hasAttribute("maxConcurrent")) {
+                schema.setMaxConcurrent(Integer.parseInt(schemaElement.getAttribute("maxConcurrent").trim()));
+            }
+            schemas.put(name, schema);
         }
     }
 
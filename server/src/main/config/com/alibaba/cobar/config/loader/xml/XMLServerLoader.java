@@ -156,6 +156,10 @@ public class XMLServerLoader {
                     String[] strArray = SplitUtil.split(schemas, ',', true);
                     user.setSchemas(new HashSet<String>(Arrays.asList(strArray)));
                 }
+                String maxConcurrent = (String) props.get("maxConcurrent");
+                if (maxConcurrent != null) {
+                    user.setMaxConcurrent(Integer.parseInt(maxConcurrent.trim()));
+                }
                 if (users.containsKey(name)) {
                     throw new ConfigException("user " + name + " duplicated!");
                 }
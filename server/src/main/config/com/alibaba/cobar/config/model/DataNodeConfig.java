@@ -27,6 +27,9 @@ public final class DataNodeConfig {
     private static final long DEFAULT_IDLE_TIMEOUT = 10 * 60 * 1000L;
     private static final long DEFAULT_HEARTBEAT_TIMEOUT = 30 * 1000L;
     private static final int DEFAULT_HEARTBEAT_RETRY = 10;
+    private static final String DEFAULT_REPLICA_LAG_SQL = "SHOW SLAVE STATUS";
+    private static final int DEFAULT_READ_RETRY = 1;
+    private static final long DEFAULT_FAILOVER_WAIT_TIMEOUT = 3 * 1000L;
 
     private String name;
     private String dataSource;
@@ -39,6 +42,15 @@ public final class DataNodeConfig {
     private int heartbeatRetry = DEFAULT_HEARTBEAT_RETRY; // 检查连接发生异常到切换，重试次数
     private String heartbeatSQL;// 静态心跳语句
 
+    // 读写分离，开启后当前写库以外的数据源作为读库。
+    private boolean readWriteSplit;
+    private long maxReplicaLag; // 读库允许的最大复制延迟(秒)，小于等于0表示不检查延迟。
+    private String replicaLagSQL = DEFAULT_REPLICA_LAG_SQL; // 复制延迟查询语句
+
+    // 自动提交的读请求因后端连接异常失败时的重试
+    private int readRetry = DEFAULT_READ_RETRY; // 重试次数，0表示不重试。
+    private long failoverWaitTimeout = DEFAULT_FAILOVER_WAIT_TIMEOUT; // 重试前等待故障确认或切换的超时时间
+
     public String getHeartbeatSQL() {
         return heartbeatSQL;
     }
@@ -103,8 +115,48 @@ public final class DataNodeConfig {
         this.heartbeatRetry = heartbeatRetry;
     }
 
+    public boolean isReadWriteSplit() {
+        return readWriteSplit;
+    }
+
+    public void setReadWriteSplit(boolean readWriteSplit) {
+        this.readWriteSplit = readWriteSplit;
+    }
+
+    public long getMaxReplicaLag() {
+        return maxReplicaLag;
+    }
+
+    public void setMaxReplicaLag(long maxReplicaLag) {
+        this.maxReplicaLag = maxReplicaLag;
+    }
+
+    public String getReplicaLagSQL() {
+        return replicaLagSQL;
+    }
+
+    public void setReplicaLagSQL(String replicaLagSQL) {
+        this.replicaLagSQL = replicaLagSQL;
+    }
+
     public boolean isNeedHeartbeat() {
         return heartbeatSQL != null;
     }
 
+    public int getReadRetry() {
+        return readRetry;
+    }
+
+    public void setReadRetry(int readRetry) {
+        this.readRetry = readRetry;
+    }
+
+    public long getFailoverWaitTimeout() {
+        return failoverWaitTimeout;
+    }
+
+    public void setFailoverWaitTimeout(long failoverWaitTimeout) {
+        this.failoverWaitTimeout = failoverWaitTimeout;
+    }
+
 }
@@ -23,6 +23,7 @@ package com.alibaba.cobar.config.model;
 public final class DataSourceConfig {
 
     private static final int DEFAULT_SQL_RECORD_COUNT = 10;
+    private static final int DEFAULT_WEIGHT = 1;
 
     private String name;
     private String type;
@@ -33,6 +34,7 @@ public final class DataSourceConfig {
     private String database;
     private String sqlMode;
     private int sqlRecordCount = DEFAULT_SQL_RECORD_COUNT;
+    private int weight = DEFAULT_WEIGHT;// 作为读库时的负载权重，0表示不参与读。
 
     public String getName() {
         return name;
@@ -106,6 +108,14 @@ public final class DataSourceConfig {
         this.sqlRecordCount = sqlRecordCount;
     }
 
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
     @Override
     public String toString() {
         return new StringBuilder().append("[name=")
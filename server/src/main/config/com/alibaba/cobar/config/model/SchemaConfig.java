@@ -36,6 +36,7 @@ public class SchemaConfig {
     private final String[] metaDataNodes;
     private final boolean keepSqlSchema;
     private final Set<String> allDataNodes;
+    private int maxConcurrent;
 
     public SchemaConfig(String name, String dataNode, String group, boolean keepSqlSchema,
                         Map<String, TableConfig> tables) {
@@ -49,6 +50,17 @@ public class SchemaConfig {
         this.keepSqlSchema = keepSqlSchema;
     }
 
+    /**
+     * @return 同时处理中的请求数上限，小于等于0表示不限制
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
     public boolean isKeepSqlSchema() {
         return keepSqlSchema;
     }
@@ -15,7 +15,12 @@
  */
 package com.alibaba.cobar.config.model;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import com.alibaba.cobar.config.Isolations;
+import com.alibaba.cobar.util.SplitUtil;
 
 /**
  * 系统基础配置项
@@ -28,10 +33,13 @@ public final class SystemConfig {
     private static final int DEFAULT_MANAGER_PORT = 9066;
     private static final String DEFAULT_CHARSET = "UTF-8";
     private static final int DEFAULT_PROCESSORS = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_PROCESSOR_HANDLER_QUEUE = 8192;
     private static final long DEFAULT_IDLE_TIMEOUT = 8 * 3600 * 1000L;
     private static final long DEFAULT_PROCESSOR_CHECK_PERIOD = 15 * 1000L;
     private static final long DEFAULT_DATANODE_IDLE_CHECK_PERIOD = 60 * 1000L;
     private static final long DEFAULT_DATANODE_HEARTBEAT_PERIOD = 10 * 1000L;
+    private static final long DEFAULT_DATANODE_HEARTBEAT_MIN_PERIOD = 2 * 1000L;
+    private static final long DEFAULT_DATANODE_HEARTBEAT_MAX_PERIOD = 30 * 1000L;
     private static final long DEFAULT_CLUSTER_HEARTBEAT_PERIOD = 5 * 1000L;
     private static final long DEFAULT_CLUSTER_HEARTBEAT_TIMEOUT = 10 * 1000L;
     private static final int DEFAULT_CLUSTER_HEARTBEAT_RETRY = 10;
@@ -39,13 +47,17 @@ public final class SystemConfig {
     private static final String DEFAULT_CLUSTER_HEARTBEAT_PASS = "_HEARTBEAT_PASS_";
     private static final int DEFAULT_PARSER_COMMENT_VERSION = 50148;
     private static final int DEFAULT_SQL_RECORD_COUNT = 10;
+    private static final int DEFAULT_COMPRESS_THRESHOLD = 256;
 
     private int serverPort;//宽口
     private int managerPort;//管理端口
     private String charset;//编码
     private int processors;//处理器内核数
     private int processorHandler;//前端处理线程,server与app
+    private int processorHandlerQueue;//前端处理线程池队列容量，小于等于0表示无界
+    private long processorHandlerQueueTimeout;//前端查询排队超时，超时后直接返回错误
     private int processorExecutor;//后端处理线程,server与mysql
+    private boolean virtualThreadExecutor;//后端阻塞调用使用虚拟线程执行(运行时支持时)
     private int initExecutor;//处理初始化任务
     private int timerExecutor;//处理定时任务
     private int managerExecutor;//处理管理端 9066端口的线程
@@ -53,6 +65,8 @@ public final class SystemConfig {
     private long processorCheckPeriod;//处理器检测周期
     private long dataNodeIdleCheckPeriod;//数据节点空闲检测周期
     private long dataNodeHeartbeatPeriod;//数据节点心跳周期
+    private long dataNodeHeartbeatMinPeriod;//数据节点心跳异常时的最小周期
+    private long dataNodeHeartbeatMaxPeriod;//数据节点心跳稳定时的最大周期
     private String clusterHeartbeatUser;//集群心跳账户
     private String clusterHeartbeatPass;//集群心跳密码
     private long clusterHeartbeatPeriod;//集群心跳周期
@@ -61,6 +75,13 @@ public final class SystemConfig {
     private int txIsolation;//事务隔离级别
     private int parserCommentVersion;//编译解释版本
     private int sqlRecordCount;//sql记录数
+    private boolean multiNodeAsync;//非事务的多节点查询使用NIO连接并发执行
+    private boolean frontendCompress;//前端连接允许协商使用压缩协议
+    private boolean backendCompress;//NIO后端连接在MySQL支持时使用压缩协议
+    private int compressThreshold;//压缩协议下小于该长度的数据不压缩
+    private String nonBlockingSchemas;//使用NIO后端的schema列表，逗号分隔，*表示全部
+    private volatile Set<String> nonBlockingSchemaSet;
+    private volatile boolean allNonBlocking;
 
     public SystemConfig() {
         this.serverPort = DEFAULT_PORT;
@@ -68,6 +89,7 @@ public final class SystemConfig {
         this.charset = DEFAULT_CHARSET;
         this.processors = DEFAULT_PROCESSORS;
         this.processorHandler = DEFAULT_PROCESSORS;
+        this.processorHandlerQueue = DEFAULT_PROCESSOR_HANDLER_QUEUE;
         this.processorExecutor = DEFAULT_PROCESSORS;
         this.managerExecutor = DEFAULT_PROCESSORS;
         this.timerExecutor = DEFAULT_PROCESSORS;
@@ -76,6 +98,8 @@ public final class SystemConfig {
         this.processorCheckPeriod = DEFAULT_PROCESSOR_CHECK_PERIOD;
         this.dataNodeIdleCheckPeriod = DEFAULT_DATANODE_IDLE_CHECK_PERIOD;
         this.dataNodeHeartbeatPeriod = DEFAULT_DATANODE_HEARTBEAT_PERIOD;
+        this.dataNodeHeartbeatMinPeriod = DEFAULT_DATANODE_HEARTBEAT_MIN_PERIOD;
+        this.dataNodeHeartbeatMaxPeriod = DEFAULT_DATANODE_HEARTBEAT_MAX_PERIOD;
         this.clusterHeartbeatUser = DEFAULT_CLUSTER_HEARTBEAT_USER;
         this.clusterHeartbeatPass = DEFAULT_CLUSTER_HEARTBEAT_PASS;
         this.clusterHeartbeatPeriod = DEFAULT_CLUSTER_HEARTBEAT_PERIOD;
@@ -84,6 +108,8 @@ public final class SystemConfig {
         this.txIsolation = Isolations.REPEATED_READ;
         this.parserCommentVersion = DEFAULT_PARSER_COMMENT_VERSION;
         this.sqlRecordCount = DEFAULT_SQL_RECORD_COUNT;
+        this.compressThreshold = DEFAULT_COMPRESS_THRESHOLD;
+        this.nonBlockingSchemaSet = Collections.emptySet();
     }
 
     public String getCharset() {
@@ -126,6 +152,22 @@ public final class SystemConfig {
         this.processorHandler = processorExecutor;
     }
 
+    public int getProcessorHandlerQueue() {
+        return processorHandlerQueue;
+    }
+
+    public void setProcessorHandlerQueue(int processorHandlerQueue) {
+        this.processorHandlerQueue = processorHandlerQueue;
+    }
+
+    public long getProcessorHandlerQueueTimeout() {
+        return processorHandlerQueueTimeout;
+    }
+
+    public void setProcessorHandlerQueueTimeout(long processorHandlerQueueTimeout) {
+        this.processorHandlerQueueTimeout = processorHandlerQueueTimeout;
+    }
+
     public int getProcessorExecutor() {
         return processorExecutor;
     }
@@ -150,6 +192,14 @@ public final class SystemConfig {
         this.timerExecutor = timerExecutor;
     }
 
+    public boolean isVirtualThreadExecutor() {
+        return virtualThreadExecutor;
+    }
+
+    public void setVirtualThreadExecutor(boolean virtualThreadExecutor) {
+        this.virtualThreadExecutor = virtualThreadExecutor;
+    }
+
     public int getInitExecutor() {
         return initExecutor;
     }
@@ -190,6 +240,22 @@ public final class SystemConfig {
         this.dataNodeHeartbeatPeriod = dataNodeHeartbeatPeriod;
     }
 
+    public long getDataNodeHeartbeatMinPeriod() {
+        return dataNodeHeartbeatMinPeriod;
+    }
+
+    public void setDataNodeHeartbeatMinPeriod(long dataNodeHeartbeatMinPeriod) {
+        this.dataNodeHeartbeatMinPeriod = dataNodeHeartbeatMinPeriod;
+    }
+
+    public long getDataNodeHeartbeatMaxPeriod() {
+        return dataNodeHeartbeatMaxPeriod;
+    }
+
+    public void setDataNodeHeartbeatMaxPeriod(long dataNodeHeartbeatMaxPeriod) {
+        this.dataNodeHeartbeatMaxPeriod = dataNodeHeartbeatMaxPeriod;
+    }
+
     public String getClusterHeartbeatUser() {
         return clusterHeartbeatUser;
     }
@@ -254,4 +320,64 @@ public final class SystemConfig {
         this.sqlRecordCount = sqlRecordCount;
     }
 
+    public boolean isMultiNodeAsync() {
+        return multiNodeAsync;
+    }
+
+    public void setMultiNodeAsync(boolean multiNodeAsync) {
+        this.multiNodeAsync = multiNodeAsync;
+    }
+
+    public boolean isFrontendCompress() {
+        return frontendCompress;
+    }
+
+    public void setFrontendCompress(boolean frontendCompress) {
+        this.frontendCompress = frontendCompress;
+    }
+
+    public boolean isBackendCompress() {
+        return backendCompress;
+    }
+
+    public void setBackendCompress(boolean backendCompress) {
+        this.backendCompress = backendCompress;
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    public String getNonBlockingSchemas() {
+        return nonBlockingSchemas;
+    }
+
+    public void setNonBlockingSchemas(String nonBlockingSchemas) {
+        this.nonBlockingSchemas = nonBlockingSchemas;
+        Set<String> set = new HashSet<String>();
+        boolean all = false;
+        if (nonBlockingSchemas != null) {
+            for (String schema : SplitUtil.split(nonBlockingSchemas, ',', true)) {
+                if ("*".equals(schema)) {
+                    all = true;
+                } else if (schema.length() > 0) {
+                    set.add(schema);
+                }
+            }
+        }
+        this.nonBlockingSchemaSet = set;
+        this.allNonBlocking = all;
+    }
+
+    /**
+     * 该schema是否使用NIO后端执行
+     */
+    public boolean isNonBlockingSchema(String schema) {
+        return allNonBlocking || (schema != null && nonBlockingSchemaSet.contains(schema));
+    }
+
 }
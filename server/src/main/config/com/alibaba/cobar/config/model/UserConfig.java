@@ -25,6 +25,7 @@ public class UserConfig {
     private String name;
     private String password;
     private Set<String> schemas;
+    private int maxConcurrent;//同时处理中的请求数上限，小于等于0表示不限制
 
     public String getName() {
         return name;
@@ -50,4 +51,12 @@ public class UserConfig {
         this.schemas = schemas;
     }
 
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
 }
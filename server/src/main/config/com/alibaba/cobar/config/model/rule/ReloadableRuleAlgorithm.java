@@ -0,0 +1,36 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.config.model.rule;
+
+/**
+ * 映射数据来自外部文件、可以不重建整个配置而单独重载的规则算法。
+ */
+public interface ReloadableRuleAlgorithm extends RuleAlgorithm {
+
+    /**
+     * 重新载入映射文件，新映射暂不生效，由调用者检查分区下标后调用{@link #commitReload()}整体替换旧映射。
+     * 载入失败时抛出异常，原有映射保持不变。
+     * 
+     * @return 新映射中最大的分区下标，文件自上次载入后未变化时返回-1
+     */
+    int prepareReload();
+
+    /**
+     * 使{@link #prepareReload()}载入的新映射生效
+     */
+    void commitReload();
+
+}
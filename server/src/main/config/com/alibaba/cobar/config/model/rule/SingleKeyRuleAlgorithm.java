@@ -0,0 +1,32 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.config.model.rule;
+
+/**
+ * 以单个拆分字段为参数、结果只落在一个节点上的规则算法，可以不经过参数Map和装箱直接计算。
+ */
+public interface SingleKeyRuleAlgorithm extends RuleAlgorithm {
+
+    /**
+     * @return 算法参数直接是拆分字段时返回字段名(大写)，否则返回null
+     */
+    String getKeyColumn();
+
+    int partition(long key);
+
+    int partition(CharSequence key);
+
+}
@@ -59,6 +59,10 @@ public abstract class AbstractConnection implements NIOConnection {
     protected long netInBytes;
     protected long netOutBytes;
     protected int writeAttempts;
+    protected boolean compressSupported;
+    protected int compressThreshold;
+    protected volatile CompressedPacketCodec readCodec;
+    protected volatile CompressedPacketCodec writeCodec;
 
     public AbstractConnection(SocketChannel channel) {
         this.channel = channel;
@@ -154,6 +158,49 @@ public abstract class AbstractConnection implements NIOConnection {
         return writeAttempts;
     }
 
+    public boolean isCompressSupported() {
+        return compressSupported;
+    }
+
+    /**
+     * 是否允许与对端协商使用压缩协议
+     */
+    public void setCompressSupported(boolean compressSupported) {
+        this.compressSupported = compressSupported;
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    /**
+     * 小于该长度的数据不压缩
+     */
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    /**
+     * 返回压缩协议编解码器，未启用压缩时返回null
+     */
+    public CompressedPacketCodec getCompressCodec() {
+        return readCodec;
+    }
+
+    /**
+     * 读方向启用压缩协议，必须在对端开始发送压缩帧之前调用
+     */
+    public void enableCompressRead(CompressedPacketCodec codec) {
+        this.readCodec = codec;
+    }
+
+    /**
+     * 写方向启用压缩协议，之后写入的数据都按压缩帧发送
+     */
+    public void enableCompressWrite(CompressedPacketCodec codec) {
+        this.writeCodec = codec;
+    }
+
     /**
      * 返回NIO处理器
      * @return
@@ -228,6 +275,11 @@ public abstract class AbstractConnection implements NIOConnection {
         }
         netInBytes += got;
         processor.addNetInBytes(got);
+        CompressedPacketCodec codec = this.readCodec;
+        if (codec != null) {
+            readCompressed(buffer, codec);
+            return;
+        }
 
         // 处理数据
         int offset = readBufferOffset, length = 0, position = buffer.position();
@@ -268,6 +320,38 @@ public abstract class AbstractConnection implements NIOConnection {
         }
     }
 
+    /**
+     * 处理压缩帧：逐帧解码到明文缓存，再从明文中提取完整的数据包进行处理
+     */
+    private void readCompressed(ByteBuffer buffer, CompressedPacketCodec codec) {
+        int offset = readBufferOffset, length = 0, position = buffer.position();
+        for (;;) {
+            length = codec.getFrameLength(buffer, offset);
+            if (length == -1 || position < offset + length) {// 未到达一个帧的数据
+                if (!buffer.hasRemaining()) {
+                    checkReadBuffer(buffer, offset, position);
+                }
+                break;
+            }
+            codec.decode(buffer, offset, length);
+            byte[] data;
+            while ((data = codec.nextPacket(packetHeaderSize, maxPacketSize)) != null) {
+                handle(data);
+            }
+            offset += length;
+            if (position == offset) {
+                if (readBufferOffset != 0) {
+                    readBufferOffset = 0;
+                }
+                buffer.clear();
+                break;
+            } else {
+                readBufferOffset = offset;
+                buffer.position(position);
+            }
+        }
+    }
+
     /**
      * 写处理
      * @param data
@@ -288,8 +372,14 @@ public abstract class AbstractConnection implements NIOConnection {
             return;
         }
         if (isRegistered) {
+            CompressedPacketCodec codec = this.writeCodec;
             try {
-                writeQueue.put(buffer);
+                // 空缓存是关闭连接的标记，不压缩
+                if (codec != null && buffer.position() > 0) {
+                    codec.compress(buffer, processor.getBufferPool(), writeQueue);
+                } else {
+                    writeQueue.put(buffer);
+                }
             } catch (InterruptedException e) {
                 error(ErrorCode.ERR_PUT_WRITE_QUEUE, e);
                 return;
@@ -450,6 +540,12 @@ public abstract class AbstractConnection implements NIOConnection {
         while ((buffer = writeQueue.poll()) != null) {
             pool.recycle(buffer);
         }
+
+        // 释放压缩器
+        CompressedPacketCodec codec = this.readCodec;
+        if (codec != null) {
+            codec.end();
+        }
     }
 
     /**
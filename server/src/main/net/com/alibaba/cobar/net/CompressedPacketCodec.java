@@ -0,0 +1,320 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.net;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.alibaba.cobar.net.buffer.BufferPool;
+import com.alibaba.cobar.net.buffer.BufferQueue;
+
+/**
+ * MySQL压缩协议编解码，每个连接一个实例。压缩帧的格式为：3字节压缩后长度 + 1字节序号 + 3字节压缩前长度 + 数据，
+ * 压缩前长度为0表示数据未压缩。帧与MySQL数据包的边界无关，写出时按缓存块逐块成帧。
+ */
+public final class CompressedPacketCodec {
+    public static final int HEADER_SIZE = 7;
+    private static final int MAX_PAYLOAD = 0xffffff;
+
+    private final int threshold;
+    private final boolean client;
+
+    // 写方向，由compress的同步保护
+    private final Deflater deflater;
+    private byte[] input;
+    private byte[] output;
+    private volatile int sequence;
+    private int packetRemain;
+    private int headerGot;
+    private final byte[] header;
+    private boolean isEnded;
+
+    // 读方向，只由读线程访问
+    private final Inflater inflater;
+    private byte[] frame;
+    private byte[] plain;
+    private int plainStart;
+    private int plainEnd;
+
+    // 统计
+    private long rawIn;
+    private long netIn;
+    private long rawOut;
+    private long netOut;
+    private long inflateTime;
+    private long deflateTime;
+
+    /**
+     * @param threshold 小于该长度的数据不压缩
+     * @param client 作为客户端(后端连接)时每个命令从序号0开始，作为服务端时延续收到的序号
+     */
+    public CompressedPacketCodec(int threshold, boolean client) {
+        this.threshold = threshold;
+        this.client = client;
+        this.deflater = new Deflater();
+        this.inflater = new Inflater();
+        this.header = new byte[4];
+        this.input = new byte[0];
+        this.output = new byte[0];
+        this.frame = new byte[0];
+        this.plain = new byte[0];
+    }
+
+    /**
+     * 把缓存中[0, position)的数据成帧写入写队列，写完后原缓存回收到缓冲池。
+     */
+    public synchronized void compress(ByteBuffer src, BufferPool pool, BufferQueue queue) throws InterruptedException {
+        if (isEnded) {
+            pool.recycle(src);
+            return;
+        }
+        int length = src.position();
+        byte[] data;
+        int offset;
+        if (src.hasArray()) {
+            data = src.array();
+            offset = src.arrayOffset();
+        } else {
+            if (input.length < length) {
+                input = new byte[length];
+            }
+            src.flip();
+            src.get(input, 0, length);
+            data = input;
+            offset = 0;
+        }
+        if (client) {
+            track(data, offset, length);
+        }
+
+        // 压缩后的帧放得进一个缓存块时才发送压缩帧，否则按原文分帧
+        if (length >= threshold && length <= MAX_PAYLOAD) {
+            int size = deflate(data, offset, length);
+            if (size < length) {
+                ByteBuffer buffer = pool.allocate();
+                if (buffer.remaining() < size + HEADER_SIZE) {
+                    pool.recycle(buffer);
+                    buffer = ByteBuffer.allocate(size + HEADER_SIZE);
+                }
+                putHeader(buffer, size, length);
+                buffer.put(output, 0, size);
+                queue.put(buffer);
+                rawOut += length;
+                netOut += size + HEADER_SIZE;
+                pool.recycle(src);
+                return;
+            }
+        }
+        for (int off = offset, end = offset + length; off < end;) {
+            ByteBuffer buffer = pool.allocate();
+            int n = Math.min(Math.min(end - off, buffer.remaining() - HEADER_SIZE), MAX_PAYLOAD);
+            putHeader(buffer, n, 0);
+            buffer.put(data, off, n);
+            queue.put(buffer);
+            off += n;
+            rawOut += n;
+            netOut += n + HEADER_SIZE;
+        }
+        pool.recycle(src);
+    }
+
+    /**
+     * 返回[offset, position)处第一个帧的长度(含帧头)，帧头不完整时返回-1
+     */
+    public int getFrameLength(ByteBuffer buffer, int offset) {
+        if (buffer.position() < offset + HEADER_SIZE) {
+            return -1;
+        }
+        return readUB3(buffer, offset) + HEADER_SIZE;
+    }
+
+    /**
+     * 解码[offset, offset + length)处的一个完整帧，解出的数据追加到待处理的明文之后。
+     */
+    public void decode(ByteBuffer buffer, int offset, int length) {
+        int size = length - HEADER_SIZE;
+        int rawSize = readUB3(buffer, offset + 4);
+        if (!client) {
+            sequence = buffer.get(offset + 3) + 1;
+        }
+        ensurePlain(rawSize == 0 ? size : rawSize);
+        int position = buffer.position();
+        buffer.position(offset + HEADER_SIZE);
+        if (rawSize == 0) {
+            buffer.get(plain, plainEnd, size);
+            plainEnd += size;
+            rawIn += size;
+        } else {
+            if (frame.length < size) {
+                frame = new byte[size];
+            }
+            buffer.get(frame, 0, size);
+            long start = System.nanoTime();
+            inflater.reset();
+            inflater.setInput(frame, 0, size);
+            try {
+                int n = 0;
+                while (n < rawSize) {
+                    int got = inflater.inflate(plain, plainEnd + n, rawSize - n);
+                    if (got == 0 && (inflater.finished() || inflater.needsInput())) {
+                        break;
+                    }
+                    n += got;
+                }
+                if (n != rawSize) {
+                    throw new IllegalArgumentException("Compressed packet length mismatch.");
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalArgumentException("Bad compressed packet.", e);
+            } finally {
+                inflateTime += System.nanoTime() - start;
+            }
+            plainEnd += rawSize;
+            rawIn += rawSize;
+        }
+        netIn += length;
+        buffer.position(position);
+    }
+
+    /**
+     * 从已解码的明文中取出下一个完整的MySQL数据包，不完整时返回null
+     */
+    public byte[] nextPacket(int packetHeaderSize, int maxPacketSize) {
+        int available = plainEnd - plainStart;
+        if (available < packetHeaderSize) {
+            return null;
+        }
+        int length = (plain[plainStart] & 0xff) | (plain[plainStart + 1] & 0xff) << 8
+                | (plain[plainStart + 2] & 0xff) << 16;
+        length += packetHeaderSize;
+        if (length > maxPacketSize) {
+            throw new IllegalArgumentException("Packet size over the limit.");
+        }
+        if (available < length) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        System.arraycopy(plain, plainStart, data, 0, length);
+        plainStart += length;
+        if (plainStart == plainEnd) {
+            plainStart = plainEnd = 0;
+        }
+        return data;
+    }
+
+    /**
+     * 释放压缩器占用的本地内存
+     */
+    public void end() {
+        synchronized (this) {
+            isEnded = true;
+            deflater.end();
+        }
+        inflater.end();
+    }
+
+    public long getRawBytes() {
+        return rawIn + rawOut;
+    }
+
+    public long getNetBytes() {
+        return netIn + netOut;
+    }
+
+    /**
+     * 压缩和解压累计耗时(纳秒)
+     */
+    public long getTime() {
+        return inflateTime + deflateTime;
+    }
+
+    private int deflate(byte[] data, int offset, int length) {
+        int bound = length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+        if (output.length < bound) {
+            output = new byte[bound];
+        }
+        long start = System.nanoTime();
+        try {
+            deflater.reset();
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            int size = 0;
+            while (!deflater.finished() && size < output.length) {
+                size += deflater.deflate(output, size, output.length - size);
+            }
+            return deflater.finished() ? size : length;
+        } finally {
+            deflateTime += System.nanoTime() - start;
+        }
+    }
+
+    private void putHeader(ByteBuffer buffer, int size, int rawSize) {
+        int seq = sequence++;
+        buffer.put((byte) (size & 0xff));
+        buffer.put((byte) (size >>> 8));
+        buffer.put((byte) (size >>> 16));
+        buffer.put((byte) seq);
+        buffer.put((byte) (rawSize & 0xff));
+        buffer.put((byte) (rawSize >>> 8));
+        buffer.put((byte) (rawSize >>> 16));
+    }
+
+    /**
+     * 作为客户端时跟踪写出数据中的包边界，在包边界上遇到序号为0的包即为新命令，帧序号重新从0开始
+     */
+    private void track(byte[] data, int offset, int length) {
+        int i = offset, end = offset + length;
+        while (i < end) {
+            if (packetRemain > 0) {
+                int n = Math.min(packetRemain, end - i);
+                packetRemain -= n;
+                i += n;
+                continue;
+            }
+            header[headerGot++] = data[i++];
+            if (headerGot == header.length) {
+                headerGot = 0;
+                packetRemain = (header[0] & 0xff) | (header[1] & 0xff) << 8 | (header[2] & 0xff) << 16;
+                if (header[3] == 0) {
+                    sequence = 0;
+                }
+            }
+        }
+    }
+
+    private void ensurePlain(int size) {
+        if (plainStart > 0) {
+            System.arraycopy(plain, plainStart, plain, 0, plainEnd - plainStart);
+            plainEnd -= plainStart;
+            plainStart = 0;
+        }
+        if (plain.length < plainEnd + size) {
+            byte[] newPlain = new byte[Math.max(plainEnd + size, plain.length << 1)];
+            System.arraycopy(plain, 0, newPlain, 0, plainEnd);
+            plain = newPlain;
+        }
+    }
+
+    private static int readUB3(ByteBuffer buffer, int offset) {
+        int i = buffer.get(offset) & 0xff;
+        i |= (buffer.get(offset + 1) & 0xff) << 8;
+        i |= (buffer.get(offset + 2) & 0xff) << 16;
+        return i;
+    }
+
+}
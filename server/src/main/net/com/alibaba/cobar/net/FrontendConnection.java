@@ -20,7 +20,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.Socket;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.log4j.Logger;
 
@@ -35,7 +35,9 @@ import com.alibaba.cobar.net.handler.FrontendPrivileges;
 import com.alibaba.cobar.net.handler.FrontendQueryHandler;
 import com.alibaba.cobar.net.mysql.ErrorPacket;
 import com.alibaba.cobar.net.mysql.HandshakePacket;
+import com.alibaba.cobar.net.mysql.MySQLPacket;
 import com.alibaba.cobar.net.mysql.OkPacket;
+import com.alibaba.cobar.util.NameableExecutor;
 import com.alibaba.cobar.util.RandomUtil;
 import com.alibaba.cobar.util.TimeUtil;
 
@@ -62,6 +64,7 @@ public abstract class FrontendConnection extends AbstractConnection {
     protected FrontendPrepareHandler prepareHandler;
     protected boolean isAccepted;
     protected boolean isAuthenticated;
+    protected volatile boolean multiStatements;
 
     public FrontendConnection(SocketChannel channel) {
         super(channel);
@@ -166,6 +169,17 @@ public abstract class FrontendConnection extends AbstractConnection {
         this.isAuthenticated = isAuthenticated;
     }
 
+    /**
+     * 客户端是否允许一次请求中包含多条语句
+     */
+    public boolean isMultiStatements() {
+        return multiStatements;
+    }
+
+    public void setMultiStatements(boolean multiStatements) {
+        this.multiStatements = multiStatements;
+    }
+
     /**
      * 权限提供者
      * @return
@@ -301,8 +315,7 @@ public abstract class FrontendConnection extends AbstractConnection {
             writeErrMessage(ErrorCode.ER_ACCESS_DENIED_ERROR, "Access denied for user '" + user + "'");
             return;
         }
-        Set<String> schemas = privileges.getUserSchemas(user);
-        if (schemas == null || schemas.size() == 0 || schemas.contains(db)) {
+        if (privileges.isSchemaAllowed(user, db)) {
             this.schema = db;
             write(writeToBuffer(OkPacket.OK, allocate()));
         } else {
@@ -406,6 +419,14 @@ public abstract class FrontendConnection extends AbstractConnection {
         write(writeToBuffer(OkPacket.OK, allocate()));
     }
 
+    /**
+     * COM_SET_OPTION
+     * @param data
+     */
+    public void setOption(byte[] data) {
+        writeErrMessage(ErrorCode.ER_UNKNOWN_COM_ERROR, "Unknown command");
+    }
+
     public void kill(byte[] data) {
         writeErrMessage(ErrorCode.ER_UNKNOWN_COM_ERROR, "Unknown command");
     }
@@ -462,17 +483,56 @@ public abstract class FrontendConnection extends AbstractConnection {
      */
     @Override
     public void handle(final byte[] data) {
-        // 异步处理前端数据
-        processor.getHandler().execute(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    handler.handle(data);
-                } catch (Throwable t) {
-                    error(ErrorCode.ERR_HANDLE_DATA, t);
+        handle(data, null);
+    }
+
+    /**
+     * 异步处理前端数据，队列已满或排队超时的查询直接返回错误。
+     * 
+     * @param callback 处理结束(包括被拒绝)后执行，可以为null。
+     */
+    protected void handle(final byte[] data, final Runnable callback) {
+        final NameableExecutor executor = processor.getHandler();
+        final long queueTime = TimeUtil.currentTimeMillis();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (isQueueTimeout(data, queueTime)) {
+                            executor.shed();
+                            writeErrMessage(ErrorCode.ER_QUERY_INTERRUPTED, "Query is shed after waiting too long in queue");
+                        } else {
+                            handler.handle(data);
+                        }
+                    } catch (Throwable t) {
+                        error(ErrorCode.ERR_HANDLE_DATA, t);
+                    } finally {
+                        if (callback != null) {
+                            callback.run();
+                        }
+                    }
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            if (callback != null) {
+                callback.run();
+            }
+            if (isAuthenticated) {
+                writeErrMessage(ErrorCode.ER_CON_COUNT_ERROR, "Server is busy, request rejected");
+            } else {
+                close();
             }
-        });
+        }
+    }
+
+    /**
+     * 只丢弃已认证连接上的查询命令
+     */
+    private boolean isQueueTimeout(byte[] data, long queueTime) {
+        long timeout = processor.getHandlerQueueTimeout();
+        return timeout > 0 && isAuthenticated && data.length > 4 && data[4] == MySQLPacket.COM_QUERY
+                && TimeUtil.currentTimeMillis() - queueTime > timeout;
     }
 
     /**
@@ -486,7 +546,9 @@ public abstract class FrontendConnection extends AbstractConnection {
         flag |= Capabilities.CLIENT_LONG_FLAG;
         flag |= Capabilities.CLIENT_CONNECT_WITH_DB;
         // flag |= Capabilities.CLIENT_NO_SCHEMA;
-        // flag |= Capabilities.CLIENT_COMPRESS;
+        if (compressSupported) {
+            flag |= Capabilities.CLIENT_COMPRESS;
+        }
         flag |= Capabilities.CLIENT_ODBC;
         // flag |= Capabilities.CLIENT_LOCAL_FILES;
         flag |= Capabilities.CLIENT_IGNORE_SPACE;
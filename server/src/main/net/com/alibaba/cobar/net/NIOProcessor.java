@@ -20,11 +20,15 @@ import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.alibaba.cobar.net.buffer.BufferPool;
 import com.alibaba.cobar.statistic.CommandCount;
 import com.alibaba.cobar.util.ExecutorUtil;
 import com.alibaba.cobar.util.NameableExecutor;
+import com.alibaba.cobar.util.TimeUtil;
 
 /**
  * NIO处理器
@@ -40,6 +44,11 @@ public final class NIOProcessor {
     private final BufferPool bufferPool;
     private final NameableExecutor handler;//前端？
     private final NameableExecutor executor;//后端?
+    private volatile Executor blockingExecutor;//后端阻塞调用
+    private volatile long handlerQueueTimeout;//前端任务排队超时
+    private final int dispatchQueue;//排队中的后端请求派发任务上限，与前端队列容量相同
+    private final AtomicInteger dispatchQueued;
+    private volatile long dispatchDelay;//最近开始执行的派发任务的排队时间
     private final ConcurrentMap<Long, FrontendConnection> frontends;
     private final ConcurrentMap<Long, BackendConnection> backends;
     private final CommandCount commands;
@@ -64,11 +73,25 @@ public final class NIOProcessor {
      * @throws IOException
      */
     public NIOProcessor(String name, int buffer, int chunk, int handler, int executor) throws IOException {
+        this(name, buffer, chunk, handler, 0, executor);
+    }
+
+    public NIOProcessor(String name, int handler, int handlerQueue, int executor) throws IOException {
+        this(name, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_CHUNK_SIZE, handler, handlerQueue, executor);
+    }
+
+    /**
+     * @param handlerQueue 前端处理线程池队列容量，小于等于0表示无界
+     */
+    public NIOProcessor(String name, int buffer, int chunk, int handler, int handlerQueue, int executor)
+            throws IOException {
         this.name = name;
         this.reactor = new NIOReactor(name);
         this.bufferPool = new BufferPool(buffer, chunk);
-        this.handler = (handler > 0) ? ExecutorUtil.create(name + "-H", handler) : null;
+        this.handler = (handler > 0) ? ExecutorUtil.create(name + "-H", handler, handlerQueue) : null;
         this.executor = (executor > 0) ? ExecutorUtil.create(name + "-E", executor) : null;
+        this.dispatchQueue = handlerQueue;
+        this.dispatchQueued = new AtomicInteger(0);
         this.frontends = new ConcurrentHashMap<Long, FrontendConnection>();
         this.backends = new ConcurrentHashMap<Long, BackendConnection>();
         this.commands = new CommandCount();
@@ -118,6 +141,75 @@ public final class NIOProcessor {
         return executor;
     }
 
+    /**
+     * 后端阻塞调用(BIO通道)的执行器
+     * @return 设置的阻塞调用执行器，未设置时返回后端处理线程池
+     */
+    public Executor getBlockingExecutor() {
+        Executor e = blockingExecutor;
+        return e != null ? e : executor;
+    }
+
+    public void setBlockingExecutor(Executor blockingExecutor) {
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    /**
+     * 前端任务在队列中等待的最长时间(毫秒)，超过后直接返回错误，小于等于0表示不限制
+     * @return
+     */
+    public long getHandlerQueueTimeout() {
+        return handlerQueueTimeout;
+    }
+
+    public void setHandlerQueueTimeout(long handlerQueueTimeout) {
+        this.handlerQueueTimeout = handlerQueueTimeout;
+    }
+
+    /**
+     * 后端请求派发的准入判定，每个前端请求在向各节点派发之前判定一次，整体放行或整体丢弃：
+     * 有任务排队时，加上本次的任务数超过前端队列容量，或者最近开始的任务排队已超过前端排队超时，则丢弃。
+     * 
+     * @param tasks 本次请求要派发的任务数，即路由节点数
+     * @return false表示请求被丢弃，由调用方通知前端
+     */
+    public boolean admit(int tasks) {
+        int queued = dispatchQueued.get();
+        boolean shed = false;
+        if (queued > 0) {
+            long timeout = handlerQueueTimeout;
+            shed = (dispatchQueue > 0 && queued + tasks > dispatchQueue) || (timeout > 0 && dispatchDelay > timeout);
+        }
+        if (shed && executor != null) {
+            executor.shed();
+        }
+        return !shed;
+    }
+
+    /**
+     * 派发已经准入的后端请求任务，任务不再被丢弃。后端返回数据的处理任务不经过这里。
+     * 
+     * @param executor 后端处理线程池或阻塞调用执行器
+     */
+    public void dispatch(Executor executor, final Runnable task) {
+        final long queueTime = TimeUtil.currentTimeMillis();
+        dispatchQueued.incrementAndGet();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    dispatchQueued.decrementAndGet();
+                    dispatchDelay = TimeUtil.currentTimeMillis() - queueTime;
+                    task.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 执行器已关闭，在当前线程执行
+            dispatchQueued.decrementAndGet();
+            task.run();
+        }
+    }
+
     /**
      * 启动反应器
      */
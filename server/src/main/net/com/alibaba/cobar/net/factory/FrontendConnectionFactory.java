@@ -35,6 +35,8 @@ public abstract class FrontendConnectionFactory {
     protected int writeQueueCapcity = 16;
     protected long idleTimeout = 8 * 3600 * 1000L;
     protected String charset = "utf8";
+    protected boolean compress = false;
+    protected int compressThreshold = 256;
 
     protected abstract FrontendConnection getConnection(SocketChannel channel);
 
@@ -56,6 +58,8 @@ public abstract class FrontendConnectionFactory {
         c.setWriteQueue(new BufferQueue(writeQueueCapcity));
         c.setIdleTimeout(idleTimeout);
         c.setCharset(charset);
+        c.setCompressSupported(compress);
+        c.setCompressThreshold(compressThreshold);
         return c;
     }
 
@@ -131,4 +135,20 @@ public abstract class FrontendConnectionFactory {
         this.charset = charset;
     }
 
+    public boolean isCompress() {
+        return compress;
+    }
+
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
 }
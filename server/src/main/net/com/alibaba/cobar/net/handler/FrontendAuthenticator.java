@@ -17,12 +17,13 @@ package com.alibaba.cobar.net.handler;
 
 import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
-import java.util.Set;
 
 import org.apache.log4j.Logger;
 
+import com.alibaba.cobar.config.Capabilities;
 import com.alibaba.cobar.config.ErrorCode;
 import com.alibaba.cobar.mysql.SecurityUtil;
+import com.alibaba.cobar.net.CompressedPacketCodec;
 import com.alibaba.cobar.net.FrontendConnection;
 import com.alibaba.cobar.net.NIOHandler;
 import com.alibaba.cobar.net.mysql.AuthPacket;
@@ -101,40 +102,22 @@ public class FrontendAuthenticator implements NIOHandler {
      * @return
      */
     protected boolean checkPassword(byte[] password, String user) {
-        String pass = source.getPrivileges().getPassword(user);
+        byte[] hash = source.getPrivileges().getPasswordHash(user);
 
         // check null
-        if (pass == null || pass.length() == 0) {
-            if (password == null || password.length == 0) {
-                return true;
-            } else {
-                return false;
-            }
+        if (hash == null) {
+            return password == null || password.length == 0;
         }
         if (password == null || password.length == 0) {
             return false;
         }
 
-        // encrypt
-        byte[] encryptPass = null;
         try {
-            encryptPass = SecurityUtil.scramble411(pass.getBytes(), source.getSeed());
+            return SecurityUtil.checkScramble411(password, source.getSeed(), hash);
         } catch (NoSuchAlgorithmException e) {
             LOGGER.warn(source.toString(), e);
             return false;
         }
-        if (encryptPass != null && (encryptPass.length == password.length)) {
-            int i = encryptPass.length;
-            while (i-- != 0) {
-                if (encryptPass[i] != password[i]) {
-                    return false;
-                }
-            }
-        } else {
-            return false;
-        }
-
-        return true;
     }
 
     /**
@@ -151,8 +134,7 @@ public class FrontendAuthenticator implements NIOHandler {
         if (!privileges.schemaExists(schema)) {
             return ErrorCode.ER_BAD_DB_ERROR;
         }
-        Set<String> schemas = privileges.getUserSchemas(user);
-        if (schemas == null || schemas.size() == 0 || schemas.contains(schema)) {
+        if (privileges.isSchemaAllowed(user, schema)) {
             return 0;
         } else {
             return ErrorCode.ER_DBACCESS_DENIED_ERROR;
@@ -168,6 +150,7 @@ public class FrontendAuthenticator implements NIOHandler {
         source.setUser(auth.user);
         source.setSchema(auth.database);
         source.setCharsetIndex(auth.charsetIndex);
+        source.setMultiStatements((auth.clientFlags & Capabilities.CLIENT_MULTI_STATEMENTS) != 0);
         source.setHandler(new FrontendCommandHandler(source));
         if (LOGGER.isInfoEnabled()) {
             StringBuilder s = new StringBuilder();
@@ -178,8 +161,18 @@ public class FrontendAuthenticator implements NIOHandler {
             }
             LOGGER.info(s.toString());
         }
+
+        // 客户端收到认证成功后才开始使用压缩协议，所以认证成功包本身不压缩
+        CompressedPacketCodec codec = null;
+        if (source.isCompressSupported() && (auth.clientFlags & Capabilities.CLIENT_COMPRESS) != 0) {
+            codec = new CompressedPacketCodec(source.getCompressThreshold(), false);
+            source.enableCompressRead(codec);
+        }
         ByteBuffer buffer = source.allocate();
         source.write(source.writeToBuffer(AUTH_OK, buffer));
+        if (codec != null) {
+            source.enableCompressWrite(codec);
+        }
     }
 
     /**
@@ -74,6 +74,10 @@ public class FrontendCommandHandler implements NIOHandler {
             commands.doStmtClose();
             source.stmtClose(data);
             break;
+        case MySQLPacket.COM_SET_OPTION:
+            commands.doOther();
+            source.setOption(data);
+            break;
         case MySQLPacket.COM_HEARTBEAT:
             commands.doHeartbeat();
             source.heartbeat(data);
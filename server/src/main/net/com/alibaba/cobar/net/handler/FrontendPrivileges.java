@@ -39,9 +39,19 @@ public interface FrontendPrivileges {
      */
     String getPassword(String user);
 
+    /**
+     * 提供用户服务器端密码的两次SHA-1摘要，密码为空时返回null
+     */
+    byte[] getPasswordHash(String user);
+
     /**
      * 提供有效的用户schema集合
      */
     Set<String> getUserSchemas(String user);
 
+    /**
+     * 检查用户是否可以访问该schema，用户未限定schema时可以访问全部
+     */
+    boolean isSchemaAllowed(String user, String schema);
+
 }
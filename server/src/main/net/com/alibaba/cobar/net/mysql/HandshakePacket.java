@@ -36,7 +36,8 @@ import com.alibaba.cobar.net.FrontendConnection;
  * 2                            server_capabilities
  * 1                            server_language
  * 2                            server_status
- * 13                           (filler) always 0x00 ...
+ * 2                            server_capabilities (upper 2 bytes)
+ * 11                           (filler) always 0x00 ...
  * 13                           rest of scramble_buff (4.1)
  * 
  * @see http://forge.mysql.com/wiki/MySQL_Internals_ClientServer_Protocol#Handshake_Initialization_Packet
@@ -45,7 +46,7 @@ import com.alibaba.cobar.net.FrontendConnection;
  * @author xianmao.hexm 2010-7-14 下午05:18:15
  */
 public class HandshakePacket extends MySQLPacket {
-    private static final byte[] FILLER_13 = new byte[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+    private static final byte[] FILLER_11 = new byte[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
 
     public byte protocolVersion;
     public byte[] serverVersion;
@@ -110,7 +111,9 @@ public class HandshakePacket extends MySQLPacket {
         BufferUtil.writeUB2(buffer, serverCapabilities);
         buffer.put(serverCharsetIndex);
         BufferUtil.writeUB2(buffer, serverStatus);
-        buffer.put(FILLER_13);
+        // 高16位能力标识，如CLIENT_MULTI_STATEMENTS
+        BufferUtil.writeUB2(buffer, serverCapabilities >>> 16);
+        buffer.put(FILLER_11);
         // buffer.position(buffer.position() + 13);
         BufferUtil.writeWithNull(buffer, restOfScrambleBuff);
         c.write(buffer);
@@ -122,7 +125,7 @@ public class HandshakePacket extends MySQLPacket {
         size += serverVersion.length;// n
         size += 5;// 1+4
         size += seed.length;// 8
-        size += 19;// 1+2+1+2+13
+        size += 19;// 1+2+1+2+2+11
         size += restOfScrambleBuff.length;// 12
         size += 1;// 1
         return size;
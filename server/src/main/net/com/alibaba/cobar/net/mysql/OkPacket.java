@@ -93,6 +93,22 @@ public class OkPacket extends MySQLPacket {
         c.write(buffer);
     }
 
+    public ByteBuffer write(ByteBuffer buffer, FrontendConnection c) {
+        int size = calcPacketSize();
+        buffer = c.checkWriteBuffer(buffer, c.getPacketHeaderSize() + size);
+        BufferUtil.writeUB3(buffer, size);
+        buffer.put(packetId);
+        buffer.put(fieldCount);
+        BufferUtil.writeLength(buffer, affectedRows);
+        BufferUtil.writeLength(buffer, insertId);
+        BufferUtil.writeUB2(buffer, serverStatus);
+        BufferUtil.writeUB2(buffer, warningCount);
+        if (message != null) {
+            BufferUtil.writeWithLength(buffer, message);
+        }
+        return buffer;
+    }
+
     @Override
     public int calcPacketSize() {
         int i = 1;
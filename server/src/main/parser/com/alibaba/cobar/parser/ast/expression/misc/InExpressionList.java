@@ -32,6 +32,7 @@ import com.alibaba.cobar.parser.visitor.SQLASTVisitor;
  */
 public class InExpressionList extends AbstractExpression {
     private List<Expression> list;
+    private int[] itemSpans;
 
     public InExpressionList(List<Expression> list) {
         if (list == null || list.size() == 0) {
@@ -50,6 +51,18 @@ public class InExpressionList extends AbstractExpression {
         return list;
     }
 
+    /**
+     * @return [start0, end0, start1, end1, ...] of items in original sql, null
+     *         if unknown
+     */
+    public int[] getItemSpans() {
+        return itemSpans;
+    }
+
+    public void setItemSpans(int[] itemSpans) {
+        this.itemSpans = itemSpans;
+    }
+
     @Override
     public int getPrecedence() {
         return PRECEDENCE_PRIMARY;
@@ -61,6 +61,8 @@ public class Identifier extends PrimaryExpression {
     /** e.g. "id1", "`id1`" */
     protected final String idText;
     protected final String idTextUpUnescape;
+    /** start index of {@link #idText} in original sql, -1 if unknown */
+    protected int sourceStart = -1;
 
     public Identifier(Identifier parent, String idText) {
         this(parent, idText, idText.toUpperCase());
@@ -117,6 +119,15 @@ public class Identifier extends PrimaryExpression {
         }
     }
 
+    public int getSourceStart() {
+        return sourceStart;
+    }
+
+    public Identifier setSourceStart(int sourceStart) {
+        this.sourceStart = sourceStart;
+        return this;
+    }
+
     public void setParent(Identifier parent) {
         this.parent = parent;
     }
@@ -30,6 +30,9 @@ import com.alibaba.cobar.parser.visitor.SQLASTVisitor;
  */
 public class RowExpression extends PrimaryExpression {
     private final List<Expression> rowExprList;
+    /** span of <code>(...)</code> in original sql, -1 if unknown */
+    private int sourceStart = -1;
+    private int sourceEnd = -1;
 
     public RowExpression(List<Expression> rowExprList) {
         if (rowExprList == null || rowExprList.isEmpty()) {
@@ -48,6 +51,23 @@ public class RowExpression extends PrimaryExpression {
         return rowExprList;
     }
 
+    public int getSourceStart() {
+        return sourceStart;
+    }
+
+    /**
+     * @return end index (exclusive) in original sql
+     */
+    public int getSourceEnd() {
+        return sourceEnd;
+    }
+
+    public RowExpression setSourceSpan(int start, int end) {
+        this.sourceStart = start;
+        this.sourceEnd = end;
+        return this;
+    }
+
     @Override
     public void accept(SQLASTVisitor visitor) {
         visitor.visit(this);
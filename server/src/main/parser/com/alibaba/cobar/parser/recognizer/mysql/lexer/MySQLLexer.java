@@ -57,8 +57,12 @@ public class MySQLLexer {
     /** always be {@link #sql}[{@link #curIndex}] */
     protected char ch;
 
-    // /** current token, set by {@link #nextToken()} */
-    // private int tokenPos = 0;
+    /** start index of current token, set by {@link #nextToken()} */
+    private int tokenPos = -1;
+    /** start index of previous token */
+    private int lastTokenPos = -1;
+    /** end index (exclusive) of previous token */
+    private int lastTokenEnd = -1;
     private MySQLToken token;
     /** keyword only */
     private MySQLToken tokenCache;
@@ -173,6 +177,25 @@ public class MySQLLexer {
         return this.curIndex;
     }
 
+    /**
+     * @return start index of current token in sql, keyword cached by
+     *         {@link #addCacheToke(MySQLToken)} is not counted
+     */
+    public final int getTokenPos() {
+        return tokenPos;
+    }
+
+    public final int getLastTokenPos() {
+        return lastTokenPos;
+    }
+
+    /**
+     * @return end index (exclusive) of previous token in sql
+     */
+    public final int getLastTokenEnd() {
+        return lastTokenEnd;
+    }
+
     public final char[] getSQL() {
         return sql;
     }
@@ -463,8 +486,11 @@ public class MySQLLexer {
             throw new SQLSyntaxErrorException("eof for sql is already reached, cannot get new token");
         }
         MySQLToken t;
+        lastTokenPos = tokenPos;
+        lastTokenEnd = curIndex;
         do {
             skipSeparator();
+            tokenPos = curIndex;
             t = nextTokenInternal();
         } while (inCStyleComment && inCStyleCommentIgnore || MySQLToken.PUNC_C_STYLE_COMMENT_END == t);
         return t;
@@ -24,7 +24,6 @@ import static com.alibaba.cobar.parser.recognizer.mysql.MySQLToken.PUNC_RIGHT_PA
 
 import java.sql.SQLSyntaxErrorException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -42,18 +41,18 @@ public abstract class MySQLDMLInsertReplaceParser extends MySQLDMLParser {
 
     protected List<RowExpression> rowList() throws SQLSyntaxErrorException {
         List<RowExpression> valuesList;
-        List<Expression> tempRowValue = rowValue();
+        RowExpression tempRow = rowValue();
         if (lexer.token() == PUNC_COMMA) {
             valuesList = new LinkedList<RowExpression>();
-            valuesList.add(new RowExpression(tempRowValue));
+            valuesList.add(tempRow);
             for (; lexer.token() == PUNC_COMMA;) {
                 lexer.nextToken();
-                tempRowValue = rowValue();
-                valuesList.add(new RowExpression(tempRowValue));
+                tempRow = rowValue();
+                valuesList.add(tempRow);
             }
         } else {
             valuesList = new ArrayList<RowExpression>(1);
-            valuesList.add(new RowExpression(tempRowValue));
+            valuesList.add(tempRow);
         }
         return valuesList;
     }
@@ -61,10 +60,12 @@ public abstract class MySQLDMLInsertReplaceParser extends MySQLDMLParser {
     /**
      * first token is <code>(</code>
      */
-    private List<Expression> rowValue() throws SQLSyntaxErrorException {
+    private RowExpression rowValue() throws SQLSyntaxErrorException {
+        int start = lexer.getTokenPos();
         match(PUNC_LEFT_PAREN);
         if (lexer.token() == PUNC_RIGHT_PAREN) {
-            return Collections.emptyList();
+            lexer.nextToken();
+            return new RowExpression(null).setSourceSpan(start, lexer.getLastTokenEnd());
         }
         List<Expression> row;
         Expression expr = exprParser.expression();
@@ -81,6 +82,6 @@ public abstract class MySQLDMLInsertReplaceParser extends MySQLDMLParser {
             row.add(expr);
         }
         match(PUNC_RIGHT_PAREN);
-        return row;
+        return new RowExpression(row).setSourceSpan(start, lexer.getLastTokenEnd());
     }
 }
@@ -48,6 +48,7 @@ import static com.alibaba.cobar.parser.recognizer.mysql.MySQLToken.USR_VAR;
 
 import java.sql.SQLSyntaxErrorException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -449,7 +450,29 @@ public class MySQLExprParser extends MySQLParser {
             match(PUNC_RIGHT_PAREN);
             return subq;
         }
-        return new InExpressionList(expressionList(new LinkedList<Expression>())).setCacheEvalRst(cacheEvalRst);
+        List<Expression> exprList = new LinkedList<Expression>();
+        int[] spans = new int[16];
+        for (int i = 0;; i += 2) {
+            int start = lexer.getTokenPos();
+            exprList.add(expression());
+            if (i + 2 > spans.length) {
+                spans = Arrays.copyOf(spans, spans.length << 1);
+            }
+            spans[i] = start;
+            spans[i + 1] = lexer.getLastTokenEnd();
+            switch (lexer.token()) {
+            case PUNC_COMMA:
+                lexer.nextToken();
+                break;
+            case PUNC_RIGHT_PAREN:
+                lexer.nextToken();
+                InExpressionList list = new InExpressionList(exprList);
+                list.setItemSpans(i + 2 == spans.length ? spans : Arrays.copyOf(spans, i + 2));
+                return list.setCacheEvalRst(cacheEvalRst);
+            default:
+                throw err("unexpected token: " + lexer.token());
+            }
+        }
     }
 
     private Expression anyAllExpression() throws SQLSyntaxErrorException {
@@ -996,10 +1019,12 @@ public class MySQLExprParser extends MySQLParser {
         boolean tempGroupDistinct;
         switch (lexer.token()) {
         case PUNC_DOT:
-            for (tempExpr = new Identifier(null, consumed, consumedUp).setCacheEvalRst(cacheEvalRst); lexer.token() == PUNC_DOT;) {
+            tempExpr = new Identifier(null, consumed, consumedUp).setSourceStart(lexer.getLastTokenPos());
+            for (tempExpr.setCacheEvalRst(cacheEvalRst); lexer.token() == PUNC_DOT;) {
                 switch (lexer.nextToken()) {
                 case IDENTIFIER:
-                    tempExpr = new Identifier((Identifier) tempExpr, lexer.stringValue(), lexer.stringValueUppercase()).setCacheEvalRst(cacheEvalRst);
+                    tempExpr = new Identifier((Identifier) tempExpr, lexer.stringValue(), lexer.stringValueUppercase()).setSourceStart(lexer.getTokenPos());
+                    tempExpr.setCacheEvalRst(cacheEvalRst);
                     lexer.nextToken();
                     break;
                 case OP_ASTERISK:
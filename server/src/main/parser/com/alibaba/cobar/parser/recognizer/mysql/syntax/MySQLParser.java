@@ -82,6 +82,7 @@ public abstract class MySQLParser {
             return wc;
         case IDENTIFIER:
             id = new Identifier(null, lexer.stringValue(), lexer.stringValueUppercase());
+            id.setSourceStart(lexer.getTokenPos());
             id.setCacheEvalRst(cacheEvalRst);
             lexer.nextToken();
             break;
@@ -97,6 +98,7 @@ public abstract class MySQLParser {
                 return wc;
             case IDENTIFIER:
                 id = new Identifier(id, lexer.stringValue(), lexer.stringValueUppercase());
+                id.setSourceStart(lexer.getTokenPos());
                 id.setCacheEvalRst(cacheEvalRst);
                 lexer.nextToken();
                 break;
@@ -172,7 +172,7 @@ public final class ParseUtil {
         }
     }
 
-    public static int comment(String stmt, int offset) {
+    public static int comment(CharSequence stmt, int offset) {
         int len = stmt.length();
         int n = offset;
         switch (stmt.charAt(n)) {
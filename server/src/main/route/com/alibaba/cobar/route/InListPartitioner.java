@@ -0,0 +1,117 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.route;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cobar.config.model.rule.RuleAlgorithm;
+import com.alibaba.cobar.config.model.rule.SingleKeyRuleAlgorithm;
+import com.alibaba.cobar.parser.ast.expression.Expression;
+import com.alibaba.cobar.route.util.PartitionUtil;
+
+/**
+ * 将拆分字段的IN列表按数据节点分组：逐个元素计算所在节点，再用计数排序把元素下标按节点归组，
+ * 所有中间结果都是基本类型数组，开销与列表长度成线性关系。
+ */
+public final class InListPartitioner {
+    private static final Map<Object, Object> EMPTY_PARAMETER = Collections.emptyMap();
+
+    /** 按节点归组后的元素下标，同一节点内保持原列表顺序 */
+    private final int[] items;
+    /** 节点i的元素为items[offsets[i], offsets[i + 1]) */
+    private final int[] offsets;
+
+    private InListPartitioner(int[] items, int[] offsets) {
+        this.items = items;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @param nodeCount 表的数据节点数
+     * @return 存在无法求值或落到多个节点的元素时返回null
+     */
+    public static InListPartitioner partition(RuleAlgorithm algorithm, String column, List<Expression> list,
+                                              int nodeCount) {
+        int size = list.size();
+        int[] nodes = new int[size];
+        int[] counts = new int[nodeCount + 1];
+        Map<String, Object> parameter = new HashMap<String, Object>(1, 1);
+        SingleKeyRuleAlgorithm single = null;
+        if (algorithm instanceof SingleKeyRuleAlgorithm
+                && column.equals(((SingleKeyRuleAlgorithm) algorithm).getKeyColumn())) {
+            single = (SingleKeyRuleAlgorithm) algorithm;
+        }
+        int i = 0;
+        for (Expression expr : list) {
+            Object value = expr.evaluation(EMPTY_PARAMETER);
+            if (value == null || value == Expression.UNEVALUATABLE) {
+                return null;
+            }
+            int node = single == null ? -1 : PartitionUtil.partition(single, value);
+            if (node < 0) {
+                parameter.put(column, value);
+                Integer[] rst = algorithm.calculate(parameter);
+                if (rst.length != 1 || rst[0] == null) {
+                    return null;
+                }
+                node = rst[0];
+            }
+            if (node < 0 || node >= nodeCount) {
+                return null;
+            }
+            nodes[i++] = node;
+            ++counts[node + 1];
+        }
+        for (int n = 0; n < nodeCount; ++n) {
+            counts[n + 1] += counts[n];
+        }
+        int[] offsets = counts.clone();
+        int[] items = new int[size];
+        for (i = 0; i < size; ++i) {
+            items[counts[nodes[i]]++] = i;
+        }
+        return new InListPartitioner(items, offsets);
+    }
+
+    public int[] getItems() {
+        return items;
+    }
+
+    public int getItemOffset(int node) {
+        return offsets[node];
+    }
+
+    public int getItemCount(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * @return 分到元素的节点数
+     */
+    public int getTargetCount() {
+        int count = 0;
+        for (int n = 0; n < offsets.length - 1; ++n) {
+            if (offsets[n + 1] > offsets[n]) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+}
@@ -37,6 +37,10 @@ public final class RouteResultset {
     }
 
     public String getStatement() {
+        // 按原始字节路由时语句保存在唯一的节点上，按需解码
+        if (statement == null && nodes != null && nodes.length == 1) {
+            return nodes[0].getStatement();
+        }
         return statement;
     }
 
@@ -70,7 +74,7 @@ public final class RouteResultset {
     @Override
     public String toString() {
         StringBuilder s = new StringBuilder();
-        s.append(statement).append(", route={");
+        s.append(getStatement()).append(", route={");
         if (nodes != null) {
             for (int i = 0; i < nodes.length; ++i) {
                 s.append("\n ").append(FormatUtil.format(i + 1, 3));
@@ -15,6 +15,8 @@
  */
 package com.alibaba.cobar.route;
 
+import java.io.UnsupportedEncodingException;
+
 /**
  * @author xianmao.hexm
  */
@@ -23,7 +25,9 @@ public final class RouteResultsetNode {
 
     private final String name; // 数据节点名称
     private final int replicaIndex;// 数据源编号
-    private final String statement; // 执行的语句
+    private volatile String statement; // 执行的语句
+    private final byte[] statementBytes; // 未解码的原始语句
+    private final String charset; // 原始语句的编码
 
     public RouteResultsetNode(String name, String statement) {
         this(name, DEFAULT_REPLICA_INDEX, statement);
@@ -33,6 +37,18 @@ public final class RouteResultsetNode {
         this.name = name;
         this.replicaIndex = index;
         this.statement = statement;
+        this.statementBytes = null;
+        this.charset = null;
+    }
+
+    /**
+     * 使用原始字节的语句，只在需要时解码。
+     */
+    public RouteResultsetNode(String name, byte[] statement, String charset) {
+        this.name = name;
+        this.replicaIndex = DEFAULT_REPLICA_INDEX;
+        this.statementBytes = statement;
+        this.charset = charset;
     }
 
     public String getName() {
@@ -44,7 +60,25 @@ public final class RouteResultsetNode {
     }
 
     public String getStatement() {
-        return statement;
+        String stmt = statement;
+        if (stmt == null && statementBytes != null) {
+            try {
+                statement = stmt = new String(statementBytes, charset);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalArgumentException("Unknown charset '" + charset + "'", e);
+            }
+        }
+        return stmt;
+    }
+
+    /**
+     * 取得按指定编码的语句，编码与原始字节一致时直接返回原始字节。
+     */
+    public byte[] getStatementBytes(String charset) throws UnsupportedEncodingException {
+        if (statementBytes != null && this.charset.equalsIgnoreCase(charset)) {
+            return statementBytes;
+        }
+        return getStatement().getBytes(charset);
     }
 
     @Override
@@ -74,7 +108,7 @@ public final class RouteResultsetNode {
         } else {
             s.append(replicaIndex);
         }
-        s.append('{').append(statement).append('}');
+        s.append('{').append(getStatement()).append('}');
         return s.toString();
     }
 
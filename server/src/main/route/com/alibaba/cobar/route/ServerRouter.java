@@ -36,6 +36,7 @@ import com.alibaba.cobar.config.model.SchemaConfig;
 import com.alibaba.cobar.config.model.TableConfig;
 import com.alibaba.cobar.config.model.rule.RuleAlgorithm;
 import com.alibaba.cobar.config.model.rule.RuleConfig;
+import com.alibaba.cobar.config.model.rule.SingleKeyRuleAlgorithm;
 import com.alibaba.cobar.config.model.rule.TableRuleConfig;
 import com.alibaba.cobar.parser.ast.ASTNode;
 import com.alibaba.cobar.parser.ast.expression.Expression;
@@ -56,7 +57,10 @@ import com.alibaba.cobar.parser.util.ArrayUtil;
 import com.alibaba.cobar.parser.util.Pair;
 import com.alibaba.cobar.parser.visitor.MySQLOutputASTVisitor;
 import com.alibaba.cobar.route.hint.CobarHint;
+import com.alibaba.cobar.route.util.PartitionUtil;
+import com.alibaba.cobar.route.util.SQLSpanUtil;
 import com.alibaba.cobar.route.visitor.PartitionKeyVisitor;
+import com.alibaba.cobar.util.ByteCharSequence;
 import com.alibaba.cobar.util.CollectionUtil;
 
 /**
@@ -85,9 +89,7 @@ public final class ServerRouter {
                 PartitionKeyVisitor visitor = new PartitionKeyVisitor(schema.getTables());
                 visitor.setTrimSchema(schema.getName());
                 ast.accept(visitor);
-                if (visitor.isSchemaTrimmed()) {
-                    stmt = genSQL(ast, stmt);
-                }
+                stmt = trimSQL(ast, stmt, visitor);
             }
             RouteResultsetNode[] nodes = new RouteResultsetNode[1];
             nodes[0] = new RouteResultsetNode(schema.getDataNode(), stmt);
@@ -103,9 +105,7 @@ public final class ServerRouter {
 
         // 如果sql包含用户自定义的schema，则路由到default节点
         if (schema.isKeepSqlSchema() && visitor.isCustomedSchema()) {
-            if (visitor.isSchemaTrimmed()) {
-                stmt = genSQL(ast, stmt);
-            }
+            stmt = trimSQL(ast, stmt, visitor);
             RouteResultsetNode[] nodes = new RouteResultsetNode[1];
             nodes[0] = new RouteResultsetNode(schema.getDataNode(), stmt);
             rrs.setNodes(nodes);
@@ -158,7 +158,7 @@ public final class ServerRouter {
 
         // 规则匹配处理，表级别和列级别。
         if (matchedTable == null) {
-            String sql = visitor.isSchemaTrimmed() ? genSQL(ast, stmt) : stmt;
+            String sql = trimSQL(ast, stmt, visitor);
             RouteResultsetNode[] rn = new RouteResultsetNode[1];
             if ("".equals(schema.getDataNode()) && isSystemReadSQL(ast)) {
                 rn[0] = new RouteResultsetNode(schema.getRandomDataNode(), sql);
@@ -174,7 +174,7 @@ public final class ServerRouter {
                         + stmt);
             }
             String[] dataNodes = matchedTable.getDataNodes();
-            String sql = visitor.isSchemaTrimmed() ? genSQL(ast, stmt) : stmt;
+            String sql = trimSQL(ast, stmt, visitor);
             RouteResultsetNode[] rn = new RouteResultsetNode[dataNodes.length];
             for (int i = 0; i < dataNodes.length; ++i) {
                 rn[i] = new RouteResultsetNode(dataNodes[i], sql);
@@ -186,6 +186,16 @@ public final class ServerRouter {
 
         // 规则计算
         validateAST(ast, matchedTable, rule, visitor);
+        if (rule.getColumns().size() == 1 && !(ast instanceof DMLInsertReplaceStatement)) {
+            RouteResultsetNode[] rn = routeInList(ast, matchedTable, rule, stmt, visitor);
+            if (rn != null) {
+                rrs.setNodes(rn);
+                if (rn.length > 1) {
+                    setGroupFlagAndLimit(rrs, visitor);
+                }
+                return rrs;
+            }
+        }
         Map<Integer, List<Object[]>> dnMap = ruleCalculate(matchedTable, rule, columnValues);
         if (dnMap == null || dnMap.isEmpty()) {
             throw new IllegalArgumentException("No target dataNode for rule " + rule);
@@ -194,7 +204,7 @@ public final class ServerRouter {
         // 判断路由结果是单库还是多库
         if (dnMap.size() == 1) {
             String dataNode = matchedTable.getDataNodes()[dnMap.keySet().iterator().next()];
-            String sql = visitor.isSchemaTrimmed() ? genSQL(ast, stmt) : stmt;
+            String sql = trimSQL(ast, stmt, visitor);
             RouteResultsetNode[] rn = new RouteResultsetNode[1];
             rn[0] = new RouteResultsetNode(dataNode, sql);
             rrs.setNodes(rn);
@@ -213,8 +223,30 @@ public final class ServerRouter {
         return rrs;
     }
 
+    /**
+     * 不含拆分表且不保留schema的库，语句不需要解析和改写，直接使用原始字节路由。
+     * 
+     * @param offset 语句在data中的起始位置
+     * @return 不能按原始字节路由时返回null
+     */
+    public static RouteResultset route(SchemaConfig schema, byte[] data, int offset, String charset) {
+        if (!schema.isNoSharding() || schema.isKeepSqlSchema()) {
+            return null;
+        }
+        if (HintRouter.indexOfPrefix(new ByteCharSequence(data, offset, data.length - offset)) >= 0) {
+            return null;
+        }
+        byte[] stmt = new byte[data.length - offset];
+        System.arraycopy(data, offset, stmt, 0, stmt.length);
+        RouteResultset rrs = new RouteResultset(null);
+        RouteResultsetNode[] nodes = new RouteResultsetNode[1];
+        nodes[0] = new RouteResultsetNode(schema.getDataNode(), stmt, charset);
+        rrs.setNodes(nodes);
+        return rrs;
+    }
+
     private static class HintRouter {
-        public static int indexOfPrefix(String sql) {
+        public static int indexOfPrefix(CharSequence sql) {
             int i = 0;
             for (; i < sql.length(); ++i) {
                 switch (sql.charAt(i)) {
@@ -226,11 +258,16 @@ public final class ServerRouter {
                 }
                 break;
             }
-            if (sql.startsWith(CobarHint.COBAR_HINT_PREFIX, i)) {
-                return i;
-            } else {
+            String prefix = CobarHint.COBAR_HINT_PREFIX;
+            if (sql.length() - i < prefix.length()) {
                 return -1;
             }
+            for (int j = 0; j < prefix.length(); ++j) {
+                if (sql.charAt(i + j) != prefix.charAt(j)) {
+                    return -1;
+                }
+            }
+            return i;
         }
 
         public static void routeFromHint(Object frontConn, SchemaConfig schema, RouteResultset rrs, int prefixIndex,
@@ -378,10 +415,7 @@ public final class ServerRouter {
 
         public static void routeForTableMeta(RouteResultset rrs, SchemaConfig schema, SQLStatement ast,
                                              PartitionKeyVisitor visitor, String stmt) {
-            String sql = stmt;
-            if (visitor.isSchemaTrimmed()) {
-                sql = genSQL(ast, stmt);
-            }
+            String sql = trimSQL(ast, stmt, visitor);
             String[] tables = visitor.getMetaReadTable();
             if (tables == null) {
                 throw new IllegalArgumentException("route err: tables[] is null for meta read table: " + stmt);
@@ -538,8 +572,23 @@ public final class ServerRouter {
             colsValIter.add(list.iterator());
         }
 
+        SingleKeyRuleAlgorithm single = PartitionUtil.singleKeyAlgorithm(rule);
         try {
             for (Iterator<Object> mainIter = colsValIter.get(0); mainIter.hasNext();) {
+                if (single != null) {
+                    // 单拆分字段：直接按基本类型计算，不构造参数Map和结果数组
+                    Object value = mainIter.next();
+                    int dataNodeIndex = PartitionUtil.partition(single, value);
+                    if (dataNodeIndex >= 0) {
+                        addTuple(map, dataNodeIndex, new Object[] { value });
+                        continue;
+                    }
+                    parameter.put(cols.get(0), value);
+                    for (Integer index : calcDataNodeIndexesByFunction(algorithm, parameter)) {
+                        addTuple(map, index, new Object[] { value });
+                    }
+                    continue;
+                }
                 Object[] tuple = new Object[cols.size()];
                 for (int i = 0, len = cols.size(); i < len; ++i) {
                     Object value = colsValIter.get(i).next();
@@ -550,13 +599,7 @@ public final class ServerRouter {
                 Integer[] dataNodeIndexes = calcDataNodeIndexesByFunction(algorithm, parameter);
 
                 for (int i = 0; i < dataNodeIndexes.length; ++i) {
-                    Integer dataNodeIndex = dataNodeIndexes[i];
-                    List<Object[]> list = map.get(dataNodeIndex);
-                    if (list == null) {
-                        list = new LinkedList<Object[]>();
-                        map.put(dataNodeIndex, list);
-                    }
-                    list.add(tuple);
+                    addTuple(map, dataNodeIndexes[i], tuple);
                 }
             }
         } catch (NoSuchElementException e) {
@@ -567,6 +610,80 @@ public final class ServerRouter {
         return map;
     }
 
+    private static void addTuple(Map<Integer, List<Object[]>> map, Integer dataNodeIndex, Object[] tuple) {
+        List<Object[]> list = map.get(dataNodeIndex);
+        if (list == null) {
+            list = new LinkedList<Object[]>();
+            map.put(dataNodeIndex, list);
+        }
+        list.add(tuple);
+    }
+
+    /**
+     * 拆分字段只出现在一个IN列表中时，按节点分组IN列表并在原sql上替换为各节点自己的列表
+     * 
+     * @return 不满足条件时返回null
+     */
+    private static RouteResultsetNode[] routeInList(SQLStatement ast, TableConfig matchedTable, RuleConfig rule,
+                                                    String originalSQL, PartitionKeyVisitor visitor) {
+        String column = rule.getColumns().get(0);
+        Map<String, Map<Object, Set<Pair<Expression, ASTNode>>>> columnIndex = visitor.getColumnIndex(matchedTable.getName());
+        Map<Object, Set<Pair<Expression, ASTNode>>> valueMap = columnIndex.get(column);
+        if (valueMap == null) {
+            return null;
+        }
+        InExpression in = null;
+        for (Set<Pair<Expression, ASTNode>> set : valueMap.values()) {
+            for (Pair<Expression, ASTNode> p : set) {
+                if (!PartitionKeyVisitor.isPartitionKeyOperandIn(p.getKey(), p.getValue())
+                        || (in != null && in != p.getValue())) {
+                    return null;
+                }
+                in = (InExpression) p.getValue();
+            }
+        }
+        InExpressionList list = in == null ? null : in.getInExpressionList();
+        if (list == null || list.getItemSpans() == null) {
+            return null;
+        }
+        List<int[]> cuts = visitor.isSchemaTrimmed() ? trimmedCuts(originalSQL, visitor) : null;
+        if (visitor.isSchemaTrimmed() && cuts == null) {
+            return null;
+        }
+        String[] dataNodes = matchedTable.getDataNodes();
+        InListPartitioner partitioner = InListPartitioner.partition(
+                rule.getRuleAlgorithm(),
+                column,
+                list.getList(),
+                dataNodes.length);
+        if (partitioner == null) {
+            return null;
+        }
+        int count = partitioner.getTargetCount();
+        RouteResultsetNode[] rn = new RouteResultsetNode[count];
+        int i = 0;
+        for (int node = 0; node < dataNodes.length; ++node) {
+            int itemCount = partitioner.getItemCount(node);
+            if (itemCount == 0) {
+                continue;
+            }
+            String sql;
+            if (count == 1) {
+                sql = SQLSpanUtil.cut(originalSQL, cuts);
+            } else {
+                sql = SQLSpanUtil.selectItems(
+                        originalSQL,
+                        list.getItemSpans(),
+                        partitioner.getItems(),
+                        partitioner.getItemOffset(node),
+                        itemCount,
+                        cuts);
+            }
+            rn[i++] = new RouteResultsetNode(dataNodes[node], sql);
+        }
+        return rn;
+    }
+
     private static void dispatchWhereBasedStmt(RouteResultsetNode[] rn, SQLStatement stmtAST, List<String> ruleColumns,
                                                Map<Integer, List<Object[]>> dataNodeMap, TableConfig matchedTable,
                                                String originalSQL, PartitionKeyVisitor visitor) {
@@ -702,6 +819,7 @@ public final class ServerRouter {
         for (int i = 0, len = ruleColumns.size(); i < len; ++i) {
             colsIndexList.add(colsIndex.get(ruleColumns.get(i)));
         }
+        List<int[]> cuts = visitor.isSchemaTrimmed() ? trimmedCuts(originalSQL, visitor) : Collections.<int[]> emptyList();
         int dataNodeId = -1;
         for (Entry<Integer, List<Object[]>> en : dataNodeMap.entrySet()) {
             List<Object[]> tuples = en.getValue();
@@ -725,9 +843,15 @@ public final class ServerRouter {
                 }
             }
 
-            stmt.setReplaceRowList(new ArrayList<RowExpression>(replaceRowList));
-            String sql = genSQL(stmt, originalSQL);
-            stmt.clearReplaceRowList();
+            String sql = null;
+            if (cuts != null) {
+                sql = SQLSpanUtil.selectRows(originalSQL, stmt.getRowList(), replaceRowList, cuts);
+            }
+            if (sql == null) {
+                stmt.setReplaceRowList(new ArrayList<RowExpression>(replaceRowList));
+                sql = genSQL(stmt, originalSQL);
+                stmt.clearReplaceRowList();
+            }
             String dataNodeName = matchedTable.getDataNodes()[en.getKey()];
             rn[++dataNodeId] = new RouteResultsetNode(dataNodeName, sql);
         }
@@ -745,6 +869,27 @@ public final class ServerRouter {
         return set;
     }
 
+    /**
+     * 裁剪schema后的sql：优先在原sql上删除schema限定符，无法定位时重新生成整条语句
+     */
+    private static String trimSQL(SQLStatement ast, String orginalSql, PartitionKeyVisitor visitor) {
+        if (!visitor.isSchemaTrimmed()) {
+            return orginalSql;
+        }
+        List<int[]> cuts = trimmedCuts(orginalSql, visitor);
+        if (cuts == null) {
+            return genSQL(ast, orginalSql);
+        }
+        return SQLSpanUtil.cut(orginalSql, cuts);
+    }
+
+    /**
+     * @return 原sql中需要删除的schema限定符区间，无法定位时返回null
+     */
+    private static List<int[]> trimmedCuts(String sql, PartitionKeyVisitor visitor) {
+        return SQLSpanUtil.qualifierCuts(sql, visitor.getTrimmedSpans());
+    }
+
     private static String genSQL(SQLStatement ast, String orginalSql) {
         StringBuilder s = new StringBuilder();
         ast.accept(new MySQLOutputASTVisitor(s));
@@ -29,7 +29,6 @@ import com.alibaba.cobar.parser.util.Pair;
 import com.alibaba.cobar.parser.util.PairUtil;
 import com.alibaba.cobar.route.util.PartitionUtil;
 import com.alibaba.cobar.util.SplitUtil;
-import com.alibaba.cobar.util.StringUtil;
 
 /**
  * @author <a href="mailto:shuo.qius@alibaba-inc.com">QIU Shuo</a>
@@ -132,6 +131,8 @@ public final class Dimension2PartitionFunction extends FunctionExpression implem
     private Integer[][] byX;
     private Integer[][] byY;
     private Integer[] all;
+    /** 按x + xSize * y缓存单个分区的结果，避免每次计算都分配数组 */
+    private Integer[][] byXY;
 
     private void buildByX() {
         byX = new Integer[xSize][ySize];
@@ -154,8 +155,11 @@ public final class Dimension2PartitionFunction extends FunctionExpression implem
     private void buildAll() {
         int size = xSize * ySize;
         all = new Integer[size];
-        for (int i = 0; i < size; ++i)
+        byXY = new Integer[size][];
+        for (int i = 0; i < size; ++i) {
             all[i] = i;
+            byXY[i] = new Integer[] { all[i] };
+        }
     }
 
     private Integer[] getAll() {
@@ -170,7 +174,7 @@ public final class Dimension2PartitionFunction extends FunctionExpression implem
         return byY[y];
     }
 
-    private Integer getByXY(int x, int y) {
+    private int getByXY(int x, int y) {
         if (x >= xSize || y >= ySize)
             throw new IllegalArgumentException("x, y out of bound: x=" + x + ", y=" + y);
         return x + xSize * y;
@@ -185,26 +189,26 @@ public final class Dimension2PartitionFunction extends FunctionExpression implem
             return null;
         switch (keyType) {
         case PARTITION_KEY_TYPE_LONG:
-            long longVal;
             if (eval instanceof Number) {
-                longVal = ((Number) eval).longValue();
+                return partitionUtil.partition(((Number) eval).longValue());
             } else if (eval instanceof String) {
-                longVal = Long.parseLong((String) eval);
+                return partitionUtil.partition(Long.parseLong((String) eval));
             } else {
                 throw new IllegalArgumentException("unsupported data type for partition key: " + eval.getClass());
             }
-            return partitionUtil.partition(longVal);
         case PARTITION_KEY_TYPE_STRING:
-            String key = String.valueOf(eval);
-            int start = hashSliceStart >= 0 ? hashSliceStart : key.length() + hashSliceStart;
-            int end = hashSliceEnd > 0 ? hashSliceEnd : key.length() + hashSliceEnd;
-            long hash = StringUtil.hash(key, start, end);
-            return partitionUtil.partition(hash);
+            return partition(String.valueOf(eval), partitionUtil, hashSliceStart, hashSliceEnd);
         default:
             throw new IllegalArgumentException("unsupported partition key type: " + keyType);
         }
     }
 
+    private static int partition(CharSequence key, PartitionUtil partitionUtil, int hashSliceStart, int hashSliceEnd) {
+        int start = hashSliceStart >= 0 ? hashSliceStart : key.length() + hashSliceStart;
+        int end = hashSliceEnd > 0 ? hashSliceEnd : key.length() + hashSliceEnd;
+        return partitionUtil.partition(key, start, end);
+    }
+
     @Override
     public Integer[] evaluationInternal(Map<? extends Object, ? extends Object> parameters) {
         return calculate(parameters);
@@ -214,7 +218,7 @@ public final class Dimension2PartitionFunction extends FunctionExpression implem
         Integer x = calculate(xInput, partitionUtilX, keyTypeX, hashSliceStartX, hashSliceEndX);
         Integer y = calculate(yInput, partitionUtilY, keyTypeY, hashSliceStartY, hashSliceEndY);
         if (x != null && y != null) {
-            return new Integer[] { getByXY(x, y) };
+            return byXY[getByXY(x, y)];
         } else if (x == null && y != null) {
             return getByY(y);
         } else if (x != null && y == null) {
@@ -21,21 +21,27 @@ package com.alibaba.cobar.route.function;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.InputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
+import com.alibaba.cobar.config.model.rule.ReloadableRuleAlgorithm;
 import com.alibaba.cobar.config.model.rule.RuleAlgorithm;
+import com.alibaba.cobar.config.model.rule.SingleKeyRuleAlgorithm;
 import com.alibaba.cobar.parser.ast.expression.Expression;
+import com.alibaba.cobar.parser.ast.expression.primary.PlaceHolder;
 import com.alibaba.cobar.parser.ast.expression.primary.function.FunctionExpression;
+import com.alibaba.cobar.route.util.ReloadableFile;
+import com.alibaba.cobar.route.util.SortedStringIntMap;
 
 /**
  * @author <a href="mailto:shuo.qius@alibaba-inc.com">QIU Shuo</a>
  */
-public class PartitionByFileMap extends FunctionExpression implements RuleAlgorithm {
+public class PartitionByFileMap extends FunctionExpression implements SingleKeyRuleAlgorithm,
+        ReloadableRuleAlgorithm {
     public PartitionByFileMap(String functionName) {
         this(functionName, null);
     }
@@ -55,7 +61,8 @@ public class PartitionByFileMap extends FunctionExpression implements RuleAlgori
         this.fileMapPath = fileMapPath;
     }
 
-    private Map<String, Integer> app2Partition;
+    /** 同一个函数定义构造出的所有实例共享映射 */
+    private FileMap app2Partition;
 
     @Override
     public void init() {
@@ -76,8 +83,8 @@ public class PartitionByFileMap extends FunctionExpression implements RuleAlgori
         } else if (arg == UNEVALUATABLE) {
             throw new IllegalArgumentException("argument is UNEVALUATABLE");
         }
-        Integer pid = app2Partition.get(arg);
-        if (pid == null) {
+        int pid = partition(String.valueOf(arg));
+        if (pid < 0) {
             rst[0] = defaultNode;
         } else {
             rst[0] = pid;
@@ -85,6 +92,43 @@ public class PartitionByFileMap extends FunctionExpression implements RuleAlgori
         return rst;
     }
 
+    @Override
+    public int partition(long key) {
+        return partition(String.valueOf(key));
+    }
+
+    /**
+     * @return 映射中没有该key且未配置defaultNode时返回-1
+     */
+    @Override
+    public int partition(CharSequence key) {
+        return app2Partition.get().get(key, defaultNode == null ? -1 : defaultNode);
+    }
+
+    @Override
+    public String getKeyColumn() {
+        if (arguments == null || arguments.size() != 1) {
+            return null;
+        }
+        Expression arg = arguments.get(0);
+        return arg instanceof PlaceHolder ? ((PlaceHolder) arg).getNameUp() : null;
+    }
+
+    @Override
+    public int prepareReload() {
+        SortedStringIntMap map = app2Partition.prepare();
+        if (map == null) {
+            return -1;
+        }
+        int max = map.maxValue();
+        return defaultNode == null ? max : Math.max(max, defaultNode);
+    }
+
+    @Override
+    public void commitReload() {
+        app2Partition.commit();
+    }
+
     @Override
     public FunctionExpression constructFunction(List<Expression> arguments) {
         if (arguments == null || arguments.size() != 1)
@@ -104,40 +148,75 @@ public class PartitionByFileMap extends FunctionExpression implements RuleAlgori
         for (Object obj : objects) {
             args.add((Expression) obj);
         }
+        if (app2Partition == null) {
+            app2Partition = new FileMap(fileMapPath);
+        }
         PartitionByFileMap rst = new PartitionByFileMap(functionName, args);
         rst.fileMapPath = fileMapPath;
         rst.defaultNode = defaultNode;
+        rst.app2Partition = app2Partition;
         return rst;
     }
 
     @Override
     public void initialize() {
-        InputStream fin = null;
-        try {
-            fin = new FileInputStream(new File(fileMapPath));
-            BufferedReader in = new BufferedReader(new InputStreamReader(fin));
-            app2Partition = new HashMap<String, Integer>();
-            for (String line = null; (line = in.readLine()) != null;) {
-                line = line.trim();
-                if (line.startsWith("#") || line.startsWith("//"))
-                    continue;
-                int ind = line.indexOf('=');
-                if (ind < 0)
-                    continue;
-                try {
-                    String key = line.substring(0, ind).trim();
-                    int pid = Integer.parseInt(line.substring(ind + 1).trim());
-                    app2Partition.put(key, pid);
-                } catch (Exception e) {
-                }
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        } finally {
+        if (app2Partition == null) {
+            app2Partition = new FileMap(fileMapPath);
+        }
+        app2Partition.loadIfAbsent();
+    }
+
+    /**
+     * 映射文件载入为按key排序的字符数组和int数组，不为每行创建String和Integer
+     */
+    private static final class FileMap extends ReloadableFile<SortedStringIntMap> {
+
+        FileMap(String path) {
+            super(path);
+        }
+
+        @Override
+        protected SortedStringIntMap parse(File file) throws IOException {
+            char[] chars = new char[4096];
+            int charCount = 0;
+            int[] starts = new int[256];
+            int[] values = new int[256];
+            int size = 0;
+            BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
             try {
-                fin.close();
-            } catch (Exception e2) {
+                for (String line = null; (line = in.readLine()) != null;) {
+                    line = line.trim();
+                    if (line.startsWith("#") || line.startsWith("//"))
+                        continue;
+                    int ind = line.indexOf('=');
+                    if (ind < 0)
+                        continue;
+                    int pid;
+                    try {
+                        pid = Integer.parseInt(line.substring(ind + 1).trim());
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+                    int keyEnd = ind;
+                    while (keyEnd > 0 && line.charAt(keyEnd - 1) <= ' ') {
+                        --keyEnd;
+                    }
+                    if (charCount + keyEnd > chars.length) {
+                        chars = Arrays.copyOf(chars, Math.max(chars.length << 1, charCount + keyEnd));
+                    }
+                    if (size == starts.length) {
+                        starts = Arrays.copyOf(starts, size << 1);
+                        values = Arrays.copyOf(values, size << 1);
+                    }
+                    line.getChars(0, keyEnd, chars, charCount);
+                    starts[size] = charCount;
+                    values[size++] = pid;
+                    charCount += keyEnd;
+                }
+            } finally {
+                in.close();
             }
+            return new SortedStringIntMap(chars, charCount, starts, values, size);
         }
     }
 
@@ -23,13 +23,14 @@ import java.util.List;
 import java.util.Map;
 
 import com.alibaba.cobar.config.model.rule.RuleAlgorithm;
+import com.alibaba.cobar.config.model.rule.SingleKeyRuleAlgorithm;
 import com.alibaba.cobar.parser.ast.expression.Expression;
 import com.alibaba.cobar.parser.ast.expression.primary.function.FunctionExpression;
 
 /**
  * @author <a href="mailto:shuo.qius@alibaba-inc.com">QIU Shuo</a>
  */
-public final class PartitionByLong extends PartitionFunction implements RuleAlgorithm {
+public final class PartitionByLong extends PartitionFunction implements SingleKeyRuleAlgorithm {
     public PartitionByLong(String functionName) {
         this(functionName, null);
     }
@@ -52,18 +53,26 @@ public final class PartitionByLong extends PartitionFunction implements RuleAlgo
         } else if (arg == UNEVALUATABLE) {
             throw new IllegalArgumentException("argument is UNEVALUATABLE");
         }
-        Number key;
         if (arg instanceof Number) {
-            key = (Number) arg;
+            rst[0] = partition(((Number) arg).longValue());
         } else if (arg instanceof String) {
-            key = Long.parseLong((String) arg);
+            rst[0] = partition((String) arg);
         } else {
             throw new IllegalArgumentException("unsupported data type for partition key: " + arg.getClass());
         }
-        rst[0] = partitionIndex(key.longValue());
         return rst;
     }
 
+    @Override
+    public int partition(long key) {
+        return partitionIndex(key);
+    }
+
+    @Override
+    public int partition(CharSequence key) {
+        return partitionIndex(Long.parseLong(key.toString()));
+    }
+
     @Override
     public FunctionExpression constructFunction(List<Expression> arguments) {
         if (arguments == null || arguments.size() != 1)
@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.alibaba.cobar.config.model.rule.RuleAlgorithm;
+import com.alibaba.cobar.config.model.rule.SingleKeyRuleAlgorithm;
 import com.alibaba.cobar.parser.ast.expression.Expression;
 import com.alibaba.cobar.parser.ast.expression.primary.function.FunctionExpression;
 import com.alibaba.cobar.parser.util.Pair;
@@ -32,7 +33,7 @@ import com.alibaba.cobar.util.StringUtil;
 /**
  * @author <a href="mailto:shuo.qius@alibaba-inc.com">QIU Shuo</a>
  */
-public final class PartitionByString extends PartitionFunction implements RuleAlgorithm {
+public final class PartitionByString extends PartitionFunction implements SingleKeyRuleAlgorithm {
     public PartitionByString(String functionName) {
         this(functionName, null);
     }
@@ -67,12 +68,20 @@ public final class PartitionByString extends PartitionFunction implements RuleAl
         if (arg == UNEVALUATABLE) {
             throw new IllegalArgumentException("argument is UNEVALUATABLE");
         }
-        String key = String.valueOf(arg);
+        rst[0] = partition(String.valueOf(arg));
+        return rst;
+    }
+
+    @Override
+    public int partition(long key) {
+        return partition(String.valueOf(key));
+    }
+
+    @Override
+    public int partition(CharSequence key) {
         int start = hashSliceStart >= 0 ? hashSliceStart : key.length() + hashSliceStart;
         int end = hashSliceEnd > 0 ? hashSliceEnd : key.length() + hashSliceEnd;
-        long hash = StringUtil.hash(key, start, end);
-        rst[0] = partitionIndex(hash);
-        return rst;
+        return partitionIndex(StringUtil.hash(key, start, end));
     }
 
     @Override
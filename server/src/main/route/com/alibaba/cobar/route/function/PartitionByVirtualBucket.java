@@ -0,0 +1,280 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.route.function;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cobar.config.model.rule.ReloadableRuleAlgorithm;
+import com.alibaba.cobar.config.model.rule.RuleAlgorithm;
+import com.alibaba.cobar.config.model.rule.SingleKeyRuleAlgorithm;
+import com.alibaba.cobar.parser.ast.expression.Expression;
+import com.alibaba.cobar.parser.ast.expression.primary.PlaceHolder;
+import com.alibaba.cobar.parser.ast.expression.primary.function.FunctionExpression;
+import com.alibaba.cobar.parser.util.Pair;
+import com.alibaba.cobar.parser.util.PairUtil;
+import com.alibaba.cobar.route.util.ReloadableFile;
+import com.alibaba.cobar.util.StringUtil;
+
+/**
+ * 虚拟桶路由：拆分字段先落到固定数量(2^n)的虚拟桶，再由桶映射文件决定桶所在的数据节点。
+ * 扩容或迁移热点时只需修改映射文件并执行reload @@route，新映射整体替换旧映射。
+ * 
+ * <pre>
+ * 映射文件每行一条：桶=节点下标 或 起始桶-结束桶=节点下标(含两端)，#开头为注释，所有桶都必须有映射。
+ * </pre>
+ */
+public final class PartitionByVirtualBucket extends FunctionExpression implements SingleKeyRuleAlgorithm,
+        ReloadableRuleAlgorithm {
+    private static final int PARTITION_KEY_TYPE_LONG = 1;
+    private static final int PARTITION_KEY_TYPE_STRING = 2;
+    private static final int DEFAULT_BUCKET_COUNT = 16384;
+
+    public PartitionByVirtualBucket(String functionName) {
+        this(functionName, null);
+    }
+
+    public PartitionByVirtualBucket(String functionName, List<Expression> arguments) {
+        super(functionName, arguments);
+    }
+
+    private int bucketCount = DEFAULT_BUCKET_COUNT;
+    private int keyType = PARTITION_KEY_TYPE_LONG;
+    private int hashSliceStart = 0;
+    private int hashSliceEnd = 8;
+    private String bucketMapFile;
+    /** 同一个函数定义构造出的所有实例共享映射 */
+    private BucketMap bucketMap;
+
+    public void setBucketCount(int bucketCount) {
+        if (bucketCount <= 0 || (bucketCount & (bucketCount - 1)) != 0) {
+            throw new IllegalArgumentException("bucketCount must be power of 2: " + bucketCount);
+        }
+        this.bucketCount = bucketCount;
+    }
+
+    public void setKeyType(String keyType) {
+        if ("long".equalsIgnoreCase(keyType)) {
+            this.keyType = PARTITION_KEY_TYPE_LONG;
+        } else if ("string".equalsIgnoreCase(keyType)) {
+            this.keyType = PARTITION_KEY_TYPE_STRING;
+        } else {
+            throw new IllegalArgumentException("unknown partition key type: " + keyType);
+        }
+    }
+
+    public void setHashLength(int hashLength) {
+        setHashSlice(String.valueOf(hashLength));
+    }
+
+    public void setHashSlice(String hashSlice) {
+        Pair<Integer, Integer> p = PairUtil.sequenceSlicing(hashSlice);
+        hashSliceStart = p.getKey();
+        hashSliceEnd = p.getValue();
+    }
+
+    public void setBucketMapFile(String bucketMapFile) {
+        this.bucketMapFile = bucketMapFile;
+    }
+
+    @Override
+    public void init() {
+        initialize();
+    }
+
+    @Override
+    public void initialize() {
+        if (bucketMap == null) {
+            bucketMap = new BucketMap(bucketMapFile, bucketCount);
+        }
+        bucketMap.loadIfAbsent();
+    }
+
+    @Override
+    public int prepareReload() {
+        int[] map = bucketMap.prepare();
+        if (map == null) {
+            return -1;
+        }
+        int max = 0;
+        for (int node : map) {
+            max = Math.max(max, node);
+        }
+        return max;
+    }
+
+    @Override
+    public void commitReload() {
+        bucketMap.commit();
+    }
+
+    @Override
+    public Object evaluationInternal(Map<? extends Object, ? extends Object> parameters) {
+        return calculate(parameters)[0];
+    }
+
+    @Override
+    public Integer[] calculate(Map<? extends Object, ? extends Object> parameters) {
+        Integer[] rst = new Integer[1];
+        Object arg = arguments.get(0).evaluation(parameters);
+        if (arg == null) {
+            throw new IllegalArgumentException("partition key is null ");
+        } else if (arg == UNEVALUATABLE) {
+            throw new IllegalArgumentException("argument is UNEVALUATABLE");
+        }
+        if (arg instanceof Number) {
+            rst[0] = partition(((Number) arg).longValue());
+        } else if (arg instanceof String) {
+            rst[0] = partition((String) arg);
+        } else {
+            throw new IllegalArgumentException("unsupported data type for partition key: " + arg.getClass());
+        }
+        return rst;
+    }
+
+    @Override
+    public int partition(long key) {
+        if (keyType == PARTITION_KEY_TYPE_STRING) {
+            return partition(String.valueOf(key));
+        }
+        return bucketMap.get(key);
+    }
+
+    @Override
+    public int partition(CharSequence key) {
+        if (keyType == PARTITION_KEY_TYPE_LONG) {
+            return bucketMap.get(Long.parseLong(key.toString()));
+        }
+        int start = hashSliceStart >= 0 ? hashSliceStart : key.length() + hashSliceStart;
+        int end = hashSliceEnd > 0 ? hashSliceEnd : key.length() + hashSliceEnd;
+        return bucketMap.get(StringUtil.hash(key, start, end));
+    }
+
+    @Override
+    public String getKeyColumn() {
+        if (arguments == null || arguments.size() != 1) {
+            return null;
+        }
+        Expression arg = arguments.get(0);
+        return arg instanceof PlaceHolder ? ((PlaceHolder) arg).getNameUp() : null;
+    }
+
+    @Override
+    public FunctionExpression constructFunction(List<Expression> arguments) {
+        if (arguments == null || arguments.size() != 1)
+            throw new IllegalArgumentException("function " + getFunctionName() + " must have 1 arguments but is "
+                    + arguments);
+        Object[] args = new Object[arguments.size()];
+        int i = -1;
+        for (Expression arg : arguments) {
+            args[++i] = arg;
+        }
+        return (FunctionExpression) constructMe(args);
+    }
+
+    @Override
+    public RuleAlgorithm constructMe(Object... objects) {
+        List<Expression> args = new ArrayList<Expression>(objects.length);
+        for (Object obj : objects) {
+            args.add((Expression) obj);
+        }
+        if (bucketMap == null) {
+            bucketMap = new BucketMap(bucketMapFile, bucketCount);
+        }
+        PartitionByVirtualBucket rst = new PartitionByVirtualBucket(functionName, args);
+        rst.bucketCount = bucketCount;
+        rst.keyType = keyType;
+        rst.hashSliceStart = hashSliceStart;
+        rst.hashSliceEnd = hashSliceEnd;
+        rst.bucketMapFile = bucketMapFile;
+        rst.bucketMap = bucketMap;
+        return rst;
+    }
+
+    /**
+     * 桶到数据节点的映射
+     */
+    private static final class BucketMap extends ReloadableFile<int[]> {
+        private final int mask;
+
+        BucketMap(String path, int bucketCount) {
+            super(path);
+            this.mask = bucketCount - 1;
+        }
+
+        int get(long hash) {
+            return get()[(int) (hash & mask)];
+        }
+
+        @Override
+        protected int[] parse(File file) throws IOException {
+            int[] map = new int[mask + 1];
+            Arrays.fill(map, -1);
+            BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+            try {
+                int lineNo = 0;
+                for (String line = null; (line = in.readLine()) != null;) {
+                    ++lineNo;
+                    line = line.trim();
+                    if (line.length() == 0 || line.startsWith("#") || line.startsWith("//"))
+                        continue;
+                    parseLine(map, line, lineNo);
+                }
+            } finally {
+                in.close();
+            }
+            for (int i = 0; i < map.length; ++i) {
+                if (map[i] < 0) {
+                    throw new IllegalArgumentException("bucket " + i + " is not mapped in " + getPath());
+                }
+            }
+            return map;
+        }
+
+        private void parseLine(int[] map, String line, int lineNo) {
+            int eq = line.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("illegal bucket map line " + lineNo + ": " + line);
+            }
+            String range = line.substring(0, eq).trim();
+            int dash = range.indexOf('-');
+            int from, to, node;
+            try {
+                if (dash < 0) {
+                    from = to = Integer.parseInt(range);
+                } else {
+                    from = Integer.parseInt(range.substring(0, dash).trim());
+                    to = Integer.parseInt(range.substring(dash + 1).trim());
+                }
+                node = Integer.parseInt(line.substring(eq + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("illegal bucket map line " + lineNo + ": " + line);
+            }
+            if (from < 0 || to > mask || from > to || node < 0) {
+                throw new IllegalArgumentException("illegal bucket map line " + lineNo + ": " + line);
+            }
+            Arrays.fill(map, from, to + 1, node);
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.alibaba.cobar.parser.ast.expression.Expression;
+import com.alibaba.cobar.parser.ast.expression.primary.PlaceHolder;
 import com.alibaba.cobar.parser.ast.expression.primary.function.FunctionExpression;
 import com.alibaba.cobar.route.util.PartitionUtil;
 import com.alibaba.cobar.util.SplitUtil;
@@ -64,6 +65,17 @@ public abstract class PartitionFunction extends FunctionExpression {
         return partitionUtil.partition(hash);
     }
 
+    /**
+     * @return 参数直接是拆分字段时返回字段名(大写)，否则返回null
+     */
+    public String getKeyColumn() {
+        if (arguments == null || arguments.size() != 1) {
+            return null;
+        }
+        Expression arg = arguments.get(0);
+        return arg instanceof PlaceHolder ? ((PlaceHolder) arg).getNameUp() : null;
+    }
+
     @Override
     public abstract Object evaluationInternal(Map<? extends Object, ? extends Object> parameters);
 
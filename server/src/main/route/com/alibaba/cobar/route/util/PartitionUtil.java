@@ -15,6 +15,11 @@
  */
 package com.alibaba.cobar.route.util;
 
+import java.util.List;
+
+import com.alibaba.cobar.config.model.rule.RuleAlgorithm;
+import com.alibaba.cobar.config.model.rule.RuleConfig;
+import com.alibaba.cobar.config.model.rule.SingleKeyRuleAlgorithm;
 import com.alibaba.cobar.util.StringUtil;
 
 /**
@@ -73,8 +78,36 @@ public final class PartitionUtil {
         return segment[(int) (hash & AND_VALUE)];
     }
 
-    public int partition(String key, int start, int end) {
+    public int partition(CharSequence key, int start, int end) {
         return partition(StringUtil.hash(key, start, end));
     }
 
+    /**
+     * @return 规则只有一个拆分字段且算法直接以该字段为参数时返回该算法，否则返回null
+     */
+    public static SingleKeyRuleAlgorithm singleKeyAlgorithm(RuleConfig rule) {
+        List<String> cols = rule.getColumns();
+        RuleAlgorithm algorithm = rule.getRuleAlgorithm();
+        if (cols.size() != 1 || !(algorithm instanceof SingleKeyRuleAlgorithm)) {
+            return null;
+        }
+        SingleKeyRuleAlgorithm single = (SingleKeyRuleAlgorithm) algorithm;
+        return cols.get(0).equals(single.getKeyColumn()) ? single : null;
+    }
+
+    /**
+     * 不经过参数Map和装箱，直接计算拆分字段值所在的数据节点
+     * 
+     * @return 值的类型不能直接计算时返回-1，由调用方走RuleAlgorithm.calculate
+     */
+    public static int partition(SingleKeyRuleAlgorithm algorithm, Object key) {
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return algorithm.partition(((Number) key).longValue());
+        }
+        if (key instanceof String) {
+            return algorithm.partition((String) key);
+        }
+        return -1;
+    }
+
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.route.util;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 由外部文件载入的只读数据：重载时先完整构造新数据再整体替换，读线程看到的总是完整的一份数据。
+ */
+public abstract class ReloadableFile<T> {
+    private final String path;
+    private volatile T data;
+    private long lastModified;
+    private long length;
+    private T pending;
+    private long pendingModified;
+    private long pendingLength;
+
+    protected ReloadableFile(String path) {
+        if (path == null) {
+            throw new IllegalArgumentException("file path is null");
+        }
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public T get() {
+        return data;
+    }
+
+    public synchronized void loadIfAbsent() {
+        if (data == null) {
+            load(new File(path));
+        }
+    }
+
+    /**
+     * 载入新数据但暂不替换，调用{@link #commit()}后生效。载入失败时抛出异常，原有数据保持不变。
+     * 
+     * @return 新数据，文件自上次载入后未变化时返回null
+     */
+    public synchronized T prepare() {
+        pending = null;
+        File file = new File(path);
+        if (data != null && file.lastModified() == lastModified && file.length() == length) {
+            return null;
+        }
+        long modified = file.lastModified();
+        long size = file.length();
+        try {
+            pending = parse(file);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("fail to load file: " + path, e);
+        }
+        pendingModified = modified;
+        pendingLength = size;
+        return pending;
+    }
+
+    /**
+     * 用{@link #prepare()}载入的数据替换原有数据
+     */
+    public synchronized void commit() {
+        if (pending != null) {
+            data = pending;
+            lastModified = pendingModified;
+            length = pendingLength;
+            pending = null;
+        }
+    }
+
+    private void load(File file) {
+        long modified = file.lastModified();
+        long size = file.length();
+        T rst;
+        try {
+            rst = parse(file);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("fail to load file: " + path, e);
+        }
+        data = rst;
+        lastModified = modified;
+        length = size;
+    }
+
+    protected abstract T parse(File file) throws IOException;
+
+}
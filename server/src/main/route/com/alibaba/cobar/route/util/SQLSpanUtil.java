@@ -0,0 +1,208 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.route.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.alibaba.cobar.parser.ast.expression.primary.RowExpression;
+
+/**
+ * 基于原sql位置区间的改写，保留原sql的格式、注释和hint，避免重新生成整条语句。
+ */
+public final class SQLSpanUtil {
+
+    /**
+     * 删除原sql中的若干区间
+     * 
+     * @param cuts 按位置排序且互不重叠的区间[start, end)
+     */
+    public static String cut(String sql, List<int[]> cuts) {
+        if (cuts == null || cuts.isEmpty()) {
+            return sql;
+        }
+        StringBuilder s = new StringBuilder(sql.length());
+        append(s, sql, 0, sql.length(), cuts);
+        return s.toString();
+    }
+
+    /**
+     * 把schema限定符的区间[schema名开始, 表名开始)转换为删除区间：只删除schema名和其后的'.'，
+     * 保留两者之间以及'.'之后的注释和空白。
+     * 
+     * @param spans 按位置排序的限定符区间
+     * @return 区间内不是"schema名 [注释] ."的形式时返回null
+     */
+    public static List<int[]> qualifierCuts(String sql, List<int[]> spans) {
+        if (spans == null) {
+            return null;
+        }
+        List<int[]> cuts = new ArrayList<int[]>(spans.size());
+        for (int[] span : spans) {
+            int end = skipIdentifier(sql, span[0], span[1]);
+            int dot = end < 0 ? -1 : skipComments(sql, end, span[1]);
+            if (dot < 0 || dot >= span[1] || sql.charAt(dot) != '.') {
+                return null;
+            }
+            if (dot == end) {
+                cuts.add(new int[] { span[0], dot + 1 });
+            } else {
+                cuts.add(new int[] { span[0], end });
+                cuts.add(new int[] { dot, dot + 1 });
+            }
+        }
+        return cuts;
+    }
+
+    /**
+     * 从多值INSERT/REPLACE中挑出部分行：保留第一行之前和最后一行之后的原文，中间只保留选中的行。
+     * 
+     * @param rows 原语句中的全部行，顺序与原sql一致
+     * @param selected 需要保留的行
+     * @param cuts 同时需要删除的区间，可以为null
+     * @return 行的位置未知时返回null
+     */
+    public static String selectRows(String sql, List<RowExpression> rows, Collection<RowExpression> selected,
+                                    List<int[]> cuts) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        int begin = rows.get(0).getSourceStart();
+        int end = rows.get(rows.size() - 1).getSourceEnd();
+        if (begin < 0 || end < begin) {
+            return null;
+        }
+        StringBuilder s = new StringBuilder(sql.length());
+        append(s, sql, 0, begin, cuts);
+        boolean first = true;
+        for (RowExpression row : rows) {
+            if (!selected.contains(row)) {
+                continue;
+            }
+            if (row.getSourceStart() < 0) {
+                return null;
+            }
+            if (first) {
+                first = false;
+            } else {
+                s.append(',');
+            }
+            append(s, sql, row.getSourceStart(), row.getSourceEnd(), cuts);
+        }
+        append(s, sql, end, sql.length(), cuts);
+        return s.toString();
+    }
+
+    /**
+     * 从列表(如IN列表)中挑出部分元素：保留第一个元素之前和最后一个元素之后的原文，中间只保留选中的元素。
+     *
+     * @param spans 全部元素在原sql中的位置[start0, end0, start1, end1, ...]
+     * @param items 选中元素的下标，升序
+     * @param cuts 同时需要删除的区间，可以为null
+     */
+    public static String selectItems(String sql, int[] spans, int[] items, int offset, int count, List<int[]> cuts) {
+        StringBuilder s = new StringBuilder(sql.length());
+        append(s, sql, 0, spans[0], cuts);
+        for (int i = offset, end = offset + count; i < end; ++i) {
+            if (i > offset) {
+                s.append(", ");
+            }
+            int item = items[i] << 1;
+            append(s, sql, spans[item], spans[item + 1], cuts);
+        }
+        append(s, sql, spans[spans.length - 1], sql.length(), cuts);
+        return s.toString();
+    }
+
+    /**
+     * @return 从start开始的标识符之后的位置，不是标识符时返回-1
+     */
+    private static int skipIdentifier(String sql, int start, int limit) {
+        int i = start;
+        if (i < limit && sql.charAt(i) == '`') {
+            for (++i; i < limit; ++i) {
+                if (sql.charAt(i) == '`') {
+                    if (i + 1 < limit && sql.charAt(i + 1) == '`') {
+                        ++i;
+                    } else {
+                        return i + 1;
+                    }
+                }
+            }
+            return -1;
+        }
+        for (; i < limit; ++i) {
+            char c = sql.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '$' && c < 0x80) {
+                break;
+            }
+        }
+        return i > start ? i : -1;
+    }
+
+    /**
+     * @return 跳过空白和注释后的位置，注释未结束时返回-1
+     */
+    private static int skipComments(String sql, int start, int limit) {
+        int i = start;
+        while (i < limit) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                ++i;
+            } else if (c == '/' && i + 1 < limit && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                if (end < 0 || end + 2 > limit) {
+                    return -1;
+                }
+                i = end + 2;
+            } else if (c == '#' || (c == '-' && sql.startsWith("-- ", i))) {
+                int end = sql.indexOf('\n', i);
+                if (end < 0 || end >= limit) {
+                    return -1;
+                }
+                i = end + 1;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 追加sql[start, end)，跳过其中的删除区间
+     */
+    private static void append(StringBuilder s, String sql, int start, int end, List<int[]> cuts) {
+        if (cuts != null) {
+            for (int[] cut : cuts) {
+                if (cut[1] <= start) {
+                    continue;
+                }
+                if (cut[0] >= end) {
+                    break;
+                }
+                if (cut[0] > start) {
+                    s.append(sql, start, cut[0]);
+                }
+                start = Math.max(start, cut[1]);
+            }
+        }
+        if (start < end) {
+            s.append(sql, start, end);
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.route.util;
+
+/**
+ * 只读的字符串到int的映射：所有key按序连续存放在一个char[]中，查找时二分比较，不创建任何对象。
+ * 每个条目的额外开销是两个int，适合百万级条目的映射文件。
+ */
+public final class SortedStringIntMap {
+
+    /** 按key排序后依次存放的全部字符 */
+    private final char[] chars;
+    /** 第i个key为chars[offsets[i], offsets[i + 1]) */
+    private final int[] offsets;
+    private final int[] values;
+
+    /**
+     * @param keyChars 所有key依次存放的字符，第i个key为keyChars[starts[i], starts[i + 1])，最后一个key到charCount为止
+     * @param starts 未排序的key起始位置
+     * @param keyValues 与starts对应的值，key重复时后出现的值有效
+     */
+    public SortedStringIntMap(char[] keyChars, int charCount, int[] starts, int[] keyValues, int size) {
+        int[] ends = new int[size];
+        for (int i = 0; i < size; ++i) {
+            ends[i] = i + 1 < size ? starts[i + 1] : charCount;
+        }
+        int[] order = new int[size];
+        for (int i = 0; i < size; ++i) {
+            order[i] = i;
+        }
+        mergeSort(order, new int[size], 0, size, keyChars, starts, ends);
+
+        // 去重，相同key只保留最后出现的(稳定排序后同一段内的最后一个)
+        int count = 0;
+        int total = 0;
+        for (int i = 0; i < size; ++i) {
+            if (i + 1 < size && compare(keyChars, starts, ends, order[i], order[i + 1]) == 0) {
+                order[i] = -1;
+                continue;
+            }
+            ++count;
+            total += ends[order[i]] - starts[order[i]];
+        }
+        this.chars = new char[total];
+        this.offsets = new int[count + 1];
+        this.values = new int[count];
+        int n = 0;
+        int pos = 0;
+        for (int i = 0; i < size; ++i) {
+            int k = order[i];
+            if (k < 0) {
+                continue;
+            }
+            int len = ends[k] - starts[k];
+            System.arraycopy(keyChars, starts[k], this.chars, pos, len);
+            offsets[n] = pos;
+            values[n++] = keyValues[k];
+            pos += len;
+        }
+        offsets[count] = pos;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @return 最大的值，映射为空时返回-1
+     */
+    public int maxValue() {
+        int max = -1;
+        for (int v : values) {
+            max = Math.max(max, v);
+        }
+        return max;
+    }
+
+    /**
+     * @return key不存在时返回defaultValue
+     */
+    public int get(CharSequence key, int defaultValue) {
+        int low = 0;
+        int high = values.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return values[mid];
+            }
+        }
+        return defaultValue;
+    }
+
+    private int compare(int index, CharSequence key) {
+        int start = offsets[index];
+        int len1 = offsets[index + 1] - start;
+        int len2 = key.length();
+        for (int i = 0, n = Math.min(len1, len2); i < n; ++i) {
+            char c1 = chars[start + i];
+            char c2 = key.charAt(i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return len1 - len2;
+    }
+
+    private static int compare(char[] chars, int[] starts, int[] ends, int a, int b) {
+        int s1 = starts[a];
+        int s2 = starts[b];
+        int len1 = ends[a] - s1;
+        int len2 = ends[b] - s2;
+        for (int i = 0, n = Math.min(len1, len2); i < n; ++i) {
+            char c1 = chars[s1 + i];
+            char c2 = chars[s2 + i];
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return len1 - len2;
+    }
+
+    /**
+     * 按key对下标稳定排序
+     */
+    private static void mergeSort(int[] order, int[] tmp, int from, int to, char[] chars, int[] starts, int[] ends) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(order, tmp, from, mid, chars, starts, ends);
+        mergeSort(order, tmp, mid, to, chars, starts, ends);
+        if (compare(chars, starts, ends, order[mid - 1], order[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(order, from, tmp, from, to - from);
+        for (int i = from, p = from, q = mid; i < to; ++i) {
+            if (q >= to || (p < mid && compare(chars, starts, ends, tmp[p], tmp[q]) <= 0)) {
+                order[i] = tmp[p++];
+            } else {
+                order[i] = tmp[q++];
+            }
+        }
+    }
+
+}
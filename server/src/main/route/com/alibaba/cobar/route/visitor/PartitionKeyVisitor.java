@@ -20,6 +20,7 @@ package com.alibaba.cobar.route.visitor;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -226,6 +227,8 @@ public final class PartitionKeyVisitor implements SQLASTVisitor {
     private boolean tableMetaRead;
     private boolean rewriteField = false;
     private boolean schemaTrimmed = false;
+    /** 被裁掉的schema限定符在原sql中的位置[start, end)，无法定位时为null */
+    private List<int[]> trimmedSpans = new ArrayList<int[]>(1);
     private boolean customedSchema = false;
     /** {tableNameUp -&gt; {columnNameUp -&gt; columnValues}}, obj[] never null */
     private Map<String, Map<String, List<Object>>> columnValue = new HashMap<String, Map<String, List<Object>>>(2, 1);
@@ -300,6 +303,21 @@ public final class PartitionKeyVisitor implements SQLASTVisitor {
         return schemaTrimmed;
     }
 
+    /**
+     * @return 按位置排序的裁剪区间[schema名开始, 表名开始)，存在无法定位的裁剪时返回null
+     */
+    public List<int[]> getTrimmedSpans() {
+        if (trimmedSpans != null && trimmedSpans.size() > 1) {
+            Collections.sort(trimmedSpans, new Comparator<int[]>() {
+                @Override
+                public int compare(int[] o1, int[] o2) {
+                    return o1[0] - o2[0];
+                }
+            });
+        }
+        return trimmedSpans;
+    }
+
     /** @return never null */
     public Map<String, Map<Object, Set<Pair<Expression, ASTNode>>>> getColumnIndex(String tableNameUp) {
         if (columnValueIndex == null)
@@ -423,6 +441,30 @@ public final class PartitionKeyVisitor implements SQLASTVisitor {
         return this;
     }
 
+    private void trimParent(Identifier id, int level) {
+        Identifier kept = id;
+        for (int i = 1; i < level && kept != null; ++i) {
+            kept = kept.getParent();
+        }
+        Identifier top = kept == null ? null : kept.getParent();
+        for (; top != null && top.getParent() != null; top = top.getParent());
+        int trim = id.trimParent(level, trimSchema);
+        if (trim == Identifier.PARENT_TRIMED) {
+            schemaTrimmed = true;
+            if (trimmedSpans != null) {
+                int start = top.getSourceStart();
+                int end = kept.getSourceStart();
+                if (start >= 0 && end > start) {
+                    trimmedSpans.add(new int[] { start, end });
+                } else {
+                    trimmedSpans = null;
+                }
+            }
+        } else if (trim == Identifier.PARENT_IGNORED) {
+            customedSchema = true;
+        }
+    }
+
     private boolean isRuledColumn(String tableNameUp, String columnNameUp) {
         if (tableNameUp == null) {
             return false;
@@ -556,9 +598,7 @@ public final class PartitionKeyVisitor implements SQLASTVisitor {
     }
 
     private void tableAsTableFactor(Identifier table) {
-        int trim = table.trimParent(1, trimSchema);
-        schemaTrimmed = schemaTrimmed || trim == Identifier.PARENT_TRIMED;
-        customedSchema = customedSchema || trim == Identifier.PARENT_IGNORED;
+        trimParent(table, 1);
         String tableName = table.getIdTextUpUnescape();
         tableAlias.put(null, tableName);
         tableAlias.put(tableName, tableName);
@@ -577,13 +617,9 @@ public final class PartitionKeyVisitor implements SQLASTVisitor {
             visitChild(1, verdictColumn, false, tr);
             for (Identifier tb : tbs) {
                 if (tb instanceof Wildcard) {
-                    int trim = tb.trimParent(2, trimSchema);
-                    schemaTrimmed = schemaTrimmed || trim == Identifier.PARENT_TRIMED;
-                    customedSchema = customedSchema || trim == Identifier.PARENT_IGNORED;
+                    trimParent(tb, 2);
                 } else {
-                    int trim = tb.trimParent(1, trimSchema);
-                    schemaTrimmed = schemaTrimmed || trim == Identifier.PARENT_TRIMED;
-                    customedSchema = customedSchema || trim == Identifier.PARENT_IGNORED;
+                    trimParent(tb, 1);
                 }
             }
         }
@@ -938,9 +974,7 @@ public final class PartitionKeyVisitor implements SQLASTVisitor {
 
     @Override
     public void visit(Identifier node) {
-        int trim = node.trimParent(idLevel, trimSchema);
-        schemaTrimmed = schemaTrimmed || trim == Identifier.PARENT_TRIMED;
-        customedSchema = customedSchema || trim == Identifier.PARENT_IGNORED;
+        trimParent(node, idLevel);
     }
 
     @Override
@@ -1278,6 +1312,7 @@ public final class PartitionKeyVisitor implements SQLASTVisitor {
     public void visit(ShowEvents node) {
         if (node.getSchema() != null) {
             schemaTrimmed = true;
+            trimmedSpans = null;
             node.setSchema(null);
         }
         tableMetaRead(null);
@@ -1308,6 +1343,7 @@ public final class PartitionKeyVisitor implements SQLASTVisitor {
     public void visit(ShowOpenTables node) {
         if (node.getSchema() != null) {
             schemaTrimmed = true;
+            trimmedSpans = null;
             node.setSchema(null);
         }
         tableMetaRead(null);
@@ -1357,6 +1393,7 @@ public final class PartitionKeyVisitor implements SQLASTVisitor {
     public void visit(ShowTables node) {
         if (node.getSchema() != null) {
             schemaTrimmed = true;
+            trimmedSpans = null;
             node.setSchema(null);
         }
         rewriteField = true;
@@ -1367,6 +1404,7 @@ public final class PartitionKeyVisitor implements SQLASTVisitor {
     public void visit(ShowTableStatus node) {
         if (node.getDatabase() != null) {
             schemaTrimmed = true;
+            trimmedSpans = null;
             node.setDatabase(null);
         }
         tableMetaRead(null);
@@ -1376,6 +1414,7 @@ public final class PartitionKeyVisitor implements SQLASTVisitor {
     public void visit(ShowTriggers node) {
         if (node.getSchema() != null) {
             schemaTrimmed = true;
+            trimmedSpans = null;
             node.setSchema(null);
         }
         tableMetaRead(null);
@@ -0,0 +1,137 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.alibaba.cobar.config.model.QuarantineConfig;
+import com.alibaba.cobar.config.model.SystemConfig;
+import com.alibaba.cobar.config.model.UserConfig;
+import com.alibaba.cobar.config.util.ConfigException;
+import com.alibaba.cobar.mysql.SecurityUtil;
+
+/**
+ * 认证信息快照：预先算好每个用户密码的两次SHA-1摘要和可访问schema的位图，由配置重载时整体替换，
+ * 建立连接时的认证只做哈希表查找，不访问配置也不加锁。
+ */
+public final class CobarAuthCache {
+
+    private final Map<String, Integer> schemaIndex;
+    private final Map<String, Entry> users;
+    private final Map<String, Set<String>> quarantineHosts;
+
+    public CobarAuthCache(Map<String, UserConfig> users, Set<String> schemas, SystemConfig system,
+                          QuarantineConfig quarantine) {
+        this.schemaIndex = new HashMap<String, Integer>(schemas.size() << 1);
+        for (String schema : schemas) {
+            schemaIndex.put(schema, schemaIndex.size());
+        }
+        this.users = new HashMap<String, Entry>(users.size() << 1);
+        for (UserConfig uc : users.values()) {
+            this.users.put(uc.getName(), new Entry(hash(uc.getPassword()), bitmap(uc.getSchemas())));
+        }
+        // 集群心跳账户优先于同名的用户
+        String heartbeatUser = system.getClusterHeartbeatUser();
+        if (heartbeatUser != null) {
+            this.users.put(heartbeatUser, new Entry(hash(system.getClusterHeartbeatPass()), null));
+        }
+        Map<String, Set<String>> hosts = quarantine == null ? null : quarantine.getHosts();
+        this.quarantineHosts = hosts == null ? Collections.<String, Set<String>> emptyMap() : hosts;
+    }
+
+    public boolean schemaExists(String schema) {
+        return schemaIndex.containsKey(schema);
+    }
+
+    /**
+     * @return 用户不存在时返回false，隔离区中的主机只允许指定的用户登录
+     */
+    public boolean userExists(String user, String host) {
+        Set<String> hostUsers = quarantineHosts.get(host);
+        if (hostUsers != null) {
+            return hostUsers.contains(user);
+        }
+        return users.containsKey(user);
+    }
+
+    public boolean isQuarantined(String host) {
+        return quarantineHosts.containsKey(host);
+    }
+
+    /**
+     * @return 密码的两次SHA-1摘要，用户不存在或密码为空时返回null
+     */
+    public byte[] getPasswordHash(String user) {
+        Entry e = users.get(user);
+        return e == null ? null : e.passwordHash;
+    }
+
+    /**
+     * 用户未限定schema时可以访问全部schema
+     */
+    public boolean isSchemaAllowed(String user, String schema) {
+        Entry e = users.get(user);
+        if (e == null || e.schemas == null) {
+            return true;
+        }
+        Integer index = schemaIndex.get(schema);
+        if (index == null) {
+            return false;
+        }
+        int i = index;
+        return i < (e.schemas.length << 6) && (e.schemas[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private long[] bitmap(Set<String> schemas) {
+        if (schemas == null || schemas.isEmpty()) {
+            return null;
+        }
+        long[] bits = new long[(schemaIndex.size() + 63) >>> 6];
+        for (String schema : schemas) {
+            Integer index = schemaIndex.get(schema);
+            if (index != null) {
+                bits[index >>> 6] |= 1L << index;
+            }
+        }
+        return bits;
+    }
+
+    private static byte[] hash(String password) {
+        if (password == null || password.length() == 0) {
+            return null;
+        }
+        try {
+            return SecurityUtil.passwordHash(password.getBytes());
+        } catch (NoSuchAlgorithmException e) {
+            throw new ConfigException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] passwordHash;
+        private final long[] schemas;
+
+        private Entry(byte[] passwordHash, long[] schemas) {
+            this.passwordHash = passwordHash;
+            this.schemas = schemas;
+        }
+    }
+
+}
@@ -46,6 +46,7 @@ public class CobarConfig {
     private volatile Map<String, MySQLDataNode> _dataNodes;
     private volatile Map<String, DataSourceConfig> dataSources;
     private volatile Map<String, DataSourceConfig> _dataSources;
+    private volatile CobarAuthCache authCache;
     private long reloadTime;
     private long rollbackTime;
     private int status;
@@ -60,6 +61,7 @@ public class CobarConfig {
         this.dataNodes = confInit.getDataNodes();
         this.quarantine = confInit.getQuarantine();
         this.cluster = confInit.getCluster();
+        this.authCache = new CobarAuthCache(users, schemas.keySet(), system, quarantine);
 
         this.reloadTime = TimeUtil.currentTimeMillis();
         this.rollbackTime = -1L;
@@ -119,6 +121,13 @@ public class CobarConfig {
         return _quarantine;
     }
 
+    /**
+     * 认证信息快照，随用户、schema和隔离区配置一起替换
+     */
+    public CobarAuthCache getAuthCache() {
+        return authCache;
+    }
+
     public ReentrantLock getLock() {
         return lock;
     }
@@ -139,6 +148,30 @@ public class CobarConfig {
         this.status = RELOAD;
     }
 
+    /**
+     * 只重载用户和隔离区配置，其余配置保持不变。重载前的配置全部备份，可以整体回滚。
+     */
+    public void reloadUsers(Map<String, UserConfig> users, QuarantineConfig quarantine) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            CobarAuthCache authCache = new CobarAuthCache(users, schemas.keySet(), system, quarantine);
+            this._users = this.users;
+            this._schemas = this.schemas;
+            this._dataNodes = this.dataNodes;
+            this._dataSources = this.dataSources;
+            this._cluster = this.cluster;
+            this._quarantine = this.quarantine;
+            this.users = users;
+            this.quarantine = quarantine;
+            this.authCache = authCache;
+            this.reloadTime = TimeUtil.currentTimeMillis();
+            this.status = RELOAD;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public boolean canRollback() {
         if (_users == null || _schemas == null || _dataNodes == null || _dataSources == null || _cluster == null
                 || _quarantine == null || status == ROLLBACK) {
@@ -162,6 +195,8 @@ public class CobarConfig {
         final ReentrantLock lock = this.lock;
         lock.lock();
         try {
+            CobarAuthCache authCache = new CobarAuthCache(users, schemas.keySet(), system, quarantine);
+
             // stop mysql heartbeat
             Map<String, MySQLDataNode> oldDataNodes = this.dataNodes;
             if (oldDataNodes != null) {
@@ -211,6 +246,7 @@ public class CobarConfig {
             this.dataSources = dataSources;
             this.cluster = cluster;
             this.quarantine = quarantine;
+            this.authCache = authCache;
         } finally {
             lock.unlock();
         }
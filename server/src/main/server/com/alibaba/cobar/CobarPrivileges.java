@@ -15,7 +15,6 @@
  */
 package com.alibaba.cobar;
 
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -32,33 +31,23 @@ public class CobarPrivileges implements FrontendPrivileges {
 
     @Override
     public boolean schemaExists(String schema) {
-        CobarConfig conf = CobarServer.getInstance().getConfig();
-        return conf.getSchemas().containsKey(schema);
+        return CobarServer.getInstance().getConfig().getAuthCache().schemaExists(schema);
     }
 
     @Override
     public boolean userExists(String user, String host) {
-        CobarConfig conf = CobarServer.getInstance().getConfig();
-        Map<String, Set<String>> quarantineHosts = conf.getQuarantine().getHosts();
-        if (quarantineHosts.containsKey(host)) {
-            boolean rs = quarantineHosts.get(host).contains(user);
-            if (!rs) {
-                ALARM.error(new StringBuilder().append(Alarms.QUARANTINE_ATTACK)
-                                               .append("[host=")
-                                               .append(host)
-                                               .append(",user=")
-                                               .append(user)
-                                               .append(']')
-                                               .toString());
-            }
-            return rs;
-        } else {
-            if (user != null && user.equals(conf.getSystem().getClusterHeartbeatUser())) {
-                return true;
-            } else {
-                return conf.getUsers().containsKey(user);
-            }
+        CobarAuthCache auth = CobarServer.getInstance().getConfig().getAuthCache();
+        boolean rs = auth.userExists(user, host);
+        if (!rs && auth.isQuarantined(host)) {
+            ALARM.error(new StringBuilder().append(Alarms.QUARANTINE_ATTACK)
+                                           .append("[host=")
+                                           .append(host)
+                                           .append(",user=")
+                                           .append(user)
+                                           .append(']')
+                                           .toString());
         }
+        return rs;
     }
 
     @Override
@@ -76,6 +65,11 @@ public class CobarPrivileges implements FrontendPrivileges {
         }
     }
 
+    @Override
+    public byte[] getPasswordHash(String user) {
+        return CobarServer.getInstance().getConfig().getAuthCache().getPasswordHash(user);
+    }
+
     @Override
     public Set<String> getUserSchemas(String user) {
         CobarConfig conf = CobarServer.getInstance().getConfig();
@@ -87,4 +81,9 @@ public class CobarPrivileges implements FrontendPrivileges {
         }
     }
 
+    @Override
+    public boolean isSchemaAllowed(String user, String schema) {
+        return CobarServer.getInstance().getConfig().getAuthCache().isSchemaAllowed(user, schema);
+    }
+
 }
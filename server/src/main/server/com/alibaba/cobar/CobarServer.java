@@ -21,18 +21,25 @@ import java.util.Date;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 import org.apache.log4j.helpers.LogLog;
 
 import com.alibaba.cobar.config.model.SystemConfig;
+import com.alibaba.cobar.heartbeat.HeartbeatScheduler;
+import com.alibaba.cobar.heartbeat.MySQLHeartbeatTask;
 import com.alibaba.cobar.manager.ManagerConnectionFactory;
 import com.alibaba.cobar.mysql.MySQLDataNode;
+import com.alibaba.cobar.mysql.MySQLDataNodeInitializer;
+import com.alibaba.cobar.mysql.MySQLDataSource;
 import com.alibaba.cobar.net.NIOAcceptor;
 import com.alibaba.cobar.net.NIOConnector;
 import com.alibaba.cobar.net.NIOProcessor;
 import com.alibaba.cobar.parser.recognizer.mysql.lexer.MySQLLexer;
+import com.alibaba.cobar.server.ConcurrencyLimiter;
 import com.alibaba.cobar.server.ServerConnectionFactory;
 import com.alibaba.cobar.statistic.SQLRecorder;
 import com.alibaba.cobar.util.ExecutorUtil;
@@ -46,6 +53,8 @@ public class CobarServer {
     public static final String NAME = "Cobar";
     private static final long LOG_WATCH_DELAY = 60000L;
     private static final long TIME_UPDATE_PERIOD = 20L;
+    private static final long HEARTBEAT_TICK = 100L;
+    private static final int HEARTBEAT_WHEEL_SIZE = 512;
     private static final CobarServer INSTANCE = new CobarServer();
     private static final Logger LOGGER = Logger.getLogger(CobarServer.class);
 
@@ -58,11 +67,14 @@ public class CobarServer {
     private final NameableExecutor managerExecutor;
     private final NameableExecutor timerExecutor;
     private final NameableExecutor initExecutor;
+    private final ExecutorService virtualExecutor;
+    private final ConcurrencyLimiter concurrencyLimiter;
     private final SQLRecorder sqlRecorder;
     private final AtomicBoolean isOnline;
     private final long startupTime;
     private NIOProcessor[] processors;
     private NIOConnector connector;
+    private HeartbeatScheduler heartbeatScheduler;
     private NIOAcceptor manager;
     private NIOAcceptor server;
 
@@ -74,7 +86,9 @@ public class CobarServer {
         this.initExecutor = ExecutorUtil.create("InitExecutor", system.getInitExecutor());
         this.timerExecutor = ExecutorUtil.create("TimerExecutor", system.getTimerExecutor());
         this.managerExecutor = ExecutorUtil.create("ManagerExecutor", system.getManagerExecutor());
+        this.virtualExecutor = system.isVirtualThreadExecutor() ? ExecutorUtil.createVirtual("VirtualExecutor") : null;
         this.sqlRecorder = new SQLRecorder(system.getSqlRecordCount());
+        this.concurrencyLimiter = new ConcurrencyLimiter();
         this.isOnline = new AtomicBoolean(true);
         this.startupTime = TimeUtil.currentTimeMillis();
     }
@@ -102,11 +116,17 @@ public class CobarServer {
 
         // startup processors
         LOGGER.info("Startup processors ...");
+        if (system.isVirtualThreadExecutor() && virtualExecutor == null) {
+            LOGGER.warn("virtual thread is not supported by current runtime, use processor executor instead.");
+        }
         int handler = system.getProcessorHandler();
+        int handlerQueue = system.getProcessorHandlerQueue();
         int executor = system.getProcessorExecutor();
         processors = new NIOProcessor[system.getProcessors()];
         for (int i = 0; i < processors.length; i++) {
-            processors[i] = new NIOProcessor("Processor" + i, handler, executor);
+            processors[i] = new NIOProcessor("Processor" + i, handler, handlerQueue, executor);
+            processors[i].setHandlerQueueTimeout(system.getProcessorHandlerQueueTimeout());
+            processors[i].setBlockingExecutor(virtualExecutor);
             processors[i].startup();
         }
         timer.schedule(processorCheck(), 0L, system.getProcessorCheckPeriod());
@@ -120,10 +140,10 @@ public class CobarServer {
         // init dataNodes
         Map<String, MySQLDataNode> dataNodes = config.getDataNodes();
         LOGGER.info("Initialize dataNodes ...");
-        for (MySQLDataNode node : dataNodes.values()) {
-            node.init(1, 0);
-        }
+        MySQLDataNodeInitializer.init(dataNodes.values(), null, false, initExecutor);
         timer.schedule(dataNodeIdleCheck(), 0L, system.getDataNodeIdleCheckPeriod());
+        heartbeatScheduler = new HeartbeatScheduler(NAME + "HeartbeatScheduler", HEARTBEAT_TICK, HEARTBEAT_WHEEL_SIZE);
+        heartbeatScheduler.start();
         timer.schedule(dataNodeHeartbeat(), 0L, system.getDataNodeHeartbeatPeriod());
 
         // startup manager
@@ -139,6 +159,8 @@ public class CobarServer {
         ServerConnectionFactory sf = new ServerConnectionFactory();
         sf.setCharset(system.getCharset());
         sf.setIdleTimeout(system.getIdleTimeout());
+        sf.setCompress(system.isFrontendCompress());
+        sf.setCompressThreshold(system.getCompressThreshold());
         server = new NIOAcceptor(NAME + "Server", system.getServerPort(), sf);
         server.setProcessors(processors);
         server.start();
@@ -157,6 +179,10 @@ public class CobarServer {
         return connector;
     }
 
+    public HeartbeatScheduler getHeartbeatScheduler() {
+        return heartbeatScheduler;
+    }
+
     public NameableExecutor getManagerExecutor() {
         return managerExecutor;
     }
@@ -169,6 +195,17 @@ public class CobarServer {
         return initExecutor;
     }
 
+    /**
+     * 后端通道建立连接时握手使用的执行器，虚拟线程模式下不占用初始化线程池。
+     */
+    public Executor getHandshakeExecutor() {
+        return virtualExecutor != null ? virtualExecutor : initExecutor;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
     public SQLRecorder getSqlRecorder() {
         return sqlRecorder;
     }
@@ -240,20 +277,26 @@ public class CobarServer {
         };
     }
 
-    // 数据节点定时心跳任务
+    // 数据节点心跳注册任务：把新加入的数据源交给心跳调度器，心跳本身由调度器按数据源自适应执行。
     private TimerTask dataNodeHeartbeat() {
         return new TimerTask() {
             @Override
             public void run() {
-                timerExecutor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        Map<String, MySQLDataNode> nodes = config.getDataNodes();
-                        for (MySQLDataNode node : nodes.values()) {
-                            node.doHeartbeat();
+                SystemConfig system = config.getSystem();
+                Map<String, MySQLDataNode> nodes = config.getDataNodes();
+                for (MySQLDataNode node : nodes.values()) {
+                    MySQLDataSource[] sources = node.getSources();
+                    if (sources == null) {
+                        continue;
+                    }
+                    for (MySQLDataSource ds : sources) {
+                        if (!ds.isRetired() && ds.getHeartbeat().markScheduled()) {
+                            long period = system.getDataNodeHeartbeatPeriod();
+                            heartbeatScheduler.schedule(new MySQLHeartbeatTask(ds, period, system
+                                    .getDataNodeHeartbeatMinPeriod(), system.getDataNodeHeartbeatMaxPeriod()), period);
                         }
                     }
-                });
+                }
             }
         };
     }
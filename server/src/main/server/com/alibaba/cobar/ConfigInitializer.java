@@ -36,6 +36,7 @@ import com.alibaba.cobar.config.model.UserConfig;
 import com.alibaba.cobar.config.util.ConfigException;
 import com.alibaba.cobar.mysql.MySQLDataNode;
 import com.alibaba.cobar.mysql.MySQLDataSource;
+import com.alibaba.cobar.mysql.nio.MySQLConnectionPool;
 import com.alibaba.cobar.route.config.RouteRuleInitializer;
 import com.alibaba.cobar.util.SplitUtil;
 
@@ -151,12 +152,15 @@ public class ConfigInitializer {
         checkDataSourceExists(dsNames);
         MySQLDataNode node = new MySQLDataNode(dnc);
         MySQLDataSource[] dsList = new MySQLDataSource[dsNames.length];
+        MySQLConnectionPool[] poolList = new MySQLConnectionPool[dsNames.length];
         int size = dnc.getPoolSize();
         for (int i = 0; i < dsList.length; i++) {
             DataSourceConfig dsc = dataSources.get(dsNames[i]);
             dsList[i] = new MySQLDataSource(node, i, dsc, size);
+            poolList[i] = new MySQLConnectionPool(node, i, dsc, size);
         }
         node.setSources(dsList);
+        node.setDataSources(poolList);
         return node;
     }
 
@@ -0,0 +1,208 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.heartbeat;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * 基于时间轮的心跳调度器，每个任务有独立的执行周期，并加入随机抖动以打散同一时刻的心跳。
+ * 任务直接在调度线程上执行，因此任务本身必须是非阻塞的(心跳检测只是向NIO连接器投递请求)。
+ */
+public final class HeartbeatScheduler extends Thread {
+    private static final Logger LOGGER = Logger.getLogger(HeartbeatScheduler.class);
+    private static final double JITTER = 0.1D;
+
+    /**
+     * 调度任务
+     */
+    public static interface Task {
+        /**
+         * @return 距离下次执行的时间(毫秒)，小于0表示不再执行。
+         */
+        long execute();
+    }
+
+    private final long tickDuration;
+    private final List<LinkedList<Timeout>> wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> pendingQueue;
+    private final AtomicInteger size;
+    private final Random random;
+    private long tick;
+    private volatile boolean isStop;
+
+    public HeartbeatScheduler(String name, long tickDuration, int ticksPerWheel) {
+        super.setName(name);
+        super.setDaemon(true);
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
+        }
+        int n = 1;
+        while (n < ticksPerWheel) {
+            n <<= 1;
+        }
+        this.tickDuration = tickDuration;
+        this.wheel = new ArrayList<LinkedList<Timeout>>(n);
+        for (int i = 0; i < n; i++) {
+            wheel.add(new LinkedList<Timeout>());
+        }
+        this.mask = n - 1;
+        this.pendingQueue = new ConcurrentLinkedQueue<Timeout>();
+        this.size = new AtomicInteger(0);
+        this.random = new Random();
+    }
+
+    /**
+     * 加入调度，首次执行时间在[0, delay)内随机分布。
+     */
+    public void schedule(Task task, long delay) {
+        size.incrementAndGet();
+        long first;
+        synchronized (random) {
+            first = delay > 0 ? (long) (random.nextDouble() * delay) : 0L;
+        }
+        pendingQueue.offer(new Timeout(task, first));
+    }
+
+    /**
+     * @return 当前调度中的任务数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public long getTickDuration() {
+        return tickDuration;
+    }
+
+    public void shutdown() {
+        isStop = true;
+        interrupt();
+    }
+
+    @Override
+    public void run() {
+        final long startTime = System.currentTimeMillis();
+        while (!isStop) {
+            long deadline = startTime + (tick + 1) * tickDuration;
+            long sleep = deadline - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            try {
+                advance();
+            } catch (Throwable e) {
+                LOGGER.warn(getName(), e);
+            }
+        }
+    }
+
+    /**
+     * 推进一个刻度：放入新加入的任务，执行当前刻度上到期的任务。
+     */
+    void advance() {
+        try {
+            transferPending();
+            expire(wheel.get((int) (tick & mask)));
+        } finally {
+            ++tick;
+        }
+    }
+
+    /**
+     * 执行当前刻度上到期的任务，并按任务返回的周期重新放入时间轮。
+     */
+    private void expire(LinkedList<Timeout> bucket) {
+        LinkedList<Timeout> expired = null;
+        for (Iterator<Timeout> it = bucket.iterator(); it.hasNext();) {
+            Timeout t = it.next();
+            if (t.remainingRounds <= 0) {
+                it.remove();
+                if (expired == null) {
+                    expired = new LinkedList<Timeout>();
+                }
+                expired.add(t);
+            } else {
+                --t.remainingRounds;
+            }
+        }
+        if (expired == null) {
+            return;
+        }
+        for (Timeout t : expired) {
+            long delay;
+            try {
+                delay = t.task.execute();
+            } catch (Throwable e) {
+                LOGGER.warn(getName() + " task error.", e);
+                delay = -1L;
+            }
+            if (delay < 0) {
+                size.decrementAndGet();
+            } else {
+                t.delay = jitter(delay);
+                place(t);
+            }
+        }
+    }
+
+    private void transferPending() {
+        Timeout t;
+        while ((t = pendingQueue.poll()) != null) {
+            place(t);
+        }
+    }
+
+    private void place(Timeout t) {
+        long ticks = t.delay / tickDuration;
+        if (ticks <= 0) {
+            ticks = 1;
+        }
+        long target = tick + ticks;
+        t.remainingRounds = (ticks - 1) / wheel.size();
+        wheel.get((int) (target & mask)).add(t);
+    }
+
+    private long jitter(long delay) {
+        synchronized (random) {
+            return (long) (delay * (1.0D - JITTER + 2 * JITTER * random.nextDouble()));
+        }
+    }
+
+    private static final class Timeout {
+        private final Task task;
+        private long delay;
+        private long remainingRounds;
+
+        private Timeout(Task task, long delay) {
+            this.task = task;
+            this.delay = delay;
+        }
+    }
+
+}
@@ -49,6 +49,7 @@ public class MySQLDetector extends BackendConnection {
     private String schema;
     private long heartbeatTimeout;
     private final AtomicBoolean isQuit;
+    private volatile boolean lagDetecting;
 
     public MySQLDetector(SocketChannel channel) {
         super(channel);
@@ -160,6 +161,26 @@ public class MySQLDetector extends BackendConnection {
         }
     }
 
+    /**
+     * 发送复制延迟查询语句，结果由{@link MySQLDetectorHandler}解析。
+     */
+    public void detectLag(String sql) {
+        lagDetecting = true;
+        CommandPacket packet = new CommandPacket();
+        packet.packetId = 0;
+        packet.command = MySQLPacket.COM_QUERY;
+        packet.arg = sql.getBytes();
+        packet.write(this);
+    }
+
+    public boolean isLagDetecting() {
+        return lagDetecting;
+    }
+
+    public void setLagDetecting(boolean lagDetecting) {
+        this.lagDetecting = lagDetecting;
+    }
+
     public void quit() {
         if (isQuit.compareAndSet(false, true)) {
             if (isAuthenticated) {
@@ -20,7 +20,10 @@ import com.alibaba.cobar.exception.HeartbeatException;
 import com.alibaba.cobar.net.handler.BackendAsyncHandler;
 import com.alibaba.cobar.net.mysql.EOFPacket;
 import com.alibaba.cobar.net.mysql.ErrorPacket;
+import com.alibaba.cobar.net.mysql.FieldPacket;
 import com.alibaba.cobar.net.mysql.OkPacket;
+import com.alibaba.cobar.net.mysql.ResultSetHeaderPacket;
+import com.alibaba.cobar.net.mysql.RowDataPacket;
 
 /**
  * @author xianmao.hexm
@@ -30,9 +33,17 @@ public class MySQLDetectorHandler extends BackendAsyncHandler {
     private static final int RESULT_STATUS_HEADER = 1;
     private static final int RESULT_STATUS_FIELD_EOF = 2;
 
+    private static final String LAG_COLUMN = "Seconds_Behind_Master";
+
     private final MySQLDetector source;
     private volatile int resultStatus;
 
+    // 复制延迟查询结果的解析状态
+    private int fieldCount;
+    private int fieldIndex;
+    private int lagColumn;
+    private long lag;
+
     public MySQLDetectorHandler(MySQLDetector source) {
         this.source = source;
         this.resultStatus = RESULT_STATUS_INIT;
@@ -63,6 +74,9 @@ public class MySQLDetectorHandler extends BackendAsyncHandler {
                 break;
             default:
                 resultStatus = RESULT_STATUS_HEADER;
+                if (source.isLagDetecting()) {
+                    handleLagHeader(data);
+                }
             }
             break;
         case RESULT_STATUS_HEADER:
@@ -74,6 +88,10 @@ public class MySQLDetectorHandler extends BackendAsyncHandler {
             case EOFPacket.FIELD_COUNT:
                 resultStatus = RESULT_STATUS_FIELD_EOF;
                 break;
+            default:
+                if (source.isLagDetecting()) {
+                    handleLagField(data);
+                }
             }
             break;
         case RESULT_STATUS_FIELD_EOF:
@@ -86,6 +104,10 @@ public class MySQLDetectorHandler extends BackendAsyncHandler {
                 resultStatus = RESULT_STATUS_INIT;
                 handleRowEofPacket();
                 break;
+            default:
+                if (source.isLagDetecting()) {
+                    handleLagRow(data);
+                }
             }
             break;
         default:
@@ -97,6 +119,7 @@ public class MySQLDetectorHandler extends BackendAsyncHandler {
     protected void handleDataError(Throwable t) {
         dataQueue.clear();
         resultStatus = RESULT_STATUS_INIT;
+        source.setLagDetecting(false);
         source.error(ErrorCode.ERR_HANDLE_DATA, t);
     }
 
@@ -104,7 +127,12 @@ public class MySQLDetectorHandler extends BackendAsyncHandler {
      * OK数据包处理
      */
     private void handleOkPacket() {
-        source.getHeartbeat().setResult(MySQLHeartbeat.OK_STATUS, source, false);
+        if (source.isLagDetecting()) {
+            source.setLagDetecting(false);
+            source.getHeartbeat().setLag(-1L, source);
+        } else {
+            source.getHeartbeat().setResult(MySQLHeartbeat.OK_STATUS, source, false);
+        }
     }
 
     /**
@@ -120,7 +148,54 @@ public class MySQLDetectorHandler extends BackendAsyncHandler {
      * 行数据包结束处理
      */
     private void handleRowEofPacket() {
-        source.getHeartbeat().setResult(MySQLHeartbeat.OK_STATUS, source, false);
+        if (source.isLagDetecting()) {
+            source.setLagDetecting(false);
+            source.getHeartbeat().setLag(lag, source);
+        } else {
+            source.getHeartbeat().setResult(MySQLHeartbeat.OK_STATUS, source, false);
+        }
+    }
+
+    /**
+     * 复制延迟查询的结果集头处理
+     */
+    private void handleLagHeader(byte[] data) {
+        ResultSetHeaderPacket header = new ResultSetHeaderPacket();
+        header.read(data);
+        fieldCount = header.fieldCount;
+        fieldIndex = 0;
+        lagColumn = 0;
+        lag = -1L;
+    }
+
+    /**
+     * 复制延迟查询的字段处理：优先取Seconds_Behind_Master列，否则取第一列。
+     */
+    private void handleLagField(byte[] data) {
+        FieldPacket field = new FieldPacket();
+        field.read(data);
+        if (field.name != null && LAG_COLUMN.equalsIgnoreCase(new String(field.name))) {
+            lagColumn = fieldIndex;
+        }
+        ++fieldIndex;
+    }
+
+    /**
+     * 复制延迟查询的行数据处理，值为NULL(复制已停止)时延迟未知。
+     */
+    private void handleLagRow(byte[] data) {
+        RowDataPacket row = new RowDataPacket(fieldCount);
+        row.read(data);
+        byte[] value = lagColumn < row.fieldValues.size() ? row.fieldValues.get(lagColumn) : null;
+        if (value == null) {
+            lag = -1L;
+            return;
+        }
+        try {
+            lag = (long) Double.parseDouble(new String(value));
+        } catch (NumberFormatException e) {
+            lag = -1L;
+        }
     }
 
 }
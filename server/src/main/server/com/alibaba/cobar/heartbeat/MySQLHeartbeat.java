@@ -32,7 +32,7 @@ import com.alibaba.cobar.statistic.HeartbeatRecorder;
 public class MySQLHeartbeat {
     public static final int OK_STATUS = 1;
     public static final int ERROR_STATUS = -1;
-    private static final int TIMEOUT_STATUS = -2;
+    public static final int TIMEOUT_STATUS = -2;
     private static final int INIT_STATUS = 0;
     private static final int MAX_RETRY_COUNT = 5;
     private static final Logger LOGGER = Logger.getLogger(MySQLHeartbeat.class);
@@ -47,6 +47,9 @@ public class MySQLHeartbeat {
     private int errorCount;
     private volatile int status;
     private MySQLDetector detector;
+    private volatile long lag;
+    private volatile boolean lagExceeded;
+    private final AtomicBoolean isScheduled;
 
     public MySQLHeartbeat(MySQLDataSource source) {
         this.source = source;
@@ -57,6 +60,9 @@ public class MySQLHeartbeat {
         this.lock = new ReentrantLock(false);
         this.maxRetryCount = MAX_RETRY_COUNT;
         this.status = INIT_STATUS;
+        this.lag = -1L;
+        this.lagExceeded = true;
+        this.isScheduled = new AtomicBoolean(false);
     }
 
     public MySQLDataSource getSource() {
@@ -67,6 +73,13 @@ public class MySQLHeartbeat {
         return detector;
     }
 
+    /**
+     * 测试时替换检测连接
+     */
+    void setDetector(MySQLDetector detector) {
+        this.detector = detector;
+    }
+
     public int getStatus() {
         return status;
     }
@@ -83,6 +96,31 @@ public class MySQLHeartbeat {
         return detector.getHeartbeatTimeout();
     }
 
+    /**
+     * @return 最近一次检测到的复制延迟(秒)，-1表示未知。
+     */
+    public long getLag() {
+        return lag;
+    }
+
+    /**
+     * 复制延迟是否在允许范围内，未配置延迟检查时总是返回true。
+     */
+    public boolean isLagAcceptable() {
+        return source.getNode().getConfig().getMaxReplicaLag() <= 0 || !lagExceeded;
+    }
+
+    /**
+     * 标记加入心跳调度，已在调度中时返回false。
+     */
+    public boolean markScheduled() {
+        return isScheduled.compareAndSet(false, true);
+    }
+
+    public void setScheduled(boolean scheduled) {
+        isScheduled.set(scheduled);
+    }
+
     public HeartbeatRecorder getRecorder() {
         return recorder;
     }
@@ -191,6 +229,7 @@ public class MySQLHeartbeat {
 
     private void setOk(MySQLDetector detector) {
         recorder.set(detector.lastReadTime() - detector.lastWriteTime());
+        source.connectionOk();
         switch (status) {
         case TIMEOUT_STATUS:
             this.status = INIT_STATUS;
@@ -205,6 +244,10 @@ public class MySQLHeartbeat {
         default:
             this.status = OK_STATUS;
             this.errorCount = 0;
+            if (!isStop.get() && isNeedDetectLag()) {
+                detector.detectLag(source.getNode().getConfig().getReplicaLagSQL());
+                return;
+            }
             this.isChecking.set(false);
             if (isStop.get()) {
                 detector.quit();
@@ -212,6 +255,42 @@ public class MySQLHeartbeat {
         }
     }
 
+    /**
+     * 设置复制延迟检测结果：延迟超过阈值或未知时停止读，降到阈值的一半以下才恢复读。
+     * 
+     * @param lag 复制延迟(秒)，-1表示未知(如复制已停止)。
+     */
+    public void setLag(long lag, MySQLDetector detector) {
+        long max = source.getNode().getConfig().getMaxReplicaLag();
+        this.lag = lag;
+        if (lag < 0 || lag > max) {
+            if (!lagExceeded) {
+                lagExceeded = true;
+                LOGGER.warn(lagMessage("replica lag exceeded", lag, max));
+            }
+        } else if (lagExceeded && lag <= max / 2) {
+            lagExceeded = false;
+            LOGGER.info(lagMessage("replica lag recovered", lag, max));
+        }
+        this.isChecking.set(false);
+        if (isStop.get()) {
+            detector.quit();
+        }
+    }
+
+    private boolean isNeedDetectLag() {
+        MySQLDataNode node = source.getNode();
+        return node.getConfig().isReadWriteSplit() && node.getConfig().getMaxReplicaLag() > 0
+                && node.getActivedIndex() != source.getIndex();
+    }
+
+    private String lagMessage(String info, long lag, long max) {
+        StringBuilder s = new StringBuilder();
+        s.append(info).append(": [name=").append(source.getNode().getName()).append(':').append(source.getIndex());
+        s.append(",lag=").append(lag).append(",max=").append(max).append(']');
+        return s.toString();
+    }
+
     private void setError(MySQLDetector detector) {
         if (++errorCount < maxRetryCount) {
             isChecking.set(false);
@@ -248,8 +327,9 @@ public class MySQLHeartbeat {
      * switch data source
      */
     private void switchSource(String reason) {
-        if (!isStop.get()) {
-            MySQLDataNode node = source.getNode();
+        MySQLDataNode node = source.getNode();
+        // 只有当前写库异常才需要切换，读库异常时只是不再参与读。
+        if (!isStop.get() && node.getActivedIndex() == source.getIndex()) {
             int i = node.next(source.getIndex());
             node.switchSource(i, true, reason);
         }
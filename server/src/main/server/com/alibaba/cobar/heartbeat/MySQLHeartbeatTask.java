@@ -0,0 +1,85 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.heartbeat;
+
+import com.alibaba.cobar.mysql.MySQLDataSource;
+
+/**
+ * 数据源心跳任务：心跳异常或检测中时按最小周期探测，连续正常后逐步放慢到最大周期。
+ */
+public class MySQLHeartbeatTask implements HeartbeatScheduler.Task {
+    private static final int STABLE_STEP = 6;
+    private static final int MAX_STABLE_COUNT = STABLE_STEP * 32;
+
+    private final MySQLDataSource source;
+    private final long period;
+    private final long minPeriod;
+    private final long maxPeriod;
+    private int stableCount;
+
+    public MySQLHeartbeatTask(MySQLDataSource source, long period, long minPeriod, long maxPeriod) {
+        this.source = source;
+        this.period = period;
+        this.minPeriod = Math.min(minPeriod, period);
+        this.maxPeriod = Math.max(maxPeriod, period);
+    }
+
+    @Override
+    public long execute() {
+        MySQLHeartbeat heartbeat = source.getHeartbeat();
+        if (source.isRetired()) {
+            heartbeat.setScheduled(false);
+            return -1L;
+        }
+        if (!source.getNode().isHeartbeatSource(source)) {
+            stableCount = 0;
+            return period;
+        }
+        // 按本次探测之前的结果计算周期，doHeartbeat()发出探测后总是处于检测中
+        boolean isChecking = heartbeat.isChecking();
+        int status = heartbeat.getStatus();
+        int errorCount = heartbeat.getErrorCount();
+        source.doHeartbeat();
+        return nextPeriod(isChecking, status, errorCount);
+    }
+
+    /**
+     * 根据心跳状态计算下次执行的周期
+     */
+    long nextPeriod(boolean isChecking, int status, int errorCount) {
+        if (status == MySQLHeartbeat.ERROR_STATUS || status == MySQLHeartbeat.TIMEOUT_STATUS || errorCount > 0) {
+            stableCount = 0;
+            return minPeriod;
+        }
+        if (isChecking) {
+            // 检测未完成时尽快复查超时，但不打断稳定计数
+            return minPeriod;
+        }
+        if (status != MySQLHeartbeat.OK_STATUS) {
+            stableCount = 0;
+            return period;
+        }
+        if (stableCount < MAX_STABLE_COUNT) {
+            ++stableCount;
+        }
+        long p = period;
+        for (int i = stableCount / STABLE_STEP; i > 0 && p < maxPeriod; i--) {
+            p <<= 1;
+        }
+        return Math.min(p, maxPeriod);
+    }
+
+}
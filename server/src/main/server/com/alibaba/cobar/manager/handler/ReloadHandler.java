@@ -19,6 +19,7 @@ import com.alibaba.cobar.config.ErrorCode;
 import com.alibaba.cobar.manager.ManagerConnection;
 import com.alibaba.cobar.manager.parser.ManagerParseReload;
 import com.alibaba.cobar.manager.response.ReloadConfig;
+import com.alibaba.cobar.manager.response.ReloadRoute;
 import com.alibaba.cobar.manager.response.ReloadUser;
 
 /**
@@ -33,7 +34,7 @@ public final class ReloadHandler {
             ReloadConfig.execute(c);
             break;
         case ManagerParseReload.ROUTE:
-            c.writeErrMessage(ErrorCode.ER_YES, "Unsupported statement");
+            ReloadRoute.execute(c);
             break;
         case ManagerParseReload.USER:
             ReloadUser.execute(c);
@@ -15,7 +15,9 @@
  */
 package com.alibaba.cobar.manager.response;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
@@ -31,7 +33,7 @@ import com.alibaba.cobar.config.model.SchemaConfig;
 import com.alibaba.cobar.config.model.UserConfig;
 import com.alibaba.cobar.manager.ManagerConnection;
 import com.alibaba.cobar.mysql.MySQLDataNode;
-import com.alibaba.cobar.mysql.MySQLDataSource;
+import com.alibaba.cobar.mysql.MySQLDataNodeInitializer;
 import com.alibaba.cobar.net.mysql.OkPacket;
 
 /**
@@ -75,29 +77,14 @@ public final class ReloadConfig {
         // 应用新配置
         CobarConfig conf = CobarServer.getInstance().getConfig();
 
-        // 如果重载已经存在的数据节点，初始化连接数参考空闲连接数，否则为1。
-        boolean reloadStatus = true;
+        // 配置未变化的数据节点沿用原有连接池，其余节点并行初始化。
         Map<String, MySQLDataNode> cNodes = conf.getDataNodes();
-        for (MySQLDataNode dn : dataNodes.values()) {
-            MySQLDataNode cdn = cNodes.get(dn.getName());
-            if (cdn != null && cdn.getSource() != null) {
-                int size = Math.min(cdn.getSource().getIdleCount(), dn.getConfig().getPoolSize());
-                dn.init(size > 0 ? size : 1, 0);
-            } else {
-                dn.init(1, 0);
-            }
-            if (!dn.isInitSuccess()) {
-                reloadStatus = false;
-                break;
-            }
-        }
-        // 如果重载不成功，则清理已初始化的资源。
-        if (!reloadStatus) {
-            for (MySQLDataNode dn : dataNodes.values()) {
-                MySQLDataSource ds = dn.getSource();
-                if (ds != null) {
-                    ds.clear();
-                }
+        List<MySQLDataNode> changed = MySQLDataNodeInitializer.reuse(dataNodes, cNodes);
+        Executor executor = CobarServer.getInstance().getInitExecutor();
+        if (!MySQLDataNodeInitializer.init(changed, cNodes, false, executor)) {
+            // 如果重载不成功，则清理已初始化的资源。
+            for (MySQLDataNode dn : changed) {
+                dn.retire();
             }
             return false;
         }
@@ -105,13 +92,8 @@ public final class ReloadConfig {
         // 应用重载
         conf.reload(users, schemas, dataNodes, dataSources, cluster, quarantine);
 
-        // 处理旧的资源
-        for (MySQLDataNode dn : cNodes.values()) {
-            MySQLDataSource ds = dn.getSource();
-            if (ds != null) {
-                ds.clear();
-            }
-        }
+        // 处理旧的资源，正在使用的连接在释放时关闭。
+        MySQLDataNodeInitializer.retire(cNodes.values(), dataNodes);
 
         return true;
     }
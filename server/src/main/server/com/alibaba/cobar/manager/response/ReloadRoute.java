@@ -0,0 +1,110 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.manager.response;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.alibaba.cobar.CobarConfig;
+import com.alibaba.cobar.CobarServer;
+import com.alibaba.cobar.config.ErrorCode;
+import com.alibaba.cobar.config.model.SchemaConfig;
+import com.alibaba.cobar.config.model.TableConfig;
+import com.alibaba.cobar.config.model.rule.ReloadableRuleAlgorithm;
+import com.alibaba.cobar.config.model.rule.RuleAlgorithm;
+import com.alibaba.cobar.config.model.rule.RuleConfig;
+import com.alibaba.cobar.config.model.rule.TableRuleConfig;
+import com.alibaba.cobar.manager.ManagerConnection;
+import com.alibaba.cobar.net.mysql.OkPacket;
+
+/**
+ * 只重载路由函数的外部映射文件，不重建整个配置
+ */
+public final class ReloadRoute {
+    private static final Logger LOGGER = Logger.getLogger(ReloadRoute.class);
+
+    public static void execute(ManagerConnection c) {
+        CobarConfig conf = CobarServer.getInstance().getConfig();
+        conf.getLock().lock();
+        try {
+            int count = reload(conf.getSchemas());
+            StringBuilder s = new StringBuilder();
+            s.append(c).append("Reload route success by manager, changed: ").append(count);
+            LOGGER.warn(s.toString());
+            OkPacket ok = new OkPacket();
+            ok.packetId = 1;
+            ok.affectedRows = count;
+            ok.serverStatus = 2;
+            ok.message = "Reload route success".getBytes();
+            ok.write(c);
+        } catch (RuntimeException e) {
+            LOGGER.warn(new StringBuilder().append(c).append("Reload route failure").toString(), e);
+            c.writeErrMessage(ErrorCode.ER_YES, "Reload route failure: " + e.getMessage());
+        } finally {
+            conf.getLock().unlock();
+        }
+    }
+
+    /**
+     * 先载入全部映射文件，检查新映射的分区下标都在使用它的表的数据节点范围内，全部通过后再一起生效。
+     * 
+     * @return 映射发生变化的算法数
+     */
+    static int reload(Map<String, SchemaConfig> schemas) {
+        Map<RuleAlgorithm, Integer> prepared = new IdentityHashMap<RuleAlgorithm, Integer>();
+        List<ReloadableRuleAlgorithm> changed = new ArrayList<ReloadableRuleAlgorithm>();
+        for (SchemaConfig schema : schemas.values()) {
+            if (schema.isNoSharding()) {
+                continue;
+            }
+            for (TableConfig table : schema.getTables().values()) {
+                TableRuleConfig tableRule = table.getRule();
+                if (tableRule == null) {
+                    continue;
+                }
+                for (RuleConfig rule : tableRule.getRules()) {
+                    RuleAlgorithm algorithm = rule.getRuleAlgorithm();
+                    if (!(algorithm instanceof ReloadableRuleAlgorithm)) {
+                        continue;
+                    }
+                    Integer max = prepared.get(algorithm);
+                    if (max == null) {
+                        ReloadableRuleAlgorithm reloadable = (ReloadableRuleAlgorithm) algorithm;
+                        max = reloadable.prepareReload();
+                        prepared.put(algorithm, max);
+                        if (max >= 0) {
+                            changed.add(reloadable);
+                        }
+                    }
+                    int nodes = table.getDataNodes().length;
+                    if (max >= nodes) {
+                        throw new IllegalArgumentException("partition " + max + " out of range for table "
+                                + table.getName() + " with " + nodes + " data nodes");
+                    }
+                }
+            }
+        }
+        for (ReloadableRuleAlgorithm algorithm : changed) {
+            algorithm.commitReload();
+        }
+        return changed.size();
+    }
+
+}
@@ -15,13 +15,24 @@
  */
 package com.alibaba.cobar.manager.response;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
 import org.apache.log4j.Logger;
 
+import com.alibaba.cobar.CobarConfig;
+import com.alibaba.cobar.CobarServer;
 import com.alibaba.cobar.config.ErrorCode;
+import com.alibaba.cobar.config.loader.xml.XMLServerLoader;
+import com.alibaba.cobar.config.model.UserConfig;
+import com.alibaba.cobar.config.util.ConfigException;
 import com.alibaba.cobar.manager.ManagerConnection;
 import com.alibaba.cobar.net.mysql.OkPacket;
 
 /**
+ * 重载server.xml中的用户和隔离区配置，并重建认证信息快照
+ * 
  * @author xianmao.hexm
  */
 public final class ReloadUser {
@@ -29,19 +40,43 @@ public final class ReloadUser {
     private static final Logger logger = Logger.getLogger(ReloadUser.class);
 
     public static void execute(ManagerConnection c) {
-        boolean status = false;
-        if (status) {
-            StringBuilder s = new StringBuilder();
-            s.append(c).append("Reload userConfig success by manager");
-            logger.warn(s.toString());
-            OkPacket ok = new OkPacket();
-            ok.packetId = 1;
-            ok.affectedRows = 1;
-            ok.serverStatus = 2;
-            ok.message = "Reload userConfig success".getBytes();
-            ok.write(c);
-        } else {
-            c.writeErrMessage(ErrorCode.ER_YES, "Unsupported statement");
+        CobarConfig conf = CobarServer.getInstance().getConfig();
+        final ReentrantLock lock = conf.getLock();
+        lock.lock();
+        try {
+            XMLServerLoader loader = new XMLServerLoader();
+            Map<String, UserConfig> users = loader.getUsers();
+            check(users, conf);
+            conf.reloadUsers(users, loader.getQuarantine());
+        } catch (Throwable e) {
+            logger.warn(c + "Reload userConfig failure", e);
+            c.writeErrMessage(ErrorCode.ER_YES, "Reload userConfig failure: " + e.getMessage());
+            return;
+        } finally {
+            lock.unlock();
+        }
+        StringBuilder s = new StringBuilder();
+        s.append(c).append("Reload userConfig success by manager");
+        logger.warn(s.toString());
+        OkPacket ok = new OkPacket();
+        ok.packetId = 1;
+        ok.affectedRows = 1;
+        ok.serverStatus = 2;
+        ok.message = "Reload userConfig success".getBytes();
+        ok.write(c);
+    }
+
+    private static void check(Map<String, UserConfig> users, CobarConfig conf) {
+        for (UserConfig uc : users.values()) {
+            Set<String> schemas = uc.getSchemas();
+            if (schemas == null) {
+                continue;
+            }
+            for (String schema : schemas) {
+                if (!conf.getSchemas().containsKey(schema)) {
+                    throw new ConfigException("schema " + schema + " refered by user " + uc.getName() + " is not exist!");
+                }
+            }
         }
     }
 
@@ -16,11 +16,14 @@
 package com.alibaba.cobar.manager.response;
 
 import java.nio.ByteBuffer;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
 
 import com.alibaba.cobar.CobarServer;
 import com.alibaba.cobar.config.Fields;
 import com.alibaba.cobar.manager.ManagerConnection;
 import com.alibaba.cobar.mysql.PacketUtil;
+import com.alibaba.cobar.net.CompressedPacketCodec;
 import com.alibaba.cobar.net.FrontendConnection;
 import com.alibaba.cobar.net.NIOProcessor;
 import com.alibaba.cobar.net.buffer.BufferQueue;
@@ -42,11 +45,13 @@ import com.alibaba.cobar.util.TimeUtil;
  */
 public final class ShowConnection {
 
-    private static final int FIELD_COUNT = 14;
+    private static final NumberFormat nf = DecimalFormat.getInstance();
+    private static final int FIELD_COUNT = 16;
     private static final ResultSetHeaderPacket header = PacketUtil.getHeader(FIELD_COUNT);
     private static final FieldPacket[] fields = new FieldPacket[FIELD_COUNT];
     private static final EOFPacket eof = new EOFPacket();
     static {
+        nf.setMaximumFractionDigits(3);
         int i = 0;
         byte packetId = 0;
         header.packetId = ++packetId;
@@ -93,6 +98,12 @@ public final class ShowConnection {
         fields[i] = PacketUtil.getField("CHANNELS", Fields.FIELD_TYPE_LONG);
         fields[i++].packetId = ++packetId;
 
+        fields[i] = PacketUtil.getField("COMPRESS_RATIO", Fields.FIELD_TYPE_VAR_STRING);
+        fields[i++].packetId = ++packetId;
+
+        fields[i] = PacketUtil.getField("COMPRESS_TIME(MS)", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].packetId = ++packetId;
+
         eof.packetId = ++packetId;
     }
 
@@ -151,10 +162,20 @@ public final class ShowConnection {
         row.add(IntegerUtil.toBytes(bq == null ? 0 : bq.size()));
         if (c instanceof ServerConnection) {
             ServerConnection sc = (ServerConnection) c;
-            row.add(IntegerUtil.toBytes(sc.getSession().getTargetCount()));
+            row.add(IntegerUtil.toBytes(sc.getSession().getTargetCount() + sc.getSession2().getTargetCount()));
         } else {
             row.add(null);
         }
+        CompressedPacketCodec codec = c.getCompressCodec();
+        if (codec != null) {
+            long raw = codec.getRawBytes();
+            double ratio = raw == 0 ? 1.0 : (double) codec.getNetBytes() / raw;
+            row.add(StringUtil.encode(nf.format(ratio), charset));
+            row.add(LongUtil.toBytes(codec.getTime() / 1000000L));
+        } else {
+            row.add(null);
+            row.add(null);
+        }
         return row;
     }
 
@@ -31,6 +31,7 @@ import com.alibaba.cobar.heartbeat.CobarHeartbeat;
 import com.alibaba.cobar.heartbeat.MySQLHeartbeat;
 import com.alibaba.cobar.manager.ManagerConnection;
 import com.alibaba.cobar.mysql.MySQLDataNode;
+import com.alibaba.cobar.mysql.MySQLDataSource;
 import com.alibaba.cobar.mysql.PacketUtil;
 import com.alibaba.cobar.net.mysql.EOFPacket;
 import com.alibaba.cobar.net.mysql.FieldPacket;
@@ -46,7 +47,7 @@ import com.alibaba.cobar.util.LongUtil;
  */
 public class ShowHeartbeat {
 
-    private static final int FIELD_COUNT = 11;
+    private static final int FIELD_COUNT = 12;
     private static final ResultSetHeaderPacket header = PacketUtil.getHeader(FIELD_COUNT);
     private static final FieldPacket[] fields = new FieldPacket[FIELD_COUNT];
     private static final EOFPacket eof = new EOFPacket();
@@ -88,6 +89,9 @@ public class ShowHeartbeat {
         fields[i] = PacketUtil.getField("STOP", Fields.FIELD_TYPE_VAR_STRING);
         fields[i++].packetId = ++packetId;
 
+        fields[i] = PacketUtil.getField("LAG", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].packetId = ++packetId;
+
         eof.packetId = ++packetId;
     }
 
@@ -147,6 +151,7 @@ public class ShowHeartbeat {
                 String at = hb.lastActiveTime();
                 row.add(at == null ? null : at.getBytes());
                 row.add(hb.isStop() ? "true".getBytes() : "false".getBytes());
+                row.add(null);
                 list.add(row);
             }
         }
@@ -159,38 +164,47 @@ public class ShowHeartbeat {
         for (String key : dataNodeKeys) {
             MySQLDataNode node = dataNodes.get(key);
             if (node != null) {
-                MySQLHeartbeat hb = node.getHeartbeat();
-                RowDataPacket row = new RowDataPacket(FIELD_COUNT);
-                row.add(node.getName().getBytes());
-                row.add("MYSQL".getBytes());
-                if (hb != null) {
-                    row.add(hb.getSource().getConfig().getHost().getBytes());
-                    row.add(IntegerUtil.toBytes(hb.getSource().getConfig().getPort()));
-                    row.add(IntegerUtil.toBytes(hb.getStatus()));
-                    row.add(IntegerUtil.toBytes(hb.getErrorCount()));
-                    row.add(hb.isChecking() ? "checking".getBytes() : "idle".getBytes());
-                    row.add(LongUtil.toBytes(hb.getTimeout()));
-                    row.add(hb.getRecorder().get().getBytes());
-                    String lat = hb.getLastActiveTime();
-                    row.add(lat == null ? null : lat.getBytes());
-                    row.add(hb.isStop() ? "true".getBytes() : "false".getBytes());
-                } else {
-                    row.add(null);
-                    row.add(null);
-                    row.add(null);
-                    row.add(null);
-                    row.add(null);
-                    row.add(null);
-                    row.add(null);
-                    row.add(null);
-                    row.add(null);
+                list.add(getRow(node.getName(), node.getHeartbeat()));
+
+                // 读写分离时备库也在做心跳，单独列出
+                MySQLDataSource[] sources = node.getSources();
+                if (node.getConfig().isReadWriteSplit() && sources != null) {
+                    for (MySQLDataSource ds : sources) {
+                        if (ds.getIndex() != node.getActivedIndex()) {
+                            list.add(getRow(node.getName() + '.' + ds.getIndex(), ds.getHeartbeat()));
+                        }
+                    }
                 }
-                list.add(row);
             }
         }
         return list;
     }
 
+    private static RowDataPacket getRow(String name, MySQLHeartbeat hb) {
+        RowDataPacket row = new RowDataPacket(FIELD_COUNT);
+        row.add(name.getBytes());
+        row.add("MYSQL".getBytes());
+        if (hb != null) {
+            row.add(hb.getSource().getConfig().getHost().getBytes());
+            row.add(IntegerUtil.toBytes(hb.getSource().getConfig().getPort()));
+            row.add(IntegerUtil.toBytes(hb.getStatus()));
+            row.add(IntegerUtil.toBytes(hb.getErrorCount()));
+            row.add(hb.isChecking() ? "checking".getBytes() : "idle".getBytes());
+            row.add(LongUtil.toBytes(hb.getTimeout()));
+            row.add(hb.getRecorder().get().getBytes());
+            String lat = hb.getLastActiveTime();
+            row.add(lat == null ? null : lat.getBytes());
+            row.add(hb.isStop() ? "true".getBytes() : "false".getBytes());
+            long lag = hb.getLag();
+            row.add(lag < 0 ? null : LongUtil.toBytes(lag));
+        } else {
+            for (int i = 2; i < FIELD_COUNT; i++) {
+                row.add(null);
+            }
+        }
+        return row;
+    }
+
     private static final class Comparators<T> implements Comparator<String> {
         @Override
         public int compare(String s1, String s2) {
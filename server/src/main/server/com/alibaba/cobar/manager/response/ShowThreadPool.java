@@ -41,7 +41,7 @@ import com.alibaba.cobar.util.StringUtil;
  */
 public final class ShowThreadPool {
 
-    private static final int FIELD_COUNT = 6;
+    private static final int FIELD_COUNT = 7;
     private static final ResultSetHeaderPacket header = PacketUtil.getHeader(FIELD_COUNT);
     private static final FieldPacket[] fields = new FieldPacket[FIELD_COUNT];
     private static final EOFPacket eof = new EOFPacket();
@@ -68,6 +68,9 @@ public final class ShowThreadPool {
         fields[i] = PacketUtil.getField("TOTAL_TASK", Fields.FIELD_TYPE_LONGLONG);
         fields[i++].packetId = ++packetId;
 
+        fields[i] = PacketUtil.getField("SHED_TASK", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].packetId = ++packetId;
+
         eof.packetId = ++packetId;
     }
 
@@ -113,6 +116,7 @@ public final class ShowThreadPool {
         row.add(IntegerUtil.toBytes(exec.getQueue().size()));
         row.add(LongUtil.toBytes(exec.getCompletedTaskCount()));
         row.add(LongUtil.toBytes(exec.getTaskCount()));
+        row.add(LongUtil.toBytes(exec.getShedCount()));
         return row;
     }
 
@@ -21,12 +21,15 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
 
 import com.alibaba.cobar.config.Alarms;
 import com.alibaba.cobar.config.model.DataNodeConfig;
+import com.alibaba.cobar.config.model.DataSourceConfig;
 import com.alibaba.cobar.config.util.ConfigException;
 import com.alibaba.cobar.heartbeat.MySQLHeartbeat;
 import com.alibaba.cobar.mysql.bio.Channel;
@@ -37,6 +40,7 @@ import com.alibaba.cobar.parser.ast.stmt.SQLStatement;
 import com.alibaba.cobar.parser.recognizer.SQLParserDelegate;
 import com.alibaba.cobar.parser.visitor.EmptySQLASTVisitor;
 import com.alibaba.cobar.parser.visitor.MySQLOutputASTVisitor;
+import com.alibaba.cobar.util.ObjectUtil;
 import com.alibaba.cobar.util.TimeUtil;
 
 /**
@@ -55,6 +59,7 @@ public final class MySQLDataNode {
     private long heartbeatRecoveryTime;
     private volatile boolean initSuccess;
     private final ReentrantLock switchLock;
+    private final Condition sourceChanged;
 
     private SQLStatement heartbeatAST;// 动态心跳语句AST
     private Map<PlaceHolder, Object> placeHolderToStringer;
@@ -66,12 +71,21 @@ public final class MySQLDataNode {
         this.activedIndex = 0;
         this.heartbeatRecoveryTime = -1L;
         this.switchLock = new ReentrantLock();
+        this.sourceChanged = switchLock.newCondition();
     }
 
     public void init(int size, int index) {
         if (!checkIndex(index)) {
             index = 0;
         }
+        for (MySQLDataSource ds : sources) {
+            ds.setRetired(false);
+        }
+        if (dataSources != null) {
+            for (MySQLConnectionPool pool : dataSources) {
+                pool.setRetired(false);
+            }
+        }
         int active = -1;
         for (int i = 0; i < sources.length; i++) {
             int j = loop(i + index);
@@ -190,16 +204,59 @@ public final class MySQLDataNode {
         }
     }
 
+    /**
+     * 取得读通道：开启读写分离时，在健康的读库中按权重选择使用中通道最少的数据源，没有可用读库时使用写库。
+     */
+    public Channel getReadChannel() throws Exception {
+        if (!config.isReadWriteSplit()) {
+            return getChannel(activedIndex);
+        }
+        return getChannel(selectReadIndex());
+    }
+
+    private int selectReadIndex() {
+        final MySQLDataSource[] sources = this.sources;
+        int active = activedIndex;
+        int selected = active;
+        MySQLDataSource best = null;
+        for (int i = 0; i < sources.length; i++) {
+            MySQLDataSource ds = sources[i];
+            if (i == active || !ds.isReadable()) {
+                continue;
+            }
+            // (active + 1) / weight 最小者优先
+            if (best == null
+                    || (ds.getActiveCount() + 1L) * best.getConfig().getWeight() < (best.getActiveCount() + 1L)
+                            * ds.getConfig().getWeight()) {
+                best = ds;
+                selected = i;
+            }
+        }
+        return selected;
+    }
+
     public void getConnection(ResponseHandler handler, Object attachment) throws Exception {
         getConnection(handler, attachment, activedIndex);
     }
 
     public void getConnection(ResponseHandler handler, Object attachment, int i) throws Exception {
-        if (initSuccess) {
+        if (initSuccess && dataSources != null && i >= 0 && i < dataSources.length) {
             MySQLConnectionPool pool = dataSources[i];
+            ++executeCount;
             pool.getConnection(handler, attachment);
         } else {
-            throw new IllegalArgumentException("Invalid DataSource:" + activedIndex);
+            throw new IllegalArgumentException("Invalid DataSource:" + i);
+        }
+    }
+
+    /**
+     * 取得读连接，数据源的选择同{@link #getReadChannel()}。
+     */
+    public void getReadConnection(ResponseHandler handler, Object attachment) throws Exception {
+        if (!config.isReadWriteSplit()) {
+            getConnection(handler, attachment, activedIndex);
+        } else {
+            getConnection(handler, attachment, selectReadIndex());
         }
     }
 
@@ -237,14 +294,20 @@ public final class MySQLDataNode {
             if (current != newIndex) {
                 // 清理即将使用的数据源并开启心跳
                 sources[newIndex].clear();
+                clearPool(newIndex);
                 sources[newIndex].startHeartbeat();
 
                 // 执行切换赋值
                 activedIndex = newIndex;
 
-                // 清理切换前的数据源
+                // 清理切换前的数据源，读写分离时该数据源作为读库继续心跳。
                 sources[current].clear();
-                sources[current].stopHeartbeat();
+                clearPool(current);
+                if (!config.isReadWriteSplit()) {
+                    sources[current].stopHeartbeat();
+                }
+
+                sourceChanged.signalAll();
 
                 // 记录切换日志
                 if (isAlarm) {
@@ -261,6 +324,104 @@ public final class MySQLDataNode {
         return false;
     }
 
+    /**
+     * 等待数据源故障确认：index对应的数据源仍是当前数据源并且有未确认的连接异常时，等待心跳确认其恢复或切换到新的数据源。
+     */
+    public void awaitFailover(int index, long timeout) {
+        if (!checkIndex(index)) {
+            return;
+        }
+        final ReentrantLock lock = this.switchLock;
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (nanos > 0 && activedIndex == index && sources[index].isSuspect()) {
+                nanos = sourceChanged.awaitNanos(nanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 通知等待故障确认的线程：数据源的连接异常已被心跳确认恢复。
+     */
+    void signalSourceChanged() {
+        final ReentrantLock lock = this.switchLock;
+        lock.lock();
+        try {
+            sourceChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 判断两个数据节点的配置(包括其所有数据源配置)是否完全相同
+     */
+    public boolean isSameConfig(MySQLDataNode other) {
+        if (other == null) {
+            return false;
+        }
+        DataNodeConfig c1 = this.config;
+        DataNodeConfig c2 = other.config;
+        if (!ObjectUtil.equals(c1.getName(), c2.getName())
+                || !ObjectUtil.equals(c1.getDataSource(), c2.getDataSource())
+                || !ObjectUtil.equals(c1.getHeartbeatSQL(), c2.getHeartbeatSQL())
+                || c1.getPoolSize() != c2.getPoolSize()
+                || c1.getWaitTimeout() != c2.getWaitTimeout()
+                || c1.getIdleTimeout() != c2.getIdleTimeout()
+                || c1.getHeartbeatTimeout() != c2.getHeartbeatTimeout()
+                || c1.getHeartbeatRetry() != c2.getHeartbeatRetry()
+                || c1.isReadWriteSplit() != c2.isReadWriteSplit()
+                || c1.getMaxReplicaLag() != c2.getMaxReplicaLag()
+                || !ObjectUtil.equals(c1.getReplicaLagSQL(), c2.getReplicaLagSQL())
+                || c1.getReadRetry() != c2.getReadRetry()
+                || c1.getFailoverWaitTimeout() != c2.getFailoverWaitTimeout()) {
+            return false;
+        }
+        MySQLDataSource[] s1 = this.sources;
+        MySQLDataSource[] s2 = other.sources;
+        if (s1 == null || s2 == null || s1.length != s2.length) {
+            return s1 == s2;
+        }
+        for (int i = 0; i < s1.length; i++) {
+            DataSourceConfig d1 = s1[i].getConfig();
+            DataSourceConfig d2 = s2[i].getConfig();
+            if (!ObjectUtil.equals(d1.getName(), d2.getName())
+                    || !ObjectUtil.equals(d1.getType(), d2.getType())
+                    || !ObjectUtil.equals(d1.getHost(), d2.getHost())
+                    || d1.getPort() != d2.getPort()
+                    || !ObjectUtil.equals(d1.getUser(), d2.getUser())
+                    || !ObjectUtil.equals(d1.getPassword(), d2.getPassword())
+                    || !ObjectUtil.equals(d1.getDatabase(), d2.getDatabase())
+                    || !ObjectUtil.equals(d1.getSqlMode(), d2.getSqlMode())
+                    || d1.getSqlRecordCount() != d2.getSqlRecordCount()
+                    || d1.getWeight() != d2.getWeight()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 退役该节点下的所有数据源，使用中的通道在释放时关闭。
+     */
+    public void retire() {
+        for (MySQLDataSource ds : sources) {
+            if (ds != null) {
+                ds.retire();
+            }
+        }
+        if (dataSources != null) {
+            for (MySQLConnectionPool pool : dataSources) {
+                pool.retire();
+            }
+        }
+    }
+
     /**
      * 空闲检查
      */
@@ -270,6 +431,11 @@ public final class MySQLDataNode {
                 ds.idleCheck(config.getIdleTimeout());
             }
         }
+        if (dataSources != null) {
+            for (MySQLConnectionPool pool : dataSources) {
+                pool.idleCheck(config.getIdleTimeout());
+            }
+        }
     }
 
     public MySQLHeartbeat getHeartbeat() {
@@ -285,6 +451,12 @@ public final class MySQLDataNode {
     }
 
     public void startHeartbeat() {
+        if (config.isReadWriteSplit()) {
+            for (MySQLDataSource ds : sources) {
+                ds.startHeartbeat();
+            }
+            return;
+        }
         MySQLDataSource source = this.getSource();
         if (source != null) {
             source.startHeartbeat();
@@ -296,6 +468,12 @@ public final class MySQLDataNode {
     }
 
     public void stopHeartbeat() {
+        if (config.isReadWriteSplit()) {
+            for (MySQLDataSource ds : sources) {
+                ds.stopHeartbeat();
+            }
+            return;
+        }
         MySQLDataSource source = this.getSource();
         if (source != null) {
             source.stopHeartbeat();
@@ -322,6 +500,14 @@ public final class MySQLDataNode {
             return;
         }
 
+        // 读写分离时所有数据源都需要心跳检测
+        if (config.isReadWriteSplit()) {
+            for (MySQLDataSource ds : sources) {
+                ds.doHeartbeat();
+            }
+            return;
+        }
+
         // 准备执行心跳检测
         MySQLDataSource source = this.getSource();
         if (source != null) {
@@ -333,6 +519,19 @@ public final class MySQLDataNode {
         }
     }
 
+    /**
+     * 数据源当前是否需要执行心跳检测，供心跳调度器按数据源调度时使用。
+     */
+    public boolean isHeartbeatSource(MySQLDataSource ds) {
+        if (!config.isNeedHeartbeat() || ds.getNode() != this) {
+            return false;
+        }
+        if (TimeUtil.currentTimeMillis() < heartbeatRecoveryTime) {
+            return false;
+        }
+        return config.isReadWriteSplit() || ds.getIndex() == activedIndex;
+    }
+
     public int next(int i) {
         if (checkIndex(i)) {
             return (++i == sources.length) ? 0 : i;
@@ -349,6 +548,12 @@ public final class MySQLDataNode {
         return i >= 0 && i < sources.length;
     }
 
+    private void clearPool(int i) {
+        if (dataSources != null) {
+            dataSources[i].clear();
+        }
+    }
+
     private boolean initSource(MySQLDataSource ds, int size) {
         boolean success = true;
         Channel[] list = new Channel[size < ds.size() ? size : ds.size()];
@@ -0,0 +1,124 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.mysql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+/**
+ * 数据节点的增量初始化：配置未变化的节点沿用原有连接池，变化的节点并行初始化。
+ */
+public final class MySQLDataNodeInitializer {
+    private static final Logger LOGGER = Logger.getLogger(MySQLDataNodeInitializer.class);
+
+    /**
+     * 将新配置中与当前配置相同的数据节点替换为当前正在使用的节点
+     * 
+     * @return 需要重新初始化的数据节点
+     */
+    public static List<MySQLDataNode> reuse(Map<String, MySQLDataNode> dataNodes, Map<String, MySQLDataNode> cNodes) {
+        List<MySQLDataNode> changed = new ArrayList<MySQLDataNode>(dataNodes.size());
+        for (Map.Entry<String, MySQLDataNode> en : dataNodes.entrySet()) {
+            MySQLDataNode dn = en.getValue();
+            MySQLDataNode cdn = cNodes == null ? null : cNodes.get(en.getKey());
+            if (cdn == dn) {
+                continue;
+            }
+            if (cdn != null && cdn.isInitSuccess() && cdn.isSameConfig(dn)) {
+                en.setValue(cdn);
+            } else {
+                changed.add(dn);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 在执行器上并行初始化数据节点。对于已经存在的数据节点，初始化连接数参考空闲连接数，否则为1。
+     * 
+     * @param keepIndex 是否从节点当前的数据源位置开始初始化
+     * @return 所有节点是否都初始化成功
+     */
+    public static boolean init(Collection<MySQLDataNode> nodes, final Map<String, MySQLDataNode> cNodes,
+                               final boolean keepIndex, Executor executor) {
+        final CountDownLatch latch = new CountDownLatch(nodes.size());
+        final AtomicBoolean success = new AtomicBoolean(true);
+        for (final MySQLDataNode dn : nodes) {
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (success.get()) {
+                            dn.init(initSize(dn, cNodes), keepIndex ? dn.getActivedIndex() : 0);
+                            if (!dn.isInitSuccess()) {
+                                success.set(false);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        success.set(false);
+                        LOGGER.warn(dn.getName() + " init error.", e);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return success.get();
+    }
+
+    /**
+     * 退役旧配置中未被新配置沿用的数据节点，其连接在使用完毕后关闭。
+     */
+    public static void retire(Collection<MySQLDataNode> oldNodes, Map<String, MySQLDataNode> dataNodes) {
+        if (oldNodes == null) {
+            return;
+        }
+        for (MySQLDataNode dn : oldNodes) {
+            if (dn != null && dataNodes.get(dn.getName()) != dn) {
+                dn.retire();
+            }
+        }
+    }
+
+    private static int initSize(MySQLDataNode dn, Map<String, MySQLDataNode> cNodes) {
+        MySQLDataNode cdn = cNodes == null ? null : cNodes.get(dn.getName());
+        if (cdn != null && cdn.getSource() != null) {
+            int size = Math.min(cdn.getSource().getIdleCount(), dn.getConfig().getPoolSize());
+            return size > 0 ? size : 1;
+        }
+        return 1;
+    }
+
+}
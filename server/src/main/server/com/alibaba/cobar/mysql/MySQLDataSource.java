@@ -15,6 +15,7 @@
  */
 package com.alibaba.cobar.mysql;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
@@ -47,6 +48,9 @@ public final class MySQLDataSource {
     private final ChannelFactory factory;
     private final MySQLHeartbeat heartbeat;
     private final SQLRecorder sqlRecorder;
+    private volatile boolean retired;
+    private volatile int autoIncrementIncrement;
+    private final AtomicInteger connectionErrors;
 
     public MySQLDataSource(MySQLDataNode node, int index, DataSourceConfig config, int size) {
         this.node = node;
@@ -59,6 +63,7 @@ public final class MySQLDataSource {
         this.factory = new MySQLChannelFactory();
         this.heartbeat = new MySQLHeartbeat(this);
         this.sqlRecorder = new SQLRecorder(config.getSqlRecordCount());
+        this.connectionErrors = new AtomicInteger(0);
     }
 
     public MySQLDataNode getNode() {
@@ -97,6 +102,73 @@ public final class MySQLDataSource {
         return sqlRecorder;
     }
 
+    /**
+     * 后端的auto_increment_increment，建立连接时读取，0表示还未读取
+     */
+    public int getAutoIncrementIncrement() {
+        return autoIncrementIncrement;
+    }
+
+    public void setAutoIncrementIncrement(int autoIncrementIncrement) {
+        this.autoIncrementIncrement = autoIncrementIncrement;
+    }
+
+    public boolean isRetired() {
+        return retired;
+    }
+
+    public void setRetired(boolean retired) {
+        this.retired = retired;
+    }
+
+    /**
+     * 是否可以作为读库使用：权重大于0，未退役，没有未确认的连接异常，最近一次心跳正常且复制延迟在允许范围内。
+     */
+    public boolean isReadable() {
+        return config.getWeight() > 0 && !retired && !isSuspect()
+                && heartbeat.getStatus() == MySQLHeartbeat.OK_STATUS && heartbeat.isLagAcceptable();
+    }
+
+    /**
+     * 业务请求遇到后端连接异常(连接拒绝、连接重置等)，记录并立即发起一次心跳检测，不必等待下一个心跳周期。
+     */
+    public void connectionError() {
+        connectionErrors.incrementAndGet();
+        doHeartbeat();
+    }
+
+    /**
+     * 后端连接已确认正常(心跳成功或新建连接成功)，清除连接异常计数。
+     */
+    public void connectionOk() {
+        if (connectionErrors.get() > 0) {
+            connectionErrors.set(0);
+            node.signalSourceChanged();
+        }
+    }
+
+    /**
+     * @return 最近一次确认正常以来的连接异常次数
+     */
+    public int getConnectionErrors() {
+        return connectionErrors.get();
+    }
+
+    /**
+     * 是否有未经心跳确认的连接异常
+     */
+    public boolean isSuspect() {
+        return connectionErrors.get() > 0;
+    }
+
+    /**
+     * 停止复用该数据源：关闭空闲通道，使用中的通道在释放时直接关闭。
+     */
+    public void retire() {
+        retired = true;
+        clear();
+    }
+
     public void startHeartbeat() {
         heartbeat.start();
     }
@@ -165,8 +237,10 @@ public final class MySQLDataSource {
                 lock.unlock();
             }
             c.closeNoActive();
+            connectionError();
             throw e;
         }
+        connectionOk();
         return c;
     }
 
@@ -176,6 +250,12 @@ public final class MySQLDataSource {
             return;
         }
 
+        // 已退役的数据源不再回收通道
+        if (retired) {
+            c.close();
+            return;
+        }
+
         // 释放资源
         final ReentrantLock lock = this.lock;
         lock.lock();
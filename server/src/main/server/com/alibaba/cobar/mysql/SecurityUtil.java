@@ -46,6 +46,34 @@ public class SecurityUtil {
         return pass3;
     }
 
+    /**
+     * 服务端保存的密码摘要：SHA1(SHA1(pass))
+     */
+    public static final byte[] passwordHash(byte[] pass) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        byte[] pass1 = md.digest(pass);
+        md.reset();
+        return md.digest(pass1);
+    }
+
+    /**
+     * 用密码摘要校验客户端的scramble411应答：token ^ SHA1(seed + hash)应为SHA1(pass)，其SHA-1应等于hash
+     */
+    public static final boolean checkScramble411(byte[] token, byte[] seed, byte[] hash)
+            throws NoSuchAlgorithmException {
+        if (token == null || hash == null || token.length != hash.length) {
+            return false;
+        }
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        md.update(seed);
+        byte[] pass1 = md.digest(hash);
+        for (int i = 0; i < pass1.length; i++) {
+            pass1[i] = (byte) (pass1[i] ^ token[i]);
+        }
+        md.reset();
+        return MessageDigest.isEqual(md.digest(pass1), hash);
+    }
+
     /**
      * 解密
      * @param pass
@@ -42,6 +42,7 @@ import com.alibaba.cobar.exception.UnknownPacketException;
 import com.alibaba.cobar.exception.UnknownTxIsolationException;
 import com.alibaba.cobar.mysql.CharsetUtil;
 import com.alibaba.cobar.mysql.MySQLDataSource;
+import com.alibaba.cobar.mysql.MySQLMessage;
 import com.alibaba.cobar.mysql.SecurityUtil;
 import com.alibaba.cobar.net.mysql.AuthPacket;
 import com.alibaba.cobar.net.mysql.BinaryPacket;
@@ -130,6 +131,10 @@ public final class MySQLChannel implements Channel {
         this.lastActiveTime = TimeUtil.currentTimeMillis();
     }
 
+    public MySQLDataSource getDataSource() {
+        return dataSource;
+    }
+
     public String getCharset() {
         return charset;
     }
@@ -180,7 +185,7 @@ public final class MySQLChannel implements Channel {
                 return handshake();
             }
         });
-        CobarServer.getInstance().getInitExecutor().execute(ft);
+        CobarServer.getInstance().getHandshakeExecutor().execute(ft);
         try {
             ft.get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
@@ -211,7 +216,7 @@ public final class MySQLChannel implements Channel {
         CommandPacket packet = new CommandPacket();
         packet.packetId = 0;
         packet.command = MySQLPacket.COM_QUERY;
-        packet.arg = rrn.getStatement().getBytes(charset);
+        packet.arg = rrn.getStatementBytes(charset);
 
         // 记录执行开始时间
         lastActiveTime = TimeUtil.currentTimeMillis();
@@ -224,7 +229,7 @@ public final class MySQLChannel implements Channel {
         // SQL执行时间统计
         long now = TimeUtil.currentTimeMillis();
         if (now > lastActiveTime) {
-            recordSql(sc.getHost(), sc.getSchema(), rrn.getStatement());
+            recordSql(sc.getHost(), sc.getSchema(), rrn);
         }
 
         // 记录执行结束时间
@@ -418,6 +423,49 @@ public final class MySQLChannel implements Channel {
         }
         // 为防止握手阶段字符集编码交互无效，连接成功之后做一次字符集编码同步。
         sendCharset(charsetIndex);
+        if (dataSource.getAutoIncrementIncrement() <= 0) {
+            readAutoIncrementIncrement();
+        }
+    }
+
+    /**
+     * 读取后端的auto_increment_increment，合并执行的INSERT按它推算每行的自增值
+     */
+    private void readAutoIncrementIncrement() throws IOException {
+        CommandPacket cmd = new CommandPacket();
+        cmd.packetId = 0;
+        cmd.command = MySQLPacket.COM_QUERY;
+        cmd.arg = "SELECT @@auto_increment_increment".getBytes();
+        cmd.write(out);
+        out.flush();
+        BinaryPacket bin = receive();
+        if (bin.data[0] == ErrorPacket.FIELD_COUNT) {
+            ErrorPacket err = new ErrorPacket();
+            err.read(bin);
+            throw new ErrorPacketException(new String(err.message, charset));
+        }
+
+        // 跳过字段，取第一行的值
+        do {
+            bin = receive();
+        } while (bin.data[0] != EOFPacket.FIELD_COUNT);
+        int increment = 0;
+        while ((bin = receive()).data[0] != EOFPacket.FIELD_COUNT) {
+            if (bin.data[0] == ErrorPacket.FIELD_COUNT) {
+                ErrorPacket err = new ErrorPacket();
+                err.read(bin);
+                throw new ErrorPacketException(new String(err.message, charset));
+            }
+            byte[] value = new MySQLMessage(bin.data).readBytesWithLength();
+            if (increment == 0 && value != null) {
+                try {
+                    increment = Integer.parseInt(new String(value));
+                } catch (NumberFormatException e) {
+                    throw new UnknownPacketException(bin.toString());
+                }
+            }
+        }
+        dataSource.setAutoIncrementIncrement(increment);
     }
 
     /**
@@ -600,16 +648,16 @@ public final class MySQLChannel implements Channel {
     }
 
     /**
-     * 记录sql执行信息
+     * 记录sql执行信息，进入排名时才解码语句
      */
-    private void recordSql(String host, String schema, String stmt) {
+    private void recordSql(String host, String schema, RouteResultsetNode rrn) {
         long time = TimeUtil.currentTimeMillis() - lastActiveTime;
         SQLRecorder sqlRecorder = dataSource.getSqlRecorder();
         if (sqlRecorder.check(time)) {
             SQLRecord recorder = new SQLRecord();
             recorder.host = host;
             recorder.schema = schema;
-            recorder.statement = stmt;
+            recorder.statement = rrn.getStatement();
             recorder.startTime = lastActiveTime;
             recorder.executeTime = time;
             recorder.dataNode = dataSource.getName();
@@ -20,6 +20,8 @@ package com.alibaba.cobar.mysql.bio.executor;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -100,10 +102,37 @@ public class DefaultCommitExecutor extends NodeExecutor {
     }
 
     /**
-     * 提交事务
+     * 提交事务，事务中只执行过读操作的节点不参与提交，回滚后释放。
      */
-    public void commit(final OkPacket packet, final BlockingSession session, final int initCount) {
+    public void commit(final OkPacket packet, final BlockingSession session) {
+        final ConcurrentMap<RouteResultsetNode, Channel> target = session.getTarget();
+        List<MySQLChannel> writes = new ArrayList<MySQLChannel>(target.size());
+        List<RouteResultsetNode> reads = null;
+        for (RouteResultsetNode rrn : target.keySet()) {
+            if (rrn == null) {
+                try {
+                    getLogger().error(
+                            "null is contained in RoutResultsetNodes, source = " + session.getSource()
+                                    + ", bindChannel = " + target);
+                } catch (Exception e) {
+                }
+                continue;
+            }
+            if (!session.isWritten(rrn)) {
+                if (reads == null) {
+                    reads = new ArrayList<RouteResultsetNode>(target.size());
+                }
+                reads.add(rrn);
+                continue;
+            }
+            MySQLChannel mc = (MySQLChannel) target.get(rrn);
+            if (mc != null) {
+                writes.add(mc);
+            }
+        }
+
         // 初始化
+        final int initCount = writes.size();
         final ReentrantLock lock = this.lock;
         lock.lock();
         try {
@@ -114,44 +143,36 @@ public class DefaultCommitExecutor extends NodeExecutor {
             lock.unlock();
         }
 
-        if (session.getSource().isClosed()) {
+        final ServerConnection source = session.getSource();
+        if (source.isClosed()) {
             decrementCountToZero();
             return;
         }
 
         // 执行
-        final ConcurrentMap<RouteResultsetNode, Channel> target = session.getTarget();
-        Executor executor = session.getSource().getProcessor().getExecutor();
-        int started = 0;
-        for (RouteResultsetNode rrn : target.keySet()) {
-            if (rrn == null) {
-                try {
-                    getLogger().error(
-                            "null is contained in RoutResultsetNodes, source = " + session.getSource()
-                                    + ", bindChannel = " + target);
-                } catch (Exception e) {
-                }
-                continue;
+        Executor executor = source.getProcessor().getBlockingExecutor();
+        if (reads != null) {
+            for (RouteResultsetNode rrn : reads) {
+                session.releaseReadOnly(rrn, executor);
             }
-            final MySQLChannel mc = (MySQLChannel) target.get(rrn);
-            if (mc != null) {
-                mc.setRunning(true);
-                executor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        _commit(mc, session);
-                    }
-                });
-                ++started;
+        }
+        if (initCount == 0) {
+            session.release();
+            if (packet != null) {
+                packet.write(source);
+            } else {
+                source.write(source.writeToBuffer(OkPacket.OK, source.allocate()));
             }
+            return;
         }
-
-        if (started < initCount && decrementCountBy(initCount - started)) {
-            /**
-             * assumption: only caused by front-end connection close. <br/>
-             * Otherwise, packet must be returned to front-end
-             */
-            session.clear();
+        for (final MySQLChannel mc : writes) {
+            mc.setRunning(true);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    _commit(mc, session);
+                }
+            });
         }
     }
 
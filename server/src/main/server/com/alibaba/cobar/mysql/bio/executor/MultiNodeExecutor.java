@@ -22,7 +22,7 @@ import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
@@ -37,6 +37,7 @@ import com.alibaba.cobar.mysql.MySQLDataNode;
 import com.alibaba.cobar.mysql.PacketUtil;
 import com.alibaba.cobar.mysql.bio.Channel;
 import com.alibaba.cobar.mysql.bio.MySQLChannel;
+import com.alibaba.cobar.net.NIOProcessor;
 import com.alibaba.cobar.net.mysql.BinaryPacket;
 import com.alibaba.cobar.net.mysql.EOFPacket;
 import com.alibaba.cobar.net.mysql.ErrorPacket;
@@ -124,8 +125,10 @@ public final class MultiNodeExecutor extends NodeExecutor {
      * 多数据节点执行
      * 
      * @param nodes never null
+     * @param read 是否可以在读库上执行
      */
-    public void execute(RouteResultsetNode[] nodes, final boolean autocommit, final BlockingSession ss, final int flag) {
+    public void execute(RouteResultsetNode[] nodes, final boolean autocommit, final BlockingSession ss,
+                        final int flag, final boolean read) {
         // 初始化
         final ReentrantLock lock = this.lock;
         lock.lock();
@@ -158,18 +161,20 @@ public final class MultiNodeExecutor extends NodeExecutor {
             }
         }
 
-        ThreadPoolExecutor exec = ss.getSource().getProcessor().getExecutor();
+        final ServerConnection sc = ss.getSource();
+        NIOProcessor processor = sc.getProcessor();
+        Executor exec = processor.getBlockingExecutor();
         for (final RouteResultsetNode rrn : nodes) {
             final Channel c = target.get(rrn);
             if (c != null) {
-                exec.execute(new Runnable() {
+                processor.dispatch(exec, new Runnable() {
                     @Override
                     public void run() {
                         execute0(rrn, c, autocommit, ss, flag);
                     }
                 });
             } else {
-                newExecute(rrn, autocommit, ss, flag);
+                newExecute(rrn, autocommit, ss, flag, read);
             }
         }
     }
@@ -178,7 +183,7 @@ public final class MultiNodeExecutor extends NodeExecutor {
      * 新通道的执行
      */
     private void newExecute(final RouteResultsetNode rrn, final boolean autocommit, final BlockingSession ss,
-                            final int flag) {
+                            final int flag, final boolean read) {
         final ServerConnection sc = ss.getSource();
 
         // 检查数据节点是否存在
@@ -191,14 +196,19 @@ public final class MultiNodeExecutor extends NodeExecutor {
         }
 
         // 提交执行任务
-        sc.getProcessor().getExecutor().execute(new Runnable() {
+        NIOProcessor processor = sc.getProcessor();
+        processor.dispatch(processor.getBlockingExecutor(), new Runnable() {
             @Override
             public void run() {
                 // 取得数据通道
                 int i = rrn.getReplicaIndex();
                 Channel c = null;
                 try {
-                    c = (i == DEFAULT_REPLICA_INDEX) ? dn.getChannel() : dn.getChannel(i);
+                    if (i == DEFAULT_REPLICA_INDEX) {
+                        c = read ? dn.getReadChannel() : dn.getChannel();
+                    } else {
+                        c = dn.getChannel(i);
+                    }
                 } catch (final Exception e) {
                     handleFailure(ss, rrn, new SimpleErrInfo(e, ErrorCode.ER_BAD_DB_ERROR, sc, rrn));
                     return;
@@ -310,6 +320,7 @@ public final class MultiNodeExecutor extends NodeExecutor {
             }
         } catch (final IOException e) {
             c.close();
+            ((MySQLChannel) c).getDataSource().connectionError();
             handleFailure(ss, rrn, new SimpleErrInfo(e, ErrorCode.ER_YES, sc, rrn));
         } catch (final RuntimeException e) {
             c.close();
@@ -367,7 +378,7 @@ public final class MultiNodeExecutor extends NodeExecutor {
      */
     private void handleNext(final RouteResultsetNode rrn, final Channel c, final BlockingSession ss) {
         final ServerConnection sc = ss.getSource();
-        sc.getProcessor().getExecutor().execute(new Runnable() {
+        sc.getProcessor().getBlockingExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 final ReentrantLock lock = MultiNodeExecutor.this.lock;
@@ -376,6 +387,7 @@ public final class MultiNodeExecutor extends NodeExecutor {
                     handleRowData(rrn, c, ss);
                 } catch (final IOException e) {
                     c.close();
+                    ((MySQLChannel) c).getDataSource().connectionError();
                     handleFailure(ss, rrn, new SimpleErrInfo(e, ErrorCode.ER_YES, sc, rrn));
                 } catch (final RuntimeException e) {
                     c.close();
@@ -430,7 +442,7 @@ public final class MultiNodeExecutor extends NodeExecutor {
 
                 if (source.isAutocommit()) {
                     if (!autocommit) { // 前端非事务模式，后端事务模式，则需要自动递交后端事务。
-                        icExecutor.commit(ok, ss, ss.getTarget().size());
+                        icExecutor.commit(ok, ss);
                     } else {
                         ss.release();
                         ok.write(source);
@@ -118,7 +118,7 @@ public final class RollbackExecutor extends NodeExecutor {
         }
 
         // 执行
-        Executor exec = source.getProcessor().getExecutor();
+        Executor exec = source.getProcessor().getBlockingExecutor();
 
         int started = 0;
         for (RouteResultsetNode rrn : target.keySet()) {
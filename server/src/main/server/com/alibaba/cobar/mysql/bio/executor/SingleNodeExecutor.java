@@ -31,9 +31,11 @@ import com.alibaba.cobar.CobarServer;
 import com.alibaba.cobar.config.ErrorCode;
 import com.alibaba.cobar.exception.UnknownDataNodeException;
 import com.alibaba.cobar.mysql.MySQLDataNode;
+import com.alibaba.cobar.mysql.MySQLDataSource;
 import com.alibaba.cobar.mysql.PacketUtil;
 import com.alibaba.cobar.mysql.bio.Channel;
 import com.alibaba.cobar.mysql.bio.MySQLChannel;
+import com.alibaba.cobar.net.NIOProcessor;
 import com.alibaba.cobar.net.mysql.BinaryPacket;
 import com.alibaba.cobar.net.mysql.EOFPacket;
 import com.alibaba.cobar.net.mysql.ErrorPacket;
@@ -75,8 +77,10 @@ public final class SingleNodeExecutor extends NodeExecutor {
 
     /**
      * 单数据节点执行
+     * 
+     * @param read 是否可以在读库上执行
      */
-    public void execute(RouteResultsetNode rrn, BlockingSession ss, int flag) {
+    public void execute(RouteResultsetNode rrn, BlockingSession ss, int flag, boolean read) {
         // 初始化
         final ReentrantLock lock = this.lock;
         lock.lock();
@@ -99,7 +103,7 @@ public final class SingleNodeExecutor extends NodeExecutor {
             c.setRunning(true);
             bindingExecute(rrn, ss, c, flag);
         } else {
-            newExecute(rrn, ss, flag);
+            newExecute(rrn, ss, flag, read);
         }
     }
 
@@ -107,10 +111,11 @@ public final class SingleNodeExecutor extends NodeExecutor {
      * 已绑定数据通道的执行
      */
     private void bindingExecute(final RouteResultsetNode rrn, final BlockingSession ss, final Channel c, final int flag) {
-        ss.getSource().getProcessor().getExecutor().execute(new Runnable() {
+        NIOProcessor processor = ss.getSource().getProcessor();
+        processor.dispatch(processor.getBlockingExecutor(), new Runnable() {
             @Override
             public void run() {
-                execute0(rrn, ss, c, flag);
+                execute0(rrn, ss, c, flag, false);
             }
         });
     }
@@ -118,7 +123,7 @@ public final class SingleNodeExecutor extends NodeExecutor {
     /**
      * 新数据通道的执行
      */
-    private void newExecute(final RouteResultsetNode rrn, final BlockingSession ss, final int flag) {
+    private void newExecute(final RouteResultsetNode rrn, final BlockingSession ss, final int flag, final boolean read) {
         final ServerConnection sc = ss.getSource();
 
         // 检查数据节点是否存在
@@ -131,45 +136,67 @@ public final class SingleNodeExecutor extends NodeExecutor {
         }
 
         // 提交执行任务
-        sc.getProcessor().getExecutor().execute(new Runnable() {
+        NIOProcessor processor = sc.getProcessor();
+        processor.dispatch(processor.getBlockingExecutor(), new Runnable() {
             @Override
             public void run() {
-                // 取得数据通道
                 int i = rrn.getReplicaIndex();
-                Channel c = null;
-                try {
-                    c = (i == DEFAULT_REPLICA_INDEX) ? dn.getChannel() : dn.getChannel(i);
-                } catch (Exception e) {
-                    LOGGER.warn(new StringBuilder().append(sc).append(rrn).toString(), e);
-                    String msg = e.getMessage();
-                    handleError(ErrorCode.ER_BAD_DB_ERROR, msg == null ? e.getClass().getSimpleName() : msg, ss);
-                    return;
-                }
+                int retry = (read && i == DEFAULT_REPLICA_INDEX) ? dn.getConfig().getReadRetry() : 0;
+                for (;;) {
+                    // 取得数据通道
+                    int active = dn.getActivedIndex();
+                    Channel c = null;
+                    try {
+                        if (i == DEFAULT_REPLICA_INDEX) {
+                            c = read ? dn.getReadChannel() : dn.getChannel();
+                        } else {
+                            c = dn.getChannel(i);
+                        }
+                    } catch (Exception e) {
+                        LOGGER.warn(new StringBuilder().append(sc).append(rrn).toString(), e);
+                        if (retry-- > 0 && !sc.isClosed()) {
+                            dn.awaitFailover(active, dn.getConfig().getFailoverWaitTimeout());
+                            continue;
+                        }
+                        String msg = e.getMessage();
+                        handleError(ErrorCode.ER_BAD_DB_ERROR, msg == null ? e.getClass().getSimpleName() : msg, ss);
+                        return;
+                    }
 
-                // 检查连接是否已关闭。
-                if (sc.isClosed()) {
-                    c.release();
-                    endRunning();
-                    return;
-                }
+                    // 检查连接是否已关闭。
+                    if (sc.isClosed()) {
+                        c.release();
+                        endRunning();
+                        return;
+                    }
 
-                // 绑定数据通道
-                c.setRunning(true);
-                Channel old = ss.getTarget().put(rrn, c);
-                if (old != null && old != c) {
-                    old.close();
-                }
+                    // 绑定数据通道
+                    c.setRunning(true);
+                    Channel old = ss.getTarget().put(rrn, c);
+                    if (old != null && old != c) {
+                        old.close();
+                    }
 
-                // 执行
-                execute0(rrn, ss, c, flag);
+                    // 执行，后端连接异常并且可以重试时，等待故障确认后在新的通道上重新执行。
+                    if (!execute0(rrn, ss, c, flag, retry > 0)) {
+                        return;
+                    }
+                    --retry;
+                    ss.getTarget().remove(rrn, c);
+                    MySQLDataSource ds = ((MySQLChannel) c).getDataSource();
+                    dn.awaitFailover(ds.getIndex(), dn.getConfig().getFailoverWaitTimeout());
+                }
             }
         });
     }
 
     /**
      * 数据通道执行
+     * 
+     * @param retryable 发送语句时后端连接异常是否可以重试
+     * @return 是否需要重试，此时尚未向客户端返回任何数据。
      */
-    private void execute0(RouteResultsetNode rrn, BlockingSession ss, Channel c, int flag) {
+    private boolean execute0(RouteResultsetNode rrn, BlockingSession ss, Channel c, int flag, boolean retryable) {
         final ServerConnection sc = ss.getSource();
 
         // 检查连接是否已关闭
@@ -177,13 +204,15 @@ public final class SingleNodeExecutor extends NodeExecutor {
             c.setRunning(false);
             endRunning();
             ss.clear();
-            return;
+            return false;
         }
 
+        boolean executed = false;
         try {
             // 执行并等待返回
             MySQLChannel mc = (MySQLChannel) c;
             BinaryPacket bin = mc.execute(rrn, sc, sc.isAutocommit());
+            executed = true;
 
             // 接收和处理数据
             switch (bin.data[0]) {
@@ -216,6 +245,10 @@ public final class SingleNodeExecutor extends NodeExecutor {
         } catch (IOException e) {
             LOGGER.warn(new StringBuilder().append(sc).append(rrn).toString(), e);
             c.close();
+            ((MySQLChannel) c).getDataSource().connectionError();
+            if (retryable && !executed && !sc.isClosed()) {
+                return true;
+            }
             String msg = e.getMessage();
             handleError(ErrorCode.ER_YES, msg == null ? e.getClass().getSimpleName() : msg, ss);
         } catch (RuntimeException e) {
@@ -224,6 +257,7 @@ public final class SingleNodeExecutor extends NodeExecutor {
             String msg = e.getMessage();
             handleError(ErrorCode.ER_YES, msg == null ? e.getClass().getSimpleName() : msg, ss);
         }
+        return false;
     }
 
     /**
@@ -333,7 +367,7 @@ public final class SingleNodeExecutor extends NodeExecutor {
     private void handleNext(final RouteResultsetNode rrn, final BlockingSession ss, final MySQLChannel mc,
                             final ByteBuffer bb, final byte id) {
         final ServerConnection sc = ss.getSource();
-        sc.getProcessor().getExecutor().execute(new Runnable() {
+        sc.getProcessor().getBlockingExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -341,6 +375,7 @@ public final class SingleNodeExecutor extends NodeExecutor {
                 } catch (IOException e) {
                     LOGGER.warn(new StringBuilder().append(sc).append(rrn).toString(), e);
                     mc.close();
+                    mc.getDataSource().connectionError();
                     String msg = e.getMessage();
                     handleError(ErrorCode.ER_YES, msg == null ? e.getClass().getSimpleName() : msg, ss);
                 } catch (RuntimeException e) {
@@ -115,7 +115,7 @@ public class MySQLConnection extends BackendConnection {
     private volatile int txIsolation;
     private volatile boolean autocommit;
     private long clientFlags;
-    private boolean isAuthenticated;
+    private volatile boolean isAuthenticated;
     private String user;
     private String password;
     private String schema;
@@ -206,6 +206,9 @@ public class MySQLConnection extends BackendConnection {
     public void authenticate() {
         AuthPacket packet = new AuthPacket();
         packet.packetId = 1;
+        if (compressSupported && (handshake.serverCapabilities & Capabilities.CLIENT_COMPRESS) != 0) {
+            clientFlags |= Capabilities.CLIENT_COMPRESS;
+        }
         packet.clientFlags = clientFlags;
         packet.maxPacketSize = maxPacketSize;
         packet.charsetIndex = charsetIndex;
@@ -219,6 +222,13 @@ public class MySQLConnection extends BackendConnection {
         packet.write(this);
     }
 
+    /**
+     * 认证时是否协商了压缩协议
+     */
+    public boolean isCompressNegotiated() {
+        return (clientFlags & Capabilities.CLIENT_COMPRESS) != 0;
+    }
+
     public long getLastTime() {
         return lastTime;
     }
@@ -341,7 +351,7 @@ public class MySQLConnection extends BackendConnection {
             CommandPacket packet = new CommandPacket();
             packet.packetId = 0;
             packet.command = MySQLPacket.COM_QUERY;
-            packet.arg = rrn.getStatement().getBytes(conn.getCharset());
+            packet.arg = rrn.getStatementBytes(conn.getCharset());
             conn.lastTime = TimeUtil.currentTimeMillis();
             packet.write(conn);
         }
@@ -418,7 +428,7 @@ public class MySQLConnection extends BackendConnection {
         isQuit.set(true);
         boolean closed = super.close();
         if (closed) {
-            pool.deActive();
+            pool.deActive(this);
         }
         return closed;
     }
@@ -443,15 +453,22 @@ public class MySQLConnection extends BackendConnection {
         LOGGER.warn(toString(), t);
         switch (errCode) {
         case ErrorCode.ERR_HANDLE_DATA:
-            // handle error ..
-            break;
-        case ErrorCode.ERR_PUT_WRITE_QUEUE:
-            // QS_TODO
+            // 认证阶段的异常已由认证处理器通知，认证后的数据处理异常由MySQLConnectionHandler处理。
+            if (!isAuthenticated) {
+                close();
+            }
             break;
         default:
+            // 已主动退出的连接不再通知响应处理器
+            boolean quit = isQuit.get();
             close();
+            if (quit) {
+                break;
+            }
             if (handler instanceof MySQLConnectionHandler) {
                 ((MySQLConnectionHandler) handler).connectionError(t);
+            } else if (handler instanceof MySQLConnectionAuthenticator) {
+                ((MySQLConnectionAuthenticator) handler).connectionError(t);
             }
         }
     }
@@ -465,9 +482,9 @@ public class MySQLConnection extends BackendConnection {
     }
 
     /**
-     * 记录sql执行信息
+     * 记录sql执行信息，进入排名时才解码语句
      */
-    public void recordSql(String host, String schema, String stmt) {
+    public void recordSql(String host, String schema, RouteResultsetNode node) {
         final long now = TimeUtil.currentTimeMillis();
         if (now > this.lastTime) {
             long time = now - this.lastTime;
@@ -476,7 +493,7 @@ public class MySQLConnection extends BackendConnection {
                 SQLRecord recorder = new SQLRecord();
                 recorder.host = host;
                 recorder.schema = schema;
-                recorder.statement = stmt;
+                recorder.statement = node.getStatement();
                 recorder.startTime = lastTime;
                 recorder.executeTime = time;
                 recorder.dataNode = pool.getName();
@@ -18,6 +18,7 @@ package com.alibaba.cobar.mysql.nio;
 import com.alibaba.cobar.mysql.CharsetUtil;
 import com.alibaba.cobar.mysql.SecurityUtil;
 import com.alibaba.cobar.mysql.nio.handler.ResponseHandler;
+import com.alibaba.cobar.net.CompressedPacketCodec;
 import com.alibaba.cobar.net.NIOHandler;
 import com.alibaba.cobar.net.mysql.EOFPacket;
 import com.alibaba.cobar.net.mysql.ErrorPacket;
@@ -67,6 +68,11 @@ public class MySQLConnectionAuthenticator implements NIOHandler {
             } else { // 处理认证结果
                 switch (data[4]) {
                 case OkPacket.FIELD_COUNT:
+                    if (source.isCompressNegotiated()) {
+                        CompressedPacketCodec codec = new CompressedPacketCodec(source.getCompressThreshold(), true);
+                        source.enableCompressRead(codec);
+                        source.enableCompressWrite(codec);
+                    }
                     source.setHandler(new MySQLConnectionHandler(source));
                     source.setAuthenticated(true);
                     if (listener != null) {
@@ -92,6 +98,15 @@ public class MySQLConnectionAuthenticator implements NIOHandler {
         }
     }
 
+    /**
+     * 认证完成前连接异常(连接失败、连接断开等)时通知监听器
+     */
+    public void connectionError(Throwable e) {
+        if (listener != null) {
+            listener.connectionError(e, source);
+        }
+    }
+
     private void auth323(byte packetId) {
         // 发送323响应认证数据包
         Reply323Packet r323 = new Reply323Packet();
@@ -20,6 +20,7 @@ import java.nio.channels.SocketChannel;
 
 import com.alibaba.cobar.CobarServer;
 import com.alibaba.cobar.config.model.DataSourceConfig;
+import com.alibaba.cobar.config.model.SystemConfig;
 import com.alibaba.cobar.mysql.nio.handler.ResponseHandler;
 import com.alibaba.cobar.net.factory.BackendConnectionFactory;
 
@@ -39,6 +40,9 @@ public class MySQLConnectionFactory extends BackendConnectionFactory {
         c.setSchema(dsc.getDatabase());
         c.setHandler(new MySQLConnectionAuthenticator(c, handler));
         c.setPool(pool);
+        SystemConfig sys = CobarServer.getInstance().getConfig().getSystem();
+        c.setCompressSupported(sys.isBackendCompress());
+        c.setCompressThreshold(sys.getCompressThreshold());
         postConnect(c, CobarServer.getInstance().getConnector());
         return c;
     }
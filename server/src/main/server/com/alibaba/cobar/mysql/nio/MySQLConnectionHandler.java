@@ -50,9 +50,16 @@ public class MySQLConnectionHandler extends BackendAsyncHandler {
         this.resultStatus = RESULT_STATUS_INIT;
     }
 
+    /**
+     * 后端连接异常(连接断开、写失败等)时通知当前的响应处理器
+     */
     public void connectionError(Throwable e) {
-        // connError = e;
-        // handleQueue();
+        dataQueue.clear();
+        resultStatus = RESULT_STATUS_INIT;
+        ResponseHandler handler = this.responseHandler;
+        if (handler != null) {
+            handler.connectionError(e, source);
+        }
     }
 
     public MySQLConnection getSource() {
@@ -129,7 +136,12 @@ public class MySQLConnectionHandler extends BackendAsyncHandler {
     protected void handleDataError(Throwable t) {
         dataQueue.clear();
         resultStatus = RESULT_STATUS_INIT;
-        responseHandler.connectionError(t, source);
+        ResponseHandler handler = this.responseHandler;
+        if (handler != null) {
+            handler.connectionError(t, source);
+        } else {
+            source.close();
+        }
     }
 
     /**
@@ -18,6 +18,8 @@
  */
 package com.alibaba.cobar.mysql.nio;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
@@ -25,6 +27,7 @@ import org.apache.log4j.Logger;
 import com.alibaba.cobar.config.Alarms;
 import com.alibaba.cobar.config.model.DataSourceConfig;
 import com.alibaba.cobar.mysql.MySQLDataNode;
+import com.alibaba.cobar.mysql.MySQLDataSource;
 import com.alibaba.cobar.mysql.nio.handler.DelegateResponseHandler;
 import com.alibaba.cobar.mysql.nio.handler.ResponseHandler;
 import com.alibaba.cobar.statistic.SQLRecorder;
@@ -47,6 +50,7 @@ public class MySQLConnectionPool {
     private final MySQLConnection[] items;
     private int activeCount;
     private int idleCount;
+    private volatile boolean retired;
     private final SQLRecorder sqlRecorder;
 
     public MySQLConnectionPool(MySQLDataNode node, int index, DataSourceConfig config, int size) {
@@ -60,6 +64,10 @@ public class MySQLConnectionPool {
         this.sqlRecorder = new SQLRecorder(config.getSqlRecordCount());
     }
 
+    public MySQLDataNode getDataNode() {
+        return dataNode;
+    }
+
     public int getIndex() {
         return index;
     }
@@ -68,6 +76,30 @@ public class MySQLConnectionPool {
         return name;
     }
 
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public int getIdleCount() {
+        return idleCount;
+    }
+
+    public boolean isRetired() {
+        return retired;
+    }
+
+    public void setRetired(boolean retired) {
+        this.retired = retired;
+    }
+
+    /**
+     * 停止复用该连接池：关闭空闲连接，使用中的连接在释放时关闭。
+     */
+    public void retire() {
+        retired = true;
+        clear();
+    }
+
     public void getConnection(final ResponseHandler handler, final Object attachment) throws Exception {
         final ReentrantLock lock = this.lock;
         lock.lock();
@@ -103,30 +135,30 @@ public class MySQLConnectionPool {
             lock.unlock();
         }
 
-        // create connection
-        factory.make(this, new DelegateResponseHandler(handler) {
-            private boolean deactived;
-
-            @Override
-            public void connectionError(Throwable e, MySQLConnection conn) {
-                lock.lock();
-                try {
-                    if (!deactived) {
-                        --activeCount;
-                        deactived = true;
+        // create connection, activeCount is decreased when the connection is closed
+        try {
+            factory.make(this, new DelegateResponseHandler(handler) {
+                @Override
+                public void connectionError(Throwable e, MySQLConnection conn) {
+                    if (conn != null) {
+                        conn.close();
                     }
-                } finally {
-                    lock.unlock();
+                    getDataSource().connectionError();
+                    handler.connectionError(e, conn);
                 }
-                handler.connectionError(e, conn);
-            }
 
-            @Override
-            public void connectionAcquired(MySQLConnection conn) {
-                conn.setAttachment(attachment);
-                handler.connectionAcquired(conn);
-            }
-        });
+                @Override
+                public void connectionAcquired(MySQLConnection conn) {
+                    getDataSource().connectionOk();
+                    conn.setAttachment(attachment);
+                    handler.connectionAcquired(conn);
+                }
+            });
+        } catch (Exception e) {
+            deActive();
+            getDataSource().connectionError();
+            throw e;
+        }
     }
 
     public void releaseChannel(MySQLConnection c) {
@@ -134,6 +166,12 @@ public class MySQLConnectionPool {
             return;
         }
 
+        // retired pool does not keep connections
+        if (retired) {
+            c.quit();
+            return;
+        }
+
         // release connection
         final ReentrantLock lock = this.lock;
         lock.lock();
@@ -156,6 +194,27 @@ public class MySQLConnectionPool {
         c.quit();
     }
 
+    /**
+     * 连接关闭时调用：空闲连接从池中移除，否则减少活跃连接数。
+     */
+    public void deActive(MySQLConnection c) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            final MySQLConnection[] items = this.items;
+            for (int i = 0; idleCount > 0 && i < items.length; i++) {
+                if (items[i] == c) {
+                    items[i] = null;
+                    --idleCount;
+                    return;
+                }
+            }
+            --activeCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public void deActive() {
         final ReentrantLock lock = this.lock;
         lock.lock();
@@ -166,6 +225,53 @@ public class MySQLConnectionPool {
         }
     }
 
+    /**
+     * 关闭所有空闲连接
+     */
+    public void clear() {
+        idleCheck(-1L);
+    }
+
+    /**
+     * 关闭空闲超时的连接，timeout小于0时关闭所有空闲连接。
+     */
+    public void idleCheck(long timeout) {
+        List<MySQLConnection> list = null;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            final MySQLConnection[] items = this.items;
+            long time = TimeUtil.currentTimeMillis() - timeout;
+            for (int i = 0; idleCount > 0 && i < items.length; i++) {
+                MySQLConnection c = items[i];
+                if (c != null && (timeout < 0 || time > c.getLastTime())) {
+                    items[i] = null;
+                    --idleCount;
+                    // 移出池后按活跃连接计数，关闭时再减少。
+                    ++activeCount;
+                    if (list == null) {
+                        list = new ArrayList<MySQLConnection>();
+                    }
+                    list.add(c);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (list != null) {
+            for (MySQLConnection c : list) {
+                c.quit();
+            }
+        }
+    }
+
+    /**
+     * 与该连接池对应的阻塞模式数据源，两者共享心跳和故障检测状态。
+     */
+    public MySQLDataSource getDataSource() {
+        return dataNode.getSources()[index];
+    }
+
     public SQLRecorder getSqlRecorder() {
         return sqlRecorder;
     }
@@ -18,6 +18,7 @@
  */
 package com.alibaba.cobar.mysql.nio.handler;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
 
@@ -46,7 +47,31 @@ public class CommitNodeHandler extends MultiNodeHandler {
     }
 
     public void commit(OkPacket packet) {
-        final int initCount = session.getTargetCount();
+        // 事务中只执行过读操作的节点不参与提交
+        List<MySQLConnection> writes = new ArrayList<MySQLConnection>(session.getTargetCount());
+        List<RouteResultsetNode> reads = null;
+        for (RouteResultsetNode rrn : session.getTargetKeys()) {
+            if (rrn == null) {
+                try {
+                    logger.error("null is contained in RoutResultsetNodes, source = " + session.getSource());
+                } catch (Exception e) {
+                }
+                continue;
+            }
+            if (!session.isWritten(rrn)) {
+                if (reads == null) {
+                    reads = new ArrayList<RouteResultsetNode>(session.getTargetCount());
+                }
+                reads.add(rrn);
+                continue;
+            }
+            MySQLConnection conn = session.getTarget(rrn);
+            if (conn != null) {
+                writes.add(conn);
+            }
+        }
+
+        final int initCount = writes.size();
         lock.lock();
         try {
             reset(initCount);
@@ -59,41 +84,49 @@ public class CommitNodeHandler extends MultiNodeHandler {
             return;
         }
 
-        // 执行
-        Executor executor = session.getSource().getProcessor().getExecutor();
-        int started = 0;
-        for (RouteResultsetNode rrn : session.getTargetKeys()) {
-            if (rrn == null) {
-                try {
-                    logger.error("null is contained in RoutResultsetNodes, source = " + session.getSource());
-                } catch (Exception e) {
-                }
-                continue;
+        // 只读节点回滚后释放，不等待结果
+        if (reads != null) {
+            for (RouteResultsetNode rrn : reads) {
+                session.releaseReadOnlyConnection(rrn);
             }
-            final MySQLConnection conn = session.getTarget(rrn);
-            if (conn != null) {
-                conn.setRunning(true);
-                executor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (isFail.get() || session.closed()) {
-                            backendConnError(conn, "cancelled by other thread");
-                            return;
-                        }
-                        conn.setResponseHandler(CommitNodeHandler.this);
-                        conn.commit();
-                    }
-                });
-                ++started;
+        }
+
+        // 没有写节点时直接返回
+        if (initCount == 0) {
+            session.releaseConnections();
+            if (okPacket == null) {
+                ServerConnection source = session.getSource();
+                source.write(source.writeToBuffer(OkPacket.OK, source.allocate()));
+            } else {
+                okPacket.write(session.getSource());
             }
+            return;
+        }
+
+        // 只有一个写节点时直接在当前线程提交
+        if (initCount == 1) {
+            MySQLConnection conn = writes.get(0);
+            conn.setRunning(true);
+            conn.setResponseHandler(this);
+            conn.commit();
+            return;
         }
 
-        if (started < initCount && decrementCountBy(initCount - started)) {
-            /**
-             * assumption: only caused by front-end connection close. <br/>
-             * Otherwise, packet must be returned to front-end
-             */
-            session.clearConnections();
+        // 执行
+        Executor executor = session.getSource().getProcessor().getExecutor();
+        for (final MySQLConnection conn : writes) {
+            conn.setRunning(true);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (isFail.get() || session.closed()) {
+                        backendConnError(conn, "cancelled by other thread");
+                        return;
+                    }
+                    conn.setResponseHandler(CommitNodeHandler.this);
+                    conn.commit();
+                }
+            });
         }
     }
 
@@ -114,7 +114,9 @@ public abstract class MultiNodeHandler implements ResponseHandler, Terminatable
     }
 
     protected void backendConnError(MySQLConnection conn, ErrorPacket err) {
-        conn.setRunning(false);
+        if (conn != null) {
+            conn.setRunning(false);
+        }
         lock.lock();
         try {
             if (error == null) {
@@ -22,20 +22,18 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.List;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
 
-import com.alibaba.cobar.CobarConfig;
-import com.alibaba.cobar.CobarServer;
-import com.alibaba.cobar.mysql.MySQLDataNode;
 import com.alibaba.cobar.mysql.nio.MySQLConnection;
+import com.alibaba.cobar.net.NIOProcessor;
 import com.alibaba.cobar.net.mysql.ErrorPacket;
 import com.alibaba.cobar.net.mysql.OkPacket;
 import com.alibaba.cobar.route.RouteResultsetNode;
 import com.alibaba.cobar.server.ServerConnection;
 import com.alibaba.cobar.server.session.NonBlockingSession;
+import com.alibaba.cobar.util.SerialExecutor;
 
 /**
  * @author <a href="mailto:shuo.qius@alibaba-inc.com">QIU Shuo</a>
@@ -46,9 +44,18 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
     private final RouteResultsetNode[] route;
     private final NonBlockingSession session;
     private final boolean autocommit;
+    private final boolean read;
     private final CommitNodeHandler icHandler;
 
     public MultiNodeQueryHandler(RouteResultsetNode[] route, boolean autocommit, NonBlockingSession session) {
+        this(route, autocommit, session, false);
+    }
+
+    /**
+     * @param read 是否可以在读库上执行
+     */
+    public MultiNodeQueryHandler(RouteResultsetNode[] route, boolean autocommit, NonBlockingSession session,
+                                 boolean read) {
         super(session);
         if (route == null) {
             throw new IllegalArgumentException("routeNode is null!");
@@ -56,8 +63,10 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
         this.session = session;
         this.route = route;
         this.autocommit = autocommit;
+        this.read = read;
         this.lock = new ReentrantLock();
         this.icHandler = new CommitNodeHandler(session);
+        this.writer = new SerialExecutor(session.getSource().getProcessor().getExecutor());
     }
 
     private final ReentrantLock lock;
@@ -65,6 +74,8 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
     private long insertId;
     private ByteBuffer buffer;
     private boolean fieldsReturned;
+    // 前端缓存的写入和回收都交给writer串行执行，返回结果的线程不在锁上等待
+    private final SerialExecutor writer;
 
     public void execute() throws Exception {
         final ReentrantLock lock = this.lock;
@@ -81,27 +92,30 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
 
         if (session.closed()) {
             decrementCountToZero();
-            recycleResources();
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    recycleResources();
+                }
+            });
             return;
         }
 
         session.setConnectionRunning(route);
 
-        ThreadPoolExecutor executor = session.getSource().getProcessor().getExecutor();
         for (final RouteResultsetNode node : route) {
             final MySQLConnection conn = session.getTarget(node);
             if (conn != null) {
                 conn.setAttachment(node);
-                executor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        _execute(conn, node);
-                    }
-                });
+                dispatch(conn, node);
             } else {
-                CobarConfig conf = CobarServer.getInstance().getConfig();
-                MySQLDataNode dn = conf.getDataNodes().get(node.getName());
-                dn.getConnection(this, node);
+                try {
+                    session.getConnection(node, read, this, node);
+                } catch (Exception e) {
+                    LOGGER.warn(new StringBuilder().append(session.getSource()).append(node).toString(), e);
+                    String msg = e.getMessage();
+                    backendConnError(null, msg == null ? e.getClass().getSimpleName() : msg);
+                }
             }
         }
     }
@@ -121,23 +135,28 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
         }
     }
 
+    /**
+     * 只在{@link #writer}上执行
+     */
     @Override
     protected void recycleResources() {
-        ByteBuffer buf;
-        lock.lock();
-        try {
-            buf = buffer;
-            if (buf != null) {
-                buffer = null;
-            }
-        } finally {
-            lock.unlock();
-        }
+        ByteBuffer buf = buffer;
         if (buf != null) {
+            buffer = null;
             session.getSource().recycle(buf);
         }
     }
 
+    @Override
+    protected void notifyError() {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                MultiNodeQueryHandler.super.notifyError();
+            }
+        });
+    }
+
     @Override
     public void connectionAcquired(final MySQLConnection conn) {
         Object attachment = conn.getAttachment();
@@ -153,7 +172,15 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
         final RouteResultsetNode node = (RouteResultsetNode) attachment;
         conn.setRunning(true);
         session.bindConnection(node, conn);
-        session.getSource().getProcessor().getExecutor().execute(new Runnable() {
+        dispatch(conn, node);
+    }
+
+    /**
+     * 在后端处理线程池中发送请求
+     */
+    private void dispatch(final MySQLConnection conn, final RouteResultsetNode node) {
+        NIOProcessor processor = session.getSource().getProcessor();
+        processor.dispatch(processor.getExecutor(), new Runnable() {
             @Override
             public void run() {
                 _execute(conn, node);
@@ -163,7 +190,12 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
 
     @Override
     public void connectionError(Throwable e, MySQLConnection conn) {
-        backendConnError(conn, "connection err!");
+        // 获取连接阶段的错误已由连接池上报
+        if (conn != null && conn.isRunning()) {
+            conn.getPool().getDataSource().connectionError();
+        }
+        String msg = e == null ? null : e.getMessage();
+        backendConnError(conn, msg == null ? "connection err!" : msg);
     }
 
     @Override
@@ -187,7 +219,7 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
             Object attachment = conn.getAttachment();
             if (attachment instanceof RouteResultsetNode) {
                 RouteResultsetNode node = (RouteResultsetNode) attachment;
-                conn.recordSql(source.getHost(), source.getSchema(), node.getStatement());
+                conn.recordSql(source.getHost(), source.getSchema(), node);
             } else {
                 LOGGER.warn(new StringBuilder().append("back-end conn: ")
                                                .append(conn)
@@ -196,7 +228,7 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
                                                .append(", for front-end conn: ")
                                                .append(source));
             }
-            OkPacket ok = new OkPacket();
+            final OkPacket ok = new OkPacket();
             ok.read(data);
             lock.lock();
             try {
@@ -212,29 +244,39 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
                     notifyError();
                     return;
                 }
-                try {
-                    recycleResources();
-                    ok.packetId = ++packetId;// OK_PACKET
-                    ok.affectedRows = affectedRows;
-                    if (insertId > 0) {
-                        ok.insertId = insertId;
-                        source.setLastInsertId(insertId);
+                writer.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        writeOk(ok);
                     }
+                });
+            }
+        }
+    }
 
-                    if (source.isAutocommit()) {
-                        if (!autocommit) { // 前端非事务模式，后端事务模式，则需要自动递交后端事务。
-                            icHandler.commit();
-                        } else {
-                            session.releaseConnections();
-                            ok.write(source);
-                        }
-                    } else {
-                        ok.write(source);
-                    }
-                } catch (Exception e) {
-                    LOGGER.warn("exception happens in success notification: " + session.getSource(), e);
+    private void writeOk(OkPacket ok) {
+        ServerConnection source = session.getSource();
+        try {
+            recycleResources();
+            ok.packetId = ++packetId;// OK_PACKET
+            ok.affectedRows = affectedRows;
+            if (insertId > 0) {
+                ok.insertId = insertId;
+                source.setLastInsertId(insertId);
+            }
+
+            if (source.isAutocommit()) {
+                if (!autocommit) { // 前端非事务模式，后端事务模式，则需要自动递交后端事务。
+                    icHandler.commit();
+                } else {
+                    session.releaseConnections();
+                    ok.write(source);
                 }
+            } else {
+                ok.write(source);
             }
+        } catch (Exception e) {
+            LOGGER.warn("exception happens in success notification: " + source, e);
         }
     }
 
@@ -246,7 +288,7 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
         Object attachment = conn.getAttachment();
         if (attachment instanceof RouteResultsetNode) {
             node = (RouteResultsetNode) attachment;
-            conn.recordSql(source.getHost(), source.getSchema(), node.getStatement());
+            conn.recordSql(source.getHost(), source.getSchema(), node);
         } else {
             LOGGER.warn(new StringBuilder().append("back-end conn: ")
                                            .append(conn)
@@ -270,54 +312,65 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
         if (decrementCountBy(1)) {
             if (isFail.get()) {
                 notifyError();
-                recycleResources();
                 return;
             }
-            try {
-                if (source.isAutocommit()) {
-                    session.releaseConnections();
+            final byte[] lastEof = eof;
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ServerConnection source = session.getSource();
+                    ByteBuffer buf = buffer;
+                    buffer = null;
+                    if (buf != null) {
+                        lastEof[3] = ++packetId;
+                        source.write(source.writeToBuffer(lastEof, buf));
+                    }
+                    // 最后的EOF放入写队列之后再释放连接
+                    if (source.isAutocommit()) {
+                        session.releaseConnections();
+                    }
                 }
-                eof[3] = ++packetId;
-
-                source.write(source.writeToBuffer(eof, buffer));
-            } catch (Exception e) {
-                LOGGER.warn("exception happens in success notification: " + session.getSource(), e);
-            }
+            });
         }
     }
 
     @Override
-    public void fieldEofResponse(byte[] header, List<byte[]> fields, byte[] eof, MySQLConnection conn) {
-        lock.lock();
-        try {
-            if (fieldsReturned) {
-                return;
-            }
-            fieldsReturned = true;
-            header[3] = ++packetId;
-            ServerConnection source = session.getSource();
-            buffer = source.writeToBuffer(header, buffer);
-            for (int i = 0, len = fields.size(); i < len; ++i) {
-                byte[] field = fields.get(i);
-                field[3] = ++packetId;
-                buffer = source.writeToBuffer(field, buffer);
+    public void fieldEofResponse(final byte[] header, final List<byte[]> fields, final byte[] eof,
+                                 MySQLConnection conn) {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (fieldsReturned || buffer == null) {
+                    return;
+                }
+                fieldsReturned = true;
+                ServerConnection source = session.getSource();
+                ByteBuffer buf = buffer;
+                header[3] = ++packetId;
+                buf = source.writeToBuffer(header, buf);
+                for (int i = 0, len = fields.size(); i < len; ++i) {
+                    byte[] field = fields.get(i);
+                    field[3] = ++packetId;
+                    buf = source.writeToBuffer(field, buf);
+                }
+                eof[3] = ++packetId;
+                buffer = source.writeToBuffer(eof, buf);
             }
-            eof[3] = ++packetId;
-            buffer = source.writeToBuffer(eof, buffer);
-        } finally {
-            lock.unlock();
-        }
+        });
     }
 
     @Override
-    public void rowResponse(byte[] row, MySQLConnection conn) {
-        lock.lock();
-        try {
-            row[3] = ++packetId;
-            buffer = session.getSource().writeToBuffer(row, buffer);
-        } finally {
-            lock.unlock();
-        }
+    public void rowResponse(final byte[] row, MySQLConnection conn) {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer buf = buffer;
+                if (buf != null) {
+                    row[3] = ++packetId;
+                    buffer = session.getSource().writeToBuffer(row, buf);
+                }
+            }
+        });
     }
 
 }
@@ -96,6 +96,7 @@ public class RollbackNodeHandler extends MultiNodeHandler {
             if (isFail.get() || session.closed()) {
                 notifyError((byte) 1);
             } else {
+                session.releaseConnections();
                 session.getSource().write(ok);
             }
         }
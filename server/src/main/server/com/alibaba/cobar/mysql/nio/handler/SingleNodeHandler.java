@@ -23,11 +23,11 @@ import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
-import com.alibaba.cobar.CobarConfig;
-import com.alibaba.cobar.CobarServer;
+import org.apache.log4j.Logger;
+
 import com.alibaba.cobar.config.ErrorCode;
-import com.alibaba.cobar.mysql.MySQLDataNode;
 import com.alibaba.cobar.mysql.nio.MySQLConnection;
+import com.alibaba.cobar.net.NIOProcessor;
 import com.alibaba.cobar.net.mysql.ErrorPacket;
 import com.alibaba.cobar.net.mysql.OkPacket;
 import com.alibaba.cobar.route.RouteResultsetNode;
@@ -39,8 +39,11 @@ import com.alibaba.cobar.util.StringUtil;
  * @author <a href="mailto:shuo.qius@alibaba-inc.com">QIU Shuo</a>
  */
 public class SingleNodeHandler implements ResponseHandler, Terminatable {
+    private static final Logger LOGGER = Logger.getLogger(SingleNodeHandler.class);
+
     private final RouteResultsetNode route;
     private final NonBlockingSession session;
+    private final boolean read;
     private byte packetId;
     private volatile ByteBuffer buffer;
     private ReentrantLock lock = new ReentrantLock();
@@ -48,6 +51,13 @@ public class SingleNodeHandler implements ResponseHandler, Terminatable {
     private Runnable terminateCallBack;
 
     public SingleNodeHandler(RouteResultsetNode route, NonBlockingSession session) {
+        this(route, session, false);
+    }
+
+    /**
+     * @param read 是否可以在读库上执行
+     */
+    public SingleNodeHandler(RouteResultsetNode route, NonBlockingSession session, boolean read) {
         if (route == null) {
             throw new IllegalArgumentException("routeNode is null!");
         }
@@ -56,6 +66,7 @@ public class SingleNodeHandler implements ResponseHandler, Terminatable {
         }
         this.session = session;
         this.route = route;
+        this.read = read;
     }
 
     @Override
@@ -93,7 +104,7 @@ public class SingleNodeHandler implements ResponseHandler, Terminatable {
         }
     }
 
-    public void execute() throws Exception {
+    public void execute() {
         lock.lock();
         try {
             this.isRunning = true;
@@ -104,25 +115,35 @@ public class SingleNodeHandler implements ResponseHandler, Terminatable {
         }
         final MySQLConnection conn = session.getTarget(route);
         if (conn == null) {
-            CobarConfig conf = CobarServer.getInstance().getConfig();
-            MySQLDataNode dn = conf.getDataNodes().get(route.getName());
-            dn.getConnection(this, null);
+            try {
+                session.getConnection(route, read, this, null);
+            } catch (Exception e) {
+                LOGGER.warn(new StringBuilder().append(session.getSource()).append(route).toString(), e);
+                String msg = e.getMessage();
+                handleError(ErrorCode.ER_BAD_DB_ERROR, msg == null ? e.getClass().getSimpleName() : msg);
+            }
         } else {
             conn.setRunning(true);
-            session.getSource().getProcessor().getExecutor().execute(new Runnable() {
-                @Override
-                public void run() {
-                    _execute(conn);
-                }
-            });
+            dispatch(conn);
         }
     }
 
     @Override
     public void connectionAcquired(final MySQLConnection conn) {
         conn.setRunning(true);
-        session.bindConnection(route, conn);
-        session.getSource().getProcessor().getExecutor().execute(new Runnable() {
+        MySQLConnection old = session.bindConnection(route, conn);
+        if (old != null && old != conn) {
+            old.close();
+        }
+        dispatch(conn);
+    }
+
+    /**
+     * 在后端处理线程池中发送请求
+     */
+    private void dispatch(final MySQLConnection conn) {
+        NIOProcessor processor = session.getSource().getProcessor();
+        processor.dispatch(processor.getExecutor(), new Runnable() {
             @Override
             public void run() {
                 _execute(conn);
@@ -135,6 +156,7 @@ public class SingleNodeHandler implements ResponseHandler, Terminatable {
             conn.setRunning(false);
             endRunning();
             session.clearConnections();
+            recycleBuffer();
             return;
         }
         conn.setResponseHandler(this);
@@ -148,28 +170,38 @@ public class SingleNodeHandler implements ResponseHandler, Terminatable {
 
     private void executeException(MySQLConnection c) {
         c.setRunning(false);
+        handleError(ErrorCode.ER_YES, "unknown backend charset: " + c.getCharset());
+    }
+
+    /**
+     * 执行异常处理：释放后端连接，中断事务并通知前端。
+     */
+    private void handleError(int errno, String message) {
         endRunning();
         session.clearConnections();
+        ServerConnection source = session.getSource();
+        source.setTxInterrupt();
         ErrorPacket err = new ErrorPacket();
         err.packetId = ++packetId;
-        err.errno = ErrorCode.ER_YES;
-        err.message = StringUtil.encode("unknown backend charset: " + c.getCharset(), session.getSource().getCharset());
-        ServerConnection source = session.getSource();
-        source.write(err.write(buffer, source));
+        err.errno = errno;
+        err.message = StringUtil.encode(message, source.getCharset());
+        write(err.write(takeBuffer(), source));
     }
 
     @Override
     public void connectionError(Throwable e, MySQLConnection conn) {
-        if (!session.closeConnection(route)) {
-            conn.close();
+        if (conn != null) {
+            // 获取连接阶段的错误已由连接池上报
+            if (conn.isRunning()) {
+                conn.getPool().getDataSource().connectionError();
+            }
+            conn.setRunning(false);
+            if (!session.closeConnection(route)) {
+                conn.close();
+            }
         }
-        endRunning();
-        ErrorPacket err = new ErrorPacket();
-        err.packetId = ++packetId;
-        err.errno = ErrorCode.ER_YES;
-        err.message = StringUtil.encode(e.getMessage(), session.getSource().getCharset());
-        ServerConnection source = session.getSource();
-        source.write(err.write(buffer, source));
+        String msg = e == null ? null : e.getMessage();
+        handleError(ErrorCode.ER_YES, msg == null ? "backend connection error" : msg);
     }
 
     @Override
@@ -179,7 +211,8 @@ public class SingleNodeHandler implements ResponseHandler, Terminatable {
             session.clearConnections();
         }
         endRunning();
-        session.getSource().write(err);
+        ServerConnection source = session.getSource();
+        write(source.writeToBuffer(err, takeBuffer()));
     }
 
     @Override
@@ -193,15 +226,17 @@ public class SingleNodeHandler implements ResponseHandler, Terminatable {
         if (executeResponse) {
             conn.setRunning(false);
             ServerConnection source = session.getSource();
+            conn.recordSql(source.getHost(), source.getSchema(), route);
             if (source.isAutocommit()) {
                 session.clearConnections();
             }
             endRunning();
             OkPacket ok = new OkPacket();
             ok.read(data);
-            source.setLastInsertId(ok.insertId);
-            buffer = source.writeToBuffer(data, buffer);
-            source.write(buffer);
+            if (ok.insertId > 0) {
+                source.setLastInsertId(ok.insertId);
+            }
+            write(source.writeToBuffer(data, takeBuffer()));
         }
     }
 
@@ -209,19 +244,18 @@ public class SingleNodeHandler implements ResponseHandler, Terminatable {
     public void rowEofResponse(byte[] eof, MySQLConnection conn) {
         ServerConnection source = session.getSource();
         conn.setRunning(false);
-        conn.recordSql(source.getHost(), source.getSchema(), route.getStatement());
+        conn.recordSql(source.getHost(), source.getSchema(), route);
         if (source.isAutocommit()) {
             session.clearConnections();
         }
         endRunning();
-        buffer = source.writeToBuffer(eof, buffer);
-        source.write(buffer);
+        write(source.writeToBuffer(eof, takeBuffer()));
     }
 
     @Override
     public void fieldEofResponse(byte[] header, List<byte[]> fields, byte[] eof, MySQLConnection conn) {
         ServerConnection source = session.getSource();
-        buffer = session.getSource().allocate();
+        ByteBuffer buffer = this.buffer;
         ++packetId;
         buffer = source.writeToBuffer(header, buffer);
         for (int i = 0, len = fields.size(); i < len; ++i) {
@@ -229,8 +263,7 @@ public class SingleNodeHandler implements ResponseHandler, Terminatable {
             buffer = source.writeToBuffer(fields.get(i), buffer);
         }
         ++packetId;
-        buffer = source.writeToBuffer(eof, buffer);
-        source.write(buffer);
+        this.buffer = source.writeToBuffer(eof, buffer);
     }
 
     @Override
@@ -239,4 +272,22 @@ public class SingleNodeHandler implements ResponseHandler, Terminatable {
         buffer = session.getSource().writeToBuffer(row, buffer);
     }
 
+    private ByteBuffer takeBuffer() {
+        ByteBuffer buf = buffer;
+        buffer = null;
+        return buf != null ? buf : session.getSource().allocate();
+    }
+
+    private void write(ByteBuffer buf) {
+        session.getSource().write(buf);
+    }
+
+    private void recycleBuffer() {
+        ByteBuffer buf = buffer;
+        buffer = null;
+        if (buf != null) {
+            session.getSource().recycle(buf);
+        }
+    }
+
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按用户和schema限制同时处理中(排队、执行及写出响应)的前端请求数
+ */
+public final class ConcurrencyLimiter {
+
+    static final Runnable NONE = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private final ConcurrentMap<String, AtomicInteger> users;
+    private final ConcurrentMap<String, AtomicInteger> schemas;
+
+    public ConcurrencyLimiter() {
+        this.users = new ConcurrentHashMap<String, AtomicInteger>();
+        this.schemas = new ConcurrentHashMap<String, AtomicInteger>();
+    }
+
+    /**
+     * 申请处理许可，limit小于等于0表示不限制。
+     * 
+     * @return 请求处理结束后必须执行的释放动作，超过限制时返回null。
+     */
+    public Runnable acquire(String user, int userLimit, String schema, int schemaLimit) {
+        final AtomicInteger u = (user == null || userLimit <= 0) ? null : counter(users, user);
+        final AtomicInteger s = (schema == null || schemaLimit <= 0) ? null : counter(schemas, schema);
+        if (u == null && s == null) {
+            return NONE;
+        }
+        if (u != null && u.incrementAndGet() > userLimit) {
+            u.decrementAndGet();
+            return null;
+        }
+        if (s != null && s.incrementAndGet() > schemaLimit) {
+            s.decrementAndGet();
+            if (u != null) {
+                u.decrementAndGet();
+            }
+            return null;
+        }
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (u != null) {
+                    u.decrementAndGet();
+                }
+                if (s != null) {
+                    s.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    public int getUserCount(String user) {
+        AtomicInteger c = users.get(user);
+        return c == null ? 0 : c.get();
+    }
+
+    public int getSchemaCount(String schema) {
+        AtomicInteger c = schemas.get(schema);
+        return c == null ? 0 : c.get();
+    }
+
+    private static AtomicInteger counter(ConcurrentMap<String, AtomicInteger> map, String key) {
+        AtomicInteger c = map.get(key);
+        if (c == null) {
+            AtomicInteger n = new AtomicInteger(0);
+            c = map.putIfAbsent(key, n);
+            if (c == null) {
+                c = n;
+            }
+        }
+        return c;
+    }
+
+}
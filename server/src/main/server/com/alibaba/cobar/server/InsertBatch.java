@@ -0,0 +1,291 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cobar.config.model.SchemaConfig;
+import com.alibaba.cobar.mysql.MySQLDataNode;
+import com.alibaba.cobar.net.FrontendConnection;
+import com.alibaba.cobar.net.mysql.OkPacket;
+import com.alibaba.cobar.parser.ast.expression.primary.RowExpression;
+import com.alibaba.cobar.parser.ast.stmt.SQLStatement;
+import com.alibaba.cobar.parser.ast.stmt.dml.DMLInsertStatement;
+import com.alibaba.cobar.parser.recognizer.SQLParserDelegate;
+import com.alibaba.cobar.parser.recognizer.mysql.syntax.MySQLParser;
+import com.alibaba.cobar.route.RouteResultset;
+import com.alibaba.cobar.route.RouteResultsetNode;
+import com.alibaba.cobar.route.ServerRouter;
+import com.alibaba.cobar.route.hint.CobarHint;
+import com.alibaba.cobar.server.parser.ServerParse;
+
+/**
+ * 多条语句中连续的单行INSERT，按目标数据节点合并为多行INSERT执行，再为每条语句生成OK包。
+ * 
+ * <pre>
+ * 可以合并的语句：INSERT ... VALUES(...)形式的单行插入，表名、列名列表和插入模式与第一条相同，
+ * 不带IGNORE、ON DUPLICATE KEY UPDATE和cobar hint，并且只路由到一个数据节点，该节点已经读取到auto_increment_increment。
+ * 
+ * 各节点的合并语句依次执行，拦截每个节点返回的OK包：
+ *   1.每条语句的affected_rows为1；
+ *   2.insert_id按自增值连续分配推算，节点返回的insert_id为第一行的值，该节点第k行为insert_id + k * auto_increment_increment；
+ *   3.节点返回的警告数计入最后一条语句。
+ * 某个节点执行出错时，该节点的合并语句整体失败，错误作为批次第一条语句的响应返回，客户端认为批次中的语句都没有执行。
+ * 如果之前的节点已经执行成功，中断当前事务，客户端必须回滚。
+ * </pre>
+ */
+final class InsertBatch {
+    public static final int RUNNING = 0;
+    public static final int NEXT = 1;
+    public static final int END = 2;
+
+    private final int count;
+    private final List<RouteResultset> routes;
+    private final List<int[]> positions;
+    private final int[] increments;
+    private final long[] insertIds;
+    private int current;
+    private int serverStatus;
+    private int warningCount;
+    private byte[] data;
+    private int length;
+    private byte[] error;
+
+    private InsertBatch(int count, List<RouteResultset> routes, List<int[]> positions, int[] increments) {
+        this.count = count;
+        this.routes = routes;
+        this.positions = positions;
+        this.increments = increments;
+        this.insertIds = new long[count];
+        this.data = new byte[64];
+    }
+
+    /**
+     * @param statements 还未执行的语句
+     * @param dataNodes 用于取得各节点写库的auto_increment_increment
+     * @return 开头可以合并的语句少于两条时返回null
+     */
+    static InsertBatch build(List<String> statements, SchemaConfig schema, String charset, Object info,
+                             Map<String, MySQLDataNode> dataNodes) {
+        DMLInsertStatement first = null;
+        List<String> sqls = new ArrayList<String>();
+        List<RowExpression> rows = new ArrayList<RowExpression>();
+        Map<RouteResultsetNode, List<Integer>> groups = new LinkedHashMap<RouteResultsetNode, List<Integer>>();
+        for (String sql : statements) {
+            if ((ServerParse.parse(sql) & 0xff) != ServerParse.INSERT || sql.startsWith(CobarHint.COBAR_HINT_PREFIX)) {
+                break;
+            }
+            DMLInsertStatement insert;
+            RouteResultset rrs;
+            try {
+                SQLStatement ast = SQLParserDelegate.parse(sql, charset == null ? MySQLParser.DEFAULT_CHARSET : charset);
+                if (!(ast instanceof DMLInsertStatement)) {
+                    break;
+                }
+                insert = (DMLInsertStatement) ast;
+                if (!isSingleRow(insert) || (first != null && !isSameTarget(first, insert))) {
+                    break;
+                }
+                rrs = ServerRouter.route(schema, sql, charset, info);
+            } catch (Exception e) {
+                // 出错的语句单独执行，返回原来的错误。
+                break;
+            }
+            RouteResultsetNode[] nodes = rrs.getNodes();
+            if (nodes == null || nodes.length != 1) {
+                break;
+            }
+            if (first == null) {
+                first = insert;
+            }
+            List<Integer> group = groups.get(nodes[0]);
+            if (group == null) {
+                groups.put(nodes[0], group = new ArrayList<Integer>());
+            }
+            group.add(sqls.size());
+            sqls.add(sql);
+            rows.add(insert.getRowList().get(0));
+        }
+        if (sqls.size() < 2) {
+            return null;
+        }
+
+        // 每个节点的语句合并后重新路由，得到改写后的语句。
+        List<RouteResultset> routes = new ArrayList<RouteResultset>(groups.size());
+        List<int[]> positions = new ArrayList<int[]>(groups.size());
+        int[] increments = new int[groups.size()];
+        for (Map.Entry<RouteResultsetNode, List<Integer>> e : groups.entrySet()) {
+            // 不知道自增步长时无法推算每行的insert_id，不合并
+            MySQLDataNode dn = dataNodes.get(e.getKey().getName());
+            int increment = dn == null ? 0 : dn.getSource().getAutoIncrementIncrement();
+            if (increment <= 0) {
+                return null;
+            }
+            increments[routes.size()] = increment;
+            List<Integer> group = e.getValue();
+            int[] position = new int[group.size()];
+            for (int i = 0; i < position.length; ++i) {
+                position[i] = group.get(i);
+            }
+            RouteResultset rrs;
+            try {
+                rrs = ServerRouter.route(schema, merge(sqls, rows, position), charset, info);
+            } catch (Exception ex) {
+                return null;
+            }
+            RouteResultsetNode[] nodes = rrs.getNodes();
+            if (nodes == null || nodes.length != 1 || !nodes[0].equals(e.getKey())) {
+                return null;
+            }
+            routes.add(rrs);
+            positions.add(position);
+        }
+        return new InsertBatch(sqls.size(), routes, positions, increments);
+    }
+
+    /**
+     * @return 合并的语句数
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * @return 下一个要执行的节点语句
+     */
+    RouteResultset next() {
+        return routes.get(current);
+    }
+
+    /**
+     * 收集当前节点的响应，缓存中的数据不会再写出。
+     * 
+     * @return {@link #NEXT}需要执行下一个节点，{@link #END}全部节点执行完毕或者出错。
+     */
+    int collect(ByteBuffer buffer) {
+        int n = buffer.position();
+        if (length + n > data.length) {
+            byte[] b = new byte[Math.max(data.length << 1, length + n)];
+            System.arraycopy(data, 0, b, 0, length);
+            data = b;
+        }
+        for (int i = 0; i < n; ++i) {
+            data[length++] = buffer.get(i);
+        }
+        if (length < 4) {
+            return RUNNING;
+        }
+        int size = (data[0] & 0xff) | ((data[1] & 0xff) << 8) | ((data[2] & 0xff) << 16);
+        if (length < size + 4) {
+            return RUNNING;
+        }
+        byte[] packet = new byte[size + 4];
+        System.arraycopy(data, 0, packet, 0, packet.length);
+        length = 0;
+        if (packet[4] != OkPacket.FIELD_COUNT) {
+            error = packet;
+            return END;
+        }
+        OkPacket ok = new OkPacket();
+        ok.read(packet);
+        int increment = increments[current];
+        int[] position = positions.get(current++);
+        if (ok.insertId > 0) {
+            for (int i = 0; i < position.length; ++i) {
+                insertIds[position[i]] = ok.insertId + (long) i * increment;
+            }
+        }
+        serverStatus = ok.serverStatus;
+        warningCount += ok.warningCount;
+        return current < routes.size() ? NEXT : END;
+    }
+
+    /**
+     * @return 是否有节点已经执行成功而后面的节点出错
+     */
+    boolean isPartialFailed() {
+        return error != null && current > 0;
+    }
+
+    /**
+     * 写出全部语句的响应：每条语句一个OK包，或者出错时的ERROR包。
+     */
+    ByteBuffer write(ByteBuffer buffer, FrontendConnection c) {
+        if (error != null) {
+            error[3] = 1;
+            return c.writeToBuffer(error, buffer);
+        }
+        for (int i = 0; i < count; ++i) {
+            OkPacket ok = new OkPacket();
+            ok.packetId = (byte) (i + 1);
+            ok.affectedRows = 1;
+            ok.insertId = insertIds[i];
+            ok.serverStatus = serverStatus;
+            ok.warningCount = i == count - 1 ? warningCount : 0;
+            buffer = ok.write(buffer, c);
+        }
+        return buffer;
+    }
+
+    /**
+     * @return 最后一条生成了自增值的语句的insert_id，没有时返回0。
+     */
+    long getLastInsertId() {
+        for (int i = count - 1; i >= 0; --i) {
+            if (insertIds[i] > 0) {
+                return insertIds[i];
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isSingleRow(DMLInsertStatement insert) {
+        List<RowExpression> rows = insert.getRowList();
+        return !insert.isIgnore() && insert.getSelect() == null && rows != null && rows.size() == 1
+                && rows.get(0).getSourceStart() >= 0
+                && (insert.getDuplicateUpdate() == null || insert.getDuplicateUpdate().isEmpty());
+    }
+
+    private static boolean isSameTarget(DMLInsertStatement first, DMLInsertStatement insert) {
+        return first.getMode() == insert.getMode() && first.getTable().equals(insert.getTable())
+                && equals(first.getColumnNameList(), insert.getColumnNameList());
+    }
+
+    private static boolean equals(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    /**
+     * 以第一条语句为模板，把其他语句的行追加在它的行之后。
+     */
+    private static String merge(List<String> sqls, List<RowExpression> rows, int[] position) {
+        String sql = sqls.get(position[0]);
+        int end = rows.get(position[0]).getSourceEnd();
+        StringBuilder s = new StringBuilder(sql.length() * position.length);
+        s.append(sql, 0, end);
+        for (int i = 1; i < position.length; ++i) {
+            RowExpression row = rows.get(position[i]);
+            s.append(',').append(sqls.get(position[i]), row.getSourceStart(), row.getSourceEnd());
+        }
+        s.append(sql, end, sql.length());
+        return s.toString();
+    }
+
+}
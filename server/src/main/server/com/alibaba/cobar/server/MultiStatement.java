@@ -0,0 +1,251 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.server;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次COM_QUERY中的多条语句，前一条语句的响应写完后再执行下一条。
+ * 
+ * <pre>
+ * 各语句的响应由不同的处理器写出，写出前在这里逐包跟踪：
+ *   1.重写数据包序号，使其在整个请求的响应中连续；
+ *   2.识别每条语句响应的结束包(OK、结果集的第二个EOF或ERROR)；
+ *   3.不是最后一条语句时在结束包的状态中设置SERVER_MORE_RESULTS_EXISTS。
+ * 语句出错时不再执行后面的语句。合并执行的多条语句(见{@link InsertBatch})一次写出各自的响应。
+ * </pre>
+ */
+final class MultiStatement {
+    public static final int RUNNING = 0;
+    public static final int NEXT = 1;
+    public static final int END = 2;
+
+    private static final int SERVER_MORE_RESULTS_EXISTS = 0x0008;
+    private static final int MAX_PACKET_SIZE = 0xffffff;
+
+    // 响应阶段
+    private static final int FIRST = 0;
+    private static final int FIELDS = 1;
+    private static final int ROWS = 2;
+
+    // 数据包类型
+    private static final int OTHER = 0;
+    private static final int HEADER = 1;
+    private static final int FIELD_EOF = 2;
+    private static final int OK = 3;
+    private static final int EOF = 4;
+    private static final int ERROR = 5;
+
+    private final List<String> statements;
+    private int index;
+    private int pending;
+    private byte sequence;
+    private int phase;
+
+    // 当前数据包
+    private int headerGot;
+    private int length;
+    private int position;
+    private boolean continued;
+    private int type;
+    private boolean inspect;
+    private int lengthAt;
+    private int lengthGot;
+    private int statusAt;
+
+    MultiStatement(List<String> statements) {
+        this.statements = statements;
+        this.sequence = 1;
+        reset();
+    }
+
+    /**
+     * 只跟踪单条语句的响应，响应结束时{@link #track(ByteBuffer)}返回{@link #END}。
+     */
+    static MultiStatement single() {
+        return new MultiStatement(Collections.<String> emptyList());
+    }
+
+    public synchronized String next() {
+        pending = 1;
+        return statements.get(index++);
+    }
+
+    /**
+     * 同时开始执行多条语句，之后需要依次写出这些语句的响应。
+     */
+    public synchronized void next(int count) {
+        pending = count;
+        index += count;
+    }
+
+    /**
+     * @return 还未开始执行的语句
+     */
+    public synchronized List<String> remaining() {
+        return statements.subList(index, statements.size());
+    }
+
+    /**
+     * 跟踪写出的数据，缓存中[0, position)的数据包序号和状态会被改写。
+     * 
+     * @return {@link #NEXT}当前语句的响应已经结束并且需要执行下一条语句，
+     *         {@link #END}全部响应已经结束。
+     */
+    public synchronized int track(ByteBuffer buffer) {
+        int result = RUNNING;
+        int end = buffer.position();
+        int i = 0;
+        while (i < end || (headerGot == 4 && position == length)) {
+            if (headerGot < 4) {
+                if (headerGot < 3) {
+                    length |= (buffer.get(i) & 0xff) << (8 * headerGot);
+                } else {
+                    buffer.put(i, sequence++);
+                }
+                ++headerGot;
+                ++i;
+                continue;
+            }
+            if (position == length) {
+                int r = endPacket();
+                if (r != RUNNING) {
+                    result = r;
+                }
+                continue;
+            }
+            if (!inspect) {
+                int n = Math.min(end - i, length - position);
+                i += n;
+                position += n;
+                continue;
+            }
+            byte b = buffer.get(i);
+            if (position == 0) {
+                startPacket(b);
+            } else if (position == lengthAt && lengthGot < 2) {
+                // OK包中affected_rows和insert_id两个Length Coded Binary之后是状态
+                lengthAt += lengthSize(b);
+                if (++lengthGot == 2) {
+                    statusAt = lengthAt;
+                }
+            }
+            if (position == statusAt) {
+                if (pending > 1 || index < statements.size()) {
+                    buffer.put(i, (byte) (b | SERVER_MORE_RESULTS_EXISTS));
+                }
+                inspect = false;
+            }
+            ++i;
+            ++position;
+        }
+        return result;
+    }
+
+    private void startPacket(byte b) {
+        if (continued) {
+            inspect = false;
+            return;
+        }
+        switch (phase) {
+        case FIRST:
+            if (b == 0x00) {
+                type = OK;
+                lengthAt = 1;
+            } else if (b == (byte) 0xff) {
+                type = ERROR;
+                inspect = false;
+            } else {
+                type = HEADER;
+                inspect = false;
+            }
+            break;
+        case FIELDS:
+            type = b == (byte) 0xfe && length < 9 ? FIELD_EOF : OTHER;
+            inspect = false;
+            break;
+        default:
+            if (b == (byte) 0xfe && length < 9) {
+                type = EOF;
+                statusAt = 3;
+            } else if (b == (byte) 0xff) {
+                type = ERROR;
+                inspect = false;
+            } else {
+                type = OTHER;
+                inspect = false;
+            }
+        }
+    }
+
+    private int endPacket() {
+        int result = RUNNING;
+        if (length == MAX_PACKET_SIZE) {
+            // 后面还有该数据包的后续部分
+            continued = true;
+        } else {
+            continued = false;
+            switch (type) {
+            case HEADER:
+                phase = FIELDS;
+                break;
+            case FIELD_EOF:
+                phase = ROWS;
+                break;
+            case OK:
+            case EOF:
+                phase = FIRST;
+                if (--pending <= 0) {
+                    result = index < statements.size() ? NEXT : END;
+                }
+                break;
+            case ERROR:
+                phase = FIRST;
+                result = END;
+                break;
+            }
+        }
+        reset();
+        return result;
+    }
+
+    private void reset() {
+        headerGot = 0;
+        length = 0;
+        position = 0;
+        type = OTHER;
+        inspect = true;
+        lengthAt = -1;
+        lengthGot = 0;
+        statusAt = -1;
+    }
+
+    private static int lengthSize(byte b) {
+        switch (b & 0xff) {
+        case 0xfc:
+            return 3;
+        case 0xfd:
+            return 4;
+        case 0xfe:
+            return 9;
+        default:
+            return 1;
+        }
+    }
+
+}
@@ -16,21 +16,35 @@
 package com.alibaba.cobar.server;
 
 import java.io.EOFException;
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.sql.SQLNonTransientException;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 
+import com.alibaba.cobar.CobarConfig;
 import com.alibaba.cobar.CobarServer;
+import com.alibaba.cobar.config.Capabilities;
 import com.alibaba.cobar.config.ErrorCode;
 import com.alibaba.cobar.config.model.SchemaConfig;
+import com.alibaba.cobar.config.model.SystemConfig;
+import com.alibaba.cobar.config.model.UserConfig;
+import com.alibaba.cobar.mysql.MySQLMessage;
 import com.alibaba.cobar.net.FrontendConnection;
+import com.alibaba.cobar.net.mysql.EOFPacket;
+import com.alibaba.cobar.net.mysql.MySQLPacket;
 import com.alibaba.cobar.route.RouteResultset;
 import com.alibaba.cobar.route.ServerRouter;
+import com.alibaba.cobar.server.parser.ServerParse;
 import com.alibaba.cobar.server.response.Heartbeat;
 import com.alibaba.cobar.server.response.Ping;
 import com.alibaba.cobar.server.session.BlockingSession;
 import com.alibaba.cobar.server.session.NonBlockingSession;
+import com.alibaba.cobar.server.session.Session;
+import com.alibaba.cobar.util.ByteCharSequence;
 import com.alibaba.cobar.util.TimeUtil;
 
 /**
@@ -46,6 +60,10 @@ public class ServerConnection extends FrontendConnection {
     private long lastInsertId;
     private BlockingSession session;
     private NonBlockingSession session2;
+    private volatile MultiStatement multiStatement;
+    private volatile boolean batchInsert;
+    private volatile InsertBatch insertBatch;
+    private final AtomicReference<Runnable> permit = new AtomicReference<Runnable>();
 
     public ServerConnection(SocketChannel channel) {
         super(channel);
@@ -86,6 +104,17 @@ public class ServerConnection extends FrontendConnection {
         this.lastInsertId = lastInsertId;
     }
 
+    public boolean isBatchInsert() {
+        return batchInsert;
+    }
+
+    /**
+     * 事务中多条语句里连续的单行INSERT是否合并执行，见{@link InsertBatch}
+     */
+    public void setBatchInsert(boolean batchInsert) {
+        this.batchInsert = batchInsert;
+    }
+
     /**
      * 设置是否需要中断当前事务
      */
@@ -111,6 +140,37 @@ public class ServerConnection extends FrontendConnection {
         this.session2 = session2;
     }
 
+    /**
+     * 支持一次请求中包含多条语句
+     */
+    @Override
+    protected int getServerCapabilities() {
+        return super.getServerCapabilities() | Capabilities.CLIENT_MULTI_STATEMENTS | Capabilities.CLIENT_MULTI_RESULTS;
+    }
+
+    /**
+     * MYSQL_OPTION_MULTI_STATEMENTS_ON(0)/OFF(1)
+     */
+    @Override
+    public void setOption(byte[] data) {
+        MySQLMessage mm = new MySQLMessage(data);
+        mm.position(5);
+        switch (mm.readUB2()) {
+        case 0:
+            multiStatements = true;
+            break;
+        case 1:
+            multiStatements = false;
+            break;
+        default:
+            writeErrMessage(ErrorCode.ER_UNKNOWN_COM_ERROR, "Unknown option");
+            return;
+        }
+        EOFPacket eof = new EOFPacket();
+        eof.packetId = 1;
+        write(eof.write(allocate(), this));
+    }
+
     @Override
     public void ping() {
         Ping.response(this);
@@ -121,6 +181,190 @@ public class ServerConnection extends FrontendConnection {
         Heartbeat.response(this, data);
     }
 
+    /**
+     * 已认证连接的请求先经过用户和schema的并发限制。查询的响应可能由后端线程异步写出，
+     * 许可在最后一个响应包写出或者连接关闭时释放，其他命令处理完即释放。
+     */
+    @Override
+    public void handle(byte[] data) {
+        if (!isAuthenticated) {
+            super.handle(data);
+            return;
+        }
+        CobarServer server = CobarServer.getInstance();
+        CobarConfig conf = server.getConfig();
+        UserConfig uc = conf.getUsers().get(user);
+        SchemaConfig sc = schema == null ? null : conf.getSchemas().get(schema);
+        Runnable release = server.getConcurrencyLimiter().acquire(user, uc == null ? 0 : uc.getMaxConcurrent(),
+                schema, sc == null ? 0 : sc.getMaxConcurrent());
+        if (release == null) {
+            processor.getHandler().shed();
+            writeErrMessage(ErrorCode.ER_TOO_MANY_USER_CONNECTIONS, "Too many concurrent requests for user '" + user
+                    + "' or schema '" + schema + "'");
+            return;
+        }
+        if (release != ConcurrencyLimiter.NONE && data.length > 4 && data[4] == MySQLPacket.COM_QUERY) {
+            Runnable old = permit.getAndSet(release);
+            if (old != null) {
+                old.run();
+            }
+            multiStatement = MultiStatement.single();
+            super.handle(data, null);
+        } else {
+            super.handle(data, release);
+        }
+    }
+
+    private void releasePermit() {
+        Runnable release = permit.getAndSet(null);
+        if (release != null) {
+            release.run();
+        }
+    }
+
+    /**
+     * 不需要解析和改写的修改语句直接转发原始字节，不解码为字符串。
+     */
+    @Override
+    public void query(byte[] data) {
+        if (!txInterrupted && queryHandler != null && schema != null && data.length > 5
+                && !(multiStatements && hasSemicolon(data))) {
+            SchemaConfig sc = CobarServer.getInstance().getConfig().getSchemas().get(schema);
+            if (sc != null && sc.isNoSharding() && !sc.isKeepSqlSchema()) {
+                int type = ServerParse.parse(new ByteCharSequence(data, 5, data.length - 5));
+                switch (type & 0xff) {
+                case ServerParse.INSERT:
+                case ServerParse.UPDATE:
+                case ServerParse.DELETE:
+                case ServerParse.REPLACE:
+                    RouteResultset rrs = ServerRouter.route(sc, data, 5, charset);
+                    if (rrs != null) {
+                        getSession(schema, rrs, type).execute(rrs, type);
+                        return;
+                    }
+                }
+            }
+        }
+        super.query(data);
+    }
+
+    private static boolean hasSemicolon(byte[] data) {
+        for (int i = 5; i < data.length; ++i) {
+            if (data[i] == ';') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 依次执行一次请求中的多条语句，每条语句单独路由。
+     */
+    public void multiQuery(List<String> statements) {
+        MultiStatement ms = new MultiStatement(statements);
+        multiStatement = ms;
+        queryNext(ms);
+    }
+
+    /**
+     * 执行下一条语句，开启批量插入时事务中连续的单行INSERT合并执行。
+     */
+    private void queryNext(MultiStatement ms) {
+        if (batchInsert && !autocommit && !txInterrupted && schema != null) {
+            CobarConfig conf = CobarServer.getInstance().getConfig();
+            SchemaConfig sc = conf.getSchemas().get(schema);
+            InsertBatch batch = sc == null ? null : InsertBatch.build(ms.remaining(), sc, charset, this,
+                    conf.getDataNodes());
+            if (batch != null) {
+                ms.next(batch.getCount());
+                insertBatch = batch;
+                executeBatch(batch);
+                return;
+            }
+        }
+        queryHandler.query(ms.next());
+    }
+
+    private void executeBatch(InsertBatch batch) {
+        RouteResultset rrs = batch.next();
+        getSession(schema, rrs, ServerParse.INSERT).execute(rrs, ServerParse.INSERT);
+    }
+
+    /**
+     * 执行多条语句时，跟踪各语句的响应，一条语句的响应结束后再执行下一条。
+     */
+    @Override
+    public void write(ByteBuffer buffer) {
+        InsertBatch batch = insertBatch;
+        if (batch != null && buffer.position() > 0) {
+            // 拦截合并语句的响应，全部节点执行完后再写出每条语句的响应。
+            int state = batch.collect(buffer);
+            recycle(buffer);
+            switch (state) {
+            case InsertBatch.RUNNING:
+                return;
+            case InsertBatch.NEXT:
+                executeNext(null, batch);
+                return;
+            default:
+                insertBatch = null;
+                if (batch.isPartialFailed()) {
+                    setTxInterrupt();
+                } else {
+                    long id = batch.getLastInsertId();
+                    if (id > 0) {
+                        lastInsertId = id;
+                    }
+                }
+                buffer = batch.write(allocate(), this);
+            }
+        }
+        MultiStatement ms = multiStatement;
+        if (ms == null) {
+            super.write(buffer);
+            return;
+        }
+        int state = MultiStatement.RUNNING;
+        synchronized (ms) {
+            if (buffer.position() > 0) {
+                state = ms.track(buffer);
+            }
+            if (state == MultiStatement.END) {
+                // 写出之前释放，客户端收到响应后发出的下一个请求可以申请到许可
+                multiStatement = null;
+                releasePermit();
+            }
+            super.write(buffer);
+        }
+        if (state == MultiStatement.NEXT) {
+            executeNext(ms, null);
+        }
+    }
+
+    /**
+     * 在业务线程中执行下一条语句或者合并语句的下一个节点
+     */
+    private void executeNext(final MultiStatement ms, final InsertBatch batch) {
+        try {
+            processor.getHandler().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (batch != null) {
+                            executeBatch(batch);
+                        } else {
+                            queryNext(ms);
+                        }
+                    } catch (Throwable t) {
+                        error(ErrorCode.ERR_HANDLE_DATA, t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            writeErrMessage(ErrorCode.ER_CON_COUNT_ERROR, "Server is busy, request rejected");
+        }
+    }
+
     public void execute(String sql, int type) {
         // 状态检查
         if (txInterrupted) {
@@ -153,7 +397,36 @@ public class ServerConnection extends FrontendConnection {
         }
 
         // session执行
-        session.execute(rrs, type);
+        getSession(db, rrs, type).execute(rrs, type);
+    }
+
+    /**
+     * 按schema配置选择执行的session，已持有后端连接的session优先(事务中切换schema时保持一致)。
+     * 开启multiNodeAsync时，非事务的多节点查询由NIO session并发执行，不占用每个节点一个线程。
+     */
+    private Session getSession(String db, RouteResultset rrs, int type) {
+        if (session2.getTargetCount() > 0) {
+            return session2;
+        }
+        if (session.getTargetCount() > 0) {
+            return session;
+        }
+        SystemConfig system = CobarServer.getInstance().getConfig().getSystem();
+        if (system.isNonBlockingSchema(db)) {
+            return session2;
+        }
+        if (system.isMultiNodeAsync() && autocommit && (type & 0xff) == ServerParse.SELECT && rrs.getNodes() != null
+                && rrs.getNodes().length > 1) {
+            return session2;
+        }
+        return session;
+    }
+
+    /**
+     * @return 当前持有后端连接的session，没有时返回BIO session
+     */
+    private Session getActiveSession() {
+        return session2.getTargetCount() > 0 ? session2 : session;
     }
 
     /**
@@ -163,7 +436,7 @@ public class ServerConnection extends FrontendConnection {
         if (txInterrupted) {
             writeErrMessage(ErrorCode.ER_YES, "Transaction error, need to rollback.");
         } else {
-            session.commit();
+            getActiveSession().commit();
         }
     }
 
@@ -177,7 +450,7 @@ public class ServerConnection extends FrontendConnection {
         }
 
         // 执行回滚
-        session.rollback();
+        getActiveSession().rollback();
     }
 
     /**
@@ -186,10 +459,10 @@ public class ServerConnection extends FrontendConnection {
      * @param sponsor 发起者为null表示是自己
      */
     public void cancel(final FrontendConnection sponsor) {
-        processor.getExecutor().execute(new Runnable() {
+        processor.getBlockingExecutor().execute(new Runnable() {
             @Override
             public void run() {
-                session.cancel(sponsor);
+                getActiveSession().cancel(sponsor);
             }
         });
     }
@@ -223,10 +496,15 @@ public class ServerConnection extends FrontendConnection {
     @Override
     public boolean close() {
         if (super.close()) {
-            processor.getExecutor().execute(new Runnable() {
+            processor.getBlockingExecutor().execute(new Runnable() {
                 @Override
                 public void run() {
-                    session.terminate();
+                    try {
+                        session.terminate();
+                        session2.terminate();
+                    } finally {
+                        releasePermit();
+                    }
                 }
             });
             return true;
@@ -15,6 +15,8 @@
  */
 package com.alibaba.cobar.server;
 
+import java.util.List;
+
 import org.apache.log4j.Logger;
 
 import com.alibaba.cobar.config.ErrorCode;
@@ -29,6 +31,7 @@ import com.alibaba.cobar.server.handler.ShowHandler;
 import com.alibaba.cobar.server.handler.StartHandler;
 import com.alibaba.cobar.server.handler.UseHandler;
 import com.alibaba.cobar.server.parser.ServerParse;
+import com.alibaba.cobar.server.parser.ServerParseMulti;
 
 /**
  * @author xianmao.hexm
@@ -48,6 +51,13 @@ public class ServerQueryHandler implements FrontendQueryHandler {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug(new StringBuilder().append(c).append(sql).toString());
         }
+        if (c.isMultiStatements() && sql.indexOf(';') >= 0) {
+            List<String> statements = ServerParseMulti.split(sql);
+            if (statements.size() > 1) {
+                c.multiQuery(statements);
+                return;
+            }
+        }
         int rs = ServerParse.parse(sql);
         switch (rs & 0xff) {
         case ServerParse.EXPLAIN:
@@ -17,6 +17,8 @@ package com.alibaba.cobar.server.handler;
 
 import static com.alibaba.cobar.server.parser.ServerParseSet.AUTOCOMMIT_OFF;
 import static com.alibaba.cobar.server.parser.ServerParseSet.AUTOCOMMIT_ON;
+import static com.alibaba.cobar.server.parser.ServerParseSet.BATCH_INSERT_OFF;
+import static com.alibaba.cobar.server.parser.ServerParseSet.BATCH_INSERT_ON;
 import static com.alibaba.cobar.server.parser.ServerParseSet.CHARACTER_SET_CLIENT;
 import static com.alibaba.cobar.server.parser.ServerParseSet.CHARACTER_SET_CONNECTION;
 import static com.alibaba.cobar.server.parser.ServerParseSet.CHARACTER_SET_RESULTS;
@@ -91,6 +93,14 @@ public final class SetHandler {
                 c.writeErrMessage(ErrorCode.ER_UNKNOWN_CHARACTER_SET, "Unknown charset '" + charset + "'");
             }
             break;
+        case BATCH_INSERT_ON:
+            c.setBatchInsert(true);
+            c.write(c.writeToBuffer(OkPacket.OK, c.allocate()));
+            break;
+        case BATCH_INSERT_OFF:
+            c.setBatchInsert(false);
+            c.write(c.writeToBuffer(OkPacket.OK, c.allocate()));
+            break;
         case CHARACTER_SET_CLIENT:
         case CHARACTER_SET_CONNECTION:
         case CHARACTER_SET_RESULTS:
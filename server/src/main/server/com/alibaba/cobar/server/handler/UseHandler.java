@@ -16,7 +16,6 @@
 package com.alibaba.cobar.server.handler;
 
 import java.nio.ByteBuffer;
-import java.util.Set;
 
 import com.alibaba.cobar.config.ErrorCode;
 import com.alibaba.cobar.net.handler.FrontendPrivileges;
@@ -59,8 +58,7 @@ public final class UseHandler {
             c.writeErrMessage(ErrorCode.ER_ACCESS_DENIED_ERROR, "Access denied for user '" + c.getUser() + "'");
             return;
         }
-        Set<String> schemas = privileges.getUserSchemas(user);
-        if (schemas == null || schemas.size() == 0 || schemas.contains(schema)) {
+        if (privileges.isSchemaAllowed(user, schema)) {
             c.setSchema(schema);
             ByteBuffer buffer = c.allocate();
             c.write(c.writeToBuffer(OkPacket.OK, buffer));
@@ -40,7 +40,7 @@ public final class ServerParse {
     public static final int EXPLAIN = 15;
     public static final int KILL_QUERY = 16;
 
-    public static int parse(String stmt) {
+    public static int parse(CharSequence stmt) {
         for (int i = 0; i < stmt.length(); ++i) {
             switch (stmt.charAt(i)) {
             case ' ':
@@ -87,7 +87,7 @@ public final class ServerParse {
     }
 
     // EXPLAIN' '
-    static int explainCheck(String stmt, int offset) {
+    static int explainCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + "XPLAIN ".length()) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -106,7 +106,7 @@ public final class ServerParse {
     }
 
     // KILL' '
-    static int killCheck(String stmt, int offset) {
+    static int killCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + "ILL ".length()) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -135,7 +135,7 @@ public final class ServerParse {
     }
 
     // KILL QUERY' '
-    static int killQueryCheck(String stmt, int offset) {
+    static int killQueryCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + "UERY ".length()) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -162,7 +162,7 @@ public final class ServerParse {
     }
 
     // BEGIN
-    static int beginCheck(String stmt, int offset) {
+    static int beginCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + 4) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -177,7 +177,7 @@ public final class ServerParse {
     }
 
     // COMMIT
-    static int commitCheck(String stmt, int offset) {
+    static int commitCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + 5) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -194,7 +194,7 @@ public final class ServerParse {
     }
 
     // DELETE' '
-    static int deleteCheck(String stmt, int offset) {
+    static int deleteCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + 6) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -212,7 +212,7 @@ public final class ServerParse {
     }
 
     // INSERT' '
-    static int insertCheck(String stmt, int offset) {
+    static int insertCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + 6) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -229,7 +229,7 @@ public final class ServerParse {
         return OTHER;
     }
 
-    static int rCheck(String stmt, int offset) {
+    static int rCheck(CharSequence stmt, int offset) {
         if (stmt.length() > ++offset) {
             switch (stmt.charAt(offset)) {
             case 'E':
@@ -246,7 +246,7 @@ public final class ServerParse {
     }
 
     // REPLACE' '
-    static int replaceCheck(String stmt, int offset) {
+    static int replaceCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + 6) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -264,7 +264,7 @@ public final class ServerParse {
     }
 
     // ROLLBACK
-    static int rollabckCheck(String stmt, int offset) {
+    static int rollabckCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + 6) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -281,7 +281,7 @@ public final class ServerParse {
         return OTHER;
     }
 
-    static int sCheck(String stmt, int offset) {
+    static int sCheck(CharSequence stmt, int offset) {
         if (stmt.length() > ++offset) {
             switch (stmt.charAt(offset)) {
             case 'A':
@@ -304,7 +304,7 @@ public final class ServerParse {
     }
 
     // SAVEPOINT
-    static int savepointCheck(String stmt, int offset) {
+    static int savepointCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + 8) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -323,7 +323,7 @@ public final class ServerParse {
         return OTHER;
     }
 
-    static int seCheck(String stmt, int offset) {
+    static int seCheck(CharSequence stmt, int offset) {
         if (stmt.length() > ++offset) {
             switch (stmt.charAt(offset)) {
             case 'L':
@@ -346,7 +346,7 @@ public final class ServerParse {
     }
 
     // SELECT' '
-    static int selectCheck(String stmt, int offset) {
+    static int selectCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + 4) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -361,7 +361,7 @@ public final class ServerParse {
     }
 
     // SHOW' '
-    static int showCheck(String stmt, int offset) {
+    static int showCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + 3) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -375,7 +375,7 @@ public final class ServerParse {
     }
 
     // START' '
-    static int startCheck(String stmt, int offset) {
+    static int startCheck(CharSequence stmt, int offset) {
         if (stmt.length() > offset + 4) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -390,7 +390,7 @@ public final class ServerParse {
     }
 
     // UPDATE' ' | USE' '
-    static int uCheck(String stmt, int offset) {
+    static int uCheck(CharSequence stmt, int offset) {
         if (stmt.length() > ++offset) {
             switch (stmt.charAt(offset)) {
             case 'P':
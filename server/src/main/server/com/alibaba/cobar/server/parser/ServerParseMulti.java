@@ -0,0 +1,97 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.server.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按分号拆分一次请求中的多条语句，忽略字符串、引用标识符和注释中的分号。
+ */
+public final class ServerParseMulti {
+
+    /**
+     * @return 去掉首尾空白后的非空语句
+     */
+    public static List<String> split(String stmt) {
+        List<String> list = new ArrayList<String>(4);
+        int len = stmt.length();
+        int start = 0;
+        for (int i = 0; i < len; ++i) {
+            char c = stmt.charAt(i);
+            switch (c) {
+            case '\'':
+            case '"':
+                i = skipString(stmt, i, c);
+                break;
+            case '`':
+                i = skipTo(stmt, i + 1, '`');
+                break;
+            case '#':
+                i = skipTo(stmt, i + 1, '\n');
+                break;
+            case '-':
+                // "-- "开始的单行注释
+                if (i + 2 < len && stmt.charAt(i + 1) == '-' && Character.isWhitespace(stmt.charAt(i + 2))) {
+                    i = skipTo(stmt, i + 2, '\n');
+                } else if (i + 2 == len && stmt.charAt(i + 1) == '-') {
+                    i = len;
+                }
+                break;
+            case '/':
+                if (i + 1 < len && stmt.charAt(i + 1) == '*') {
+                    i = stmt.indexOf("*/", i + 2);
+                    i = i < 0 ? len : i + 1;
+                }
+                break;
+            case ';':
+                add(list, stmt, start, i);
+                start = i + 1;
+                break;
+            }
+        }
+        add(list, stmt, start, len);
+        return list;
+    }
+
+    private static void add(List<String> list, String stmt, int start, int end) {
+        String s = stmt.substring(start, Math.min(end, stmt.length())).trim();
+        if (s.length() > 0) {
+            list.add(s);
+        }
+    }
+
+    /**
+     * @return 字符串结束引号的位置，字符串中的反斜杠转义下一个字符
+     */
+    private static int skipString(String stmt, int offset, char quote) {
+        for (int i = offset + 1; i < stmt.length(); ++i) {
+            char c = stmt.charAt(i);
+            if (c == '\\') {
+                ++i;
+            } else if (c == quote) {
+                return i;
+            }
+        }
+        return stmt.length();
+    }
+
+    private static int skipTo(String stmt, int offset, char end) {
+        int i = stmt.indexOf(end, offset);
+        return i < 0 ? stmt.length() : i;
+    }
+
+}
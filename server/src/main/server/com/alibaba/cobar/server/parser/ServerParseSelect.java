@@ -35,6 +35,11 @@ public final class ServerParseSelect {
     private static final char[] _IDENTITY = "IDENTITY".toCharArray();
     private static final char[] _LAST_INSERT_ID = "LAST_INSERT_ID".toCharArray();
     private static final char[] _DATABASE = "DATABASE()".toCharArray();
+    private static final char[] _FOR = "FOR".toCharArray();
+    private static final char[] _UPDATE = "UPDATE".toCharArray();
+    private static final char[] _LOCK = "LOCK".toCharArray();
+    private static final char[] _IN = "IN".toCharArray();
+    private static final char[] _SHARE = "SHARE".toCharArray();
 
     public static int parse(String stmt, int offset) {
         int i = offset;
@@ -443,4 +448,49 @@ public final class ServerParseSelect {
         return OTHER;
     }
 
+    /**
+     * 检查是否为锁定读(SELECT ... FOR UPDATE, SELECT ... LOCK IN SHARE MODE)。
+     * <p>
+     * 只做词法上的保守判断，即使关键字出现在字符串常量中也视为锁定读。
+     */
+    public static boolean isLockRead(String stmt) {
+        for (int i = 0, len = stmt.length(); i < len; ++i) {
+            switch (stmt.charAt(i)) {
+            case 'F':
+            case 'f':
+                if (keywordAt(stmt, i, _FOR) && keywordAt(stmt, skipBlank(stmt, i + _FOR.length), _UPDATE)) {
+                    return true;
+                }
+                break;
+            case 'L':
+            case 'l':
+                if (keywordAt(stmt, i, _LOCK)) {
+                    int offset = skipBlank(stmt, i + _LOCK.length);
+                    if (keywordAt(stmt, offset, _IN)
+                            && keywordAt(stmt, skipBlank(stmt, offset + _IN.length), _SHARE)) {
+                        return true;
+                    }
+                }
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static int skipBlank(String stmt, int offset) {
+        for (; offset < stmt.length() && CharTypes.isWhitespace(stmt.charAt(offset)); ++offset);
+        return offset;
+    }
+
+    private static boolean keywordAt(String stmt, int offset, char[] keyword) {
+        if (offset > 0 && CharTypes.isIdentifierChar(stmt.charAt(offset - 1))) {
+            return false;
+        }
+        if (!ParseUtil.compare(stmt, offset, keyword)) {
+            return false;
+        }
+        int end = offset + keyword.length;
+        return end == stmt.length() || !CharTypes.isIdentifierChar(stmt.charAt(end));
+    }
+
 }
@@ -33,6 +33,8 @@ public final class ServerParseSet {
     public static final int CHARACTER_SET_CLIENT = 8;
     public static final int CHARACTER_SET_CONNECTION = 9;
     public static final int CHARACTER_SET_RESULTS = 10;
+    public static final int BATCH_INSERT_ON = 11;
+    public static final int BATCH_INSERT_OFF = 12;
 
     public static int parse(String stmt, int offset) {
         int i = offset;
@@ -50,6 +52,9 @@ public final class ServerParseSet {
             case 'A':
             case 'a':
                 return autocommit(stmt, i);
+            case 'B':
+            case 'b':
+                return batchInsert(stmt, i);
             case 'C':
             case 'c':
                 return characterSet(stmt, i, 0);
@@ -92,7 +97,7 @@ public final class ServerParseSet {
                     case '\t':
                         continue;
                     case '=':
-                        return autocommitValue(stmt, offset);
+                        return switchValue(stmt, offset, AUTOCOMMIT_ON, AUTOCOMMIT_OFF);
                     default:
                         return OTHER;
                     }
@@ -102,7 +107,44 @@ public final class ServerParseSet {
         return OTHER;
     }
 
-    private static int autocommitValue(String stmt, int offset) {
+    // SET BATCH_INSERT(' '=)
+    private static int batchInsert(String stmt, int offset) {
+        if (stmt.length() > offset + 12) {
+            char c1 = stmt.charAt(++offset);
+            char c2 = stmt.charAt(++offset);
+            char c3 = stmt.charAt(++offset);
+            char c4 = stmt.charAt(++offset);
+            char c5 = stmt.charAt(++offset);
+            char c6 = stmt.charAt(++offset);
+            char c7 = stmt.charAt(++offset);
+            char c8 = stmt.charAt(++offset);
+            char c9 = stmt.charAt(++offset);
+            char c10 = stmt.charAt(++offset);
+            char c11 = stmt.charAt(++offset);
+            if ((c1 == 'A' || c1 == 'a') && (c2 == 'T' || c2 == 't') && (c3 == 'C' || c3 == 'c')
+                    && (c4 == 'H' || c4 == 'h') && (c5 == '_') && (c6 == 'I' || c6 == 'i') && (c7 == 'N' || c7 == 'n')
+                    && (c8 == 'S' || c8 == 's') && (c9 == 'E' || c9 == 'e') && (c10 == 'R' || c10 == 'r')
+                    && (c11 == 'T' || c11 == 't')) {
+                while (stmt.length() > ++offset) {
+                    switch (stmt.charAt(offset)) {
+                    case ' ':
+                    case '\r':
+                    case '\n':
+                    case '\t':
+                        continue;
+                    case '=':
+                        return switchValue(stmt, offset, BATCH_INSERT_ON, BATCH_INSERT_OFF);
+                    default:
+                        return OTHER;
+                    }
+                }
+            }
+        }
+        return OTHER;
+    }
+
+    // = 1|0|ON|OFF
+    private static int switchValue(String stmt, int offset, int on, int off) {
         for (;;) {
             offset++;
             if (stmt.length() <= offset) {
@@ -116,38 +158,38 @@ public final class ServerParseSet {
                 continue;
             case '1':
                 if (stmt.length() == ++offset || ParseUtil.isEOF(stmt.charAt(offset))) {
-                    return AUTOCOMMIT_ON;
+                    return on;
                 } else {
                     return OTHER;
                 }
             case '0':
                 if (stmt.length() == ++offset || ParseUtil.isEOF(stmt.charAt(offset))) {
-                    return AUTOCOMMIT_OFF;
+                    return off;
                 } else {
                     return OTHER;
                 }
             case 'O':
             case 'o':
-                return autocommitOn(stmt, offset);
+                return switchOn(stmt, offset, on, off);
             default:
                 return OTHER;
             }
         }
     }
 
-    private static int autocommitOn(String stmt, int offset) {
+    private static int switchOn(String stmt, int offset, int on, int off) {
         if (stmt.length() > ++offset) {
             switch (stmt.charAt(offset)) {
             case 'N':
             case 'n':
                 if (stmt.length() == ++offset || ParseUtil.isEOF(stmt.charAt(offset))) {
-                    return AUTOCOMMIT_ON;
+                    return on;
                 } else {
                     return OTHER;
                 }
             case 'F':
             case 'f':
-                return autocommitOff(stmt, offset);
+                return switchOff(stmt, offset, off);
             default:
                 return OTHER;
             }
@@ -155,14 +197,14 @@ public final class ServerParseSet {
         return OTHER;
     }
 
-    // SET AUTOCOMMIT = OFF
-    private static int autocommitOff(String stmt, int offset) {
+    // = OFF
+    private static int switchOff(String stmt, int offset, int off) {
         if (stmt.length() > ++offset) {
             switch (stmt.charAt(offset)) {
             case 'F':
             case 'f':
                 if (stmt.length() == ++offset || ParseUtil.isEOF(stmt.charAt(offset))) {
-                    return AUTOCOMMIT_OFF;
+                    return off;
                 } else {
                     return OTHER;
                 }
@@ -17,7 +17,10 @@ package com.alibaba.cobar.server.session;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import org.apache.log4j.Logger;
 
@@ -38,6 +41,7 @@ import com.alibaba.cobar.route.RouteResultset;
 import com.alibaba.cobar.route.RouteResultsetNode;
 import com.alibaba.cobar.server.ServerConnection;
 import com.alibaba.cobar.server.parser.ServerParse;
+import com.alibaba.cobar.server.parser.ServerParseSelect;
 
 /**
  * 由前后端参与的一次执行会话过程
@@ -49,6 +53,7 @@ public class BlockingSession implements Session {
 
     private final ServerConnection source;
     private final ConcurrentHashMap<RouteResultsetNode, Channel> target;
+    private final Set<RouteResultsetNode> written;
     private final SingleNodeExecutor singleNodeExecutor;
     private final MultiNodeExecutor multiNodeExecutor;
     private final DefaultCommitExecutor commitExecutor;
@@ -57,6 +62,7 @@ public class BlockingSession implements Session {
     public BlockingSession(ServerConnection source) {
         this.source = source;
         this.target = new ConcurrentHashMap<RouteResultsetNode, Channel>();
+        this.written = Collections.newSetFromMap(new ConcurrentHashMap<RouteResultsetNode, Boolean>());
         this.singleNodeExecutor = new SingleNodeExecutor();
         this.multiNodeExecutor = new MultiNodeExecutor();
         this.commitExecutor = new DefaultCommitExecutor();
@@ -77,6 +83,13 @@ public class BlockingSession implements Session {
         return target;
     }
 
+    /**
+     * @return 当前绑定的通道上是否执行过可能修改数据的语句
+     */
+    public boolean isWritten(RouteResultsetNode rrn) {
+        return written.contains(rrn);
+    }
+
     @Override
     public void execute(RouteResultset rrs, int type) {
         if (LOGGER.isDebugEnabled()) {
@@ -91,16 +104,32 @@ public class BlockingSession implements Session {
             return;
         }
 
+        // 后端过载时整个请求一次丢弃，放行后各节点的任务都会执行
+        if (!source.getProcessor().admit(nodes.length)) {
+            source.writeErrMessage(ErrorCode.ER_CON_COUNT_ERROR, "Server is busy, request shed");
+            return;
+        }
+
+        // 非事务中的普通查询可以在读库上执行
+        boolean read = isReadSQL(type, rrs);
+
+        // 记录执行过写操作的节点，提交时只读节点不参与提交
+        if (!isReadOnlySQL(type)) {
+            for (RouteResultsetNode node : nodes) {
+                written.add(node);
+            }
+        }
+
         // 选择执行方式
         if (nodes.length == 1) {
-            singleNodeExecutor.execute(nodes[0], this, rrs.getFlag());
+            singleNodeExecutor.execute(nodes[0], this, rrs.getFlag(), read);
         } else {
             // 多数据节点，非事务模式下，执行的是可修改数据的SQL，则后端为事务模式。
             boolean autocommit = source.isAutocommit();
             if (autocommit && isModifySQL(type)) {
                 autocommit = false;
             }
-            multiNodeExecutor.execute(nodes, autocommit, this, rrs.getFlag());
+            multiNodeExecutor.execute(nodes, autocommit, this, rrs.getFlag(), read);
         }
     }
 
@@ -113,7 +142,7 @@ public class BlockingSession implements Session {
             source.write(buffer);
             return;
         }
-        commitExecutor.commit(null, this, initCount);
+        commitExecutor.commit(null, this);
     }
 
     @Override
@@ -159,10 +188,27 @@ public class BlockingSession implements Session {
         clear(false);
     }
 
+    /**
+     * 释放只执行过读操作的节点通道，事务中的通道在executor中回滚后释放
+     */
+    public void releaseReadOnly(RouteResultsetNode rrn, Executor executor) {
+        final Channel c = target.remove(rrn);
+        if (c == null) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                clear(c, true);
+            }
+        });
+    }
+
     /**
      * 释放session关联的资源
      */
     public void release() {
+        written.clear();
         for (RouteResultsetNode rrn : target.keySet()) {
             Channel c = target.remove(rrn);
             if (c != null) {
@@ -195,49 +241,52 @@ public class BlockingSession implements Session {
      *            concurrently with {@link #kill()}
      */
     private void clear(boolean pessimisticRelease) {
+        written.clear();
         for (RouteResultsetNode rrn : target.keySet()) {
-            Channel c = target.remove(rrn);
+            clear(target.remove(rrn), pessimisticRelease);
+        }
+    }
 
-            // 通道不存在或者已被关闭
-            if (c == null || c.isClosed()) {
-                continue;
-            }
+    private void clear(Channel c, boolean pessimisticRelease) {
+        // 通道不存在或者已被关闭
+        if (c == null || c.isClosed()) {
+            return;
+        }
 
-            // 如果通道正在运行中，则关闭当前通道。
-            if (c.isRunning() || (pessimisticRelease && source.isClosed())) {
-                c.close();
-                continue;
-            }
+        // 如果通道正在运行中，则关闭当前通道。
+        if (c.isRunning() || (pessimisticRelease && source.isClosed())) {
+            c.close();
+            return;
+        }
 
-            // 非事务中的通道，直接释放资源。
-            if (c.isAutocommit()) {
-                c.release();
-                continue;
-            }
+        // 非事务中的通道，直接释放资源。
+        if (c.isAutocommit()) {
+            c.release();
+            return;
+        }
 
-            // 事务中的通道，需要先回滚后再释放资源。
-            MySQLChannel mc = (MySQLChannel) c;
-            try {
-                BinaryPacket bin = mc.rollback();
-                switch (bin.data[0]) {
-                case OkPacket.FIELD_COUNT:
-                    mc.release();
-                    break;
-                case ErrorPacket.FIELD_COUNT:
-                    mc.close();
-                    break;
-                default:
-                    throw new UnknownPacketException(bin.toString());
-                }
-            } catch (IOException e) {
-                StringBuilder s = new StringBuilder();
-                LOGGER.warn(s.append(mc).append("rollback").toString(), e);
-                mc.close();
-            } catch (RuntimeException e) {
-                StringBuilder s = new StringBuilder();
-                LOGGER.warn(s.append(mc).append("rollback").toString(), e);
+        // 事务中的通道，需要先回滚后再释放资源。
+        MySQLChannel mc = (MySQLChannel) c;
+        try {
+            BinaryPacket bin = mc.rollback();
+            switch (bin.data[0]) {
+            case OkPacket.FIELD_COUNT:
+                mc.release();
+                break;
+            case ErrorPacket.FIELD_COUNT:
                 mc.close();
+                break;
+            default:
+                throw new UnknownPacketException(bin.toString());
             }
+        } catch (IOException e) {
+            StringBuilder s = new StringBuilder();
+            LOGGER.warn(s.append(mc).append("rollback").toString(), e);
+            mc.close();
+        } catch (RuntimeException e) {
+            StringBuilder s = new StringBuilder();
+            LOGGER.warn(s.append(mc).append("rollback").toString(), e);
+            mc.close();
         }
     }
 
@@ -253,6 +302,27 @@ public class BlockingSession implements Session {
         }
     }
 
+    /**
+     * 检查是否为可以在读库上执行的语句：自动提交模式下不带锁定读的SELECT
+     */
+    private boolean isReadSQL(int type, RouteResultset rrs) {
+        return (type & 0xff) == ServerParse.SELECT && source.isAutocommit()
+                && !ServerParseSelect.isLockRead(rrs.getStatement());
+    }
+
+    /**
+     * 只读取数据的语句，事务提交时执行过这类语句的节点可以只回滚
+     */
+    private static boolean isReadOnlySQL(int type) {
+        switch (type & 0xff) {
+        case ServerParse.SELECT:
+        case ServerParse.SHOW:
+            return true;
+        default:
+            return false;
+        }
+    }
+
     /**
      * 检查是否会引起数据变更的语句
      */
@@ -16,6 +16,7 @@
 package com.alibaba.cobar.server.session;
 
 import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -28,15 +29,16 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
-import com.alibaba.cobar.CobarConfig;
 import com.alibaba.cobar.CobarServer;
 import com.alibaba.cobar.config.ErrorCode;
+import com.alibaba.cobar.exception.UnknownDataNodeException;
 import com.alibaba.cobar.mysql.MySQLDataNode;
 import com.alibaba.cobar.mysql.nio.MySQLConnection;
 import com.alibaba.cobar.mysql.nio.handler.CommitNodeHandler;
 import com.alibaba.cobar.mysql.nio.handler.KillConnectionHandler;
 import com.alibaba.cobar.mysql.nio.handler.MultiNodeQueryHandler;
 import com.alibaba.cobar.mysql.nio.handler.RollbackNodeHandler;
+import com.alibaba.cobar.mysql.nio.handler.ResponseHandler;
 import com.alibaba.cobar.mysql.nio.handler.RollbackReleaseHandler;
 import com.alibaba.cobar.mysql.nio.handler.SingleNodeHandler;
 import com.alibaba.cobar.mysql.nio.handler.Terminatable;
@@ -46,6 +48,7 @@ import com.alibaba.cobar.route.RouteResultset;
 import com.alibaba.cobar.route.RouteResultsetNode;
 import com.alibaba.cobar.server.ServerConnection;
 import com.alibaba.cobar.server.parser.ServerParse;
+import com.alibaba.cobar.server.parser.ServerParseSelect;
 
 /**
  * @author xianmao.hexm 2012-4-12
@@ -56,6 +59,7 @@ public class NonBlockingSession implements Session {
 
     private final ServerConnection source;
     private final ConcurrentHashMap<RouteResultsetNode, MySQLConnection> target;
+    private final Set<RouteResultsetNode> written;
     private final AtomicBoolean terminating;
 
     // life-cycle: each sql execution
@@ -67,6 +71,7 @@ public class NonBlockingSession implements Session {
     public NonBlockingSession(ServerConnection source) {
         this.source = source;
         this.target = new ConcurrentHashMap<RouteResultsetNode, MySQLConnection>(2, 1);
+        this.written = Collections.newSetFromMap(new ConcurrentHashMap<RouteResultsetNode, Boolean>(2, 1));
         this.terminating = new AtomicBoolean(false);
     }
 
@@ -92,6 +97,13 @@ public class NonBlockingSession implements Session {
         return target.remove(key);
     }
 
+    /**
+     * @return 当前绑定的连接上是否执行过可能修改数据的语句
+     */
+    public boolean isWritten(RouteResultsetNode key) {
+        return written.contains(key);
+    }
+
     @Override
     public void execute(RouteResultset rrs, int type) {
         if (LOGGER.isDebugEnabled()) {
@@ -106,16 +118,60 @@ public class NonBlockingSession implements Session {
             return;
         }
 
+        // 后端过载时整个请求一次丢弃，放行后各节点的任务都会执行
+        if (!source.getProcessor().admit(nodes.length)) {
+            source.writeErrMessage(ErrorCode.ER_CON_COUNT_ERROR, "Server is busy, request shed");
+            return;
+        }
+
+        // 非事务中的普通查询可以在读库上执行
+        boolean read = isReadSQL(type, rrs);
+
+        // 记录执行过写操作的节点，提交时只读节点不参与提交
+        if (!isReadOnlySQL(type)) {
+            for (RouteResultsetNode node : nodes) {
+                written.add(node);
+            }
+        }
+
         if (nodes.length == 1) {
-            singleNodeHandler = new SingleNodeHandler(nodes[0], this);
-            // singleNodeHandler.execute();
+            singleNodeHandler = new SingleNodeHandler(nodes[0], this, read);
+            singleNodeHandler.execute();
         } else {
             boolean autocommit = source.isAutocommit();
             if (autocommit && isModifySQL(type)) {
                 autocommit = false;
             }
-            multiNodeHandler = new MultiNodeQueryHandler(nodes, autocommit, this);
-            // multiNodeHandler.execute();
+            multiNodeHandler = new MultiNodeQueryHandler(nodes, autocommit, this, read);
+            try {
+                multiNodeHandler.execute();
+            } catch (Exception e) {
+                LOGGER.warn(new StringBuilder().append(source).append(rrs).toString(), e);
+                source.writeErrMessage(ErrorCode.ER_YES, e.toString());
+            }
+        }
+    }
+
+    /**
+     * 从路由节点对应的连接池中异步获取连接，获取结果通知给handler。
+     * 
+     * @param read 是否可以使用读库
+     */
+    public void getConnection(RouteResultsetNode rrn, boolean read, ResponseHandler handler, Object attachment)
+            throws Exception {
+        MySQLDataNode dn = CobarServer.getInstance().getConfig().getDataNodes().get(rrn.getName());
+        if (dn == null) {
+            throw new UnknownDataNodeException("Unknown dataNode '" + rrn.getName() + "'");
+        }
+        int i = rrn.getReplicaIndex();
+        if (i == RouteResultsetNode.DEFAULT_REPLICA_INDEX) {
+            if (read) {
+                dn.getReadConnection(handler, attachment);
+            } else {
+                dn.getConnection(handler, attachment);
+            }
+        } else {
+            dn.getConnection(handler, attachment, i);
         }
     }
 
@@ -144,9 +200,20 @@ public class NonBlockingSession implements Session {
     }
 
     @Override
-    public void cancel(FrontendConnection sponsor) {
-        // TODO Auto-generated method stub
-
+    public void cancel(final FrontendConnection sponsor) {
+        kill(new Runnable() {
+            @Override
+            public void run() {
+                source.writeErrMessage(ErrorCode.ER_QUERY_INTERRUPTED, "Query execution was interrupted");
+                if (sponsor != null) {
+                    OkPacket packet = new OkPacket();
+                    packet.packetId = 1;
+                    packet.affectedRows = 0;
+                    packet.serverStatus = 2;
+                    packet.write(sponsor);
+                }
+            }
+        });
     }
 
     /**
@@ -202,7 +269,15 @@ public class NonBlockingSession implements Session {
         clearConnections(true);
     }
 
+    /**
+     * 释放只执行过读操作的节点连接，事务中的连接回滚后释放，不等待回滚结果
+     */
+    public void releaseReadOnlyConnection(RouteResultsetNode key) {
+        clearConnection(target.remove(key), true);
+    }
+
     public void releaseConnections() {
+        written.clear();
         for (RouteResultsetNode rrn : target.keySet()) {
             MySQLConnection c = target.remove(rrn);
             if (c != null) {
@@ -280,11 +355,11 @@ public class NonBlockingSession implements Session {
         }
         if (hooked) {
             for (Entry<RouteResultsetNode, MySQLConnection> en : killees.entrySet()) {
-                KillConnectionHandler kill = new KillConnectionHandler(en.getValue(), this, run, count);
-                CobarConfig conf = CobarServer.getInstance().getConfig();
-                MySQLDataNode dn = conf.getDataNodes().get(en.getKey().getName());
+                MySQLConnection killee = en.getValue();
+                KillConnectionHandler kill = new KillConnectionHandler(killee, this, run, count);
                 try {
-                    dn.getConnection(kill, en.getKey());
+                    // 在被终止连接所在的数据源上执行KILL
+                    killee.getPool().getConnection(kill, en.getKey());
                 } catch (Exception e) {
                     LOGGER.error("get killer connection failed for " + en.getKey(), e);
                     kill.connectionError(e, null);
@@ -296,34 +371,55 @@ public class NonBlockingSession implements Session {
     }
 
     private void clearConnections(boolean pessimisticRelease) {
+        written.clear();
         for (RouteResultsetNode node : target.keySet()) {
-            MySQLConnection c = target.remove(node);
-
-            if (c == null || c.isClosedOrQuit()) {
-                continue;
-            }
+            clearConnection(target.remove(node), pessimisticRelease);
+        }
+    }
 
-            // 如果通道正在运行中，则关闭当前通道。
-            if (c.isRunning() || (pessimisticRelease && source.isClosed())) {
-                c.close();
-                continue;
-            }
+    private void clearConnection(MySQLConnection c, boolean pessimisticRelease) {
+        if (c == null || c.isClosedOrQuit()) {
+            return;
+        }
 
-            // 非事务中的通道，直接释放资源。
-            if (c.isAutocommit()) {
-                c.release();
-                continue;
-            }
+        // 如果通道正在运行中，则关闭当前通道。
+        if (c.isRunning() || (pessimisticRelease && source.isClosed())) {
+            c.close();
+            return;
+        }
 
-            c.setResponseHandler(new RollbackReleaseHandler());
-            c.rollback();
+        // 非事务中的通道，直接释放资源。
+        if (c.isAutocommit()) {
+            c.release();
+            return;
         }
+
+        c.setResponseHandler(new RollbackReleaseHandler());
+        c.rollback();
     }
 
     public boolean closed() {
         return source.isClosed();
     }
 
+    private boolean isReadSQL(int type, RouteResultset rrs) {
+        return (type & 0xff) == ServerParse.SELECT && source.isAutocommit()
+                && !ServerParseSelect.isLockRead(rrs.getStatement());
+    }
+
+    /**
+     * 只读取数据的语句，事务提交时执行过这类语句的节点可以只回滚
+     */
+    private static boolean isReadOnlySQL(int type) {
+        switch (type & 0xff) {
+        case ServerParse.SELECT:
+        case ServerParse.SHOW:
+            return true;
+        default:
+            return false;
+        }
+    }
+
     private static boolean isModifySQL(int type) {
         switch (type) {
         case ServerParse.INSERT:
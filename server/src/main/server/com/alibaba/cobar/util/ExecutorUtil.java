@@ -15,8 +15,14 @@
  */
 package com.alibaba.cobar.util;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -33,6 +39,50 @@ public class ExecutorUtil {
         return new NameableExecutor(name, size, new LinkedBlockingQueue<Runnable>(), factory);
     }
 
+    /**
+     * 创建有界队列的线程池，队列满时拒绝任务并计入丢弃数。
+     * 
+     * @param capacity 队列容量，小于等于0表示无界
+     */
+    public static final NameableExecutor create(String name, int size, int capacity) {
+        if (capacity <= 0) {
+            return create(name, size, true);
+        }
+        NameableThreadFactory factory = new NameableThreadFactory(name, true);
+        NameableExecutor exec = new NameableExecutor(name, size, new LinkedBlockingQueue<Runnable>(capacity), factory);
+        exec.setRejectedExecutionHandler(SHED_POLICY);
+        return exec;
+    }
+
+    private static final RejectedExecutionHandler SHED_POLICY = new RejectedExecutionHandler() {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor instanceof NameableExecutor) {
+                ((NameableExecutor) executor).shed();
+            }
+            throw new RejectedExecutionException(executor.toString());
+        }
+    };
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器，适合执行阻塞的后端调用。
+     * 
+     * @return 运行时不支持虚拟线程时返回null
+     */
+    public static final ExecutorService createVirtual(String name) {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = ofVirtual.invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method create = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) create.invoke(null, factory);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     private static class NameableThreadFactory implements ThreadFactory {
         private final ThreadGroup group;
         private final String namePrefix;
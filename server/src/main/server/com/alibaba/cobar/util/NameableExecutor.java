@@ -19,6 +19,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 线程池
@@ -27,6 +28,7 @@ import java.util.concurrent.TimeUnit;
 public class NameableExecutor extends ThreadPoolExecutor {
 
     protected String name;
+    private final AtomicLong shedCount = new AtomicLong(0);
 
     public NameableExecutor(String name, int size, BlockingQueue<Runnable> queue, ThreadFactory factory) {
         super(size, size, Long.MAX_VALUE, TimeUnit.NANOSECONDS, queue, factory);
@@ -37,4 +39,15 @@ public class NameableExecutor extends ThreadPoolExecutor {
         return name;
     }
 
+    /**
+     * 记录一次被拒绝或超时丢弃的任务
+     */
+    public void shed() {
+        shedCount.incrementAndGet();
+    }
+
+    public long getShedCount() {
+        return shedCount.get();
+    }
+
 }
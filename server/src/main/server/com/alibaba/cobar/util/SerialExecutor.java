@@ -0,0 +1,87 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * 串行执行器：任务按提交顺序在给定的线程池上逐个执行，同一时刻最多一个线程在执行。
+ * 提交线程只把任务放入队列，既不在锁上等待，也不负责执行。每次最多连续执行{@link #MAX_BATCH}个任务，
+ * 之后重新提交到线程池，不长期占用同一个线程。
+ */
+public final class SerialExecutor implements Executor {
+    private static final Logger LOGGER = Logger.getLogger(SerialExecutor.class);
+    private static final int MAX_BATCH = 64;
+
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<Runnable> tasks;
+    private final AtomicInteger wip;
+    private final Runnable drainer;
+
+    public SerialExecutor(Executor executor) {
+        this.executor = executor;
+        this.tasks = new ConcurrentLinkedQueue<Runnable>();
+        this.wip = new AtomicInteger(0);
+        this.drainer = new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.offer(task);
+        if (wip.getAndIncrement() == 0) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(drainer);
+        } catch (RejectedExecutionException e) {
+            // 线程池已关闭时由提交线程执行，保证队列中的任务不会丢失
+            drain();
+        }
+    }
+
+    private void drain() {
+        int n = 0;
+        for (;;) {
+            Runnable r = tasks.poll();
+            try {
+                r.run();
+            } catch (Throwable e) {
+                LOGGER.warn("serial task error.", e);
+            }
+            if (wip.decrementAndGet() == 0) {
+                return;
+            }
+            if (++n >= MAX_BATCH) {
+                schedule();
+                return;
+            }
+        }
+    }
+
+}
@@ -41,7 +41,7 @@ public class StringUtil {
      * @param start hash for s.substring(start, end)
      * @param end hash for s.substring(start, end)
      */
-    public static long hash(String s, int start, int end) {
+    public static long hash(CharSequence s, int start, int end) {
         if (start < 0) {
             start = 0;
         }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.config.model.QuarantineConfig;
+import com.alibaba.cobar.config.model.SystemConfig;
+import com.alibaba.cobar.config.model.UserConfig;
+import com.alibaba.cobar.mysql.SecurityUtil;
+
+public class CobarAuthCacheTest extends TestCase {
+
+    public void testAuth() throws NoSuchAlgorithmException {
+        Map<String, UserConfig> users = new HashMap<String, UserConfig>();
+        users.put("test", user("test", "secret", "db1"));
+        users.put("all", user("all", "", null));
+        QuarantineConfig quarantine = new QuarantineConfig();
+        quarantine.getHosts().put("1.2.3.4", new HashSet<String>(Arrays.asList("all")));
+        CobarAuthCache sut = new CobarAuthCache(users, new HashSet<String>(Arrays.asList("db1", "db2")),
+                new SystemConfig(), quarantine);
+
+        Assert.assertTrue(sut.schemaExists("db2"));
+        Assert.assertFalse(sut.schemaExists("db3"));
+        Assert.assertTrue(sut.userExists("test", "127.0.0.1"));
+        Assert.assertFalse(sut.userExists("test", "1.2.3.4"));
+        Assert.assertTrue(sut.userExists("all", "1.2.3.4"));
+        Assert.assertFalse(sut.userExists("none", "127.0.0.1"));
+        Assert.assertTrue(sut.userExists("_HEARTBEAT_USER_", "127.0.0.1"));
+
+        byte[] seed = "12345678901234567890".getBytes();
+        byte[] hash = sut.getPasswordHash("test");
+        Assert.assertTrue(SecurityUtil.checkScramble411(SecurityUtil.scramble411("secret".getBytes(), seed), seed, hash));
+        Assert.assertFalse(SecurityUtil.checkScramble411(SecurityUtil.scramble411("secreT".getBytes(), seed), seed, hash));
+        Assert.assertNull(sut.getPasswordHash("all"));
+
+        Assert.assertTrue(sut.isSchemaAllowed("test", "db1"));
+        Assert.assertFalse(sut.isSchemaAllowed("test", "db2"));
+        Assert.assertFalse(sut.isSchemaAllowed("test", "db3"));
+        Assert.assertTrue(sut.isSchemaAllowed("all", "db2"));
+    }
+
+    private static UserConfig user(String name, String password, String schema) {
+        UserConfig uc = new UserConfig();
+        uc.setName(name);
+        uc.setPassword(password);
+        if (schema != null) {
+            uc.setSchemas(new HashSet<String>(Arrays.asList(schema)));
+        }
+        return uc;
+    }
+
+}
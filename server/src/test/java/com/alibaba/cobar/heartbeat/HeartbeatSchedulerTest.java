@@ -0,0 +1,124 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.heartbeat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.config.model.DataNodeConfig;
+import com.alibaba.cobar.config.model.DataSourceConfig;
+import com.alibaba.cobar.mysql.MySQLDataNode;
+import com.alibaba.cobar.mysql.MySQLDataSource;
+
+public class HeartbeatSchedulerTest extends TestCase {
+
+    public void testSchedule() {
+        HeartbeatScheduler scheduler = new HeartbeatScheduler("TestScheduler", 5L, 8);
+        final List<Integer> ticks = new ArrayList<Integer>();
+        final int[] tick = new int[1];
+        scheduler.schedule(new HeartbeatScheduler.Task() {
+            @Override
+            public long execute() {
+                ticks.add(tick[0]);
+                return ticks.size() < 3 ? 60L : -1L;
+            }
+        }, 20L);
+        Assert.assertEquals(1, scheduler.size());
+        for (; tick[0] < 100; ++tick[0]) {
+            scheduler.advance();
+        }
+        Assert.assertEquals(0, scheduler.size());
+        Assert.assertEquals(3, ticks.size());
+
+        // 首次在[0, 20ms)内执行，之后的周期为60ms上下浮动10%，跨越一轮以上的时间轮。
+        Assert.assertTrue(ticks.get(0) < 4);
+        for (int i = 1; i < ticks.size(); ++i) {
+            int period = ticks.get(i) - ticks.get(i - 1);
+            Assert.assertTrue(String.valueOf(period), period >= 10 && period <= 13);
+        }
+    }
+
+    public void testNextPeriod() {
+        MySQLHeartbeatTask task = new MySQLHeartbeatTask(null, 10000L, 2000L, 30000L);
+        Assert.assertEquals(10000L, task.nextPeriod(false, 0, 0));
+        Assert.assertEquals(2000L, task.nextPeriod(true, MySQLHeartbeat.OK_STATUS, 0));
+        Assert.assertEquals(2000L, task.nextPeriod(false, MySQLHeartbeat.ERROR_STATUS, 1));
+        Assert.assertEquals(2000L, task.nextPeriod(false, MySQLHeartbeat.TIMEOUT_STATUS, 0));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(10000L, task.nextPeriod(false, MySQLHeartbeat.OK_STATUS, 0));
+        }
+        Assert.assertEquals(20000L, task.nextPeriod(false, MySQLHeartbeat.OK_STATUS, 0));
+        for (int i = 0; i < 100; i++) {
+            task.nextPeriod(false, MySQLHeartbeat.OK_STATUS, 0);
+        }
+        Assert.assertEquals(30000L, task.nextPeriod(false, MySQLHeartbeat.OK_STATUS, 0));
+        Assert.assertEquals(2000L, task.nextPeriod(false, MySQLHeartbeat.OK_STATUS, 1));
+        Assert.assertEquals(10000L, task.nextPeriod(false, MySQLHeartbeat.OK_STATUS, 0));
+    }
+
+    public void testExecute() {
+        DataNodeConfig nodeConfig = new DataNodeConfig();
+        nodeConfig.setName("dn0");
+        nodeConfig.setHeartbeatSQL("select user()");
+        MySQLDataNode node = new MySQLDataNode(nodeConfig);
+        MySQLDataSource source = new MySQLDataSource(node, 0, new DataSourceConfig(), 1);
+        node.setSources(new MySQLDataSource[] { source });
+        MySQLHeartbeat heartbeat = source.getHeartbeat();
+        MockMySQLDetector detector = new MockMySQLDetector();
+        heartbeat.setDetector(detector);
+
+        MySQLHeartbeatTask task = new MySQLHeartbeatTask(source, 10000L, 2000L, 30000L);
+        Assert.assertEquals(10000L, task.execute());
+        Assert.assertTrue(heartbeat.isChecking());
+
+        // 每次探测都在下次执行前返回，周期按探测前的正常状态逐步放慢
+        for (int i = 0; i < 5; i++) {
+            heartbeat.setResult(MySQLHeartbeat.OK_STATUS, detector, false);
+            Assert.assertEquals(10000L, task.execute());
+        }
+        heartbeat.setResult(MySQLHeartbeat.OK_STATUS, detector, false);
+        Assert.assertEquals(20000L, task.execute());
+        Assert.assertEquals(7, detector.probes);
+
+        // 上次探测未返回
+        Assert.assertEquals(2000L, task.execute());
+        Assert.assertEquals(7, detector.probes);
+        heartbeat.setResult(MySQLHeartbeat.OK_STATUS, detector, false);
+        Assert.assertEquals(20000L, task.execute());
+    }
+
+    private static class MockMySQLDetector extends MySQLDetector {
+        private int probes;
+
+        MockMySQLDetector() {
+            super(null);
+        }
+
+        @Override
+        public void heartbeat() {
+            ++probes;
+        }
+
+        @Override
+        public boolean isHeartbeatTimeout() {
+            return false;
+        }
+    }
+
+}
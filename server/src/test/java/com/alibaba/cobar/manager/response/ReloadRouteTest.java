@@ -0,0 +1,102 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.manager.response;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.config.model.SchemaConfig;
+import com.alibaba.cobar.config.model.TableConfig;
+import com.alibaba.cobar.config.model.rule.RuleConfig;
+import com.alibaba.cobar.config.model.rule.TableRuleConfig;
+import com.alibaba.cobar.parser.ast.expression.Expression;
+import com.alibaba.cobar.parser.ast.expression.primary.PlaceHolder;
+import com.alibaba.cobar.parser.util.ListUtil;
+import com.alibaba.cobar.route.function.PartitionByVirtualBucket;
+
+public class ReloadRouteTest extends TestCase {
+    private File file;
+    private PartitionByVirtualBucket algorithm;
+    private Map<String, SchemaConfig> schemas;
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("bucket", ".map");
+        write("0-15=1\n");
+        PartitionByVirtualBucket proto = new PartitionByVirtualBucket("bucket");
+        proto.setBucketCount(16);
+        proto.setBucketMapFile(file.getPath());
+        algorithm = (PartitionByVirtualBucket) proto.constructFunction((List<Expression>) ListUtil.createList(new PlaceHolder(
+                "id",
+                "ID").setCacheEvalRst(false)));
+        algorithm.init();
+
+        RuleConfig rule = new RuleConfig(new String[] { "ID" }, "bucket(id)");
+        rule.setRuleAlgorithm(algorithm);
+        TableRuleConfig tableRule = new TableRuleConfig("rule", Collections.singletonList(rule));
+        Map<String, TableConfig> tables = new HashMap<String, TableConfig>();
+        tables.put("T1", new TableConfig("t1", "dn$0-3", tableRule, true));
+        tables.put("T2", new TableConfig("t2", "dn$0-1", tableRule, true));
+        schemas = new HashMap<String, SchemaConfig>();
+        schemas.put("s", new SchemaConfig("s", null, null, false, tables));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    public void testReload() throws IOException {
+        Assert.assertEquals(0, ReloadRoute.reload(schemas));
+
+        write("0-7=0\n8-15=1\n");
+        file.setLastModified(file.lastModified() + 2000);
+        Assert.assertEquals(1, ReloadRoute.reload(schemas));
+        Assert.assertEquals(0, algorithm.partition(3L));
+    }
+
+    public void testOutOfRange() throws IOException {
+        // 共用规则的t2只有两个数据节点
+        write("0-7=0\n8-15=2\n");
+        file.setLastModified(file.lastModified() + 2000);
+        try {
+            ReloadRoute.reload(schemas);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+        }
+        Assert.assertEquals(1, algorithm.partition(15L));
+        Assert.assertEquals(1, algorithm.partition(3L));
+    }
+
+    private void write(String content) throws IOException {
+        FileWriter w = new FileWriter(file);
+        try {
+            w.write(content);
+        } finally {
+            w.close();
+        }
+    }
+
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.mysql.bio.executor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.CobarServer;
+import com.alibaba.cobar.config.ErrorCode;
+import com.alibaba.cobar.config.model.DataNodeConfig;
+import com.alibaba.cobar.config.model.DataSourceConfig;
+import com.alibaba.cobar.mysql.MySQLDataNode;
+import com.alibaba.cobar.mysql.MySQLDataSource;
+import com.alibaba.cobar.mysql.nio.handler.MockServerConnection;
+import com.alibaba.cobar.net.NIOProcessor;
+import com.alibaba.cobar.route.RouteResultset;
+import com.alibaba.cobar.route.RouteResultsetNode;
+import com.alibaba.cobar.server.parser.ServerParse;
+import com.alibaba.cobar.server.session.BlockingSession;
+
+public class SingleNodeExecutorTest extends TestCase {
+    private static final String NODE = "retry_dn";
+    private static final byte[] OK = { 7, 0, 0, 1, 0x00, 0, 0, 2, 0, 0, 0 };
+    private static final byte[] HEADER = { 1, 0, 0, 1, 1 };
+    private static final byte[] FIELD = { 4, 0, 0, 2, 3, 'd', 'e', 'f' };
+    private static final byte[] FIELD_EOF = { 5, 0, 0, 3, (byte) 0xfe, 0, 0, 2, 0 };
+    private static final byte[] ROW = { 2, 0, 0, 4, 1, '1' };
+    private static final byte[] ROW_EOF = { 5, 0, 0, 5, (byte) 0xfe, 0, 0, 2, 0 };
+
+    private MockMySQLServer backend;
+    private ServerSocketChannel server;
+    private List<SocketChannel> channels;
+    private MySQLDataNode dataNode;
+    private MockServerConnection source;
+    private BlockingSession session;
+
+    @Override
+    protected void setUp() throws Exception {
+        backend = new MockMySQLServer();
+        backend.start();
+
+        // 单数据源的数据节点，连接异常时读语句重试一次
+        DataSourceConfig dsc = new DataSourceConfig();
+        dsc.setName("retry_ds");
+        dsc.setHost("127.0.0.1");
+        dsc.setPort(backend.getPort());
+        dsc.setUser("test");
+        dsc.setDatabase("test");
+        DataNodeConfig dnc = new DataNodeConfig();
+        dnc.setName(NODE);
+        dnc.setPoolSize(2);
+        dnc.setWaitTimeout(5000L);
+        dnc.setReadRetry(1);
+        dnc.setFailoverWaitTimeout(100L);
+        dataNode = new MySQLDataNode(dnc);
+        MySQLDataSource ds = new MySQLDataSource(dataNode, 0, dsc, 2);
+        ds.getHeartbeat().stop();
+        ds.setAutoIncrementIncrement(1);
+        dataNode.setSources(new MySQLDataSource[] { ds });
+        dataNode.init(1, 0);
+        Assert.assertTrue(dataNode.isInitSuccess());
+        CobarServer.getInstance().getConfig().getDataNodes().put(NODE, dataNode);
+
+        server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+        channels = new ArrayList<SocketChannel>();
+        source = new MockServerConnection(connect());
+        source.setProcessor(new NIOProcessor("Test", 1, 1));
+        source.setCharset("utf8");
+        session = new BlockingSession(source);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        CobarServer.getInstance().getConfig().getDataNodes().remove(NODE);
+        dataNode.getSource().clear();
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        server.close();
+        backend.close();
+    }
+
+    public void testReadRetry() throws Exception {
+        backend.drop.set(1);
+        execute("select 1", ServerParse.SELECT);
+
+        // 第一个通道发送语句时断开，在新建的通道上重新执行
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] b : new byte[][] { HEADER, FIELD, FIELD_EOF, ROW, ROW_EOF }) {
+            out.write(b);
+        }
+        byte[] expected = out.toByteArray();
+        Assert.assertTrue(Arrays.equals(expected, source.waitWritten(expected.length)));
+        Assert.assertEquals(2, backend.count("select 1"));
+        Assert.assertEquals(2, backend.connections.get());
+        Assert.assertEquals(0, session.getTargetCount());
+        Assert.assertEquals(0, dataNode.getSource().getConnectionErrors());
+    }
+
+    public void testWriteNoRetry() throws Exception {
+        backend.drop.set(1);
+        execute("insert into t values(1)", ServerParse.INSERT);
+        assertConnectionError();
+        Assert.assertEquals(1, backend.count("insert into t values(1)"));
+        Assert.assertEquals(1, backend.connections.get());
+    }
+
+    public void testTransactionNoRetry() throws Exception {
+        source.setAutocommit(false);
+        backend.drop.set(1);
+        execute("select 1", ServerParse.SELECT);
+        assertConnectionError();
+        Assert.assertEquals(1, backend.count("select 1"));
+        Assert.assertEquals(1, backend.connections.get());
+    }
+
+    public void testReadRetryOnce() throws Exception {
+        backend.drop.set(2);
+        execute("select 1", ServerParse.SELECT);
+        assertConnectionError();
+        Assert.assertEquals(2, backend.count("select 1"));
+        Assert.assertEquals(2, backend.connections.get());
+    }
+
+    private void execute(String sql, int type) {
+        RouteResultset rrs = new RouteResultset(sql);
+        rrs.setNodes(new RouteResultsetNode[] { new RouteResultsetNode(NODE, sql) });
+        session.execute(rrs, type);
+    }
+
+    private void assertConnectionError() throws InterruptedException {
+        byte[] written = source.waitWritten(7);
+        Assert.assertTrue(written.length > 7);
+        Assert.assertEquals((byte) 0xff, written[4]);
+        Assert.assertEquals(ErrorCode.ER_YES, (written[5] & 0xff) | (written[6] & 0xff) << 8);
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel client = SocketChannel.open(server.socket().getLocalSocketAddress());
+        SocketChannel accepted = server.accept();
+        channels.add(client);
+        channels.add(accepted);
+        return accepted;
+    }
+
+    /**
+     * 只应答握手、SET语句和查询的后端：结果集固定为一行一列，drop大于0时收到查询后直接断开连接
+     */
+    private static class MockMySQLServer extends Thread {
+        private final ServerSocket socket;
+        private final List<String> queries = Collections.synchronizedList(new ArrayList<String>());
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger drop = new AtomicInteger();
+
+        MockMySQLServer() throws IOException {
+            this.socket = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+            setDaemon(true);
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        int count(String sql) {
+            synchronized (queries) {
+                return Collections.frequency(queries, sql);
+            }
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+
+        @Override
+        public void run() {
+            for (;;) {
+                final Socket s;
+                try {
+                    s = socket.accept();
+                } catch (IOException e) {
+                    return;
+                }
+                connections.incrementAndGet();
+                Thread t = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            serve(s);
+                        } catch (IOException e) {
+                        } finally {
+                            try {
+                                s.close();
+                            } catch (IOException e) {
+                            }
+                        }
+                    }
+                };
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+
+        private void serve(Socket s) throws IOException {
+            InputStream in = s.getInputStream();
+            OutputStream out = s.getOutputStream();
+
+            // 握手和认证
+            ByteArrayOutputStream hs = new ByteArrayOutputStream();
+            hs.write(10);
+            hs.write("5.1.48".getBytes());
+            hs.write(new byte[] { 0, 1, 0, 0, 0 });
+            hs.write("12345678".getBytes());
+            hs.write(new byte[] { 0, (byte) 0xff, (byte) 0xf7, 33, 2, 0 });
+            hs.write(new byte[13]);
+            hs.write("123456789012".getBytes());
+            hs.write(0);
+            write(out, 0, hs.toByteArray());
+            read(in);
+            write(out, 2, Arrays.copyOfRange(OK, 4, OK.length));
+
+            for (;;) {
+                byte[] packet = read(in);
+                if (packet == null || packet[0] != 3) {
+                    return;
+                }
+                String sql = new String(packet, 1, packet.length - 1);
+                if (sql.toUpperCase().startsWith("SET ")) {
+                    out.write(OK);
+                } else {
+                    queries.add(sql);
+                    if (drop.getAndDecrement() > 0) {
+                        return;
+                    }
+                    if (sql.startsWith("select")) {
+                        for (byte[] b : new byte[][] { HEADER, FIELD, FIELD_EOF, ROW, ROW_EOF }) {
+                            out.write(b);
+                        }
+                    } else {
+                        out.write(OK);
+                    }
+                }
+                out.flush();
+            }
+        }
+
+        private static byte[] read(InputStream in) throws IOException {
+            byte[] header = new byte[4];
+            if (!readFully(in, header)) {
+                return null;
+            }
+            byte[] data = new byte[(header[0] & 0xff) | (header[1] & 0xff) << 8 | (header[2] & 0xff) << 16];
+            return readFully(in, data) ? data : null;
+        }
+
+        private static boolean readFully(InputStream in, byte[] b) throws IOException {
+            for (int off = 0; off < b.length;) {
+                int n = in.read(b, off, b.length - off);
+                if (n < 0) {
+                    return false;
+                }
+                off += n;
+            }
+            return true;
+        }
+
+        private static void write(OutputStream out, int id, byte[] data) throws IOException {
+            out.write(new byte[] { (byte) data.length, (byte) (data.length >>> 8), (byte) (data.length >>> 16),
+                    (byte) id });
+            out.write(data);
+            out.flush();
+        }
+    }
+
+}
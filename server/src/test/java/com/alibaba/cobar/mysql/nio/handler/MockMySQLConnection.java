@@ -0,0 +1,71 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.mysql.nio.handler;
+
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+
+import com.alibaba.cobar.mysql.MySQLDataSource;
+import com.alibaba.cobar.mysql.nio.MySQLConnection;
+import com.alibaba.cobar.mysql.nio.MySQLConnectionPool;
+import com.alibaba.cobar.route.RouteResultsetNode;
+import com.alibaba.cobar.server.ServerConnection;
+
+/**
+ * 不发送数据的后端连接，记录执行、释放和关闭
+ */
+class MockMySQLConnection extends MySQLConnection {
+    final CountDownLatch executed = new CountDownLatch(1);
+    volatile ResponseHandler responseHandler;
+    volatile boolean released;
+
+    public MockMySQLConnection(SocketChannel channel, final MySQLDataSource dataSource) {
+        super(channel);
+        setPool(new MySQLConnectionPool(null, 0, dataSource.getConfig(), 1) {
+            @Override
+            public MySQLDataSource getDataSource() {
+                return dataSource;
+            }
+        });
+    }
+
+    @Override
+    public void execute(RouteResultsetNode rrn, ServerConnection sc, boolean autocommit) {
+        executed.countDown();
+    }
+
+    @Override
+    public boolean setResponseHandler(ResponseHandler responseHandler) {
+        this.responseHandler = responseHandler;
+        return true;
+    }
+
+    @Override
+    public boolean syncAndExcute() {
+        return true;
+    }
+
+    @Override
+    public boolean close() {
+        return isClosed.compareAndSet(false, true);
+    }
+
+    @Override
+    public void release() {
+        released = true;
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.mysql.nio.handler;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import com.alibaba.cobar.server.ServerConnection;
+
+/**
+ * 记录写出数据的前端连接
+ */
+public class MockServerConnection extends ServerConnection {
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    volatile boolean txInterrupted;
+
+    public MockServerConnection(SocketChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    public void write(ByteBuffer buffer) {
+        synchronized (written) {
+            written.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+            written.notifyAll();
+        }
+        recycle(buffer);
+    }
+
+    @Override
+    public void setTxInterrupt() {
+        txInterrupted = true;
+    }
+
+    public byte[] getWritten() {
+        synchronized (written) {
+            return written.toByteArray();
+        }
+    }
+
+    /**
+     * 等待写出的数据达到指定长度
+     */
+    public byte[] waitWritten(int length) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        synchronized (written) {
+            long wait;
+            while (written.size() < length && (wait = deadline - System.currentTimeMillis()) > 0) {
+                written.wait(wait);
+            }
+            return written.toByteArray();
+        }
+    }
+
+}
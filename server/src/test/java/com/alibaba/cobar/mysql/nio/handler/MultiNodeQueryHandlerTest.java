@@ -0,0 +1,173 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.mysql.nio.handler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.config.model.DataSourceConfig;
+import com.alibaba.cobar.mysql.MySQLDataSource;
+import com.alibaba.cobar.net.NIOProcessor;
+import com.alibaba.cobar.net.mysql.ErrorPacket;
+import com.alibaba.cobar.net.mysql.OkPacket;
+import com.alibaba.cobar.route.RouteResultsetNode;
+import com.alibaba.cobar.server.session.NonBlockingSession;
+
+public class MultiNodeQueryHandlerTest extends TestCase {
+    private static final byte[] ERROR = { 9, 0, 0, 1, (byte) 0xff, 0x48, 0x04, '#', 'H', 'Y', '0', '0', '0' };
+
+    private ServerSocketChannel server;
+    private List<SocketChannel> channels;
+    private MockServerConnection source;
+    private MockMySQLConnection[] conns;
+    private RouteResultsetNode[] route;
+    private NonBlockingSession session;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+        channels = new ArrayList<SocketChannel>();
+        source = new MockServerConnection(connect());
+        source.setProcessor(new NIOProcessor("Test", 1, 2));
+        source.setCharset("utf8");
+
+        DataSourceConfig config = new DataSourceConfig();
+        config.setName("ds");
+        MySQLDataSource dataSource = new MySQLDataSource(null, 0, config, 2);
+        dataSource.getHeartbeat().stop();
+        session = new NonBlockingSession(source);
+        route = new RouteResultsetNode[] { new RouteResultsetNode("dn1", "select 1"),
+                new RouteResultsetNode("dn2", "select 1") };
+        conns = new MockMySQLConnection[route.length];
+        for (int i = 0; i < route.length; i++) {
+            conns[i] = new MockMySQLConnection(connect(), dataSource);
+            conns[i].setAttachment(route[i]);
+            session.bindConnection(route[i], conns[i]);
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        server.close();
+    }
+
+    public void testResultSet() throws Exception {
+        MultiNodeQueryHandler handler = execute();
+        for (int i = 0; i < conns.length; i++) {
+            List<byte[]> fields = new ArrayList<byte[]>();
+            fields.add(new byte[] { 4, 0, 0, 2, 3, 'd', 'e', 'f' });
+            handler.fieldEofResponse(new byte[] { 1, 0, 0, 1, 1 }, fields, eof(3), conns[i]);
+        }
+        for (int i = 0; i < conns.length; i++) {
+            handler.rowResponse(new byte[] { 2, 0, 0, 4, 1, (byte) ('1' + i) }, conns[i]);
+        }
+        for (int i = 0; i < conns.length; i++) {
+            handler.rowEofResponse(eof(5), conns[i]);
+        }
+
+        // 字段只写出一次，行和最后的EOF的序号连续
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] { 1, 0, 0, 1, 1 });
+        out.write(new byte[] { 4, 0, 0, 2, 3, 'd', 'e', 'f' });
+        out.write(eof(3));
+        out.write(new byte[] { 2, 0, 0, 4, 1, '1' });
+        out.write(new byte[] { 2, 0, 0, 5, 1, '2' });
+        out.write(eof(6));
+        byte[] expected = out.toByteArray();
+        Assert.assertTrue(Arrays.equals(expected, source.waitWritten(expected.length)));
+        waitReleased();
+        for (MockMySQLConnection conn : conns) {
+            Assert.assertTrue(conn.released);
+        }
+    }
+
+    public void testOk() throws Exception {
+        MultiNodeQueryHandler handler = execute();
+        handler.okResponse(ok(2, 7), conns[0]);
+        handler.okResponse(ok(3, 5), conns[1]);
+
+        byte[] written = source.waitWritten(1);
+        OkPacket ok = new OkPacket();
+        ok.read(written);
+        Assert.assertEquals(written.length, ok.packetLength + 4);
+        Assert.assertEquals(1, ok.packetId);
+        Assert.assertEquals(5L, ok.affectedRows);
+        Assert.assertEquals(5L, ok.insertId);
+        Assert.assertEquals(5L, source.getLastInsertId());
+        Assert.assertEquals(0, session.getTargetCount());
+    }
+
+    public void testError() throws Exception {
+        MultiNodeQueryHandler handler = execute();
+        handler.errorResponse(ERROR, conns[1]);
+        handler.rowEofResponse(eof(5), conns[0]);
+
+        byte[] written = source.waitWritten(ERROR.length);
+        Assert.assertEquals(ERROR.length, written.length);
+        ErrorPacket err = new ErrorPacket();
+        err.read(written);
+        Assert.assertEquals(1, err.packetId);
+        Assert.assertEquals(0x0448, err.errno);
+        Assert.assertTrue(source.txInterrupted);
+        waitReleased();
+    }
+
+    private MultiNodeQueryHandler execute() throws Exception {
+        MultiNodeQueryHandler handler = new MultiNodeQueryHandler(route, true, session);
+        handler.execute();
+        for (MockMySQLConnection conn : conns) {
+            Assert.assertTrue(conn.executed.await(5, TimeUnit.SECONDS));
+        }
+        return handler;
+    }
+
+    private void waitReleased() throws InterruptedException {
+        for (int i = 0; i < 500 && session.getTargetCount() > 0; i++) {
+            Thread.sleep(10L);
+        }
+        Assert.assertEquals(0, session.getTargetCount());
+    }
+
+    private static byte[] eof(int packetId) {
+        return new byte[] { 5, 0, 0, (byte) packetId, (byte) 0xfe, 0, 0, 2, 0 };
+    }
+
+    private static byte[] ok(int affectedRows, int insertId) {
+        return new byte[] { 7, 0, 0, 1, 0x00, (byte) affectedRows, (byte) insertId, 2, 0, 0, 0 };
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel channel = SocketChannel.open(server.socket().getLocalSocketAddress());
+        channels.add(channel);
+        channels.add(server.accept());
+        return channel;
+    }
+
+}
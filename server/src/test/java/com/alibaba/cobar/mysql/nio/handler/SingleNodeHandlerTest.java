@@ -0,0 +1,197 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.mysql.nio.handler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.config.ErrorCode;
+import com.alibaba.cobar.config.model.DataSourceConfig;
+import com.alibaba.cobar.mysql.MySQLDataSource;
+import com.alibaba.cobar.net.NIOProcessor;
+import com.alibaba.cobar.net.mysql.ErrorPacket;
+import com.alibaba.cobar.route.RouteResultset;
+import com.alibaba.cobar.route.RouteResultsetNode;
+import com.alibaba.cobar.server.parser.ServerParse;
+import com.alibaba.cobar.server.session.NonBlockingSession;
+
+public class SingleNodeHandlerTest extends TestCase {
+    private static final byte[] OK = { 8, 0, 0, 1, 0x00, 1, 5, 2, 0, 0, 0 };
+    private static final byte[] HEADER = { 1, 0, 0, 1, 1 };
+    private static final byte[] FIELD = { 4, 0, 0, 2, 3, 'd', 'e', 'f' };
+    private static final byte[] FIELD_EOF = { 5, 0, 0, 3, (byte) 0xfe, 0, 0, 2, 0 };
+    private static final byte[] ROW = { 2, 0, 0, 4, 1, '1' };
+    private static final byte[] ROW_EOF = { 5, 0, 0, 5, (byte) 0xfe, 0, 0, 2, 0 };
+    private static final byte[] ERROR = { 9, 0, 0, 1, (byte) 0xff, 0x48, 0x04, '#', 'H', 'Y', '0', '0', '0' };
+
+    private ServerSocketChannel server;
+    private List<SocketChannel> channels;
+    private NIOProcessor processor;
+    private MockServerConnection source;
+    private MockMySQLConnection conn;
+    private MySQLDataSource dataSource;
+    private RouteResultsetNode route;
+    private NonBlockingSession session;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+        channels = new ArrayList<SocketChannel>();
+        processor = new NIOProcessor("Test", 1, 1);
+        source = new MockServerConnection(connect());
+        source.setProcessor(processor);
+        source.setCharset("utf8");
+
+        DataSourceConfig config = new DataSourceConfig();
+        config.setName("ds");
+        dataSource = new MySQLDataSource(null, 0, config, 1);
+        dataSource.getHeartbeat().stop();
+        conn = new MockMySQLConnection(connect(), dataSource);
+
+        route = new RouteResultsetNode("dn", "select 1");
+        session = new NonBlockingSession(source);
+        session.bindConnection(route, conn);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        server.close();
+    }
+
+    public void testOk() throws Exception {
+        SingleNodeHandler handler = execute();
+        handler.okResponse(OK, conn);
+        Assert.assertTrue(Arrays.equals(OK, source.getWritten()));
+        Assert.assertEquals(5L, source.getLastInsertId());
+        Assert.assertFalse(conn.isRunning());
+        Assert.assertTrue(conn.released);
+        Assert.assertEquals(0, session.getTargetCount());
+    }
+
+    public void testOkInTransaction() throws Exception {
+        source.setAutocommit(false);
+        SingleNodeHandler handler = execute();
+        handler.okResponse(OK, conn);
+        Assert.assertTrue(Arrays.equals(OK, source.getWritten()));
+        Assert.assertFalse(conn.isRunning());
+        Assert.assertFalse(conn.released);
+        Assert.assertSame(conn, session.getTarget(route));
+    }
+
+    public void testResultSet() throws Exception {
+        SingleNodeHandler handler = execute();
+        List<byte[]> fields = new ArrayList<byte[]>();
+        fields.add(FIELD);
+        handler.fieldEofResponse(HEADER, fields, FIELD_EOF, conn);
+        handler.rowResponse(ROW, conn);
+        Assert.assertEquals(0, source.getWritten().length);
+        handler.rowEofResponse(ROW_EOF, conn);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] b : new byte[][] { HEADER, FIELD, FIELD_EOF, ROW, ROW_EOF }) {
+            out.write(b);
+        }
+        Assert.assertTrue(Arrays.equals(out.toByteArray(), source.getWritten()));
+        Assert.assertTrue(conn.released);
+        Assert.assertEquals(0, session.getTargetCount());
+    }
+
+    public void testError() throws Exception {
+        SingleNodeHandler handler = execute();
+        handler.errorResponse(ERROR, conn);
+        Assert.assertTrue(Arrays.equals(ERROR, source.getWritten()));
+        Assert.assertFalse(conn.isRunning());
+        Assert.assertTrue(conn.released);
+        Assert.assertFalse(source.txInterrupted);
+    }
+
+    public void testConnectionError() throws Exception {
+        source.setAutocommit(false);
+        SingleNodeHandler handler = execute();
+        handler.connectionError(new IOException("Connection reset by peer"), conn);
+
+        ErrorPacket err = new ErrorPacket();
+        err.read(source.getWritten());
+        Assert.assertEquals(1, err.packetId);
+        Assert.assertEquals(ErrorCode.ER_YES, err.errno);
+        Assert.assertEquals("Connection reset by peer", new String(err.message));
+        Assert.assertTrue(conn.isClosed());
+        Assert.assertFalse(conn.released);
+        Assert.assertEquals(0, session.getTargetCount());
+        Assert.assertTrue(source.txInterrupted);
+        Assert.assertEquals(1, dataSource.getConnectionErrors());
+    }
+
+    public void testTerminate() throws Exception {
+        SingleNodeHandler handler = execute();
+        final CountDownLatch terminated = new CountDownLatch(1);
+        handler.terminate(new Runnable() {
+            @Override
+            public void run() {
+                terminated.countDown();
+            }
+        });
+        Assert.assertEquals(1, terminated.getCount());
+        handler.okResponse(OK, conn);
+        Assert.assertEquals(0, terminated.getCount());
+    }
+
+    public void testSessionExecute() throws Exception {
+        source.setAutocommit(false);
+        RouteResultset rrs = new RouteResultset("update t set c = 1");
+        rrs.setNodes(new RouteResultsetNode[] { route });
+        session.execute(rrs, ServerParse.UPDATE);
+        Assert.assertTrue(conn.executed.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(session.isWritten(route));
+        conn.responseHandler.okResponse(OK, conn);
+        Assert.assertTrue(Arrays.equals(OK, source.getWritten()));
+        Assert.assertSame(conn, session.getTarget(route));
+    }
+
+    /**
+     * 在绑定的连接上执行，等待语句发送到后端。
+     */
+    private SingleNodeHandler execute() throws InterruptedException {
+        SingleNodeHandler handler = new SingleNodeHandler(route, session);
+        handler.execute();
+        Assert.assertTrue(conn.executed.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(conn.isRunning());
+        return handler;
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel channel = SocketChannel.open(server.socket().getLocalSocketAddress());
+        channels.add(channel);
+        channels.add(server.accept());
+        return channel;
+    }
+
+}
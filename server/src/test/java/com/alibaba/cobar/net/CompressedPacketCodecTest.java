@@ -0,0 +1,120 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.net.buffer.BufferPool;
+import com.alibaba.cobar.net.buffer.BufferQueue;
+
+public class CompressedPacketCodecTest extends TestCase {
+    private final BufferPool pool = new BufferPool(64 * 1024, 1024);
+
+    public void testRoundTrip() throws InterruptedException {
+        CompressedPacketCodec client = new CompressedPacketCodec(50, true);
+        CompressedPacketCodec server = new CompressedPacketCodec(50, false);
+
+        // 一个跨两个缓存块的大命令包和一个小包
+        byte[] big = packet(0, 1500, 'a');
+        byte[] small = packet(0, 10, 'b');
+        List<ByteBuffer> frames = send(client, big);
+        Assert.assertEquals(0, frames.get(0).get(3));
+        List<byte[]> got = receive(server, frames);
+        Assert.assertEquals(1, got.size());
+        Assert.assertTrue(Arrays.equals(big, got.get(0)));
+        Assert.assertTrue(client.getNetBytes() < client.getRawBytes());
+
+        // 新命令的帧序号从0开始，服务端应答延续收到的序号
+        frames = send(client, small);
+        Assert.assertEquals(0, frames.get(0).get(3));
+        Assert.assertEquals(0, frames.get(0).get(6));
+        Assert.assertTrue(Arrays.equals(small, receive(server, frames).get(0)));
+        frames = send(server, packet(1, 100, 'c'), packet(2, 1200, 'd'));
+        Assert.assertEquals(1, frames.get(0).get(3));
+        got = receive(client, frames);
+        Assert.assertEquals(2, got.size());
+        Assert.assertTrue(Arrays.equals(packet(2, 1200, 'd'), got.get(1)));
+    }
+
+    public void testIncompressible() throws InterruptedException {
+        CompressedPacketCodec client = new CompressedPacketCodec(50, true);
+        CompressedPacketCodec server = new CompressedPacketCodec(50, false);
+        // 压缩无效时按原文发送，放不进一个缓存块则拆成两帧
+        byte[] data = packet(0, 1016, 'x');
+        byte[] body = new byte[1016];
+        new Random(1).nextBytes(body);
+        System.arraycopy(body, 0, data, 4, body.length);
+        List<ByteBuffer> frames = send(client, data);
+        Assert.assertEquals(2, frames.size());
+        Assert.assertEquals(0, frames.get(0).get(6));
+        Assert.assertEquals(1, frames.get(1).get(3));
+        Assert.assertTrue(Arrays.equals(data, receive(server, frames).get(0)));
+    }
+
+    private List<ByteBuffer> send(CompressedPacketCodec codec, byte[]... packets) throws InterruptedException {
+        BufferQueue queue = new BufferQueue(16);
+        ByteBuffer buffer = pool.allocate();
+        for (byte[] packet : packets) {
+            for (int offset = 0; offset < packet.length;) {
+                int n = Math.min(buffer.remaining(), packet.length - offset);
+                buffer.put(packet, offset, n);
+                offset += n;
+                if (!buffer.hasRemaining()) {
+                    codec.compress(buffer, pool, queue);
+                    buffer = pool.allocate();
+                }
+            }
+        }
+        if (buffer.position() > 0) {
+            codec.compress(buffer, pool, queue);
+        }
+        List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
+        for (ByteBuffer frame; (frame = queue.poll()) != null;) {
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static List<byte[]> receive(CompressedPacketCodec codec, List<ByteBuffer> frames) {
+        List<byte[]> packets = new ArrayList<byte[]>();
+        for (ByteBuffer frame : frames) {
+            Assert.assertEquals(frame.position(), codec.getFrameLength(frame, 0));
+            codec.decode(frame, 0, frame.position());
+            for (byte[] data; (data = codec.nextPacket(4, 1 << 24)) != null;) {
+                packets.add(data);
+            }
+        }
+        return packets;
+    }
+
+    private static byte[] packet(int id, int bodySize, char c) {
+        byte[] data = new byte[bodySize + 4];
+        data[0] = (byte) bodySize;
+        data[1] = (byte) (bodySize >>> 8);
+        data[2] = (byte) (bodySize >>> 16);
+        data[3] = (byte) id;
+        Arrays.fill(data, 4, data.length, (byte) c);
+        return data;
+    }
+
+}
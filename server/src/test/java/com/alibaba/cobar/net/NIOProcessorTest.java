@@ -0,0 +1,122 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.net;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.util.TimeUtil;
+
+public class NIOProcessorTest extends TestCase {
+
+    public void testAdmitBounded() throws Exception {
+        NIOProcessor processor = new NIOProcessor("Test", 1, 1, 1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(3);
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            };
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            // 队列为空时放行，超过队列容量的多节点请求也整体执行
+            Assert.assertTrue(processor.admit(3));
+            for (int i = 0; i < 3; i++) {
+                processor.dispatch(executor, task);
+            }
+            Assert.assertFalse(processor.admit(1));
+            Assert.assertEquals(1, processor.getExecutor().getShedCount());
+
+            blocked.countDown();
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, processor.getExecutor().getShedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testAdmitTimeout() throws Exception {
+        NIOProcessor processor = new NIOProcessor("Test", 1, 0, 1);
+        processor.setHandlerQueueTimeout(1);
+        TimeUtil.update();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch running = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(1);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            Assert.assertTrue(processor.admit(2));
+            processor.dispatch(executor, new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        running.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            processor.dispatch(executor, new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            Thread.sleep(50);
+            TimeUtil.update();
+            blocked.countDown();
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // 开始执行的任务已排队超时，后续请求被丢弃，已放行的任务仍然执行
+            Assert.assertFalse(processor.admit(1));
+            running.countDown();
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(processor.admit(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
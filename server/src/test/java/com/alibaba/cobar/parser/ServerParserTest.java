@@ -15,6 +15,8 @@
  */
 package com.alibaba.cobar.parser;
 
+import java.io.UnsupportedEncodingException;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -23,6 +25,7 @@ import com.alibaba.cobar.server.parser.ServerParseSelect;
 import com.alibaba.cobar.server.parser.ServerParseSet;
 import com.alibaba.cobar.server.parser.ServerParseShow;
 import com.alibaba.cobar.server.parser.ServerParseStart;
+import com.alibaba.cobar.util.ByteCharSequence;
 
 /**
  * @author xianmao.hexm
@@ -163,6 +166,15 @@ public class ServerParserTest {
         Assert.assertEquals(ServerParseSet.AUTOCOMMIT_OFF, ServerParseSet.parse("set autoCOMMIT = off", 3));
     }
 
+    @Test
+    public void testIsSetBatchInsert() {
+        Assert.assertEquals(ServerParseSet.BATCH_INSERT_ON, ServerParseSet.parse("set batch_insert=1", 3));
+        Assert.assertEquals(ServerParseSet.BATCH_INSERT_ON, ServerParseSet.parse("SET BATCH_INSERT = ON", 3));
+        Assert.assertEquals(ServerParseSet.BATCH_INSERT_OFF, ServerParseSet.parse("set batch_insert=0", 3));
+        Assert.assertEquals(ServerParseSet.BATCH_INSERT_OFF, ServerParseSet.parse("set Batch_Insert = off", 3));
+        Assert.assertEquals(ServerParseSet.OTHER, ServerParseSet.parse("set batch_inserts = off", 3));
+    }
+
     @Test
     public void testIsSetNames() {
         Assert.assertEquals(ServerParseSet.NAMES, 0xff & ServerParseSet.parse("set names utf8", 3));
@@ -263,6 +275,18 @@ public class ServerParserTest {
         Assert.assertEquals(ServerParseSelect.USER, ServerParseSelect.parse(" selECT    USER()  ", 7));
     }
 
+    @Test
+    public void testIsLockRead() {
+        Assert.assertTrue(ServerParseSelect.isLockRead("select * from t where id=1 for update"));
+        Assert.assertTrue(ServerParseSelect.isLockRead("SELECT * FROM t WHERE id=1 FOR\n  UPDATE"));
+        Assert.assertTrue(ServerParseSelect.isLockRead("select * from t lock in share mode"));
+        Assert.assertTrue(ServerParseSelect.isLockRead("select * from t LOCK  IN\tSHARE MODE"));
+        Assert.assertFalse(ServerParseSelect.isLockRead("select * from t where id=1"));
+        Assert.assertFalse(ServerParseSelect.isLockRead("select format, updated from t"));
+        Assert.assertFalse(ServerParseSelect.isLockRead("select * from for_update"));
+        Assert.assertFalse(ServerParseSelect.isLockRead("select block in_share from t"));
+    }
+
     @Test
     public void testTxReadUncommitted() {
         Assert.assertEquals(
@@ -453,4 +477,17 @@ public class ServerParserTest {
         Assert.assertEquals(ServerParseSelect.OTHER, ServerParseSelect.parse(stmt, 6));
     }
 
+    @Test
+    public void testParseBytes() throws UnsupportedEncodingException {
+        String[] stmts = { "insert into t values(1)", " /* 注释 */ UPDATE t set a='中文'", "# 注释\ndelete from t",
+                "replace into t values('中文')", "select 1", "/*!cobar: $dataNodeId=0*/ insert into t values(1)" };
+        for (String stmt : stmts) {
+            for (String charset : new String[] { "UTF-8", "GBK" }) {
+                byte[] data = stmt.getBytes(charset);
+                int rs = ServerParse.parse(new ByteCharSequence(data, 0, data.length));
+                Assert.assertEquals(ServerParse.parse(stmt), rs);
+            }
+        }
+    }
+
 }
@@ -94,6 +94,28 @@ public class MySQLLexerTest extends TestCase {
         Assert.assertEquals(MySQLToken.EOF, sut.token());
     }
 
+    public void testTokenPos() throws SQLSyntaxErrorException {
+        MySQLLexer sut = new MySQLLexer("values /* c */ (1, 'a')");
+        Assert.assertEquals(MySQLToken.KW_VALUES, sut.token());
+        Assert.assertEquals(0, sut.getTokenPos());
+        sut.nextToken();
+        Assert.assertEquals(MySQLToken.PUNC_LEFT_PAREN, sut.token());
+        Assert.assertEquals(15, sut.getTokenPos());
+        Assert.assertEquals(0, sut.getLastTokenPos());
+        Assert.assertEquals(6, sut.getLastTokenEnd());
+        sut.nextToken();
+        sut.nextToken();
+        sut.nextToken();
+        Assert.assertEquals(MySQLToken.LITERAL_CHARS, sut.token());
+        Assert.assertEquals(19, sut.getTokenPos());
+        sut.nextToken();
+        Assert.assertEquals(MySQLToken.PUNC_RIGHT_PAREN, sut.token());
+        Assert.assertEquals(22, sut.getLastTokenEnd());
+        sut.nextToken();
+        Assert.assertEquals(MySQLToken.EOF, sut.token());
+        Assert.assertEquals(23, sut.getLastTokenEnd());
+    }
+
     public void testUserDefVar() throws SQLSyntaxErrorException {
         MySQLLexer sut = new MySQLLexer("@abc  ");
         Assert.assertEquals(MySQLToken.USR_VAR, sut.token());
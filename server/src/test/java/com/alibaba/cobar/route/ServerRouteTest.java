@@ -371,6 +371,37 @@ public class ServerRouteTest extends AbstractAliasConvert {
         }
     }
 
+    public void testRouteInListLong() throws Exception {
+        StringBuilder sb = new StringBuilder("select * from offer_detail where offer_id in (");
+        for (int i = 0; i < 1024; ++i) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(i);
+        }
+        sb.append(") and gmt > 0");
+        SchemaConfig schema = schemaMap.get("cndb");
+        RouteResultset rrs = ServerRouter.route(schema, sb.toString(), null, null);
+        Assert.assertEquals(-1l, rrs.getLimitSize());
+
+        Map<String, RouteResultsetNode> nodeMap = getNodeMap(rrs, 128);
+        IndexedNodeNameAsserter nameAsserter = new IndexedNodeNameAsserter("detail_dn", 0, 128);
+        nameAsserter.assertRouteNodeNames(nodeMap.keySet());
+        SimpleSQLAsserter sqlAsserter = new SimpleSQLAsserter();
+        for (int i = 0; i < 128; ++i) {
+            StringBuilder expect = new StringBuilder("select * from offer_detail where offer_id in (");
+            for (int j = 8 * i; j < 8 * i + 8; ++j) {
+                if (j > 8 * i)
+                    expect.append(", ");
+                expect.append(j);
+            }
+            sqlAsserter.addExpectSQL(i, expect.append(") and gmt > 0").toString());
+        }
+        RouteNodeAsserter asserter = new RouteNodeAsserter(nameAsserter, sqlAsserter);
+        for (RouteResultsetNode node : nodeMap.values()) {
+            asserter.assertNode(node);
+        }
+    }
+
     public void testRoute() throws Exception {
         String sql = "select * from offer.wp_image where member_id='pavarotti17' or member_id='1qq'";
         SchemaConfig schema = schemaMap.get("cndb");
@@ -413,7 +444,7 @@ public class ServerRouteTest extends AbstractAliasConvert {
         nameAsserter.assertRouteNodeNames(nodeMap.keySet());
         sqlAsserter = new SimpleSQLAsserter();
         for (int i = 0; i < 128; ++i) {
-            sqlAsserter.addExpectSQL(i, "SELECT * FROM independent AS A WHERE a.member = 'abc'");
+            sqlAsserter.addExpectSQL(i, "select * from independent A where a.member='abc'");
         }
         asserter = new RouteNodeAsserter(nameAsserter, sqlAsserter);
         for (RouteResultsetNode node : nodeMap.values()) {
@@ -436,7 +467,7 @@ public class ServerRouteTest extends AbstractAliasConvert {
         Assert.assertEquals(-1l, rrs.getLimitSize());
         Assert.assertEquals((int) RouteResultsetNode.DEFAULT_REPLICA_INDEX, rrs.getNodes()[0].getReplicaIndex());
         Assert.assertEquals("offer_dn[48]", rrs.getNodes()[0].getName());
-        Assert.assertEquals("SELECT * FROM wp_image WHERE member_id IS NULL", rrs.getNodes()[0].getStatement());
+        Assert.assertEquals("select * from wp_image where member_id is null", rrs.getNodes()[0].getStatement());
 
         sql = "select * from offer.wp_image where member_id between 'pavarotti17' and 'pavarotti17'";
         schema = schemaMap.get("cndb");
@@ -446,7 +477,7 @@ public class ServerRouteTest extends AbstractAliasConvert {
         Assert.assertEquals((int) RouteResultsetNode.DEFAULT_REPLICA_INDEX, rrs.getNodes()[0].getReplicaIndex());
         Assert.assertEquals("offer_dn[123]", rrs.getNodes()[0].getName());
         Assert.assertEquals(
-                "SELECT * FROM wp_image WHERE member_id BETWEEN 'pavarotti17' AND 'pavarotti17'",
+                "select * from wp_image where member_id between 'pavarotti17' and 'pavarotti17'",
                 rrs.getNodes()[0].getStatement());
 
         sql = "select * from  offer A where a.member_id='abc' union select * from product_visit b where B.offer_id =123";
@@ -470,8 +501,7 @@ public class ServerRouteTest extends AbstractAliasConvert {
         Assert.assertEquals((int) RouteResultsetNode.DEFAULT_REPLICA_INDEX, rrs.getNodes()[0].getReplicaIndex());
         Assert.assertEquals("offer_dn[44]", rrs.getNodes()[0].getName());
         Assert.assertEquals(
-                "UPDATE offer AS " + aliasConvert("a") + " INNER JOIN offer_detail AS " + aliasConvert("b")
-                        + " SET id = 123 WHERE a.offer_id = b.offer_id AND a.offer_id = 123 AND group_id = 234",
+                "update offer a join offer_detail b set id=123 where a.offer_id=b.offer_id and a.offer_id=123 and group_id=234",
                 rrs.getNodes()[0].getStatement());
 
         sql = "update    offer./*kjh*/offer a join offer_detail B set id:=123 where A.offer_id=b.offer_id and b.offer_id=123 and group_id=234";
@@ -482,8 +512,7 @@ public class ServerRouteTest extends AbstractAliasConvert {
         Assert.assertEquals((int) RouteResultsetNode.DEFAULT_REPLICA_INDEX, rrs.getNodes()[0].getReplicaIndex());
         Assert.assertEquals("detail_dn[15]", rrs.getNodes()[0].getName());
         Assert.assertEquals(
-                "UPDATE offer AS " + aliasConvert("a") + " INNER JOIN offer_detail AS " + aliasConvert("b")
-                        + " SET id = 123 WHERE A.offer_id = b.offer_id AND b.offer_id = 123 AND group_id = 234",
+                "update    /*kjh*/offer a join offer_detail B set id:=123 where A.offer_id=b.offer_id and b.offer_id=123 and group_id=234",
                 rrs.getNodes()[0].getStatement());
 
         sql = "select * from offer.wp_image where member_id in ('pavarotti17', 'qaa') or offer.wp_image.member_id='1qq'";
@@ -537,20 +566,10 @@ public class ServerRouteTest extends AbstractAliasConvert {
         nameAsserter = new NodeNameAsserter("offer_dn[123]", "offer_dn[126]", "offer_dn[74]", "offer_dn[26]");
         nameAsserter.assertRouteNodeNames(nodeMap.keySet());
         sqlAsserter = new SimpleSQLAsserter();
-        sqlAsserter.addExpectSQL(
-                           0,
-                           "SELECT * FROM wp_image, tb2 AS " + aliasConvert("t2")
-                                   + " WHERE member_id IN ('pavarotti17')")
-                   .addExpectSQL(
-                           1,
-                           "SELECT * FROM wp_image, tb2 AS " + aliasConvert("t2") + " WHERE member_id IN ('sdddf')")
-                   .addExpectSQL(
-                           2,
-                           "SELECT * FROM wp_image, tb2 AS " + aliasConvert("t2") + " WHERE member_id IN ('sf', 'sd')",
-                           "SELECT * FROM wp_image, tb2 AS " + aliasConvert("t2") + " WHERE member_id IN ('sd', 'sf')")
-                   .addExpectSQL(
-                           3,
-                           "SELECT * FROM wp_image, tb2 AS " + aliasConvert("t2") + " WHERE member_id IN ('s22f')");
+        sqlAsserter.addExpectSQL(0, "select * from wp_image,tb2 as t2 where member_id in ('pavarotti17') ")
+                   .addExpectSQL(1, "select * from wp_image,tb2 as t2 where member_id in ('sdddf') ")
+                   .addExpectSQL(2, "select * from wp_image,tb2 as t2 where member_id in ('sf', 'sd') ")
+                   .addExpectSQL(3, "select * from wp_image,tb2 as t2 where member_id in ('s22f') ");
         asserter = new RouteNodeAsserter(nameAsserter, sqlAsserter);
         for (RouteResultsetNode node : nodeMap.values()) {
             asserter.assertNode(node);
@@ -614,8 +633,7 @@ public class ServerRouteTest extends AbstractAliasConvert {
         Assert.assertEquals((int) RouteResultsetNode.DEFAULT_REPLICA_INDEX, rrs.getNodes()[0].getReplicaIndex());
         Assert.assertEquals("offer_dn[123]", rrs.getNodes()[0].getName());
         Assert.assertEquals(
-                "SELECT * FROM wp_image AS " + aliasConvert("wB") + " INNER JOIN offer AS " + aliasConvert("o")
-                        + " ON wB.member_id = O.member_ID WHERE wB.member_iD = 'pavarotti17' AND o.id = 3",
+                "select * from wp_image wB inner join offer o on wB.member_id=O.member_ID where wB.member_iD='pavarotti17' and o.id=3",
                 rrs.getNodes()[0].getStatement());
 
         sql = "select * from wp_image w inner join offer o on w.member_id=O.member_ID where w.member_iD in ('pavarotti17','13') and o.id=3";
@@ -628,14 +646,10 @@ public class ServerRouteTest extends AbstractAliasConvert {
         sqlAsserter = new SimpleSQLAsserter();
         sqlAsserter.addExpectSQL(
                            0,
-                           "SELECT * FROM wp_image AS " + aliasConvert("w") + " INNER JOIN offer AS "
-                                   + aliasConvert("o")
-                                   + " ON w.member_id = O.member_ID WHERE w.member_iD IN ('pavarotti17') AND o.id = 3")
+                           "select * from wp_image w inner join offer o on w.member_id=O.member_ID where w.member_iD in ('pavarotti17') and o.id=3")
                    .addExpectSQL(
                            1,
-                           "SELECT * FROM wp_image AS " + aliasConvert("w") + " INNER JOIN offer AS "
-                                   + aliasConvert("o")
-                                   + " ON w.member_id = O.member_ID WHERE w.member_iD IN ('13') AND o.id = 3");
+                           "select * from wp_image w inner join offer o on w.member_id=O.member_ID where w.member_iD in ('13') and o.id=3");
         asserter = new RouteNodeAsserter(nameAsserter, sqlAsserter);
         for (RouteResultsetNode node : nodeMap.values()) {
             asserter.assertNode(node);
@@ -649,8 +663,8 @@ public class ServerRouteTest extends AbstractAliasConvert {
         nameAsserter = new NodeNameAsserter("offer_dn[123]", "offer_dn[70]");
         nameAsserter.assertRouteNodeNames(nodeMap.keySet());
         sqlAsserter = new SimpleSQLAsserter();
-        sqlAsserter.addExpectSQL(0, "INSERT INTO wp_image (member_id, gmt) VALUES ('pavarotti17', NOW())")
-                   .addExpectSQL(1, "INSERT INTO wp_image (member_id, gmt) VALUES ('123', NOW())");
+        sqlAsserter.addExpectSQL(0, "insert into wp_image (member_id,gmt) values ('pavarotti17',now())")
+                   .addExpectSQL(1, "insert into wp_image (member_id,gmt) values ('123',now())");
         asserter = new RouteNodeAsserter(nameAsserter, sqlAsserter);
         for (RouteResultsetNode node : nodeMap.values()) {
             asserter.assertNode(node);
@@ -686,9 +700,8 @@ public class ServerRouteTest extends AbstractAliasConvert {
         sqlAsserter = new SimpleSQLAsserter();
         sqlAsserter.addExpectSQL(
                            0,
-                           "INSERT INTO wp_image (id, member_id, gmt) VALUES (2, 'pavarotti17', NOW()), (1, 'pavarotti17', NOW())",
-                           "INSERT INTO wp_image (id, member_id, gmt) VALUES (1, 'pavarotti17', NOW()), (2, 'pavarotti17', NOW())")
-                   .addExpectSQL(1, "INSERT INTO wp_image (id, member_id, gmt) VALUES (3, 'qaa', NOW())");
+                           "insert into wp_image (id, member_id, gmt) values (1,'pavarotti17',now()),(2,'pavarotti17',now())")
+                   .addExpectSQL(1, "insert into wp_image (id, member_id, gmt) values (3,'qaa',now())");
         asserter = new RouteNodeAsserter(nameAsserter, sqlAsserter);
         for (RouteResultsetNode node : nodeMap.values()) {
             asserter.assertNode(node);
@@ -739,18 +752,12 @@ public class ServerRouteTest extends AbstractAliasConvert {
         nameAsserter = new NodeNameAsserter("detail_dn[29]", "detail_dn[43]", "detail_dn[57]", "detail_dn[15]");
         nameAsserter.assertRouteNodeNames(nodeMap.keySet());
         sqlAsserter = new SimpleSQLAsserter();
-        sqlAsserter.addExpectSQL(0, "INSERT INTO offer_detail (offer_id, gmt) VALUES (234, NOW())")
-                   .addExpectSQL(1, "INSERT INTO offer_detail (offer_id, gmt) VALUES (345, NOW())")
-                   .addExpectSQL(2, "INSERT INTO offer_detail (offer_id, gmt) VALUES (456, NOW())")
+        sqlAsserter.addExpectSQL(0, "insert into offer_detail (offer_id, gmt) values (234,now())")
+                   .addExpectSQL(1, "insert into offer_detail (offer_id, gmt) values (345,now())")
+                   .addExpectSQL(2, "insert into offer_detail (offer_id, gmt) values (456,now())")
                    .addExpectSQL(
                            3,
-                           "INSERT INTO offer_detail (offer_id, gmt) VALUES ",
-                           new PermutationGenerator(
-                                   "(123, NOW())",
-                                   "(123, NOW() + 1)",
-                                   "(122 + 1, NOW())",
-                                   "(123, NOW())").setDelimiter(", "),
-                           "");
+                           "insert into offer_detail (offer_id, gmt) values (123,now()),(123,now()+1),(123,now()),(122+1,now())");
         asserter = new RouteNodeAsserter(nameAsserter, sqlAsserter);
         for (RouteResultsetNode node : nodeMap.values()) {
             asserter.assertNode(node);
@@ -775,45 +782,13 @@ public class ServerRouteTest extends AbstractAliasConvert {
                 "offer_dn[30]");
         nameAsserter.assertRouteNodeNames(nodeMap.keySet());
         sqlAsserter = new SimpleSQLAsserter();
-        sqlAsserter.addExpectSQL(
-                           0,
-                           "INSERT INTO offer (offer_id, group_id, gmt) VALUES ",
-                           new PermutationGenerator("(345, 123, NOW())", "(123, 345, NOW())", "(234, 234, NOW())").setDelimiter(", "),
-                           "")
-                   .addExpectSQL(
-                           1,
-                           "INSERT INTO offer (offer_id, group_id, gmt) VALUES ",
-                           new PermutationGenerator("(345, 456, NOW())", "(456, 345, NOW())").setDelimiter(", "),
-                           "")
-                   .addExpectSQL(
-                           2,
-                           "INSERT INTO offer (offer_id, group_id, gmt) VALUES ",
-                           new PermutationGenerator("(456, 234, NOW())", "(234, 456, NOW())", "(345, 345, NOW())").setDelimiter(", "),
-                           "")
-                   .addExpectSQL(
-                           3,
-                           "INSERT INTO offer (offer_id, group_id, gmt) VALUES ",
-                           new PermutationGenerator(
-                                   "(123, 456, NOW())",
-                                   "(345, 234, NOW())",
-                                   "(234, 345, NOW())",
-                                   "(456, 123, NOW())").setDelimiter(", "),
-                           "")
-                   .addExpectSQL(
-                           4,
-                           "INSERT INTO offer (offer_id, group_id, gmt) VALUES ",
-                           new PermutationGenerator("(456, 456, NOW())").setDelimiter(", "),
-                           "")
-                   .addExpectSQL(
-                           5,
-                           "INSERT INTO offer (offer_id, group_id, gmt) VALUES ",
-                           new PermutationGenerator("(234, 123, NOW())", "(123, 234, NOW())").setDelimiter(", "),
-                           "")
-                   .addExpectSQL(
-                           6,
-                           "INSERT INTO offer (offer_id, group_id, gmt) VALUES ",
-                           new PermutationGenerator("(123, 123, NOW())").setDelimiter(", "),
-                           "");
+        sqlAsserter.addExpectSQL(0, "insert into offer (offer_id, group_id, gmt) values (123, 345, now()),(234, 234, now()),(345, 123, now())")
+                   .addExpectSQL(1, "insert into offer (offer_id, group_id, gmt) values (345, 456, now()),(456, 345, now())")
+                   .addExpectSQL(2, "insert into offer (offer_id, group_id, gmt) values (234, 456, now()),(345, 345, now()),(456, 234, now())")
+                   .addExpectSQL(3, "insert into offer (offer_id, group_id, gmt) values (123, 456, now()),(234, 345, now()),(345, 234, now()),(456, 123, now())")
+                   .addExpectSQL(4, "insert into offer (offer_id, group_id, gmt) values (456, 456, now())")
+                   .addExpectSQL(5, "insert into offer (offer_id, group_id, gmt) values (123, 234, now()),(234, 123, now())")
+                   .addExpectSQL(6, "insert into offer (offer_id, group_id, gmt) values (123, 123, now())");
         asserter = new RouteNodeAsserter(nameAsserter, sqlAsserter);
         for (RouteResultsetNode node : nodeMap.values()) {
             asserter.assertNode(node);
@@ -915,9 +890,9 @@ public class ServerRouteTest extends AbstractAliasConvert {
         NodeNameAsserter nameAsserter = new NodeNameAsserter("offer_dn[123]", "offer_dn[10]");
         nameAsserter.assertRouteNodeNames(nodeMap.keySet());
         SimpleSQLAsserter sqlAsserter = new SimpleSQLAsserter();
-        sqlAsserter.addExpectSQL(0, "SELECT COUNT(*) FROM wp_image WHERE member_id IN ('pavarotti17')").addExpectSQL(
+        sqlAsserter.addExpectSQL(0, "select count(*) from wp_image where member_id in ('pavarotti17')").addExpectSQL(
                 1,
-                "SELECT COUNT(*) FROM wp_image WHERE member_id IN ('qaa')");
+                "select count(*) from wp_image where member_id in ('qaa')");
         RouteNodeAsserter asserter = new RouteNodeAsserter(nameAsserter, sqlAsserter);
         for (RouteResultsetNode node : nodeMap.values()) {
             asserter.assertNode(node);
@@ -933,8 +908,8 @@ public class ServerRouteTest extends AbstractAliasConvert {
         nameAsserter = new NodeNameAsserter("offer_dn[123]", "offer_dn[10]");
         nameAsserter.assertRouteNodeNames(nodeMap.keySet());
         sqlAsserter = new SimpleSQLAsserter();
-        sqlAsserter.addExpectSQL(0, "SELECT MIN(id) FROM wp_image WHERE member_id IN ('pavarotti17') LIMIT 0, 99")
-                   .addExpectSQL(1, "SELECT MIN(id) FROM wp_image WHERE member_id IN ('qaa') LIMIT 0, 99");
+        sqlAsserter.addExpectSQL(0, "select min(id) from wp_image where member_id in ('pavarotti17') limit 99")
+                   .addExpectSQL(1, "select min(id) from wp_image where member_id in ('qaa') limit 99");
         asserter = new RouteNodeAsserter(nameAsserter, sqlAsserter);
         for (RouteResultsetNode node : nodeMap.values()) {
             asserter.assertNode(node);
@@ -1358,7 +1333,7 @@ public class ServerRouteTest extends AbstractAliasConvert {
         Assert.assertEquals(1, rrs.getNodes().length);
         Assert.assertEquals((int) RouteResultsetNode.DEFAULT_REPLICA_INDEX, rrs.getNodes()[0].getReplicaIndex());
         Assert.assertEquals("offer_dn[0]", rrs.getNodes()[0].getName());
-        Assert.assertEquals("DESC offer", rrs.getNodes()[0].getStatement());
+        Assert.assertEquals("desc offer", rrs.getNodes()[0].getStatement());
 
         sql = "SHOW FULL COLUMNS FROM  offer  IN db_name WHERE true";
         rrs = ServerRouter.route(schema, sql, null, null);
@@ -1769,14 +1744,13 @@ public class ServerRouteTest extends AbstractAliasConvert {
         Assert.assertEquals(sql, rrs.getNodes()[0].getStatement());
         sql = "select * from ignoreSchemaTest.offer where ignoreSchemaTest.offer.offer_id=1";
         rrs = ServerRouter.route(schema, sql, null, null);
-        Assert.assertEquals("SELECT * FROM offer WHERE offer.offer_id = 1", rrs.getNodes()[0].getStatement());
+        Assert.assertEquals("select * from offer where offer.offer_id=1", rrs.getNodes()[0].getStatement());
         sql = "select * from ignoreSchemaTest2.offer where ignoreSchemaTest2.offer.offer_id=1";
         rrs = ServerRouter.route(schema, sql, null, null);
         Assert.assertEquals(sql, rrs.getNodes()[0].getStatement());
         sql = "select * from ignoreSchemaTest2.offer a,ignoreSchemaTest.offer b  where ignoreSchemaTest2.offer.offer_id=1";
         rrs = ServerRouter.route(schema, sql, null, null);
-        Assert.assertEquals("SELECT * FROM ignoreSchemaTest2.offer AS " + aliasConvert("a") + ", offer AS "
-                + aliasConvert("b") + " WHERE ignoreSchemaTest2.offer.offer_id = 1", rrs.getNodes()[0].getStatement());
+        Assert.assertEquals("select * from ignoreSchemaTest2.offer a,offer b  where ignoreSchemaTest2.offer.offer_id=1", rrs.getNodes()[0].getStatement());
 
         schema = schemaMap.get("ignoreSchemaTest0");
         sql = "select * from offer where offer_id=1";
@@ -1785,7 +1759,7 @@ public class ServerRouteTest extends AbstractAliasConvert {
         sql = "select * from ignoreSchemaTest0.offer where ignoreSchemaTest.offer.offer_id=1";
         rrs = ServerRouter.route(schema, sql, null, null);
         Assert.assertEquals(
-                "SELECT * FROM offer WHERE ignoreSchemaTest.offer.offer_id = 1",
+                "select * from offer where ignoreSchemaTest.offer.offer_id=1",
                 rrs.getNodes()[0].getStatement());
         sql = "insert into offer (group_id, offer_id, gmt) values (234,123,now())";
         schema = schemaMap.get("ignoreSchemaTest0");
@@ -1805,7 +1779,7 @@ public class ServerRouteTest extends AbstractAliasConvert {
         Assert.assertEquals((int) RouteResultsetNode.DEFAULT_REPLICA_INDEX, rrs.getNodes()[0].getReplicaIndex());
         Assert.assertEquals("offer_dn[44]", rrs.getNodes()[0].getName());
         Assert.assertEquals(
-                "INSERT INTO offer (group_id, offer_id, gmt) VALUES (234, 123, NOW())",
+                "insert into offer (group_id, offer_id, gmt) values (234,123,now())",
                 rrs.getNodes()[0].getStatement());
         sql = "insert into ignoreSchemaTest2.offer (group_id, offer_id, gmt) values (234,123,now())";
         schema = schemaMap.get("ignoreSchemaTest0");
@@ -1817,11 +1791,31 @@ public class ServerRouteTest extends AbstractAliasConvert {
         rrs = ServerRouter.route(schema, sql, null, null);
         Assert.assertEquals("cndb_dn", rrs.getNodes()[0].getName());
         Assert.assertEquals(
-                "INSERT INTO ignoreSchemaTest2.offer (offer.group_id, offer_id, gmt) VALUES (234, 123, NOW())",
+                "insert into ignoreSchemaTest2.offer (offer.group_id, offer_id, gmt) values (234,123,now())",
                 rrs.getNodes()[0].getStatement());
 
     }
 
+    public void testKeepSourceText() throws Exception {
+        SchemaConfig schema = schemaMap.get("cndb");
+        String sql = "insert /* keep */ into offer.wp_image (member_id,gmt)\nvalues ('pavarotti17',now()),\n('123',now()) /* end */";
+        RouteResultset rrs = ServerRouter.route(schema, sql, null, null);
+        Map<String, RouteResultsetNode> nodeMap = getNodeMap(rrs, 2);
+        Assert.assertEquals(
+                "insert /* keep */ into wp_image (member_id,gmt)\nvalues ('pavarotti17',now()) /* end */",
+                nodeMap.get("offer_dn[123]").getStatement());
+        Assert.assertEquals(
+                "insert /* keep */ into wp_image (member_id,gmt)\nvalues ('123',now()) /* end */",
+                nodeMap.get("offer_dn[70]").getStatement());
+
+        sql = "select /* keep */ * from `offer` /* s */.wp_image where `offer`. wp_image.member_id='abc'";
+        rrs = ServerRouter.route(schema, sql, null, null);
+        Assert.assertEquals(1, rrs.getNodes().length);
+        Assert.assertEquals(
+                "select /* keep */ * from  /* s */wp_image where  wp_image.member_id='abc'",
+                rrs.getNodes()[0].getStatement());
+    }
+
     public void testNonPartitionSQL() throws Exception {
 
         SchemaConfig schema = schemaMap.get("cndb");
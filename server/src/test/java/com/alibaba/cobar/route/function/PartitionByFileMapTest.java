@@ -0,0 +1,107 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.route.function;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.parser.ast.expression.Expression;
+import com.alibaba.cobar.parser.ast.expression.primary.PlaceHolder;
+import com.alibaba.cobar.parser.util.ListUtil;
+
+public class PartitionByFileMapTest extends TestCase {
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("app", ".map");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    @SuppressWarnings("unchecked")
+    private PartitionByFileMap create(Integer defaultNode) {
+        PartitionByFileMap proto = new PartitionByFileMap("fileMap");
+        proto.setFileMapPath(file.getPath());
+        proto.setDefaultNode(defaultNode);
+        PartitionByFileMap sut = (PartitionByFileMap) proto.constructFunction((List<Expression>) ListUtil.createList(new PlaceHolder(
+                "app",
+                "APP").setCacheEvalRst(false)));
+        sut.init();
+        return sut;
+    }
+
+    public void testLookup() throws IOException {
+        StringBuilder s = new StringBuilder("# comment\n");
+        for (int i = 999; i >= 0; --i) {
+            s.append("app").append(i).append(" = ").append(i % 7).append('\n');
+        }
+        s.append("bad line\n").append("x=abc\n").append("app5=6\n").append("app-x=3\n");
+        write(s.toString());
+        PartitionByFileMap sut = create(null);
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertEquals(i == 5 ? 6 : i % 7, (int) execute(sut, "app" + i));
+        }
+        Assert.assertEquals(3, (int) execute(sut, "app-x"));
+        Assert.assertNull(execute(sut, "app1000"));
+        Assert.assertNull(execute(sut, "app"));
+        Assert.assertEquals(-1, sut.partition("x"));
+
+        sut = create(2);
+        Assert.assertEquals(2, (int) execute(sut, "none"));
+        Assert.assertEquals(2, sut.partition("none"));
+    }
+
+    public void testReload() throws IOException {
+        write("1=0\n2=1\n");
+        PartitionByFileMap sut = create(0);
+        Assert.assertEquals(1, sut.partition(2L));
+        Assert.assertEquals(1, (int) execute(sut, 2L));
+        Assert.assertEquals(-1, sut.prepareReload());
+
+        write("1=0\n2=3\n");
+        file.setLastModified(file.lastModified() + 2000);
+        Assert.assertEquals(3, sut.prepareReload());
+        sut.commitReload();
+        Assert.assertEquals(3, sut.partition("2"));
+    }
+
+    private void write(String content) throws IOException {
+        FileWriter w = new FileWriter(file);
+        try {
+            w.write(content);
+        } finally {
+            w.close();
+        }
+    }
+
+    private static Integer execute(PartitionByFileMap sut, Object key) {
+        Map<String, Object> map = new HashMap<String, Object>(1, 1);
+        map.put("APP", key);
+        return sut.calculate(map)[0];
+    }
+
+}
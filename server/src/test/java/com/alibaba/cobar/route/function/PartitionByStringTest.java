@@ -867,6 +867,25 @@ public class PartitionByStringTest extends TestCase {
 
     }
 
+    @SuppressWarnings("unchecked")
+    public void testPrimitivePartition() {
+        PartitionByString sut = new PartitionByString(
+                "test   ",
+                (List<Expression>) ListUtil.createList(new PlaceHolder("member_id", "MEMBER_ID").setCacheEvalRst(false)));
+        sut.setCacheEvalRst(false);
+        sut.setHashSlice("-2:");
+        sut.setPartitionCount("16");
+        sut.setPartitionLength("64");
+        sut.init();
+        Assert.assertEquals("MEMBER_ID", sut.getKeyColumn());
+        for (int i = 0; i < 100; ++i) {
+            String key = UUID.randomUUID().toString();
+            Assert.assertEquals((int) execute(sut, key), sut.partition(key));
+            Assert.assertEquals((int) execute(sut, key), sut.partition(new StringBuilder(key)));
+        }
+        Assert.assertEquals((int) execute(sut, "123456"), sut.partition(123456L));
+    }
+
     private static Integer execute(PartitionByString sut, String key) {
         Map<String, Object> map = new HashMap<String, Object>(1, 1);
         map.put("MEMBER_ID", key);
@@ -0,0 +1,112 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.route.function;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.parser.ast.expression.Expression;
+import com.alibaba.cobar.parser.ast.expression.primary.PlaceHolder;
+import com.alibaba.cobar.parser.util.ListUtil;
+
+public class PartitionByVirtualBucketTest extends TestCase {
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("bucket", ".map");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    @SuppressWarnings("unchecked")
+    private PartitionByVirtualBucket create(String keyType) {
+        PartitionByVirtualBucket proto = new PartitionByVirtualBucket("bucket");
+        proto.setBucketCount(16);
+        proto.setKeyType(keyType);
+        proto.setBucketMapFile(file.getPath());
+        PartitionByVirtualBucket sut = (PartitionByVirtualBucket) proto.constructFunction((List<Expression>) ListUtil.createList(new PlaceHolder(
+                "id",
+                "ID").setCacheEvalRst(false)));
+        sut.init();
+        return sut;
+    }
+
+    public void testPartitionAndReload() throws IOException {
+        write("# comment\n0-7=0\n8-14=1\n15=2\n");
+        PartitionByVirtualBucket sut = create("long");
+        Assert.assertEquals("ID", sut.getKeyColumn());
+        Assert.assertEquals(0, sut.partition(3L));
+        Assert.assertEquals(1, sut.partition(8L));
+        Assert.assertEquals(2, sut.partition(15L));
+        Assert.assertEquals(2, sut.partition(31L));
+        Assert.assertEquals(1, sut.partition("24"));
+        Assert.assertEquals(1, (int) execute(sut, 24L));
+        Assert.assertEquals(-1, sut.prepareReload());
+
+        write("0-7=0\n8-15=3\n");
+        file.setLastModified(file.lastModified() + 2000);
+        Assert.assertEquals(3, sut.prepareReload());
+        // 生效之前仍使用原有映射
+        Assert.assertEquals(2, sut.partition(15L));
+        sut.commitReload();
+        Assert.assertEquals(3, sut.partition(15L));
+        Assert.assertEquals(0, sut.partition(3L));
+
+        // 映射不完整时保留原有映射
+        write("0-7=0\n");
+        file.setLastModified(file.lastModified() + 2000);
+        try {
+            sut.prepareReload();
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+        }
+        Assert.assertEquals(3, sut.partition(15L));
+    }
+
+    public void testStringKey() throws IOException {
+        write("0-15=1\n");
+        PartitionByVirtualBucket sut = create("string");
+        Assert.assertEquals(1, sut.partition("abc"));
+        Assert.assertEquals(1, (int) execute(sut, "abc"));
+    }
+
+    private void write(String content) throws IOException {
+        FileWriter w = new FileWriter(file);
+        try {
+            w.write(content);
+        } finally {
+            w.close();
+        }
+    }
+
+    private static Integer execute(PartitionByVirtualBucket sut, Object key) {
+        Map<String, Object> map = new HashMap<String, Object>(1, 1);
+        map.put("ID", key);
+        return sut.calculate(map)[0];
+    }
+
+}
@@ -15,8 +15,10 @@
  */
 package com.alibaba.cobar.sample;
 
+import java.security.NoSuchAlgorithmException;
 import java.util.Set;
 
+import com.alibaba.cobar.mysql.SecurityUtil;
 import com.alibaba.cobar.net.handler.FrontendPrivileges;
 
 /**
@@ -42,10 +44,29 @@ public class SamplePrivileges implements FrontendPrivileges {
         return conf.getUsers().get(user);
     }
 
+    @Override
+    public byte[] getPasswordHash(String user) {
+        String pass = getPassword(user);
+        if (pass == null || pass.length() == 0) {
+            return null;
+        }
+        try {
+            return SecurityUtil.passwordHash(pass.getBytes());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Override
     public Set<String> getUserSchemas(String user) {
         SampleConfig conf = SampleServer.getInstance().getConfig();
         return conf.getUserSchemas().get(user);
     }
 
+    @Override
+    public boolean isSchemaAllowed(String user, String schema) {
+        Set<String> schemas = getUserSchemas(user);
+        return schemas == null || schemas.isEmpty() || schemas.contains(schema);
+    }
+
 }
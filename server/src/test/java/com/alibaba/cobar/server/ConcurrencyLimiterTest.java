@@ -0,0 +1,53 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.server;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class ConcurrencyLimiterTest extends TestCase {
+
+    public void testUnlimited() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        for (int i = 0; i < 10; i++) {
+            Assert.assertNotNull(limiter.acquire("u", 0, "s", 0));
+        }
+        Assert.assertEquals(0, limiter.getUserCount("u"));
+    }
+
+    public void testAcquire() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        Runnable r1 = limiter.acquire("u", 2, "s", 3);
+        Runnable r2 = limiter.acquire("u", 2, "s", 3);
+        Assert.assertNotNull(r1);
+        Assert.assertNotNull(r2);
+        Assert.assertNull(limiter.acquire("u", 2, "s", 3));
+        Assert.assertEquals(2, limiter.getUserCount("u"));
+        Assert.assertEquals(2, limiter.getSchemaCount("s"));
+
+        Runnable r3 = limiter.acquire("v", 2, "s", 3);
+        Assert.assertNotNull(r3);
+        Assert.assertNull(limiter.acquire("w", 2, "s", 3));
+        Assert.assertEquals(0, limiter.getUserCount("w"));
+        Assert.assertEquals(3, limiter.getSchemaCount("s"));
+
+        r1.run();
+        Assert.assertEquals(1, limiter.getUserCount("u"));
+        Assert.assertEquals(2, limiter.getSchemaCount("s"));
+        Assert.assertNotNull(limiter.acquire("w", 2, "s", 3));
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.server;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.config.loader.SchemaLoader;
+import com.alibaba.cobar.config.loader.xml.XMLSchemaLoader;
+import com.alibaba.cobar.config.model.DataNodeConfig;
+import com.alibaba.cobar.config.model.DataSourceConfig;
+import com.alibaba.cobar.config.model.SchemaConfig;
+import com.alibaba.cobar.mysql.MySQLDataNode;
+import com.alibaba.cobar.mysql.MySQLDataSource;
+import com.alibaba.cobar.route.RouteResultset;
+import com.alibaba.cobar.route.ServerRouter;
+import com.alibaba.cobar.route.config.RouteRuleInitializer;
+
+public class InsertBatchTest extends TestCase {
+    private Map<String, SchemaConfig> schemaMap;
+
+    @Override
+    protected void setUp() throws Exception {
+        SchemaLoader schemaLoader = new XMLSchemaLoader("/route/schema.xml", "/route/rule.xml");
+        RouteRuleInitializer.initRouteRule(schemaLoader);
+        schemaMap = schemaLoader.getSchemas();
+    }
+
+    public void testBuild() throws Exception {
+        SchemaConfig schema = schemaMap.get("cndb");
+        Map<String, MySQLDataNode> dataNodes = dataNodes(schema, 1);
+        String node1 = ServerRouter.route(schema, "insert into offer_detail (offer_id, gmt) values (123, 'a')", null,
+                null).getNodes()[0].getName();
+        String node2 = ServerRouter.route(schema, "insert into offer_detail (offer_id, gmt) values (200, 'b')", null,
+                null).getNodes()[0].getName();
+        Assert.assertFalse(node1.equals(node2));
+
+        InsertBatch batch = InsertBatch.build(Arrays.asList(
+                "insert into offer_detail (offer_id, gmt) values (123, 'a')",
+                "insert into offer_detail (offer_id, gmt) values (200, 'b;')",
+                "insert into offer_detail (offer_id, gmt) VALUES(123,'c') /* x */",
+                "insert into offer_detail (gmt, offer_id) values ('d', 123)"), schema, null, null, dataNodes);
+        Assert.assertEquals(3, batch.getCount());
+
+        // 按节点合并，行的原文不变
+        RouteResultset rrs = batch.next();
+        Assert.assertEquals(1, rrs.getNodes().length);
+        Assert.assertEquals(node1, rrs.getNodes()[0].getName());
+        Assert.assertEquals("insert into offer_detail (offer_id, gmt) values (123, 'a'),(123,'c')",
+                rrs.getNodes()[0].getStatement());
+        Assert.assertEquals(InsertBatch.NEXT, batch.collect(ok(2, 10)));
+        rrs = batch.next();
+        Assert.assertEquals(node2, rrs.getNodes()[0].getName());
+        Assert.assertEquals("insert into offer_detail (offer_id, gmt) values (200, 'b;')",
+                rrs.getNodes()[0].getStatement());
+
+        // 响应可以分多次写出
+        ByteBuffer ok = ok(1, 20);
+        ByteBuffer part = ByteBuffer.allocate(16);
+        part.put(ok.array(), 0, 3);
+        Assert.assertEquals(InsertBatch.RUNNING, batch.collect(part));
+        part.clear();
+        part.put(ok.array(), 3, ok.position() - 3);
+        Assert.assertEquals(InsertBatch.END, batch.collect(part));
+        Assert.assertFalse(batch.isPartialFailed());
+        // 第三条语句是第一个节点的第二行
+        Assert.assertEquals(11, batch.getLastInsertId());
+    }
+
+    public void testNotBatched() throws Exception {
+        SchemaConfig schema = schemaMap.get("cndb");
+        Map<String, MySQLDataNode> dataNodes = dataNodes(schema, 1);
+        Assert.assertNull(InsertBatch.build(Arrays.asList(
+                "insert into offer_detail (offer_id, gmt) values (123, 'a')",
+                "select 1"), schema, null, null, dataNodes));
+        Assert.assertNull(InsertBatch.build(Arrays.asList(
+                "insert into offer_detail (offer_id, gmt) values (123, 'a'), (200, 'b')",
+                "insert into offer_detail (offer_id, gmt) values (123, 'c')"), schema, null, null, dataNodes));
+        Assert.assertNull(InsertBatch.build(Arrays.asList(
+                "insert ignore into offer_detail (offer_id, gmt) values (123, 'a')",
+                "insert ignore into offer_detail (offer_id, gmt) values (123, 'b')"), schema, null, null, dataNodes));
+        Assert.assertNull(InsertBatch.build(Arrays.asList(
+                "insert into offer_detail (offer_id, gmt) values (123, 'a')",
+                "insert into offer_detail (offer_id, gmt) values (123, 'b') on duplicate key update gmt = 'c'"),
+                schema, null, null, dataNodes));
+    }
+
+    public void testError() throws Exception {
+        SchemaConfig schema = schemaMap.get("cndb");
+        Map<String, MySQLDataNode> dataNodes = dataNodes(schema, 1);
+        InsertBatch batch = InsertBatch.build(Arrays.asList(
+                "insert into offer_detail (offer_id, gmt) values (123, 'a')",
+                "insert into offer_detail (offer_id, gmt) values (200, 'b')"), schema, null, null, dataNodes);
+        Assert.assertEquals(InsertBatch.NEXT, batch.collect(ok(1, 0)));
+        ByteBuffer error = ByteBuffer.allocate(16);
+        error.put(new byte[] { 3, 0, 0, 1, (byte) 0xff, 0x26, 0x04 });
+        Assert.assertEquals(InsertBatch.END, batch.collect(error));
+        Assert.assertTrue(batch.isPartialFailed());
+    }
+
+    public void testIncrement() throws Exception {
+        SchemaConfig schema = schemaMap.get("cndb");
+        InsertBatch batch = InsertBatch.build(Arrays.asList(
+                "insert into offer_detail (offer_id, gmt) values (123, 'a')",
+                "insert into offer_detail (offer_id, gmt) values (123, 'b')",
+                "insert into offer_detail (offer_id, gmt) values (123, 'c')"), schema, null, null,
+                dataNodes(schema, 2));
+        Assert.assertEquals(3, batch.getCount());
+        Assert.assertEquals(InsertBatch.END, batch.collect(ok(3, 11)));
+        Assert.assertEquals(15, batch.getLastInsertId());
+
+        // 还没有读取到自增步长的节点不合并
+        Assert.assertNull(InsertBatch.build(Arrays.asList(
+                "insert into offer_detail (offer_id, gmt) values (123, 'a')",
+                "insert into offer_detail (offer_id, gmt) values (123, 'b')"), schema, null, null,
+                dataNodes(schema, 0)));
+    }
+
+    private static Map<String, MySQLDataNode> dataNodes(SchemaConfig schema, int increment) {
+        Map<String, MySQLDataNode> dataNodes = new HashMap<String, MySQLDataNode>();
+        for (String name : schema.getAllDataNodes()) {
+            DataNodeConfig config = new DataNodeConfig();
+            config.setName(name);
+            MySQLDataNode node = new MySQLDataNode(config);
+            MySQLDataSource source = new MySQLDataSource(node, 0, new DataSourceConfig(), 1);
+            source.setAutoIncrementIncrement(increment);
+            node.setSources(new MySQLDataSource[] { source });
+            dataNodes.put(name, node);
+        }
+        return dataNodes;
+    }
+
+    private static ByteBuffer ok(int affectedRows, int insertId) {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.put(new byte[] { 7, 0, 0, 1, 0, (byte) affectedRows, (byte) insertId, 3, 0, 0, 0 });
+        return buffer;
+    }
+
+}
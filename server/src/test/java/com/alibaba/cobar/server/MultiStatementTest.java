@@ -0,0 +1,154 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.alibaba.cobar.server.parser.ServerParseMulti;
+
+public class MultiStatementTest extends TestCase {
+    private static final byte[] OK = { 0x00, 0x01, (byte) 0xfc, 0x10, 0x27, 0x02, 0x00, 0x00, 0x00 };
+    private static final byte[] EOF = { (byte) 0xfe, 0x00, 0x00, 0x02, 0x00 };
+    private static final byte[] ERROR = { (byte) 0xff, 0x48, 0x04, '#', 'H', 'Y', '0', '0', '0' };
+
+    public void testSplit() {
+        Assert.assertEquals(Arrays.asList("select 1"), ServerParseMulti.split("select 1;"));
+        Assert.assertEquals(Arrays.asList("insert into t values(';', \"a;\\\";\")", "update `a;b` set c=1"),
+                ServerParseMulti.split(" insert into t values(';', \"a;\\\";\") ;; update `a;b` set c=1 ; "));
+        Assert.assertEquals(Arrays.asList("select 1 /* ; */", "select 2 # ;", "select 3 -- ;"),
+                ServerParseMulti.split("select 1 /* ; */;select 2 # ;\n;select 3 -- ;"));
+        Assert.assertEquals(Arrays.asList("select 'it''s;'", "select 1--1"),
+                ServerParseMulti.split("select 'it''s;';select 1--1"));
+    }
+
+    public void testTrack() {
+        // OK, 结果集, OK
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet(out, 1, OK);
+        packet(out, 1, new byte[] { 1 });
+        packet(out, 2, new byte[] { 3, 'd', 'e', 'f' });
+        packet(out, 3, EOF);
+        packet(out, 4, new byte[] { (byte) 0xfe, 1, 0, 0, 0, 0, 0, 0, 0, 'x' });
+        packet(out, 5, EOF);
+        packet(out, 1, OK);
+        byte[] response = out.toByteArray();
+
+        // 下一条语句在前一条语句的响应写完后才执行，所以各语句的响应分别写出。
+        int[] ends = { 13, 58, response.length };
+        for (int size = 1; size <= response.length; ++size) {
+            MultiStatement ms = new MultiStatement(Arrays.asList("a", "b", "c"));
+            ms.next();
+            byte[] tracked = new byte[response.length];
+            StringBuilder states = new StringBuilder();
+            int offset = 0;
+            for (int end : ends) {
+                while (offset < end) {
+                    int n = Math.min(size, end - offset);
+                    ByteBuffer buffer = ByteBuffer.allocate(size);
+                    buffer.put(response, offset, n);
+                    int state = ms.track(buffer);
+                    if (state != MultiStatement.RUNNING) {
+                        states.append(state);
+                        if (state == MultiStatement.NEXT) {
+                            ms.next();
+                        }
+                    }
+                    System.arraycopy(buffer.array(), 0, tracked, offset, n);
+                    offset += n;
+                }
+            }
+            Assert.assertEquals("112", states.toString());
+
+            // 序号连续
+            int[] starts = { 0, 13, 18, 26, 35, 49, 58 };
+            for (int i = 0; i < starts.length; ++i) {
+                Assert.assertEquals(i + 1, tracked[starts[i] + 3]);
+            }
+            // 前两条语句的结束包设置SERVER_MORE_RESULTS_EXISTS，最后一条不设置
+            Assert.assertEquals(0x0a, tracked[4 + 5]);
+            Assert.assertEquals(0x0a, tracked[49 + 4 + 3]);
+            Assert.assertEquals(0x02, tracked[58 + 4 + 5]);
+            // 以0xfe开始的数据行不是EOF
+            Assert.assertEquals((byte) 0xfe, tracked[35 + 4]);
+            Assert.assertEquals(0x00, tracked[35 + 4 + 3]);
+        }
+    }
+
+    public void testError() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet(out, 1, ERROR);
+        MultiStatement ms = new MultiStatement(Arrays.asList("a", "b"));
+        ms.next();
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.put(out.toByteArray());
+        Assert.assertEquals(MultiStatement.END, ms.track(buffer));
+    }
+
+    public void testBatch() {
+        // 后两条语句合并执行，响应一次写出
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet(out, 1, OK);
+        packet(out, 2, OK);
+        MultiStatement ms = new MultiStatement(Arrays.asList("a", "b", "c"));
+        ms.next();
+        Assert.assertEquals(Arrays.asList("b", "c"), ms.remaining());
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.put(out.toByteArray(), 0, 13);
+        Assert.assertEquals(MultiStatement.NEXT, ms.track(buffer));
+        ms.next(2);
+        buffer = ByteBuffer.allocate(64);
+        buffer.put(out.toByteArray());
+        Assert.assertEquals(MultiStatement.END, ms.track(buffer));
+        Assert.assertEquals(2, buffer.get(3));
+        Assert.assertEquals(0x0a, buffer.get(4 + 5));
+        Assert.assertEquals(3, buffer.get(13 + 3));
+        Assert.assertEquals(0x02, buffer.get(13 + 4 + 5));
+    }
+
+    public void testSingle() {
+        // 单条语句的结果集，最后的EOF写出时结束，数据包不被改写
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet(out, 1, new byte[] { 1 });
+        packet(out, 2, new byte[] { 3, 'd', 'e', 'f' });
+        packet(out, 3, EOF);
+        packet(out, 4, new byte[] { 1, 'x' });
+        packet(out, 5, EOF);
+        byte[] response = out.toByteArray();
+        MultiStatement ms = MultiStatement.single();
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.put(response, 0, response.length - 9);
+        Assert.assertEquals(MultiStatement.RUNNING, ms.track(buffer));
+        buffer = ByteBuffer.allocate(64);
+        buffer.put(response, response.length - 9, 9);
+        Assert.assertEquals(MultiStatement.END, ms.track(buffer));
+        Assert.assertEquals(5, buffer.get(3));
+        Assert.assertEquals(0x02, buffer.get(4 + 3));
+    }
+
+    private static void packet(ByteArrayOutputStream out, int id, byte[] payload) {
+        out.write(payload.length & 0xff);
+        out.write((payload.length >>> 8) & 0xff);
+        out.write((payload.length >>> 16) & 0xff);
+        out.write(id);
+        out.write(payload, 0, payload.length);
+    }
+
+}
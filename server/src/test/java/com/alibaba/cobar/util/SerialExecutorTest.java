@@ -0,0 +1,102 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.cobar.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class SerialExecutorTest extends TestCase {
+    private ExecutorService pool;
+    private int count;
+
+    @Override
+    protected void setUp() throws Exception {
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        pool.shutdownNow();
+    }
+
+    public void testSerial() throws Exception {
+        final SerialExecutor executor = new SerialExecutor(pool);
+        final AtomicBoolean running = new AtomicBoolean(false);
+        final AtomicBoolean overlapped = new AtomicBoolean(false);
+        final int threads = 4;
+        final int tasks = 10000;
+        final CountDownLatch done = new CountDownLatch(threads * tasks);
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                if (!running.compareAndSet(false, true)) {
+                    overlapped.set(true);
+                }
+                ++count;
+                running.set(false);
+                done.countDown();
+            }
+        };
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < tasks; j++) {
+                        executor.execute(task);
+                    }
+                }
+            }.start();
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(threads * tasks, count);
+        Assert.assertFalse(overlapped.get());
+    }
+
+    public void testOrderAndHandOff() throws Exception {
+        final SerialExecutor executor = new SerialExecutor(pool);
+        final StringBuilder order = new StringBuilder();
+        final AtomicReference<Thread> runner = new AtomicReference<Thread>();
+        final CountDownLatch done = new CountDownLatch(1);
+        for (int i = 0; i < 200; i++) {
+            final int n = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runner.compareAndSet(null, Thread.currentThread());
+                    order.append(n).append(',');
+                    if (n == 199) {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            expected.append(i).append(',');
+        }
+        Assert.assertEquals(expected.toString(), order.toString());
+        Assert.assertNotSame(Thread.currentThread(), runner.get());
+    }
+
+}